@@ -0,0 +1,64 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark de memoria del catálogo de productos: 1M renglones de pedido
+ * sobre un catálogo de 10k productos. Cada nombre se arma de nuevo por
+ * renglón, como llega al leer un archivo o un formulario.
+ *
+ * Compara lo que ocupan los renglones (que guardan el id del producto)
+ * contra lo que ocuparían los mismos nombres guardados como String por
+ * renglón, que es lo que retenía cada ItemPedido antes del catálogo.
+ *
+ * Uso: java -Xmx2g BenchmarkCatalogo [productos] [renglones]
+ */
+public class BenchmarkCatalogo {
+    public static void main(String[] args) {
+        int productos = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int renglones = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        // Registrar el catálogo primero para medir solo los renglones
+        for (int i = 0; i < productos; i++) {
+            CatalogoProductos.idDe(nombreProducto(i));
+        }
+
+        long base = memoriaUsada();
+        List<String> nombresPorRenglon = new ArrayList<>(renglones);
+        for (int i = 0; i < renglones; i++) {
+            nombresPorRenglon.add(nombreProducto(i % productos));
+        }
+        long bytesNombres = memoriaUsada() - base;
+        nombresPorRenglon = null;
+
+        base = memoriaUsada();
+        List<PedidoProveedor.ItemPedido> items = new ArrayList<>(renglones);
+        for (int i = 0; i < renglones; i++) {
+            items.add(new PedidoProveedor.ItemPedido(nombreProducto(i % productos), 1 + i % 5, 1000.0));
+        }
+        long bytesItems = memoriaUsada() - base;
+
+        System.out.println("=== " + renglones + " RENGLONES, " + productos + " PRODUCTOS ===");
+        System.out.printf("Renglones con id de catálogo:       %8.1f MB (%5.1f B/renglón)%n",
+                mb(bytesItems), bytesItems / (double) renglones);
+        System.out.printf("Un String por renglón (ya no se retiene): %8.1f MB (%5.1f B/renglón)%n",
+                mb(bytesNombres), bytesNombres / (double) renglones);
+        System.out.printf("Antes (renglón + String):            %8.1f MB%n", mb(bytesItems + bytesNombres));
+        System.out.println("Renglones vivos: " + items.size());
+    }
+
+    private static String nombreProducto(int i) {
+        return new StringBuilder("Producto de catálogo #").append(i).toString();
+    }
+
+    private static long memoriaUsada() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double mb(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package ERICK-S-CONVENIENCE-STORE;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark del motor de cobertura: cientos de proveedores con catálogos
+ * aleatorios y una lista de reabastecimiento de miles de productos.
+ *
+ * Uso: java BenchmarkCobertura [proveedores] [productos] [pedidos]
+ */
+public class BenchmarkCobertura {
+    public static void main(String[] args) {
+        int cantidadProveedores = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int cantidadProductos = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int cantidadPedidos = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+        Random random = new Random(42);
+
+        GestorPedidos gestor = new GestorPedidos();
+        for (int p = 0; p < cantidadProveedores; p++) {
+            Proveedor proveedor = gestor.agregarProveedor("Proveedor " + p, "Empresa " + p, "300", "p@test.com");
+            int productos = 50 + random.nextInt(cantidadProductos / 10);
+            for (int i = 0; i < productos; i++) {
+                proveedor.agregarProducto("Producto " + random.nextInt(cantidadProductos));
+            }
+        }
+        Map<String, Integer> lista = new LinkedHashMap<>();
+        while (lista.size() < cantidadPedidos) {
+            lista.put("Producto " + random.nextInt(cantidadProductos), 1 + random.nextInt(10));
+        }
+
+        long inicio = System.nanoTime();
+        CoberturaProveedores.PlanReabastecimiento plan = gestor.planificarReabastecimiento(lista, false);
+        long construirYVoraz = System.nanoTime() - inicio;
+
+        // Calentar y medir ya con el índice armado
+        for (int i = 0; i < 20; i++) {
+            gestor.planificarReabastecimiento(lista, false);
+        }
+        inicio = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            plan = gestor.planificarReabastecimiento(lista, false);
+        }
+        long voraz = (System.nanoTime() - inicio) / 20;
+
+        inicio = System.nanoTime();
+        CoberturaProveedores.PlanReabastecimiento exacto = gestor.planificarReabastecimiento(lista, true);
+        long tiempoExacto = System.nanoTime() - inicio;
+
+        System.out.println("=== " + cantidadProveedores + " PROVEEDORES, " + cantidadPedidos + " PRODUCTOS PEDIDOS ===");
+        System.out.printf("Índice + voraz (primera vez): %8.2f ms%n", construirYVoraz / 1e6);
+        System.out.printf("Voraz:                        %8.2f ms  -> %d proveedores, %d sin cobertura%n",
+                voraz / 1e6, plan.getCantidadProveedores(), plan.getProductosSinCobertura().size());
+        System.out.printf("Exacto:                       %8.2f ms  -> %d proveedores (óptimo demostrado: %s)%n",
+                tiempoExacto / 1e6, exacto.getCantidadProveedores(), exacto.isOptimo());
+    }
+}
\ No newline at end of file
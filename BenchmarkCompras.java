@@ -0,0 +1,92 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Benchmark de throughput con varias cajas: cada caja registra compras y
+ * pagos sobre clientes compartidos mientras otro hilo consulta el tablero
+ * de deudas y el autocompletado, como en una tienda con varias cajas y un
+ * reporte abierto. Se mide con 1, 2, 4... cajas hasta el máximo indicado.
+ *
+ * Uso: java BenchmarkCompras [cajas] [operaciones por caja] [clientes]
+ */
+public class BenchmarkCompras {
+    public static void main(String[] args) throws Exception {
+        int maxCajas = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int operacionesPorCaja = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int cantidadClientes = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        // Calentamiento para que el JIT compile el camino de la compra
+        medir(maxCajas, operacionesPorCaja / 4, cantidadClientes);
+
+        System.out.println("=== COMPRAS Y PAGOS CONCURRENTES (" + cantidadClientes + " clientes, "
+                + operacionesPorCaja + " operaciones por caja) ===");
+        for (int cajas = 1; cajas <= maxCajas; cajas *= 2) {
+            Resultado resultado = medir(cajas, operacionesPorCaja, cantidadClientes);
+            System.out.printf("%2d cajas: %,12d operaciones/s   (%,d consultas del lector)%n", cajas,
+                    resultado.operacionesPorSegundo, resultado.consultas);
+        }
+    }
+
+    private static Resultado medir(int cajas, int operacionesPorCaja, int cantidadClientes) throws Exception {
+        GestorClientes gestor = new GestorClientes();
+        List<Cliente> lista = new ArrayList<>(cantidadClientes);
+        for (int i = 0; i < cantidadClientes; i++) {
+            lista.add(gestor.agregarCliente("Cliente " + i, "C" + i, "300"));
+        }
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(cajas + 1);
+        CountDownLatch inicio = new CountDownLatch(1);
+        AtomicBoolean terminado = new AtomicBoolean();
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int c = 0; c < cajas; c++) {
+            final int caja = c;
+            tareas.add(ejecutor.submit(() -> {
+                inicio.await();
+                for (int i = 0; i < operacionesPorCaja; i++) {
+                    Cliente cliente = lista.get((caja * 7919 + i) % lista.size());
+                    cliente.agregarCompra(2000.0);
+                    gestor.registrarPago(cliente.getId(), 1000.0);
+                }
+                return null;
+            }));
+        }
+        Future<Long> lector = ejecutor.submit(() -> {
+            inicio.await();
+            long consultas = 0;
+            while (!terminado.get()) {
+                gestor.topDeudores(10);
+                gestor.autocompletarClientes("clie", 5);
+                consultas++;
+            }
+            return consultas;
+        });
+
+        long inicioNanos = System.nanoTime();
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        long nanos = System.nanoTime() - inicioNanos;
+        terminado.set(true);
+        long consultas = lector.get();
+        ejecutor.shutdown();
+
+        long operaciones = 2L * cajas * operacionesPorCaja;
+        return new Resultado(operaciones * 1_000_000_000L / Math.max(1, nanos), consultas);
+    }
+
+    private static class Resultado {
+        private final long operacionesPorSegundo;
+        private final long consultas;
+
+        Resultado(long operacionesPorSegundo, long consultas) {
+            this.operacionesPorSegundo = operacionesPorSegundo;
+            this.consultas = consultas;
+        }
+    }
+}
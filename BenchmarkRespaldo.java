@@ -0,0 +1,125 @@
+package ERICK-S-CONVENIENCE-STORE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.zip.Deflater;
+
+/**
+ * Benchmark de los listados de texto del respaldo completo: compara
+ * guardarClientes() + guardarPedidos() (PrintWriter sobre FileWriter, uno
+ * después del otro) con RespaldoComprimido en uno y en todos los núcleos.
+ * Informa el tiempo de pared y los MB/s de texto generado.
+ *
+ * Uso: java BenchmarkRespaldo [clientes] [pedidos]
+ */
+public class BenchmarkRespaldo {
+    private static final int CALENTAMIENTO = 2;
+    private static final int MEDIDAS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int cantidadClientes = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int cantidadPedidos = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+
+        GestorClientes clientes = new GestorClientes();
+        for (int i = 0; i < cantidadClientes; i++) {
+            Cliente cliente = clientes.agregarCliente(BenchmarkSnapshot.nombrePersona(i), "C" + i, "300" + i);
+            cliente.agregarCompraCentavos(1000 + i % 5000);
+            if (i % 3 == 0) {
+                cliente.registrarPagoCentavos(500);
+            }
+        }
+        GestorPedidos pedidos = new GestorPedidos();
+        for (int p = 0; p < 200; p++) {
+            pedidos.agregarProveedor("Proveedor " + p, "Empresa " + p, "300", "p@test.com");
+        }
+        for (int i = 0; i < cantidadPedidos; i++) {
+            PedidoProveedor pedido = pedidos.crearPedido(1 + i % 200, new Date());
+            for (int r = 0; r < 5; r++) {
+                pedido.agregarItem("Producto " + (i + r) % 2000, 1 + r, 1500.0);
+            }
+        }
+
+        Path directorio = Files.createTempDirectory("benchmark-respaldo");
+        try {
+            SistemaRespaldo sistema = new SistemaRespaldo(directorio.toString());
+            long mejorPlano = Long.MAX_VALUE;
+            long bytesPlano = 0;
+            for (int vuelta = 0; vuelta < CALENTAMIENTO + MEDIDAS; vuelta++) {
+                vaciar(directorio);
+                long inicio = System.nanoTime();
+                sistema.guardarClientes(clientes);
+                sistema.guardarPedidos(pedidos);
+                long duracion = System.nanoTime() - inicio;
+                if (vuelta >= CALENTAMIENTO) {
+                    mejorPlano = Math.min(mejorPlano, duracion);
+                }
+                bytesPlano = tamanoTotal(directorio);
+            }
+
+            System.out.println("=== RESPALDO DE TEXTO: " + cantidadClientes + " clientes, "
+                    + cantidadPedidos + " pedidos ===");
+            System.out.printf("%-28s %10s %10s %10s%n", "", "ms", "MB/s", "MB disco");
+            imprimir("PrintWriter (actual)", mejorPlano, bytesPlano, bytesPlano);
+
+            int nucleos = Runtime.getRuntime().availableProcessors();
+            for (int hilos : nucleos > 1 ? new int[]{1, nucleos} : new int[]{1}) {
+                for (int nivel : new int[]{Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION}) {
+                    medirComprimido(directorio, clientes, pedidos, hilos, nivel);
+                }
+            }
+        } finally {
+            vaciar(directorio);
+            Files.deleteIfExists(directorio);
+        }
+    }
+
+    private static void medirComprimido(Path directorio, GestorClientes clientes, GestorPedidos pedidos,
+                                        int hilos, int nivel) throws IOException {
+        long mejor = Long.MAX_VALUE;
+        RespaldoComprimido.Resultado resultado = null;
+        try (RespaldoComprimido respaldo = new RespaldoComprimido(hilos, nivel)) {
+            for (int vuelta = 0; vuelta < CALENTAMIENTO + MEDIDAS; vuelta++) {
+                vaciar(directorio);
+                long inicio = System.nanoTime();
+                resultado = respaldo.guardar(directorio.resolve("clientes" + RespaldoComprimido.EXTENSION),
+                        directorio.resolve("pedidos" + RespaldoComprimido.EXTENSION), clientes, pedidos);
+                long duracion = System.nanoTime() - inicio;
+                if (vuelta >= CALENTAMIENTO) {
+                    mejor = Math.min(mejor, duracion);
+                }
+            }
+        }
+        String nombre = "gzip nivel " + (nivel == Deflater.DEFAULT_COMPRESSION ? 6 : nivel) + ", " + hilos
+                + (hilos == 1 ? " hilo" : " hilos");
+        imprimir(nombre, mejor, resultado.getBytesTexto(), resultado.getBytesComprimidos());
+    }
+
+    private static void imprimir(String nombre, long nanos, long bytesTexto, long bytesDisco) {
+        double megas = bytesTexto / (1024.0 * 1024.0);
+        System.out.printf("%-28s %10.1f %10.1f %10.1f%n", nombre, nanos / 1e6, megas / (nanos / 1e9),
+                bytesDisco / (1024.0 * 1024.0));
+    }
+
+    private static long tamanoTotal(Path directorio) {
+        long total = 0;
+        File[] archivos = directorio.toFile().listFiles();
+        if (archivos != null) {
+            for (File archivo : archivos) {
+                total += archivo.length();
+            }
+        }
+        return total;
+    }
+
+    private static void vaciar(Path directorio) {
+        File[] archivos = directorio.toFile().listFiles();
+        if (archivos != null) {
+            for (File archivo : archivos) {
+                archivo.delete();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+package ERICK-S-CONVENIENCE-STORE;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+/**
+ * Benchmark del snapshot binario: guarda y restaura 100k clientes con su
+ * libro de movimientos, más proveedores y pedidos.
+ *
+ * Uso: java BenchmarkSnapshot [clientes] [movimientosPorCliente] [pedidos]
+ */
+public class BenchmarkSnapshot {
+    public static void main(String[] args) throws Exception {
+        int cantidadClientes = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int movimientos = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int cantidadPedidos = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+
+        GestorClientes clientes = new GestorClientes();
+        for (int i = 0; i < cantidadClientes; i++) {
+            Cliente cliente = clientes.agregarCliente(nombrePersona(i), "C" + i, "300" + i);
+            for (int m = 0; m < movimientos; m++) {
+                cliente.agregarCompraCentavos(1000 + m);
+            }
+            cliente.registrarPagoCentavos(500);
+        }
+        GestorPedidos pedidos = new GestorPedidos();
+        for (int p = 0; p < 200; p++) {
+            Proveedor proveedor = pedidos.agregarProveedor("Proveedor " + p, "Empresa " + p, "300", "p@test.com");
+            for (int i = 0; i < 50; i++) {
+                proveedor.agregarProducto("Producto " + (p * 7 + i) % 2000);
+            }
+        }
+        for (int i = 0; i < cantidadPedidos; i++) {
+            PedidoProveedor pedido = pedidos.crearPedido(1 + i % 200, new Date());
+            for (int r = 0; r < 5; r++) {
+                pedido.agregarItem("Producto " + (i + r) % 2000, 1 + r, 1500.0);
+            }
+            if (i % 2 == 0) {
+                pedido.marcarComoEntregado();
+            }
+        }
+
+        Path archivo = Files.createTempFile("benchmark", SnapshotBinario.EXTENSION);
+        try {
+            long inicio = System.nanoTime();
+            long bytes = SnapshotBinario.guardar(archivo, clientes, pedidos);
+            long escritura = System.nanoTime() - inicio;
+
+            // Vueltas de calentamiento; se informa la mejor de las medidas
+            GestorClientes clientesRestaurados = null;
+            SnapshotBinario.Resumen resumen = null;
+            long lectura = Long.MAX_VALUE;
+            for (int vuelta = 0; vuelta < 8; vuelta++) {
+                clientesRestaurados = new GestorClientes();
+                inicio = System.nanoTime();
+                resumen = SnapshotBinario.restaurar(archivo, clientesRestaurados, new GestorPedidos());
+                long duracion = System.nanoTime() - inicio;
+                if (vuelta >= 3) {
+                    lectura = Math.min(lectura, duracion);
+                }
+            }
+
+            System.out.println("=== SNAPSHOT: " + resumen + " ===");
+            System.out.printf("Tamaño:      %8.1f MB%n", bytes / (1024.0 * 1024.0));
+            System.out.printf("Guardar:     %8.1f ms%n", escritura / 1e6);
+            System.out.printf("Restaurar:   %8.1f ms%n", lectura / 1e6);
+            System.out.println("Deudas iguales: "
+                    + (clientes.calcularTotalDeudasCentavos() == clientesRestaurados.calcularTotalDeudasCentavos()));
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    private static final String[] SILABAS = {"ma", "ri", "lo", "pe", "sa", "ta", "ne", "ju", "an", "go",
+            "ca", "mi", "ro", "da", "le", "vi", "na", "so", "be", "ti"};
+
+    /**
+     * Nombre y apellido inventados; cada palabra la comparten unos
+     * cientos de clientes, como en una tienda de barrio
+     */
+    static String nombrePersona(int i) {
+        return palabra(i % 400) + " " + palabra(i / 400);
+    }
+
+    private static String palabra(int n) {
+        StringBuilder palabra = new StringBuilder();
+        do {
+            palabra.append(SILABAS[n % SILABAS.length]);
+            n /= SILABAS.length;
+        } while (n > 0);
+        palabra.setCharAt(0, Character.toUpperCase(palabra.charAt(0)));
+        return palabra.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark: suma de saldos con double (como antes) contra centavos en long
+ *
+ * Uso: java BenchmarkSumaMontos [cantidadSaldos] [repeticiones]
+ */
+public class BenchmarkSumaMontos {
+    public static void main(String[] args) {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        Random random = new Random(42);
+        double[] saldosDouble = new double[cantidad];
+        long[] saldosCentavos = new long[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            long centavos = 100 + random.nextInt(20_000_000);
+            saldosCentavos[i] = centavos;
+            saldosDouble[i] = Dinero.aPesos(centavos);
+        }
+
+        // Calentamiento para que el JIT compile los tres caminos
+        for (int i = 0; i < 10; i++) {
+            sumarDoubleStream(saldosDouble);
+            sumarDoubleBucle(saldosDouble);
+            sumarCentavos(saldosCentavos);
+        }
+
+        double resultadoStream = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < repeticiones; i++) {
+            resultadoStream = sumarDoubleStream(saldosDouble);
+        }
+        long nanosStream = System.nanoTime() - inicio;
+
+        double resultadoBucle = 0;
+        inicio = System.nanoTime();
+        for (int i = 0; i < repeticiones; i++) {
+            resultadoBucle = sumarDoubleBucle(saldosDouble);
+        }
+        long nanosBucle = System.nanoTime() - inicio;
+
+        long resultadoCentavos = 0;
+        inicio = System.nanoTime();
+        for (int i = 0; i < repeticiones; i++) {
+            resultadoCentavos = sumarCentavos(saldosCentavos);
+        }
+        long nanosCentavos = System.nanoTime() - inicio;
+
+        long sumas = (long) cantidad * repeticiones;
+        System.out.println("=== SUMA DE " + cantidad + " SALDOS x " + repeticiones + " ===");
+        imprimir("double (stream, como antes)", nanosStream, sumas);
+        imprimir("double (bucle)", nanosBucle, sumas);
+        imprimir("long centavos", nanosCentavos, sumas);
+        System.out.println();
+        System.out.println("Total exacto (centavos): " + Dinero.formatear(resultadoCentavos));
+        System.out.println("Total con double stream:  " + resultadoStream);
+        System.out.println("Total con double bucle:   " + resultadoBucle);
+        System.out.println("Deriva del double stream: "
+                + (Dinero.aCentavos(resultadoStream) - resultadoCentavos) + " centavos");
+    }
+
+    private static double sumarDoubleStream(double[] saldos) {
+        return Arrays.stream(saldos).sum();
+    }
+
+    private static double sumarDoubleBucle(double[] saldos) {
+        double total = 0;
+        for (double saldo : saldos) {
+            total += saldo;
+        }
+        return total;
+    }
+
+    private static long sumarCentavos(long[] saldos) {
+        long total = 0;
+        for (long saldo : saldos) {
+            total += saldo;
+        }
+        return total;
+    }
+
+    private static void imprimir(String nombre, long nanos, long sumas) {
+        double millonesPorSegundo = sumas / (nanos / 1_000_000_000.0) / 1_000_000.0;
+        System.out.printf("%-30s %8.1f ms  %8.1f M sumas/s%n", nombre, nanos / 1_000_000.0, millonesPorSegundo);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * Benchmark de asignación de memoria: métodos que copian (getItems,
+ * getHistorialCompras, obtenerTodosLosClientes, obtenerHistorialPedidos)
+ * contra las vistas sin copia. Mide los bytes asignados por el hilo con
+ * com.sun.management.ThreadMXBean.
+ *
+ * Uso: java BenchmarkVistas [tamaño] [repeticiones]
+ */
+public class BenchmarkVistas {
+    private static final com.sun.management.ThreadMXBean HILOS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static long sumideroTotal;
+
+    public static void main(String[] args) {
+        int tamano = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        GestorClientes gestorClientes = new GestorClientes();
+        for (int i = 0; i < tamano; i++) {
+            gestorClientes.agregarCliente("Cliente " + i, "C" + i, "300" + i);
+        }
+        Cliente cliente = gestorClientes.obtenerTodosLosClientes().get(0);
+        for (int i = 0; i < tamano; i++) {
+            cliente.agregarCompra(1000.0 + i);
+        }
+
+        GestorPedidos gestorPedidos = new GestorPedidos();
+        Proveedor proveedor = gestorPedidos.agregarProveedor("Proveedor", "Empresa", "300", "p@test.com");
+        PedidoProveedor pedido = null;
+        for (int i = 0; i < tamano; i++) {
+            pedido = gestorPedidos.crearPedido(proveedor.getId(), new Date());
+        }
+        for (int i = 0; i < tamano; i++) {
+            pedido.agregarItem("Producto " + i, 1, 100.0);
+        }
+        PedidoProveedor pedidoFinal = pedido;
+
+        System.out.println("=== BYTES ASIGNADOS POR LLAMADA (" + tamano + " elementos) ===");
+        comparar("Items de un pedido",
+                () -> recorrer(pedidoFinal.getItems()),
+                () -> recorrer(pedidoFinal.vistaItems()), repeticiones);
+        comparar("Historial de compras",
+                () -> cliente.getHistorialCompras().size(),
+                () -> cliente.vistaHistorialCompras().size(), repeticiones);
+        comparar("Todos los clientes",
+                () -> recorrer(gestorClientes.obtenerTodosLosClientes()),
+                () -> {
+                    int n = 0;
+                    for (Cliente c : gestorClientes.vistaClientes()) {
+                        n += c.getId();
+                    }
+                    return n;
+                }, repeticiones);
+        comparar("Historial de pedidos",
+                () -> recorrer(gestorPedidos.obtenerHistorialPedidos()),
+                () -> recorrer(gestorPedidos.vistaHistorialPedidos()), repeticiones);
+        System.out.println("(sumidero: " + sumideroTotal + ")");
+    }
+
+    private static int recorrer(List<?> lista) {
+        int n = 0;
+        for (int i = 0; i < lista.size(); i++) {
+            n += lista.get(i).hashCode();
+        }
+        return n;
+    }
+
+    private static void comparar(String nombre, IntSupplier copia, IntSupplier vista, int repeticiones) {
+        // Calentamiento para que el JIT compile (y elimine lo que pueda) en ambos caminos
+        medir(copia, repeticiones);
+        medir(vista, repeticiones);
+        System.out.printf("%-22s copia: %10.1f B/op   vista: %8.1f B/op%n", nombre,
+                medir(copia, repeticiones), medir(vista, repeticiones));
+    }
+
+    private static double medir(IntSupplier operacion, int repeticiones) {
+        long hilo = Thread.currentThread().getId();
+        int sumidero = 0;
+        long antes = HILOS.getThreadAllocatedBytes(hilo);
+        for (int i = 0; i < repeticiones; i++) {
+            sumidero += operacion.getAsInt();
+        }
+        long despues = HILOS.getThreadAllocatedBytes(hilo);
+        // Se acumula y se imprime al final: así el JIT no puede descartar el recorrido
+        sumideroTotal += sumidero;
+        return (despues - antes) / (double) repeticiones;
+    }
+}
\ No newline at end of file
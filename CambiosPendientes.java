@@ -0,0 +1,217 @@
+package ERICK-S-CONVENIENCE-STORE;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lleva la cuenta de qué cambió desde el último respaldo, para que el
+ * autoguardado escriba solo eso (ver SnapshotBinario.guardarDelta).
+ *
+ * De cada cliente se recuerda el primer movimiento que falta guardar: el
+ * delta lleva sus datos y el libro desde ahí. Proveedores y pedidos son
+ * chicos y se guardan enteros.
+ *
+ * Solo ve lo que pasa por los gestores: editar un pedido o un proveedor
+ * directamente con sus setters no lo marca.
+ */
+public class CambiosPendientes implements GestorClientes.ObservadorClientes, GestorPedidos.ObservadorPedidos {
+    // Id de cliente -> primer movimiento sin guardar (0 si el cliente es nuevo)
+    private final ConcurrentHashMap<Integer, Integer> clientes = new ConcurrentHashMap<>();
+    private final Set<Integer> clientesEliminados = ConcurrentHashMap.newKeySet();
+    // Lo de abajo cambia poco: alcanza con el candado de la instancia
+    private boolean clientesLimpiados;
+    private final Set<Integer> proveedores = new HashSet<>();
+    private final Set<Integer> pedidos = new HashSet<>();
+    private boolean pedidosLimpiados;
+
+    @Override
+    public void clienteAgregado(Cliente cliente) {
+        clientes.put(cliente.getId(), 0);
+        clientesEliminados.remove(cliente.getId());
+    }
+
+    @Override
+    public void clienteEliminado(Cliente cliente) {
+        clientes.remove(cliente.getId());
+        clientesEliminados.add(cliente.getId());
+    }
+
+    @Override
+    public synchronized void clientesLimpiados() {
+        clientesLimpiados = true;
+        clientes.clear();
+        clientesEliminados.clear();
+    }
+
+    @Override
+    public void movimientoRegistrado(Cliente cliente, int posicion, Cliente.TipoMovimiento tipo, long fechaMillis,
+                                     long montoCentavos) {
+        clientes.merge(cliente.getId(), posicion, Math::min);
+    }
+
+    @Override
+    public void datosCambiados(Cliente cliente) {
+        // Sin movimientos nuevos: el delta lleva los datos y el libro vacío
+        clientes.merge(cliente.getId(), cliente.getCantidadMovimientos(), Math::min);
+    }
+
+    @Override
+    public synchronized void proveedorAgregado(Proveedor proveedor) {
+        proveedores.add(proveedor.getId());
+    }
+
+    @Override
+    public synchronized void productoAgregado(Proveedor proveedor, String producto) {
+        proveedores.add(proveedor.getId());
+    }
+
+    @Override
+    public synchronized void actividadCambiada(Proveedor proveedor, boolean activo) {
+        proveedores.add(proveedor.getId());
+    }
+
+    @Override
+    public synchronized void pedidoCreado(PedidoProveedor pedido) {
+        pedidos.add(pedido.getId());
+    }
+
+    @Override
+    public synchronized void itemsAgregados(PedidoProveedor pedido, List<PedidoProveedor.ItemPedido> items) {
+        pedidos.add(pedido.getId());
+    }
+
+    @Override
+    public synchronized void datosCambiados(PedidoProveedor pedido) {
+        pedidos.add(pedido.getId());
+    }
+
+    @Override
+    public synchronized void estadoCambiado(PedidoProveedor pedido, PedidoProveedor.EstadoPedido estadoAnterior,
+                                            PedidoProveedor.EstadoPedido estadoNuevo) {
+        pedidos.add(pedido.getId());
+    }
+
+    @Override
+    public synchronized void datosLimpiados() {
+        pedidosLimpiados = true;
+        proveedores.clear();
+        pedidos.clear();
+    }
+
+    @Override
+    public void cambioTerminado() {
+        // Solo marca en memoria: no hay nada que esperar
+    }
+
+    /**
+     * Se lleva todo lo marcado hasta ahora y empieza de cero. Si el lote no
+     * llega a guardarse hay que devolverlo con devolver().
+     */
+    public synchronized Lote tomarLote() {
+        Map<Integer, Integer> clientesLote = new HashMap<>();
+        for (Integer id : clientes.keySet()) {
+            Integer desde = clientes.remove(id);
+            if (desde != null) {
+                clientesLote.put(id, desde);
+            }
+        }
+        List<Integer> eliminados = new ArrayList<>();
+        for (Integer id : clientesEliminados) {
+            if (clientesEliminados.remove(id)) {
+                eliminados.add(id);
+            }
+        }
+        Lote lote = new Lote(clientesLimpiados, clientesLote, eliminados, pedidosLimpiados,
+                new ArrayList<>(proveedores), new ArrayList<>(pedidos));
+        clientesLimpiados = false;
+        pedidosLimpiados = false;
+        proveedores.clear();
+        pedidos.clear();
+        return lote;
+    }
+
+    /**
+     * Vuelve a marcar lo de un lote que no se pudo guardar, sin perder lo
+     * que cambió mientras tanto
+     */
+    public synchronized void devolver(Lote lote) {
+        if (lote.clientesLimpiados) {
+            // Lo marcado después de tomar el lote es posterior a la limpieza
+            clientesLimpiados = true;
+        }
+        for (Map.Entry<Integer, Integer> cliente : lote.clientes.entrySet()) {
+            clientes.merge(cliente.getKey(), cliente.getValue(), Math::min);
+        }
+        clientesEliminados.addAll(lote.clientesEliminados);
+        pedidosLimpiados |= lote.pedidosLimpiados;
+        proveedores.addAll(lote.proveedores);
+        pedidos.addAll(lote.pedidos);
+    }
+
+    /**
+     * Cambios tomados de una vez para escribir un delta
+     */
+    public static final class Lote {
+        private final boolean clientesLimpiados;
+        private final Map<Integer, Integer> clientes;
+        private final List<Integer> clientesEliminados;
+        private final boolean pedidosLimpiados;
+        private final List<Integer> proveedores;
+        private final List<Integer> pedidos;
+
+        Lote(boolean clientesLimpiados, Map<Integer, Integer> clientes, List<Integer> clientesEliminados,
+             boolean pedidosLimpiados, List<Integer> proveedores, List<Integer> pedidos) {
+            this.clientesLimpiados = clientesLimpiados;
+            this.clientes = clientes;
+            this.clientesEliminados = clientesEliminados;
+            this.pedidosLimpiados = pedidosLimpiados;
+            this.proveedores = proveedores;
+            this.pedidos = pedidos;
+            Collections.sort(this.clientesEliminados);
+            Collections.sort(this.proveedores);
+            Collections.sort(this.pedidos);
+        }
+
+        public boolean estaVacio() {
+            return !clientesLimpiados && !pedidosLimpiados && clientes.isEmpty() && clientesEliminados.isEmpty()
+                    && proveedores.isEmpty() && pedidos.isEmpty();
+        }
+
+        boolean isClientesLimpiados() {
+            return clientesLimpiados;
+        }
+
+        /**
+         * Id de cliente -> primer movimiento a guardar
+         */
+        Map<Integer, Integer> getClientes() {
+            return clientes;
+        }
+
+        List<Integer> getClientesEliminados() {
+            return clientesEliminados;
+        }
+
+        boolean isPedidosLimpiados() {
+            return pedidosLimpiados;
+        }
+
+        List<Integer> getProveedores() {
+            return proveedores;
+        }
+
+        List<Integer> getPedidos() {
+            return pedidos;
+        }
+
+        public int cantidadCambios() {
+            return clientes.size() + clientesEliminados.size() + proveedores.size() + pedidos.size();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Diccionario de nombres de productos. Cada nombre distinto se guarda una
+ * sola vez y recibe un id int compacto; proveedores e items de pedido
+ * guardan ese id y resuelven el texto solo cuando hay que mostrarlo.
+ *
+ * Los nombres se comparan tal cual, como los comparaban Proveedor y
+ * ItemPedido con sus String: " Leche" y "leche" son dos entradas y cada
+ * una se muestra como se escribió. Los índices que no distinguen
+ * mayúsculas (por ejemplo, los de GestorPedidos) normalizan aparte.
+ *
+ * Nada sale nunca del catálogo: solo deben registrarse nombres ya
+ * validados, no textos libres ni datos que todavía pueden rechazarse.
+ *
+ * Los ids no cambian ni se reutilizan mientras viva la aplicación. Escribir
+ * toma un candado; resolver un id no, así que mostrar nombres no compite
+ * con las cajas que registran productos nuevos.
+ */
+public final class CatalogoProductos {
+    // Nombre -> id
+    private static final Map<String, Integer> ids = new HashMap<>();
+    // volatile: se reasigna después de cada alta para publicar el nombre
+    private static volatile String[] nombres = new String[64];
+    private static int cantidad;
+
+    private CatalogoProductos() {
+    }
+
+    /**
+     * Devuelve el id del nombre, registrándolo si es nuevo
+     */
+    public static synchronized int idDe(String nombre) {
+        if (nombre == null) {
+            throw new IllegalArgumentException("El nombre del producto no puede ser nulo");
+        }
+        Integer id = ids.get(nombre);
+        if (id != null) {
+            return id;
+        }
+        String[] actuales = nombres;
+        if (cantidad == actuales.length) {
+            actuales = Arrays.copyOf(actuales, cantidad * 2);
+        }
+        actuales[cantidad] = nombre;
+        nombres = actuales;
+        ids.put(nombre, cantidad);
+        return cantidad++;
+    }
+
+    /**
+     * Busca el id de un nombre sin registrarlo
+     *
+     * @return El id, o -1 si el nombre nunca se registró
+     */
+    public static synchronized int buscarId(String nombre) {
+        if (nombre == null) {
+            return -1;
+        }
+        Integer id = ids.get(nombre);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Resuelve el nombre de un id devuelto por idDe
+     */
+    public static String nombre(int id) {
+        String[] actuales = nombres;
+        if (id < 0 || id >= actuales.length || actuales[id] == null) {
+            throw new IllegalArgumentException("No existe un producto con ese id");
+        }
+        return actuales[id];
+    }
+
+    /**
+     * Cantidad de nombres distintos registrados
+     */
+    public static synchronized int cantidad() {
+        return cantidad;
+    }
+}
\ No newline at end of file
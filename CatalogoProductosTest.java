@@ -0,0 +1,110 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+
+/**
+ * Tests para CatalogoProductos (diccionario de nombres de productos)
+ */
+public class CatalogoProductosTest {
+
+    @Test
+    @DisplayName("El mismo nombre debe recibir siempre el mismo id")
+    public void testMismoNombreMismoId() {
+        int id = CatalogoProductos.idDe("Arroz Diana 500g");
+        assertEquals(id, CatalogoProductos.idDe(new String("Arroz Diana 500g")));
+        assertEquals(id, CatalogoProductos.buscarId("Arroz Diana 500g"));
+        assertEquals("Arroz Diana 500g", CatalogoProductos.nombre(id));
+        assertNotEquals(id, CatalogoProductos.idDe("Arroz Diana 1kg"));
+    }
+
+    @Test
+    @DisplayName("Buscar un nombre desconocido no debe registrarlo")
+    public void testBuscarIdSinRegistrar() {
+        int antes = CatalogoProductos.cantidad();
+        assertEquals(-1, CatalogoProductos.buscarId("Producto que nadie registró"));
+        assertEquals(antes, CatalogoProductos.cantidad());
+        assertThrows(IllegalArgumentException.class, () -> CatalogoProductos.nombre(-1));
+        assertThrows(IllegalArgumentException.class, () -> CatalogoProductos.idDe(null));
+    }
+
+    @Test
+    @DisplayName("Items, proveedores y compras deben compartir los ids del catálogo")
+    public void testIdsCompartidos() {
+        PedidoProveedor.ItemPedido item = new PedidoProveedor.ItemPedido("Panela", 3, 2500.0);
+        Proveedor proveedor = new Proveedor(1, "Juan", "Dulces SA", "300", "j@test.com");
+        proveedor.agregarProducto("Panela");
+
+        assertEquals(CatalogoProductos.buscarId("Panela"), item.getProductoId());
+        assertTrue(proveedor.suministraProductoId(item.getProductoId()));
+        assertEquals("Panela", item.getProducto());
+        assertEquals("Panela", proveedor.getProductosQueSupministra().get(0));
+
+        Cliente.Compra compra = new Cliente.Compra(1000.0, new java.util.Date(), "Panela");
+        assertEquals("Panela", compra.getDescripcion());
+        assertNull(new Cliente.Compra(1000.0, new java.util.Date(), null).getDescripcion());
+    }
+
+    @Test
+    @DisplayName("Cada forma de escribir un nombre se guarda y se muestra tal cual")
+    public void testNombreExacto() {
+        int id = CatalogoProductos.idDe("Leche Alquería");
+        int otra = CatalogoProductos.idDe("  leche alquería ");
+        assertNotEquals(id, otra);
+        assertEquals("Leche Alquería", CatalogoProductos.nombre(id));
+        assertEquals("  leche alquería ", CatalogoProductos.nombre(otra));
+        assertEquals(-1, CatalogoProductos.buscarId("LECHE ALQUERÍA"));
+
+        Proveedor proveedor = new Proveedor(1, "Ana", "Lácteos SA", "300", "a@test.com");
+        proveedor.agregarProducto("Leche Alquería");
+        proveedor.agregarProducto("leche alquería");
+        assertEquals(List.of("Leche Alquería", "leche alquería"), proveedor.getProductosQueSupministra());
+        assertTrue(proveedor.suministraProducto("Leche Alquería"));
+        assertFalse(proveedor.suministraProducto(" LECHE ALQUERÍA"));
+        assertFalse(proveedor.suministraProducto(null));
+    }
+
+    @Test
+    @DisplayName("Items inválidos y descripciones de compras no deben quedar en el catálogo")
+    public void testTextosSinRegistrar() {
+        int antes = CatalogoProductos.cantidad();
+        PedidoProveedor.ItemPedido invalido = new PedidoProveedor.ItemPedido("Producto con cantidad cero", 0, 1000.0);
+        assertEquals(-1, invalido.getProductoId());
+        assertEquals("Producto con cantidad cero", invalido.getProducto());
+
+        Cliente.Compra compra = new Cliente.Compra(1000.0, new java.util.Date(), "Fiado del martes, ticket 4812");
+        assertEquals("Fiado del martes, ticket 4812", compra.getDescripcion());
+
+        // Las descripciones fijas del libro salen del tipo de movimiento
+        Cliente cliente = new GestorClientes().agregarCliente("Rosa Peña", "4812", "300");
+        cliente.agregarCompra(1000.0);
+        cliente.registrarPago(500.0);
+        assertEquals("Compra a crédito", cliente.getHistorialCompras().get(0).getDescripcion());
+        assertEquals(antes, CatalogoProductos.cantidad());
+    }
+
+    @Test
+    @DisplayName("Registrar desde varios hilos debe dar un id único por nombre")
+    public void testRegistroConcurrente() throws InterruptedException {
+        int[][] ids = new int[4][200];
+        Thread[] hilos = new Thread[4];
+        for (int h = 0; h < hilos.length; h++) {
+            int hilo = h;
+            hilos[h] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    ids[hilo][i] = CatalogoProductos.idDe("Concurrente " + i);
+                }
+            });
+            hilos[h].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        for (int i = 0; i < 200; i++) {
+            for (int h = 1; h < hilos.length; h++) {
+                assertEquals(ids[0][i], ids[h][i]);
+            }
+            assertEquals("Concurrente " + i, CatalogoProductos.nombre(ids[0][i]));
+        }
+    }
+}
\ No newline at end of file
@@ -1,31 +1,61 @@
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 /**
  * Clase que representa un cliente de la tienda
  * Issue #2: Acumular compras al saldo
+ *
+ * Las operaciones que cambian el saldo se sincronizan sobre el propio
+ * cliente, así varias cajas pueden registrar compras de clientes distintos
+ * sin bloquearse entre sí.
  */
 public class Cliente {
     private int id;
-    private String nombre;
-    private String cedula;
+    // volatile: los índices del gestor los leen sin el candado del cliente
+    private volatile String nombre;
+    private volatile String cedula;
     private String telefono;
-    private double saldoDeuda;
-    private List<Compra> historialCompras;
+    // En centavos; volatile: las lecturas no toman el candado del cliente
+    private volatile long saldoDeudaCentavos;
+    // Libro de compras, pagos y deudas saldadas
+    private final HistorialColumnar historialCompras;
     private Date fechaRegistro;
+    private volatile ObservadorSaldo observadorSaldo;
 
     public Cliente(int id, String nombre, String cedula, String telefono) {
         this.id = id;
         this.nombre = nombre;
         this.cedula = cedula;
         this.telefono = telefono;
-        this.saldoDeuda = 0.0;
-        this.historialCompras = new ArrayList<>();
+        this.saldoDeudaCentavos = 0;
+        this.historialCompras = new HistorialColumnar();
         this.fechaRegistro = new Date();
     }
 
+    /**
+     * Reconstruye un cliente guardado en un snapshot con su libro completo.
+     * El saldo sale del libro, así que no puede quedar desalineado con él.
+     * El cliente todavía no está en ningún gestor (ver
+     * GestorClientes.restaurarCliente).
+     *
+     * @throws IllegalArgumentException si el libro no es válido
+     */
+    public static Cliente restaurar(int id, String nombre, String cedula, String telefono, Date fechaRegistro,
+                                    long[] fechas, long[] montos, byte[] tipos, int cantidadMovimientos) {
+        Cliente cliente = new Cliente(id, nombre, cedula, telefono);
+        cliente.fechaRegistro = fechaRegistro;
+        cliente.historialCompras.restaurar(fechas, montos, tipos, cantidadMovimientos);
+        cliente.saldoDeudaCentavos = cliente.historialCompras.saldo;
+        return cliente;
+    }
+
     /**
      * Issue #2: Acumula una compra al saldo del cliente
      * 
@@ -36,8 +66,27 @@ public class Cliente {
         if (monto <= 0) {
             throw new IllegalArgumentException("El monto debe ser mayor a cero");
         }
-        this.saldoDeuda += monto;
-        this.historialCompras.add(new Compra(monto, new Date(), "Compra a crédito"));
+        agregarCompraCentavos(Dinero.aCentavos(monto));
+    }
+
+    /**
+     * Issue #2: Acumula una compra expresada en centavos
+     */
+    public void agregarCompraCentavos(long montoCentavos) {
+        if (montoCentavos <= 0) {
+            throw new IllegalArgumentException("El monto debe ser mayor a cero");
+        }
+        try {
+            synchronized (this) {
+                long saldoAnterior = this.saldoDeudaCentavos;
+                this.saldoDeudaCentavos = Math.addExact(saldoAnterior, montoCentavos);
+                long fecha = this.historialCompras.agregar(TipoMovimiento.COMPRA, montoCentavos);
+                notificarCambioSaldo(saldoAnterior);
+                notificarMovimiento(TipoMovimiento.COMPRA, fecha, montoCentavos);
+            }
+        } finally {
+            terminarCambio();
+        }
     }
 
     /**
@@ -50,25 +99,142 @@ public class Cliente {
         if (monto <= 0) {
             throw new IllegalArgumentException("El monto del pago debe ser mayor a cero");
         }
-        if (monto > this.saldoDeuda) {
-            throw new IllegalArgumentException("El pago no puede ser mayor a la deuda actual");
+        return Dinero.aPesos(registrarPagoCentavos(Dinero.aCentavos(monto)));
+    }
+
+    /**
+     * Realiza un pago expresado en centavos
+     *
+     * @return El saldo restante en centavos
+     */
+    public long registrarPagoCentavos(long montoCentavos) {
+        if (montoCentavos <= 0) {
+            throw new IllegalArgumentException("El monto del pago debe ser mayor a cero");
+        }
+        try {
+            synchronized (this) {
+                // Comparación exacta: pagar justo lo que se debe siempre se acepta
+                if (montoCentavos > this.saldoDeudaCentavos) {
+                    throw new IllegalArgumentException("El pago no puede ser mayor a la deuda actual");
+                }
+                long saldoAnterior = this.saldoDeudaCentavos;
+                this.saldoDeudaCentavos = saldoAnterior - montoCentavos;
+                long fecha = this.historialCompras.agregar(TipoMovimiento.PAGO, montoCentavos);
+                notificarCambioSaldo(saldoAnterior);
+                notificarMovimiento(TipoMovimiento.PAGO, fecha, montoCentavos);
+                return this.saldoDeudaCentavos;
+            }
+        } finally {
+            terminarCambio();
         }
-        this.saldoDeuda -= monto;
-        return this.saldoDeuda;
     }
 
     /**
      * Issue #7: Marca la deuda como saldada (pone el saldo en 0)
      */
     public void saldarDeuda() {
-        this.saldoDeuda = 0.0;
+        try {
+            synchronized (this) {
+                long saldoAnterior = this.saldoDeudaCentavos;
+                if (saldoAnterior == 0) {
+                    return;
+                }
+                long fecha = this.historialCompras.agregar(TipoMovimiento.DEUDA_SALDADA, saldoAnterior);
+                this.saldoDeudaCentavos = 0;
+                notificarCambioSaldo(saldoAnterior);
+                notificarMovimiento(TipoMovimiento.DEUDA_SALDADA, fecha, saldoAnterior);
+            }
+        } finally {
+            terminarCambio();
+        }
+    }
+
+    /**
+     * Vuelve a aplicar un movimiento leído del diario de transacciones, con
+     * su fecha original. Avisa el cambio de saldo pero no el movimiento:
+     * reproducir el diario no debe volver a escribirlo.
+     *
+     * @param posicion Lugar que ocupaba el movimiento en el libro
+     * @return false si el libro ya lo tenía (venía en el snapshot)
+     * @throws IllegalStateException    si faltan movimientos anteriores
+     * @throws IllegalArgumentException si no es válido con el saldo actual
+     */
+    public synchronized boolean reaplicarMovimiento(int posicion, TipoMovimiento tipo, long fechaMillis,
+                                                    long montoCentavos) {
+        int cantidad = this.historialCompras.cantidad();
+        if (posicion < cantidad) {
+            return false;
+        }
+        if (posicion > cantidad) {
+            throw new IllegalStateException("Faltan movimientos del cliente " + id + " antes de la posición " + posicion);
+        }
+        if (montoCentavos <= 0) {
+            throw new IllegalArgumentException("El monto debe ser mayor a cero");
+        }
+        long saldoAnterior = this.saldoDeudaCentavos;
+        long saldoNuevo;
+        switch (tipo) {
+            case COMPRA:
+                saldoNuevo = Math.addExact(saldoAnterior, montoCentavos);
+                break;
+            case PAGO:
+                if (montoCentavos > saldoAnterior) {
+                    throw new IllegalArgumentException("El pago no puede ser mayor a la deuda actual");
+                }
+                saldoNuevo = saldoAnterior - montoCentavos;
+                break;
+            default:
+                if (montoCentavos != saldoAnterior) {
+                    throw new IllegalArgumentException("El monto saldado no coincide con la deuda actual");
+                }
+                saldoNuevo = 0;
+        }
+        this.historialCompras.agregarEnFecha(tipo, montoCentavos, fechaMillis);
+        this.saldoDeudaCentavos = saldoNuevo;
+        notificarCambioSaldo(saldoAnterior);
+        return true;
     }
 
     /**
      * Verifica si el cliente tiene deuda pendiente
      */
     public boolean tieneDeuda() {
-        return this.saldoDeuda > 0;
+        return this.saldoDeudaCentavos > 0;
+    }
+
+    /**
+     * Registra quién debe enterarse de los cambios de saldo (por ejemplo,
+     * el GestorClientes que mantiene índices ordenados por deuda). La
+     * notificación ocurre dentro del candado del cliente, de modo que los
+     * cambios de un mismo cliente llegan en orden; cambioTerminado llega
+     * después de soltarlo.
+     */
+    public void setObservadorSaldo(ObservadorSaldo observadorSaldo) {
+        this.observadorSaldo = observadorSaldo;
+    }
+
+    private void notificarCambioSaldo(long saldoAnteriorCentavos) {
+        ObservadorSaldo observador = this.observadorSaldo;
+        if (observador != null && saldoAnteriorCentavos != this.saldoDeudaCentavos) {
+            observador.saldoCambiado(this, saldoAnteriorCentavos, this.saldoDeudaCentavos);
+        }
+    }
+
+    // Fuera del candado: si el diario espera al disco, no frena a quien
+    // lea o registre en este cliente mientras tanto
+    private void terminarCambio() {
+        ObservadorSaldo observador = this.observadorSaldo;
+        if (observador != null) {
+            observador.cambioTerminado();
+        }
+    }
+
+    private void notificarMovimiento(TipoMovimiento tipo, long fechaMillis, long montoCentavos) {
+        ObservadorSaldo observador = this.observadorSaldo;
+        if (observador != null) {
+            observador.movimientoRegistrado(this, this.historialCompras.cantidad() - 1, tipo, fechaMillis,
+                    montoCentavos);
+        }
     }
 
     // Getters y Setters
@@ -84,16 +250,57 @@ public class Cliente {
         return nombre;
     }
 
+    /**
+     * Cambia el nombre. Si el cliente está en un gestor, este lo valida y
+     * lo reindexa antes de que otro cambio del cliente pueda ocurrir.
+     *
+     * @throws IllegalArgumentException si el gestor rechaza el nombre
+     */
     public void setNombre(String nombre) {
-        this.nombre = nombre;
+        try {
+            synchronized (this) {
+                cambiarDatos(nombre, this.cedula);
+            }
+        } finally {
+            terminarCambio();
+        }
     }
 
     public String getCedula() {
         return cedula;
     }
 
+    /**
+     * Cambia la cédula. Si el cliente está en un gestor, este la reserva
+     * primero y rechaza una que ya tenga otro cliente.
+     *
+     * @throws IllegalArgumentException si el gestor rechaza la cédula
+     */
     public void setCedula(String cedula) {
-        this.cedula = cedula;
+        try {
+            synchronized (this) {
+                cambiarDatos(this.nombre, cedula);
+            }
+        } finally {
+            terminarCambio();
+        }
+    }
+
+    private void cambiarDatos(String nombreNuevo, String cedulaNueva) {
+        if (Objects.equals(nombreNuevo, nombre) && Objects.equals(cedulaNueva, cedula)) {
+            return;
+        }
+        ObservadorSaldo observador = this.observadorSaldo;
+        if (observador != null) {
+            observador.validarDatos(this, nombreNuevo, cedulaNueva);
+        }
+        String nombreAnterior = this.nombre;
+        String cedulaAnterior = this.cedula;
+        this.nombre = nombreNuevo;
+        this.cedula = cedulaNueva;
+        if (observador != null) {
+            observador.datosCambiados(this, nombreAnterior, cedulaAnterior);
+        }
     }
 
     public String getTelefono() {
@@ -105,11 +312,76 @@ public class Cliente {
     }
 
     public double getSaldoDeuda() {
-        return saldoDeuda;
+        return Dinero.aPesos(saldoDeudaCentavos);
+    }
+
+    public long getSaldoDeudaCentavos() {
+        return saldoDeudaCentavos;
+    }
+
+    /**
+     * Copia el historial como objetos Compra. Para recorridos frecuentes o
+     * historiales largos conviene usar recorrerHistorialCompras(), que no
+     * crea objetos por entrada.
+     */
+    public synchronized List<Compra> getHistorialCompras() {
+        return historialCompras.comprasComoLista();
+    }
+
+    /**
+     * Vista de solo lectura del historial de compras, sin copiarlo: queda
+     * fija en las compras registradas al pedirla. Cada get() arma el objeto
+     * Compra de esa posición; para recorridos largos sin crear objetos está
+     * recorrerHistorialCompras().
+     */
+    public synchronized List<Compra> vistaHistorialCompras() {
+        return historialCompras.vistaCompras();
+    }
+
+    /**
+     * Cursor de solo lectura sobre el historial de compras, sin copiarlo.
+     * Ve las compras registradas hasta el momento de crearlo; las que
+     * lleguen después no aparecen en este cursor.
+     */
+    public synchronized CursorMovimientos recorrerHistorialCompras() {
+        return historialCompras.cursor(TipoMovimiento.COMPRA);
     }
 
-    public List<Compra> getHistorialCompras() {
-        return new ArrayList<>(historialCompras);
+    /**
+     * Cursor de solo lectura sobre todos los movimientos (compras, pagos y
+     * deudas saldadas) en orden de registro
+     */
+    public synchronized CursorMovimientos recorrerMovimientos() {
+        return historialCompras.cursor(null);
+    }
+
+    /**
+     * Saldo de deuda que tenía el cliente en la fecha indicada, contando
+     * los movimientos registrados hasta ese instante inclusive
+     *
+     * @param fecha El instante a consultar
+     * @return El saldo en pesos (0 si es anterior al primer movimiento)
+     */
+    public double saldoEnFecha(Date fecha) {
+        return Dinero.aPesos(saldoEnFechaCentavos(fecha));
+    }
+
+    /**
+     * Igual que saldoEnFecha pero en centavos
+     */
+    public synchronized long saldoEnFechaCentavos(Date fecha) {
+        if (fecha == null) {
+            throw new IllegalArgumentException("La fecha no puede ser nula");
+        }
+        return historialCompras.saldoEn(fecha.getTime());
+    }
+
+    public int getCantidadCompras() {
+        return historialCompras.cantidadCompras();
+    }
+
+    public int getCantidadMovimientos() {
+        return historialCompras.cantidad();
     }
 
     public Date getFechaRegistro() {
@@ -123,27 +395,402 @@ public class Cliente {
                 ", nombre='" + nombre + '\'' +
                 ", cedula='" + cedula + '\'' +
                 ", telefono='" + telefono + '\'' +
-                ", saldoDeuda=" + saldoDeuda +
-                ", cantidadCompras=" + historialCompras.size() +
+                ", saldoDeuda=" + getSaldoDeuda() +
+                ", cantidadCompras=" + historialCompras.cantidadCompras() +
                 '}';
     }
 
+    /**
+     * Recibe los cambios de saldo y de datos de un cliente
+     */
+    public interface ObservadorSaldo {
+        void saldoCambiado(Cliente cliente, long saldoAnteriorCentavos, long saldoNuevoCentavos);
+
+        /**
+         * Movimiento que causó el último cambio de saldo; llega justo
+         * después de saldoCambiado, con el mismo candado
+         *
+         * @param posicion Lugar del movimiento en el libro (0 es el primero)
+         */
+        default void movimientoRegistrado(Cliente cliente, int posicion, TipoMovimiento tipo, long fechaMillis,
+                                          long montoCentavos) {
+        }
+
+        /**
+         * Antes de cambiar el nombre o la cédula, con el candado del
+         * cliente; lanza IllegalArgumentException para rechazar el cambio
+         */
+        default void validarDatos(Cliente cliente, String nombreNuevo, String cedulaNueva) {
+        }
+
+        /**
+         * Después de cambiar el nombre o la cédula, con el mismo candado
+         */
+        default void datosCambiados(Cliente cliente, String nombreAnterior, String cedulaAnterior) {
+        }
+
+        /**
+         * Al final del método que cambió al cliente, ya sin su candado y en
+         * el mismo hilo: aquí se espera lo que deba quedar en disco
+         */
+        default void cambioTerminado() {
+        }
+    }
+
+    /**
+     * Tipo de cada movimiento del libro de saldo
+     */
+    public enum TipoMovimiento {
+        COMPRA("Compra a crédito"),
+        PAGO("Pago"),
+        DEUDA_SALDADA("Deuda saldada");
+
+        private static final TipoMovimiento[] VALORES = values();
+
+        // Descripción con la que entra al libro
+        private final String descripcion;
+
+        TipoMovimiento(String descripcion) {
+            this.descripcion = descripcion;
+        }
+
+        public String getDescripcion() {
+            return descripcion;
+        }
+    }
+
+    /**
+     * Libro de movimientos (compras, pagos y deudas saldadas) guardado por
+     * columnas: fechas (epoch millis), montos (centavos) y tipo en arreglos
+     * primitivos paralelos; la descripción es la fija del tipo. Cada entrada
+     * ocupa 17 bytes más la holgura del arreglo, en lugar de un Compra +
+     * Date + referencia por entrada.
+     *
+     * Las fechas nunca retroceden, y cada PUNTO_CONTROL entradas se guarda
+     * el saldo acumulado; saldoEn() busca la fecha en forma binaria y solo
+     * repite los movimientos desde el último punto de control.
+     *
+     * Solo se agregan entradas, nunca se modifican; por eso un cursor puede
+     * quedarse con los arreglos y el tamaño del momento en que se creó y
+     * leerlos sin candado aunque el libro siga creciendo. El dueño
+     * (Cliente) serializa las escrituras, los cursores y las consultas.
+     */
+    static final class HistorialColumnar {
+        static final int PUNTO_CONTROL = 64;
+        private static final int CAPACIDAD_INICIAL = 8;
+
+        private long[] fechas = new long[CAPACIDAD_INICIAL];
+        private long[] montos = new long[CAPACIDAD_INICIAL];
+        private byte[] tipos = new byte[CAPACIDAD_INICIAL];
+        // saldosControl[k] = saldo tras las primeras k * PUNTO_CONTROL entradas
+        private long[] saldosControl = new long[4];
+        // Posición en el libro de cada compra, para ubicar la i-ésima compra
+        private int[] posicionesCompras = new int[CAPACIDAD_INICIAL];
+        private long saldo;
+        private volatile int cantidad;
+        private volatile int cantidadCompras;
+
+        /**
+         * Agrega un movimiento con la hora actual, o con la del último
+         * movimiento si el reloj retrocedió, para que las fechas queden
+         * ordenadas
+         *
+         * @return La fecha con que quedó registrado
+         */
+        long agregar(TipoMovimiento tipo, long montoCentavos) {
+            return agregarEnFecha(tipo, montoCentavos, System.currentTimeMillis());
+        }
+
+        long agregarEnFecha(TipoMovimiento tipo, long montoCentavos, long fechaMillis) {
+            int i = cantidad;
+            long fecha = fechaMillis;
+            if (i > 0 && fecha < fechas[i - 1]) {
+                fecha = fechas[i - 1];
+            }
+            if (i == fechas.length) {
+                int nuevaCapacidad = i + (i >> 1);
+                fechas = Arrays.copyOf(fechas, nuevaCapacidad);
+                montos = Arrays.copyOf(montos, nuevaCapacidad);
+                tipos = Arrays.copyOf(tipos, nuevaCapacidad);
+            }
+            fechas[i] = fecha;
+            montos[i] = montoCentavos;
+            tipos[i] = (byte) tipo.ordinal();
+            saldo += efecto(tipo.ordinal(), montoCentavos);
+            if ((i + 1) % PUNTO_CONTROL == 0) {
+                int k = (i + 1) / PUNTO_CONTROL;
+                if (k == saldosControl.length) {
+                    saldosControl = Arrays.copyOf(saldosControl, k * 2);
+                }
+                saldosControl[k] = saldo;
+            }
+            if (tipo == TipoMovimiento.COMPRA) {
+                if (cantidadCompras == posicionesCompras.length) {
+                    posicionesCompras = Arrays.copyOf(posicionesCompras, cantidadCompras + (cantidadCompras >> 1));
+                }
+                posicionesCompras[cantidadCompras] = i;
+                cantidadCompras++;
+            }
+            cantidad = i + 1;
+            return fecha;
+        }
+
+        /**
+         * Reemplaza el libro (vacío) por columnas leídas de un snapshot y
+         * recalcula el saldo, los puntos de control y las posiciones de las
+         * compras. Se queda con los arreglos recibidos.
+         */
+        void restaurar(long[] nuevasFechas, long[] nuevosMontos, byte[] nuevosTipos, int n) {
+            if (cantidad != 0) {
+                throw new IllegalStateException("Solo se puede restaurar un historial vacío");
+            }
+            int capacidad = Math.max(n, CAPACIDAD_INICIAL);
+            long[] fechasRestauradas = capacidad == nuevasFechas.length ? nuevasFechas : Arrays.copyOf(nuevasFechas, capacidad);
+            long[] montosRestaurados = capacidad == nuevosMontos.length ? nuevosMontos : Arrays.copyOf(nuevosMontos, capacidad);
+            byte[] tiposRestaurados = capacidad == nuevosTipos.length ? nuevosTipos : Arrays.copyOf(nuevosTipos, capacidad);
+
+            long saldoRestaurado = 0;
+            long[] controles = new long[Math.max(4, n / PUNTO_CONTROL + 1)];
+            int[] compras = new int[capacidad];
+            int nCompras = 0;
+            for (int i = 0; i < n; i++) {
+                int tipo = tiposRestaurados[i];
+                if (tipo < 0 || tipo >= TipoMovimiento.VALORES.length || montosRestaurados[i] <= 0
+                        || (i > 0 && fechasRestauradas[i] < fechasRestauradas[i - 1])) {
+                    throw new IllegalArgumentException("El historial restaurado no es válido");
+                }
+                saldoRestaurado = Math.addExact(saldoRestaurado, efecto(tipo, montosRestaurados[i]));
+                if ((i + 1) % PUNTO_CONTROL == 0) {
+                    controles[(i + 1) / PUNTO_CONTROL] = saldoRestaurado;
+                }
+                if (tipo == TipoMovimiento.COMPRA.ordinal()) {
+                    compras[nCompras++] = i;
+                }
+            }
+            if (saldoRestaurado < 0) {
+                throw new IllegalArgumentException("El historial restaurado no es válido");
+            }
+            fechas = fechasRestauradas;
+            montos = montosRestaurados;
+            tipos = tiposRestaurados;
+            saldosControl = controles;
+            posicionesCompras = compras;
+            saldo = saldoRestaurado;
+            cantidadCompras = nCompras;
+            cantidad = n;
+        }
+
+        int cantidad() {
+            return cantidad;
+        }
+
+        int cantidadCompras() {
+            return cantidadCompras;
+        }
+
+        /**
+         * Saldo que resultaba de los movimientos hechos hasta fechaMillis
+         * (inclusive)
+         */
+        long saldoEn(long fechaMillis) {
+            int n = cantidad;
+            // Primera entrada con fecha posterior a la pedida
+            int desde = 0;
+            int hasta = n;
+            while (desde < hasta) {
+                int medio = (desde + hasta) >>> 1;
+                if (fechas[medio] <= fechaMillis) {
+                    desde = medio + 1;
+                } else {
+                    hasta = medio;
+                }
+            }
+            int control = desde / PUNTO_CONTROL;
+            long resultado = saldosControl[control];
+            for (int i = control * PUNTO_CONTROL; i < desde; i++) {
+                resultado += efecto(tipos[i], montos[i]);
+            }
+            return resultado;
+        }
+
+        CursorMovimientos cursor(TipoMovimiento soloTipo) {
+            int total = soloTipo == TipoMovimiento.COMPRA ? cantidadCompras : cantidad;
+            return new CursorMovimientos(fechas, montos, tipos, cantidad, total,
+                    soloTipo == null ? -1 : soloTipo.ordinal());
+        }
+
+        List<Compra> vistaCompras() {
+            return new VistaCompras(fechas, montos, posicionesCompras, cantidadCompras);
+        }
+
+        List<Compra> comprasComoLista() {
+            List<Compra> lista = new ArrayList<>(cantidadCompras);
+            for (int i = 0; i < cantidad; i++) {
+                if (tipos[i] == TipoMovimiento.COMPRA.ordinal()) {
+                    lista.add(Compra.enCentavos(montos[i], new Date(fechas[i]), TipoMovimiento.COMPRA.descripcion));
+                }
+            }
+            return lista;
+        }
+
+        private static long efecto(int tipo, long montoCentavos) {
+            return tipo == TipoMovimiento.COMPRA.ordinal() ? montoCentavos : -montoCentavos;
+        }
+    }
+
+    /**
+     * Lista de solo lectura de las compras sobre las columnas del libro.
+     * Como el libro solo agrega, los arreglos capturados no cambian en el
+     * tramo que cubre la vista.
+     */
+    private static final class VistaCompras extends AbstractList<Compra> implements RandomAccess {
+        private final long[] fechas;
+        private final long[] montos;
+        private final int[] posiciones;
+        private final int cantidad;
+
+        VistaCompras(long[] fechas, long[] montos, int[] posiciones, int cantidad) {
+            this.fechas = fechas;
+            this.montos = montos;
+            this.posiciones = posiciones;
+            this.cantidad = cantidad;
+        }
+
+        @Override
+        public Compra get(int indice) {
+            if (indice < 0 || indice >= cantidad) {
+                throw new IndexOutOfBoundsException("Índice: " + indice + ", tamaño: " + cantidad);
+            }
+            int i = posiciones[indice];
+            return Compra.enCentavos(montos[i], new Date(fechas[i]), TipoMovimiento.COMPRA.descripcion);
+        }
+
+        @Override
+        public int size() {
+            return cantidad;
+        }
+    }
+
+    /**
+     * Cursor de solo lectura sobre los movimientos del cliente (todos, o
+     * solo las compras). Empieza antes del primer movimiento; siguiente()
+     * avanza y los getters leen el movimiento actual sin crear objetos.
+     */
+    public static final class CursorMovimientos {
+        private final long[] fechas;
+        private final long[] montos;
+        private final byte[] tipos;
+        private final int limite;
+        private final int cantidad;
+        private final int soloTipo;
+        private int posicion = -1;
+
+        private CursorMovimientos(long[] fechas, long[] montos, byte[] tipos, int limite, int cantidad,
+                                  int soloTipo) {
+            this.fechas = fechas;
+            this.montos = montos;
+            this.tipos = tipos;
+            this.limite = limite;
+            this.cantidad = cantidad;
+            this.soloTipo = soloTipo;
+        }
+
+        /**
+         * Avanza al siguiente movimiento
+         *
+         * @return false si ya no quedan movimientos
+         */
+        public boolean siguiente() {
+            int i = posicion + 1;
+            while (i < limite && soloTipo >= 0 && tipos[i] != soloTipo) {
+                i++;
+            }
+            posicion = Math.min(i, limite);
+            return posicion < limite;
+        }
+
+        /**
+         * Vuelve a antes del primer movimiento
+         */
+        public void reiniciar() {
+            posicion = -1;
+        }
+
+        /**
+         * Cantidad de movimientos que recorre este cursor
+         */
+        public int cantidad() {
+            return cantidad;
+        }
+
+        public TipoMovimiento getTipo() {
+            return TipoMovimiento.VALORES[tipos[actual()]];
+        }
+
+        public long getFechaMillis() {
+            return fechas[actual()];
+        }
+
+        /**
+         * Monto del movimiento en centavos, siempre positivo; el tipo indica
+         * si sumó o restó al saldo
+         */
+        public long getMontoCentavos() {
+            return montos[actual()];
+        }
+
+        public double getMonto() {
+            return Dinero.aPesos(getMontoCentavos());
+        }
+
+        public String getDescripcion() {
+            return getTipo().descripcion;
+        }
+
+        private int actual() {
+            if (posicion < 0 || posicion >= limite) {
+                throw new NoSuchElementException("El cursor no está sobre ningún movimiento");
+            }
+            return posicion;
+        }
+    }
+
     /**
      * Clase interna para representar una compra
      */
     public static class Compra {
-        private double monto;
+        private long montoCentavos;
         private Date fecha;
+        // Texto libre: no pasa por CatalogoProductos, que nunca lo soltaría
         private String descripcion;
 
         public Compra(double monto, Date fecha, String descripcion) {
-            this.monto = monto;
+            this(fecha, descripcion);
+            this.montoCentavos = Dinero.aCentavos(monto);
+        }
+
+        // Sin monto: un constructor con long al lado del de double tomaría
+        // en centavos cualquier literal entero
+        private Compra(Date fecha, String descripcion) {
             this.fecha = fecha;
             this.descripcion = descripcion;
         }
 
+        /**
+         * Crea una compra con el monto ya expresado en centavos
+         */
+        public static Compra enCentavos(long montoCentavos, Date fecha, String descripcion) {
+            Compra compra = new Compra(fecha, descripcion);
+            compra.montoCentavos = montoCentavos;
+            return compra;
+        }
+
         public double getMonto() {
-            return monto;
+            return Dinero.aPesos(montoCentavos);
+        }
+
+        public long getMontoCentavos() {
+            return montoCentavos;
         }
 
         public Date getFecha() {
@@ -157,9 +804,9 @@ public class Cliente {
         @Override
         public String toString() {
             return "Compra{" +
-                    "monto=" + monto +
+                    "monto=" + getMonto() +
                     ", fecha=" + fecha +
-                    ", descripcion='" + descripcion + '\'' +
+                    ", descripcion='" + getDescripcion() + '\'' +
                     '}';
         }
     }
@@ -133,4 +133,149 @@ public class ClienteTest {
         assertTrue(resultado.contains("Juan Pérez"));
         assertTrue(resultado.contains("1234567890"));
     }
+
+    @Test
+    @DisplayName("Pagar exactamente la deuda acumulada con decimales debe aceptarse")
+    public void testPagoExactoConDecimales() {
+        cliente.agregarCompra(0.1);
+        cliente.agregarCompra(0.2);
+
+        // Con double 0.1 + 0.2 = 0.30000000000000004 y el pago de 0.3 quedaba con residuo
+        assertEquals(30, cliente.getSaldoDeudaCentavos());
+        assertEquals(0.0, cliente.registrarPago(0.3), 0.0);
+        assertFalse(cliente.tieneDeuda());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar una compra que redondea a cero centavos")
+    public void testCompraMenorAUnCentavo() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            cliente.agregarCompra(0.001);
+        });
+        assertEquals("El monto debe ser mayor a cero", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("El cursor debe recorrer el historial sin copiarlo")
+    public void testCursorHistorialCompras() {
+        for (int i = 1; i <= 20; i++) {
+            cliente.agregarCompra(1000.0 * i);
+        }
+
+        Cliente.CursorMovimientos cursor = cliente.recorrerHistorialCompras();
+        assertEquals(20, cursor.cantidad());
+        long total = 0;
+        int vistas = 0;
+        while (cursor.siguiente()) {
+            vistas++;
+            total += cursor.getMontoCentavos();
+            assertEquals("Compra a crédito", cursor.getDescripcion());
+            assertTrue(cursor.getFechaMillis() > 0);
+        }
+        assertEquals(20, vistas);
+        assertEquals(cliente.getSaldoDeudaCentavos(), total);
+        assertThrows(java.util.NoSuchElementException.class, cursor::getMontoCentavos);
+    }
+
+    @Test
+    @DisplayName("El cursor no debe ver compras registradas después de crearlo")
+    public void testCursorEsInstantanea() {
+        cliente.agregarCompra(500.0);
+        Cliente.CursorMovimientos cursor = cliente.recorrerHistorialCompras();
+
+        for (int i = 0; i < 50; i++) {
+            cliente.agregarCompra(100.0);
+        }
+
+        assertTrue(cursor.siguiente());
+        assertEquals(500.0, cursor.getMonto(), 0.0);
+        assertFalse(cursor.siguiente());
+        assertEquals(51, cliente.getCantidadCompras());
+        assertEquals(51, cliente.getHistorialCompras().size());
+        assertEquals(100.0, cliente.getHistorialCompras().get(50).getMonto(), 0.0);
+    }
+
+    @Test
+    @DisplayName("Los pagos deben quedar en los movimientos pero no en el historial de compras")
+    public void testPagosEnLibroDeMovimientos() {
+        cliente.agregarCompra(30000.0);
+        cliente.registrarPago(10000.0);
+        cliente.agregarCompra(5000.0);
+        cliente.saldarDeuda();
+
+        assertEquals(2, cliente.getHistorialCompras().size());
+        assertEquals(2, cliente.getCantidadCompras());
+        assertEquals(4, cliente.getCantidadMovimientos());
+
+        Cliente.CursorMovimientos cursor = cliente.recorrerMovimientos();
+        assertTrue(cursor.siguiente());
+        assertEquals(Cliente.TipoMovimiento.COMPRA, cursor.getTipo());
+        assertTrue(cursor.siguiente());
+        assertEquals(Cliente.TipoMovimiento.PAGO, cursor.getTipo());
+        assertEquals(1000000, cursor.getMontoCentavos());
+        assertTrue(cursor.siguiente());
+        assertTrue(cursor.siguiente());
+        assertEquals(Cliente.TipoMovimiento.DEUDA_SALDADA, cursor.getTipo());
+        assertEquals(2500000, cursor.getMontoCentavos());
+        assertFalse(cursor.siguiente());
+    }
+
+    @Test
+    @DisplayName("El saldo en una fecha debe coincidir con repetir todos los movimientos")
+    public void testSaldoEnFecha() {
+        java.util.Date antes = new java.util.Date(System.currentTimeMillis() - 60000);
+        // Suficientes movimientos para pasar varios puntos de control
+        for (int i = 1; i <= 300; i++) {
+            cliente.agregarCompra(100.0 * (i % 7 + 1));
+            if (i % 3 == 0) {
+                cliente.registrarPago(50.0);
+            }
+        }
+
+        assertEquals(0.0, cliente.saldoEnFecha(antes), 0.0);
+        java.util.Date despues = new java.util.Date(System.currentTimeMillis() + 60000);
+        assertEquals(cliente.getSaldoDeudaCentavos(), cliente.saldoEnFechaCentavos(despues));
+
+        // Repetir el libro a mano: el saldo en la fecha de cada movimiento
+        // incluye todos los movimientos de ese mismo milisegundo
+        Cliente.CursorMovimientos cursor = cliente.recorrerMovimientos();
+        long[] fechas = new long[cursor.cantidad()];
+        long[] saldos = new long[cursor.cantidad()];
+        long saldo = 0;
+        int n = 0;
+        while (cursor.siguiente()) {
+            saldo += cursor.getTipo() == Cliente.TipoMovimiento.COMPRA
+                    ? cursor.getMontoCentavos() : -cursor.getMontoCentavos();
+            fechas[n] = cursor.getFechaMillis();
+            saldos[n] = saldo;
+            if (n > 0) {
+                assertTrue(fechas[n] >= fechas[n - 1]);
+            }
+            n++;
+        }
+        for (int i = 0; i < n; i++) {
+            if (i + 1 < n && fechas[i + 1] == fechas[i]) {
+                continue;
+            }
+            assertEquals(saldos[i], cliente.saldoEnFechaCentavos(new java.util.Date(fechas[i])));
+        }
+        assertThrows(IllegalArgumentException.class, () -> cliente.saldoEnFecha(null));
+    }
+
+    @Test
+    @DisplayName("La vista del historial debe mostrar solo compras y quedar fija")
+    public void testVistaHistorialCompras() {
+        cliente.agregarCompra(10000.0);
+        cliente.registrarPago(5000.0);
+        cliente.agregarCompra(20000.0);
+
+        java.util.List<Cliente.Compra> vista = cliente.vistaHistorialCompras();
+        cliente.agregarCompra(30000.0);
+
+        assertEquals(2, vista.size());
+        assertEquals(10000.0, vista.get(0).getMonto(), 0.0);
+        assertEquals(20000.0, vista.get(1).getMonto(), 0.0);
+        assertEquals(3, cliente.vistaHistorialCompras().size());
+        assertThrows(UnsupportedOperationException.class, () -> vista.remove(0));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,474 @@
+package ERICK-S-CONVENIENCE-STORE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Motor de cobertura para reabastecer: dada una lista de productos, busca
+ * la menor cantidad de proveedores que los suministran todos y arma un
+ * borrador de pedido por proveedor.
+ *
+ * Cada proveedor se representa como un BitSet con un bit por producto
+ * distinto (sin distinguir mayúsculas ni espacios), así que "cuántos de los
+ * productos que faltan cubre" es un AND más un conteo de bits. La búsqueda
+ * voraz responde en microsegundos; la exacta hace ramificación y poda
+ * partiendo de la voraz y, si llega al límite de nodos, devuelve la mejor
+ * solución encontrada sin marcarla como óptima.
+ *
+ * La instancia es una foto de los proveedores con que se construyó y no
+ * cambia; GestorPedidos la descarta cuando cambia algún catálogo.
+ */
+public class CoberturaProveedores {
+    public static final int LIMITE_NODOS_POR_DEFECTO = 1_000;
+
+    private final Proveedor[] proveedores;
+    private final BitSet[] catalogos;
+    private final Map<String, Integer> bitPorProducto;
+
+    /**
+     * @param proveedores Proveedores candidatos; ante empates se prefiere
+     *                    el que aparece primero
+     */
+    public CoberturaProveedores(List<Proveedor> proveedores) {
+        if (proveedores == null) {
+            throw new IllegalArgumentException("La lista de proveedores no puede ser nula");
+        }
+        this.proveedores = proveedores.toArray(new Proveedor[0]);
+        this.catalogos = new BitSet[this.proveedores.length];
+        this.bitPorProducto = new HashMap<>();
+
+        // El bit se calcula una vez por id del catálogo
+        Map<Integer, Integer> bitPorId = new HashMap<>();
+        for (int i = 0; i < this.proveedores.length; i++) {
+            BitSet catalogo = new BitSet();
+            for (int idProducto : this.proveedores[i].getIdsProductos()) {
+                Integer bit = bitPorId.get(idProducto);
+                if (bit == null) {
+                    bit = bitDe(normalizar(CatalogoProductos.nombre(idProducto)));
+                    bitPorId.put(idProducto, bit);
+                }
+                catalogo.set(bit);
+            }
+            catalogos[i] = catalogo;
+        }
+    }
+
+    private int bitDe(String clave) {
+        Integer bit = bitPorProducto.get(clave);
+        if (bit == null) {
+            bit = bitPorProducto.size();
+            bitPorProducto.put(clave, bit);
+        }
+        return bit;
+    }
+
+    private static String normalizar(String producto) {
+        return producto.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Cobertura voraz: en cada paso elige el proveedor que cubre más
+     * productos de los que faltan. Usa a lo sumo ln(n) + 1 veces los
+     * proveedores de la solución óptima.
+     *
+     * @param productos Producto a cantidad pedida
+     */
+    public PlanReabastecimiento resolverVoraz(Map<String, Integer> productos) {
+        Solicitud solicitud = new Solicitud(productos);
+        int[] elegidos = voraz(solicitud.aportes(catalogos), solicitud.requeridos.toLongArray());
+        return armarPlan(solicitud, elegidos, elegidos.length <= 1);
+    }
+
+    /**
+     * Cobertura mínima exacta con el límite de nodos por defecto
+     */
+    public PlanReabastecimiento resolverExacto(Map<String, Integer> productos) {
+        return resolverExacto(productos, LIMITE_NODOS_POR_DEFECTO);
+    }
+
+    /**
+     * Cobertura mínima exacta por ramificación y poda. Parte de la solución
+     * voraz, descarta proveedores cuyo aporte está contenido en el de otro y
+     * ramifica siempre por el producto faltante con menos proveedores.
+     *
+     * @param limiteNodos Nodos a explorar antes de rendirse; si se alcanza,
+     *                    el plan trae la mejor solución encontrada y
+     *                    isOptimo() es false
+     */
+    public PlanReabastecimiento resolverExacto(Map<String, Integer> productos, int limiteNodos) {
+        if (limiteNodos <= 0) {
+            throw new IllegalArgumentException("El límite de nodos debe ser mayor a cero");
+        }
+        Solicitud solicitud = new Solicitud(productos);
+        long[][] aportes = solicitud.aportes(catalogos);
+        long[] requeridos = solicitud.requeridos.toLongArray();
+        descartarDominados(aportes);
+
+        Busqueda busqueda = new Busqueda(aportes, requeridos, limiteNodos);
+        busqueda.mejor = voraz(aportes, requeridos);
+        busqueda.buscar(requeridos, new int[busqueda.mejor.length], 0);
+        return armarPlan(solicitud, busqueda.mejor, !busqueda.agotada);
+    }
+
+    private static int[] voraz(long[][] aportes, long[] requeridos) {
+        long[] faltantes = requeridos.clone();
+        int restantes = contar(faltantes);
+        List<Integer> elegidos = new ArrayList<>();
+        while (restantes > 0) {
+            int mejor = -1;
+            int mejorCuenta = 0;
+            for (int i = 0; i < aportes.length; i++) {
+                if (aportes[i] != null) {
+                    int cuenta = contarComunes(aportes[i], faltantes);
+                    if (cuenta > mejorCuenta) {
+                        mejor = i;
+                        mejorCuenta = cuenta;
+                    }
+                }
+            }
+            // Los requeridos solo incluyen productos con algún proveedor
+            elegidos.add(mejor);
+            quitar(faltantes, aportes[mejor]);
+            restantes -= mejorCuenta;
+        }
+        return elegidos.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Anula los aportes contenidos en otro (con igual aporte queda el
+     * primero): nunca hacen falta en una cobertura mínima
+     */
+    private static void descartarDominados(long[][] aportes) {
+        for (int j = 0; j < aportes.length; j++) {
+            if (aportes[j] == null) {
+                continue;
+            }
+            for (int i = 0; i < aportes.length; i++) {
+                if (i != j && aportes[i] != null && contenido(aportes[j], aportes[i])
+                        && (i < j || !Arrays.equals(aportes[j], aportes[i]))) {
+                    aportes[j] = null;
+                    break;
+                }
+            }
+        }
+    }
+
+    // Operaciones sobre las palabras de 64 bits de un BitSet (toLongArray):
+    // contar lo común de dos conjuntos es un AND y un bitCount por palabra,
+    // sin crear conjuntos intermedios
+
+    private static int contarComunes(long[] a, long[] b) {
+        int comunes = 0;
+        for (int w = Math.min(a.length, b.length) - 1; w >= 0; w--) {
+            comunes += Long.bitCount(a[w] & b[w]);
+        }
+        return comunes;
+    }
+
+    private static int contar(long[] palabras) {
+        int cuenta = 0;
+        for (long palabra : palabras) {
+            cuenta += Long.bitCount(palabra);
+        }
+        return cuenta;
+    }
+
+    private static void quitar(long[] faltantes, long[] aporte) {
+        for (int w = Math.min(faltantes.length, aporte.length) - 1; w >= 0; w--) {
+            faltantes[w] &= ~aporte[w];
+        }
+    }
+
+    private static boolean contenido(long[] a, long[] b) {
+        for (int w = 0; w < a.length; w++) {
+            long enB = w < b.length ? b[w] : 0L;
+            if ((a[w] & ~enB) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private PlanReabastecimiento armarPlan(Solicitud solicitud, int[] elegidos, boolean optimo) {
+        // Cada producto va al primer elegido que lo suministra
+        List<BorradorPedido> borradores = new ArrayList<>(elegidos.length);
+        for (int elegido : elegidos) {
+            borradores.add(new BorradorPedido(proveedores[elegido]));
+        }
+        for (int p = 0; p < solicitud.nombres.size(); p++) {
+            int bit = solicitud.bits.get(p);
+            for (int e = 0; e < elegidos.length; e++) {
+                if (catalogos[elegidos[e]].get(bit)) {
+                    borradores.get(e).productos.put(solicitud.nombres.get(p), solicitud.cantidades.get(p));
+                    break;
+                }
+            }
+        }
+        borradores.removeIf(borrador -> borrador.productos.isEmpty());
+        return new PlanReabastecimiento(borradores, solicitud.sinCobertura, optimo);
+    }
+
+    /**
+     * Productos pedidos ya traducidos a bits; los repetidos (según la
+     * normalización) se suman
+     */
+    private class Solicitud {
+        private final List<String> nombres = new ArrayList<>();
+        private final List<Integer> cantidades = new ArrayList<>();
+        private final List<Integer> bits = new ArrayList<>();
+        private final List<String> sinCobertura = new ArrayList<>();
+        private final BitSet requeridos = new BitSet();
+
+        Solicitud(Map<String, Integer> productos) {
+            if (productos == null) {
+                throw new IllegalArgumentException("La lista de productos no puede ser nula");
+            }
+            Map<String, Integer> posicionPorClave = new HashMap<>();
+            for (Map.Entry<String, Integer> entrada : productos.entrySet()) {
+                String producto = entrada.getKey();
+                Integer cantidad = entrada.getValue();
+                if (producto == null || producto.trim().isEmpty()) {
+                    throw new IllegalArgumentException("El producto no puede estar vacío");
+                }
+                if (cantidad == null || cantidad <= 0) {
+                    throw new IllegalArgumentException("La cantidad debe ser mayor a cero");
+                }
+                String clave = normalizar(producto);
+                Integer posicion = posicionPorClave.get(clave);
+                if (posicion != null) {
+                    if (posicion >= 0) {
+                        cantidades.set(posicion, Math.addExact(cantidades.get(posicion), cantidad));
+                    }
+                    continue;
+                }
+                Integer bit = bitPorProducto.get(clave);
+                if (bit == null) {
+                    posicionPorClave.put(clave, -1);
+                    sinCobertura.add(producto.trim());
+                    continue;
+                }
+                posicionPorClave.put(clave, nombres.size());
+                nombres.add(producto.trim());
+                cantidades.add(cantidad);
+                bits.add(bit);
+                requeridos.set(bit);
+            }
+        }
+
+        /**
+         * Aporte de cada proveedor a esta solicitud, como palabras de 64
+         * bits (null si no aporta nada)
+         */
+        long[][] aportes(BitSet[] catalogos) {
+            long[][] aportes = new long[catalogos.length][];
+            for (int i = 0; i < catalogos.length; i++) {
+                if (catalogos[i].intersects(requeridos)) {
+                    BitSet aporte = (BitSet) catalogos[i].clone();
+                    aporte.and(requeridos);
+                    aportes[i] = aporte.toLongArray();
+                }
+            }
+            return aportes;
+        }
+    }
+
+    /**
+     * Estado de una búsqueda exacta
+     */
+    private static class Busqueda {
+        private final long[][] aportes;
+        // Proveedores que aportan algo, y para cada bit requerido los que lo cubren
+        private final int[] vigentes;
+        private final int[][] proveedoresPorBit;
+        private final boolean[] usados;
+        private final int limiteNodos;
+        private int nodos;
+        private boolean agotada;
+        private int[] mejor;
+
+        Busqueda(long[][] aportes, long[] requeridos, int limiteNodos) {
+            this.aportes = aportes;
+            this.limiteNodos = limiteNodos;
+            this.usados = new boolean[aportes.length];
+            List<Integer> conAporte = new ArrayList<>();
+            for (int i = 0; i < aportes.length; i++) {
+                if (aportes[i] != null) {
+                    conAporte.add(i);
+                }
+            }
+            this.vigentes = conAporte.stream().mapToInt(Integer::intValue).toArray();
+            this.proveedoresPorBit = new int[requeridos.length * 64][];
+            for (int w = 0; w < requeridos.length; w++) {
+                for (long palabra = requeridos[w]; palabra != 0; palabra &= palabra - 1) {
+                    int bit = w * 64 + Long.numberOfTrailingZeros(palabra);
+                    List<Integer> cubren = new ArrayList<>();
+                    for (int i : vigentes) {
+                        if (w < aportes[i].length && (aportes[i][w] & (1L << bit)) != 0) {
+                            cubren.add(i);
+                        }
+                    }
+                    proveedoresPorBit[bit] = cubren.stream().mapToInt(Integer::intValue).toArray();
+                }
+            }
+        }
+
+        /**
+         * Proveedores que faltan como mínimo: la mayor de dos cotas. Una
+         * divide lo que falta por el mayor aporte; la otra cuenta productos
+         * que no comparten ningún proveedor entre sí, y que por lo tanto
+         * necesitan uno cada uno.
+         */
+        private int cotaInferior(long[] faltantes, int restantes) {
+            Arrays.fill(usados, false);
+            int disjuntos = 0;
+            for (int w = 0; w < faltantes.length; w++) {
+                for (long palabra = faltantes[w]; palabra != 0; palabra &= palabra - 1) {
+                    int[] cubren = proveedoresPorBit[w * 64 + Long.numberOfTrailingZeros(palabra)];
+                    boolean compartido = false;
+                    for (int proveedor : cubren) {
+                        if (usados[proveedor]) {
+                            compartido = true;
+                            break;
+                        }
+                    }
+                    if (!compartido) {
+                        disjuntos++;
+                        for (int proveedor : cubren) {
+                            usados[proveedor] = true;
+                        }
+                    }
+                }
+            }
+            int mayorAporte = 0;
+            for (int i : vigentes) {
+                mayorAporte = Math.max(mayorAporte, contarComunes(aportes[i], faltantes));
+            }
+            return Math.max(disjuntos, (restantes + mayorAporte - 1) / mayorAporte);
+        }
+
+        void buscar(long[] faltantes, int[] actual, int profundidad) {
+            int restantes = contar(faltantes);
+            if (restantes == 0) {
+                if (profundidad < mejor.length) {
+                    mejor = Arrays.copyOf(actual, profundidad);
+                }
+                return;
+            }
+            if (nodos++ >= limiteNodos) {
+                agotada = true;
+                return;
+            }
+            if (profundidad + cotaInferior(faltantes, restantes) >= mejor.length) {
+                return;
+            }
+
+            // Alguien tiene que cubrir el producto con menos opciones
+            int[] opciones = null;
+            for (int w = 0; w < faltantes.length; w++) {
+                for (long palabra = faltantes[w]; palabra != 0; palabra &= palabra - 1) {
+                    int[] cubren = proveedoresPorBit[w * 64 + Long.numberOfTrailingZeros(palabra)];
+                    if (opciones == null || cubren.length < opciones.length) {
+                        opciones = cubren;
+                    }
+                }
+            }
+            for (int proveedor : opciones) {
+                long[] siguientes = faltantes.clone();
+                quitar(siguientes, aportes[proveedor]);
+                actual[profundidad] = proveedor;
+                buscar(siguientes, actual, profundidad + 1);
+                if (agotada) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Resultado de una cobertura: un borrador por proveedor elegido y los
+     * productos que ningún proveedor suministra
+     */
+    public static class PlanReabastecimiento {
+        private final List<BorradorPedido> borradores;
+        private final List<String> productosSinCobertura;
+        private final boolean optimo;
+
+        PlanReabastecimiento(List<BorradorPedido> borradores, List<String> productosSinCobertura, boolean optimo) {
+            this.borradores = Collections.unmodifiableList(borradores);
+            this.productosSinCobertura = Collections.unmodifiableList(productosSinCobertura);
+            this.optimo = optimo;
+        }
+
+        public List<BorradorPedido> getBorradores() {
+            return borradores;
+        }
+
+        public int getCantidadProveedores() {
+            return borradores.size();
+        }
+
+        public List<String> getProductosSinCobertura() {
+            return productosSinCobertura;
+        }
+
+        public boolean estaCompleto() {
+            return productosSinCobertura.isEmpty();
+        }
+
+        /**
+         * true si se demostró que no hay un plan con menos proveedores
+         */
+        public boolean isOptimo() {
+            return optimo;
+        }
+
+        @Override
+        public String toString() {
+            return "PlanReabastecimiento{" +
+                    "proveedores=" + borradores.size() +
+                    ", sinCobertura=" + productosSinCobertura +
+                    ", optimo=" + optimo +
+                    '}';
+        }
+    }
+
+    /**
+     * Productos y cantidades a pedirle a un proveedor, todavía sin precios.
+     * GestorPedidos.crearPedidoDesdeBorrador lo convierte en un pedido.
+     */
+    public static class BorradorPedido {
+        private final Proveedor proveedor;
+        private final Map<String, Integer> productos;
+
+        BorradorPedido(Proveedor proveedor) {
+            this.proveedor = proveedor;
+            this.productos = new LinkedHashMap<>();
+        }
+
+        public Proveedor getProveedor() {
+            return proveedor;
+        }
+
+        /**
+         * Producto a cantidad, en el orden de la solicitud
+         */
+        public Map<String, Integer> getProductos() {
+            return Collections.unmodifiableMap(productos);
+        }
+
+        @Override
+        public String toString() {
+            return "BorradorPedido{" +
+                    "proveedor=" + proveedor.getEmpresa() +
+                    ", productos=" + productos +
+                    '}';
+        }
+    }
+}
\ No newline at end of file
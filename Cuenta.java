@@ -1,21 +1,23 @@
 // Clase base conceptual que se usará para todas las asignaciones.
 class Cuenta {
     private String nombre;
-    private double totalConsumido;
+    // En centavos para que la suma de consumos no acumule redondeos
+    private long totalConsumidoCentavos;
     private boolean pagada;
 
     public Cuenta(String nombre) {
         this.nombre = nombre;
-        this.totalConsumido = 0.0;
+        this.totalConsumidoCentavos = 0;
         this.pagada = false;
     }
 
     public String getNombre() { return nombre; }
-    public double getTotalConsumido() { return totalConsumido; }
+    public double getTotalConsumido() { return Dinero.aPesos(totalConsumidoCentavos); }
+    public long getTotalConsumidoCentavos() { return totalConsumidoCentavos; }
     public boolean isPagada() { return pagada; }
 
     public void agregarConsumo(double monto) {
-        this.totalConsumido += monto;
+        this.totalConsumidoCentavos += Dinero.aCentavos(monto);
     }
 
     public void marcarComoPagada() {
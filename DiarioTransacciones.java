@@ -0,0 +1,882 @@
+package ERICK-S-CONVENIENCE-STORE;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de transacciones (write-ahead log). Cada movimiento del libro de
+ * un cliente, cada alta, baja o cambio de datos de clientes y cada cambio
+ * hecho a través de GestorPedidos se agrega al final de un archivo, y el
+ * método que lo causó no termina hasta que el registro está en disco. Al
+ * recuperar se carga el último snapshot y se repiten encima los registros
+ * posteriores a su LSN.
+ *
+ * El registro se arma y se agrega a los pendientes con los candados del
+ * cambio tomados (los del cliente, el pedido o el gestor), que fijan su
+ * orden. La espera al disco es aparte, en cambioTerminado(), cuando el
+ * método ya los soltó: un force() no frena las consultas ni los cambios
+ * de otras cajas, y los registros de pedidos también se juntan en lotes.
+ *
+ * Registro (big-endian):
+ * <pre>
+ *   largo (int) | CRC32 (int) | LSN (long) | tipo (byte) | datos
+ * </pre>
+ * El largo y el CRC cubren LSN, tipo y datos. Un registro incompleto o con
+ * un CRC que no coincide es una escritura cortada por una caída: el diario
+ * termina ahí y abrir() lo recorta.
+ *
+ * Commit en grupo: el primero que espera su registro se encarga de
+ * escribir. Antes deja pasar la ventana configurada para que otras cajas
+ * sumen los suyos, y un solo force() los confirma a todos; los que llegan
+ * mientras tanto esperan al siguiente lote.
+ *
+ * Los registros se pueden repetir sobre un snapshot que ya los incluye:
+ * cada uno lleva lo necesario para reconocerlo (el lugar del movimiento
+ * en el libro, el total del pedido antes de los items, etc.) y se omite.
+ */
+public class DiarioTransacciones
+        implements GestorClientes.ObservadorClientes, GestorPedidos.ObservadorPedidos, AutoCloseable {
+    public static final String EXTENSION = ".wal";
+
+    private static final byte CLIENTE_AGREGADO = 1;
+    private static final byte CLIENTE_ELIMINADO = 2;
+    private static final byte CLIENTES_LIMPIADOS = 3;
+    private static final byte MOVIMIENTO = 4;
+    private static final byte CLIENTE_MODIFICADO = 5;
+    private static final byte PROVEEDOR_AGREGADO = 10;
+    private static final byte PRODUCTO_AGREGADO = 11;
+    private static final byte ACTIVIDAD_CAMBIADA = 12;
+    private static final byte PEDIDO_CREADO = 13;
+    private static final byte ITEMS_AGREGADOS = 14;
+    private static final byte ESTADO_CAMBIADO = 15;
+    private static final byte DATOS_LIMPIADOS = 16;
+    private static final byte PEDIDO_MODIFICADO = 17;
+
+    // Largo y CRC
+    private static final int ENCABEZADO = 8;
+    // LSN y tipo, cubiertos por el largo y el CRC
+    private static final int PREFIJO = 9;
+    private static final int LARGO_MAXIMO = 16 * 1024 * 1024;
+    private static final long FECHA_NULA = Long.MIN_VALUE;
+
+    private final Path archivo;
+    private final long ventanaNanos;
+    // Solo los cambia recortarHasta, con el turno de escritura tomado
+    private FileChannel canal;
+    private OutputStream salida;
+
+    // Todo lo que sigue se protege con candado
+    private final Object candado = new Object();
+    private ByteArrayOutputStream pendientes = new ByteArrayOutputStream();
+    private long ultimoLsn;
+    private long lsnDurable;
+    private boolean escribiendo;
+    private boolean cerrado;
+    private IOException error;
+    private long registros;
+    private long sincronizaciones;
+    // Último LSN que cada hilo registró y todavía no esperó
+    private final ThreadLocal<long[]> pendienteDelHilo = ThreadLocal.withInitial(() -> new long[1]);
+
+    private DiarioTransacciones(Path archivo, FileChannel canal, long ventanaMillis, long ultimoLsn) {
+        this.archivo = archivo;
+        this.canal = canal;
+        this.salida = Channels.newOutputStream(canal);
+        this.ventanaNanos = TimeUnit.MILLISECONDS.toNanos(ventanaMillis);
+        this.ultimoLsn = ultimoLsn;
+        this.lsnDurable = ultimoLsn;
+    }
+
+    /**
+     * Abre (o crea) el diario para seguir agregando registros. Si termina
+     * en un registro cortado, lo descarta.
+     *
+     * @param ventanaMillis Cuánto espera quien escribe a que se sumen otros
+     *                      registros antes del force(); 0 escribe enseguida
+     * @param lsnMinimo     Los registros nuevos siguen después de este LSN
+     *                      aunque el archivo tenga menos (por ejemplo, el
+     *                      del snapshot si el diario se borró)
+     */
+    public static DiarioTransacciones abrir(Path archivo, long ventanaMillis, long lsnMinimo) throws IOException {
+        if (ventanaMillis < 0) {
+            throw new IllegalArgumentException("La ventana del diario no puede ser negativa");
+        }
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long[] ultimo = {lsnMinimo};
+            long fin = recorrer(canal, (lsn, tipo, datos) -> ultimo[0] = Math.max(ultimo[0], lsn));
+            if (fin < canal.size()) {
+                canal.truncate(fin);
+                canal.force(true);
+            }
+            canal.position(fin);
+            return new DiarioTransacciones(archivo, canal, ventanaMillis, ultimo[0]);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    // ============ REGISTRO ============
+
+    @Override
+    public void clienteAgregado(Cliente cliente) {
+        Datos datos = new Datos();
+        datos.entero(cliente.getId());
+        datos.texto(cliente.getNombre());
+        datos.texto(cliente.getCedula());
+        datos.texto(cliente.getTelefono());
+        datos.fecha(cliente.getFechaRegistro());
+        registrar(CLIENTE_AGREGADO, datos);
+    }
+
+    @Override
+    public void clienteEliminado(Cliente cliente) {
+        Datos datos = new Datos();
+        datos.entero(cliente.getId());
+        registrar(CLIENTE_ELIMINADO, datos);
+    }
+
+    @Override
+    public void clientesLimpiados() {
+        registrar(CLIENTES_LIMPIADOS, new Datos());
+    }
+
+    @Override
+    public void movimientoRegistrado(Cliente cliente, int posicion, Cliente.TipoMovimiento tipo, long fechaMillis,
+                                     long montoCentavos) {
+        Datos datos = new Datos();
+        datos.entero(cliente.getId());
+        datos.entero(posicion);
+        datos.octeto(tipo.ordinal());
+        datos.largo(fechaMillis);
+        datos.largo(montoCentavos);
+        registrar(MOVIMIENTO, datos);
+    }
+
+    @Override
+    public void datosCambiados(Cliente cliente) {
+        Datos datos = new Datos();
+        datos.entero(cliente.getId());
+        datos.texto(cliente.getNombre());
+        datos.texto(cliente.getCedula());
+        registrar(CLIENTE_MODIFICADO, datos);
+    }
+
+    @Override
+    public void proveedorAgregado(Proveedor proveedor) {
+        Datos datos = new Datos();
+        datos.entero(proveedor.getId());
+        datos.texto(proveedor.getNombre());
+        datos.texto(proveedor.getEmpresa());
+        datos.texto(proveedor.getTelefono());
+        datos.texto(proveedor.getEmail());
+        registrar(PROVEEDOR_AGREGADO, datos);
+    }
+
+    @Override
+    public void productoAgregado(Proveedor proveedor, String producto) {
+        Datos datos = new Datos();
+        datos.entero(proveedor.getId());
+        datos.texto(producto);
+        registrar(PRODUCTO_AGREGADO, datos);
+    }
+
+    @Override
+    public void actividadCambiada(Proveedor proveedor, boolean activo) {
+        Datos datos = new Datos();
+        datos.entero(proveedor.getId());
+        datos.octeto(activo ? 1 : 0);
+        registrar(ACTIVIDAD_CAMBIADA, datos);
+    }
+
+    @Override
+    public void pedidoCreado(PedidoProveedor pedido) {
+        Datos datos = new Datos();
+        datos.entero(pedido.getId());
+        datos.entero(pedido.getProveedor().getId());
+        datos.fecha(pedido.getFechaPedido());
+        datos.fecha(pedido.getFechaEntregaEstimada());
+        registrar(PEDIDO_CREADO, datos);
+    }
+
+    @Override
+    public void itemsAgregados(PedidoProveedor pedido, List<PedidoProveedor.ItemPedido> items) {
+        long totalLote = 0;
+        for (PedidoProveedor.ItemPedido item : items) {
+            totalLote += item.getSubtotalCentavos();
+        }
+        Datos datos = new Datos();
+        datos.entero(pedido.getId());
+        // El total crece con cada lote: identifica si el lote ya estaba aplicado
+        datos.largo(pedido.getTotalPedidoCentavos() - totalLote);
+        datos.octeto(pedido.isCombinarItems() ? 1 : 0);
+        datos.entero(items.size());
+        for (PedidoProveedor.ItemPedido item : items) {
+            datos.texto(item.getProducto());
+            datos.entero(item.getCantidad());
+            datos.largo(item.getPrecioUnitarioCentavos());
+        }
+        registrar(ITEMS_AGREGADOS, datos);
+    }
+
+    @Override
+    public void datosCambiados(PedidoProveedor pedido) {
+        Datos datos = new Datos();
+        datos.entero(pedido.getId());
+        datos.fecha(pedido.getFechaEntregaEstimada());
+        datos.texto(pedido.getObservaciones());
+        registrar(PEDIDO_MODIFICADO, datos);
+    }
+
+    @Override
+    public void estadoCambiado(PedidoProveedor pedido, PedidoProveedor.EstadoPedido estadoAnterior,
+                               PedidoProveedor.EstadoPedido estadoNuevo) {
+        Datos datos = new Datos();
+        datos.entero(pedido.getId());
+        datos.octeto(estadoNuevo.ordinal());
+        datos.fecha(estadoNuevo == PedidoProveedor.EstadoPedido.ENTREGADO ? pedido.getFechaEntregaReal() : null);
+        datos.texto(estadoNuevo == PedidoProveedor.EstadoPedido.CANCELADO ? pedido.getObservaciones() : null);
+        registrar(ESTADO_CAMBIADO, datos);
+    }
+
+    @Override
+    public void datosLimpiados() {
+        registrar(DATOS_LIMPIADOS, new Datos());
+    }
+
+    /**
+     * Agrega el registro a los pendientes. Se espera en cambioTerminado().
+     *
+     * @throws IllegalStateException si el diario está cerrado
+     */
+    private void registrar(byte tipo, Datos datos) {
+        byte[] contenido = datos.bytes();
+        long lsn;
+        synchronized (candado) {
+            if (cerrado) {
+                throw new IllegalStateException("El diario de transacciones está cerrado");
+            }
+            lsn = ++ultimoLsn;
+            ByteBuffer prefijo = ByteBuffer.allocate(ENCABEZADO + PREFIJO);
+            prefijo.putInt(PREFIJO + contenido.length).putInt(0).putLong(lsn).put(tipo);
+            CRC32 crc = new CRC32();
+            crc.update(prefijo.array(), ENCABEZADO, PREFIJO);
+            crc.update(contenido);
+            prefijo.putInt(4, (int) crc.getValue());
+            pendientes.write(prefijo.array(), 0, prefijo.capacity());
+            pendientes.write(contenido, 0, contenido.length);
+            registros++;
+        }
+        pendienteDelHilo.get()[0] = lsn;
+    }
+
+    /**
+     * Vuelve cuando está en disco todo lo que registró este hilo. Lo llaman
+     * los clientes, los pedidos y los gestores al final del método que hizo
+     * el cambio, ya sin candados.
+     *
+     * @throws IllegalStateException si no se pudo escribir; el cambio ya
+     *         está hecho en memoria pero no es durable
+     */
+    @Override
+    public void cambioTerminado() {
+        long[] pendiente = pendienteDelHilo.get();
+        long lsn = pendiente[0];
+        if (lsn == 0) {
+            return;
+        }
+        pendiente[0] = 0;
+        esperarDurable(lsn);
+    }
+
+    /**
+     * Vuelve cuando el registro con ese LSN está en disco. Si nadie está
+     * escribiendo, este hilo escribe el lote; si no, espera al que escribe.
+     */
+    private void esperarDurable(long lsn) {
+        boolean interrumpido = false;
+        try {
+            while (true) {
+                synchronized (candado) {
+                    while (lsnDurable < lsn && escribiendo && error == null) {
+                        try {
+                            candado.wait();
+                        } catch (InterruptedException e) {
+                            // El registro ya está en el lote: hay que esperarlo igual
+                            interrumpido = true;
+                        }
+                    }
+                    if (error != null) {
+                        throw new IllegalStateException("No se pudo escribir el diario de transacciones", error);
+                    }
+                    if (lsnDurable >= lsn) {
+                        return;
+                    }
+                    escribiendo = true;
+                }
+                escribirLote();
+            }
+        } finally {
+            if (interrumpido) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void escribirLote() {
+        if (ventanaNanos > 0) {
+            LockSupport.parkNanos(ventanaNanos);
+        }
+        ByteArrayOutputStream lote;
+        long hasta;
+        synchronized (candado) {
+            lote = pendientes;
+            pendientes = new ByteArrayOutputStream(Math.max(32, lote.size()));
+            hasta = ultimoLsn;
+        }
+        try {
+            lote.writeTo(salida);
+            canal.force(false);
+        } catch (IOException e) {
+            synchronized (candado) {
+                error = e;
+                escribiendo = false;
+                candado.notifyAll();
+            }
+            return;
+        }
+        synchronized (candado) {
+            lsnDurable = hasta;
+            sincronizaciones++;
+            escribiendo = false;
+            candado.notifyAll();
+        }
+    }
+
+    /**
+     * Punto de control: descarta del archivo los registros con LSN menor o
+     * igual al indicado, que ya están en un snapshot en disco, para que el
+     * diario no crezca sin límite ni recuperar() tenga que leerlo entero.
+     *
+     * Copia los registros posteriores a un archivo nuevo y lo pone en lugar
+     * del actual de forma atómica: tras una caída queda el diario completo
+     * o el recortado, y cualquiera de los dos sirve. Mientras copia, nadie
+     * escribe lotes; los registros nuevos esperan en memoria.
+     *
+     * @return Bytes descartados
+     * @throws IOException si no se pudo recortar (el diario sigue como estaba)
+     */
+    public long recortarHasta(long lsn) throws IOException {
+        tomarTurnoDeEscritura();
+        try {
+            long fin = canal.size();
+            long inicio = inicioDespuesDe(canal, lsn);
+            // Recorrer movió la posición: los lotes se siguen agregando al final
+            canal.position(fin);
+            if (inicio == 0) {
+                return 0;
+            }
+            Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+            try (FileChannel nuevo = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long copiados = 0;
+                while (copiados < fin - inicio) {
+                    copiados += canal.transferTo(inicio + copiados, fin - inicio - copiados, nuevo);
+                }
+                nuevo.force(true);
+            } catch (IOException e) {
+                Files.deleteIfExists(temporal);
+                throw e;
+            }
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileChannel anterior = canal;
+            canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            canal.position(canal.size());
+            salida = Channels.newOutputStream(canal);
+            anterior.close();
+            return inicio;
+        } finally {
+            synchronized (candado) {
+                escribiendo = false;
+                candado.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Espera a que nadie esté escribiendo un lote y toma el turno
+     */
+    private void tomarTurnoDeEscritura() throws IOException {
+        boolean interrumpido = false;
+        try {
+            synchronized (candado) {
+                while (escribiendo) {
+                    try {
+                        candado.wait();
+                    } catch (InterruptedException e) {
+                        interrumpido = true;
+                    }
+                }
+                if (cerrado || error != null) {
+                    throw new IOException("El diario de transacciones está cerrado o falló");
+                }
+                escribiendo = true;
+            }
+        } finally {
+            if (interrumpido) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Posición del primer registro con LSN mayor al indicado. Los LSN
+     * crecen a lo largo del archivo, así que los anteriores son un prefijo.
+     */
+    private static long inicioDespuesDe(FileChannel canal, long lsn) throws IOException {
+        long[] inicio = {0};
+        long fin = recorrer(canal, (lsnRegistro, tipo, datos) -> {
+            if (lsnRegistro <= lsn) {
+                // Los datos se leen de un arreglo: available() es lo que queda del registro
+                inicio[0] += ENCABEZADO + PREFIJO + datos.available();
+            }
+        });
+        return Math.min(inicio[0], fin);
+    }
+
+    /**
+     * LSN del último registro agregado. Como se registra después de
+     * aplicar el cambio en memoria, todo lo que tiene un LSN menor o igual
+     * ya se ve en los gestores.
+     */
+    public long ultimoLsn() {
+        synchronized (candado) {
+            return ultimoLsn;
+        }
+    }
+
+    /**
+     * LSN del último registro que ya está en disco
+     */
+    public long lsnDurable() {
+        synchronized (candado) {
+            return lsnDurable;
+        }
+    }
+
+    /**
+     * Registros agregados desde que se abrió
+     */
+    public long getRegistros() {
+        synchronized (candado) {
+            return registros;
+        }
+    }
+
+    /**
+     * Veces que se llamó a force() desde que se abrió. Con varias cajas
+     * registrando a la vez es bastante menor que getRegistros().
+     */
+    public long getSincronizaciones() {
+        synchronized (candado) {
+            return sincronizaciones;
+        }
+    }
+
+    /**
+     * Escribe lo pendiente y cierra el archivo. Después ya no se aceptan
+     * registros.
+     */
+    @Override
+    public void close() throws IOException {
+        long ultimo;
+        synchronized (candado) {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            ultimo = ultimoLsn;
+        }
+        try {
+            esperarDurable(ultimo);
+        } catch (IllegalStateException e) {
+            canal.close();
+            throw new IOException(e.getMessage(), e.getCause());
+        }
+        canal.close();
+    }
+
+    // ============ RECUPERACIÓN ============
+
+    /**
+     * Repite sobre los gestores los registros del diario con LSN mayor a
+     * desdeLsn. Los gestores deben tener el snapshot con ese LSN (o estar
+     * vacíos si desdeLsn es 0) y no tener un diario activo.
+     *
+     * @throws IOException si el archivo no se puede leer o un registro no
+     *                     coincide con el estado de los gestores
+     */
+    public static Reproduccion reproducir(Path archivo, long desdeLsn, GestorClientes gestorClientes,
+                                          GestorPedidos gestorPedidos) throws IOException {
+        if (!Files.exists(archivo)) {
+            return new Reproduccion(0, 0, desdeLsn);
+        }
+        int[] contadores = new int[2];
+        long[] ultimo = {desdeLsn};
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            recorrer(canal, (lsn, tipo, datos) -> {
+                if (lsn <= desdeLsn) {
+                    return;
+                }
+                boolean aplicado;
+                try {
+                    aplicado = aplicar(tipo, datos, gestorClientes, gestorPedidos);
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    throw new IOException("El registro " + lsn + " del diario no se puede aplicar: "
+                            + e.getMessage(), e);
+                }
+                contadores[aplicado ? 0 : 1]++;
+                ultimo[0] = Math.max(ultimo[0], lsn);
+            });
+        }
+        return new Reproduccion(contadores[0], contadores[1], ultimo[0]);
+    }
+
+    /**
+     * @return false si el registro ya estaba aplicado
+     */
+    private static boolean aplicar(byte tipo, DataInputStream datos, GestorClientes gestorClientes,
+                                   GestorPedidos gestorPedidos) throws IOException {
+        switch (tipo) {
+            case CLIENTE_AGREGADO: {
+                int id = datos.readInt();
+                String nombre = leerTexto(datos);
+                String cedula = leerTexto(datos);
+                String telefono = leerTexto(datos);
+                Date fechaRegistro = leerFecha(datos);
+                if (gestorClientes.buscarClientePorId(id) != null) {
+                    return false;
+                }
+                gestorClientes.restaurarCliente(Cliente.restaurar(id, nombre, cedula, telefono, fechaRegistro,
+                        new long[0], new long[0], new byte[0], 0));
+                return true;
+            }
+            case CLIENTE_ELIMINADO:
+                return gestorClientes.eliminarCliente(datos.readInt());
+            case CLIENTES_LIMPIADOS:
+                gestorClientes.limpiarClientes();
+                return true;
+            case MOVIMIENTO: {
+                Cliente cliente = gestorClientes.buscarClientePorId(datos.readInt());
+                int posicion = datos.readInt();
+                Cliente.TipoMovimiento tipoMovimiento = leerEnum(Cliente.TipoMovimiento.values(), datos.readByte());
+                long fecha = datos.readLong();
+                long monto = datos.readLong();
+                // Un cliente que ya no está se eliminó más adelante en el diario
+                return cliente != null && cliente.reaplicarMovimiento(posicion, tipoMovimiento, fecha, monto);
+            }
+            case CLIENTE_MODIFICADO: {
+                Cliente cliente = gestorClientes.buscarClientePorId(datos.readInt());
+                String nombre = leerTexto(datos);
+                String cedula = leerTexto(datos);
+                if (cliente == null || (cliente.getNombre().equals(nombre) && cliente.getCedula().equals(cedula))) {
+                    return false;
+                }
+                cliente.setNombre(nombre);
+                cliente.setCedula(cedula);
+                return true;
+            }
+            case PROVEEDOR_AGREGADO: {
+                int id = datos.readInt();
+                Proveedor proveedor = new Proveedor(id, leerTexto(datos), leerTexto(datos), leerTexto(datos),
+                        leerTexto(datos));
+                if (gestorPedidos.buscarProveedorPorId(id) != null) {
+                    return false;
+                }
+                gestorPedidos.restaurarProveedor(proveedor);
+                return true;
+            }
+            case PRODUCTO_AGREGADO: {
+                Proveedor proveedor = proveedor(gestorPedidos, datos.readInt());
+                String producto = leerTexto(datos);
+                if (proveedor.suministraProducto(producto)) {
+                    return false;
+                }
+                proveedor.agregarProducto(producto);
+                return true;
+            }
+            case ACTIVIDAD_CAMBIADA: {
+                Proveedor proveedor = proveedor(gestorPedidos, datos.readInt());
+                boolean activo = datos.readByte() != 0;
+                if (proveedor.isActivo() == activo) {
+                    return false;
+                }
+                proveedor.setActivo(activo);
+                return true;
+            }
+            case PEDIDO_CREADO: {
+                int id = datos.readInt();
+                Proveedor proveedor = proveedor(gestorPedidos, datos.readInt());
+                Date fechaPedido = leerFecha(datos);
+                Date fechaEntregaEstimada = leerFecha(datos);
+                if (gestorPedidos.buscarPedidoPorId(id) != null) {
+                    return false;
+                }
+                gestorPedidos.restaurarPedido(PedidoProveedor.restaurar(id, proveedor, fechaPedido,
+                        fechaEntregaEstimada, null, PedidoProveedor.EstadoPedido.PENDIENTE, "", false,
+                        new ArrayList<>()));
+                return true;
+            }
+            case ITEMS_AGREGADOS: {
+                PedidoProveedor pedido = pedido(gestorPedidos, datos.readInt());
+                long totalAnterior = datos.readLong();
+                boolean combinar = datos.readByte() != 0;
+                int cantidad = datos.readInt();
+                List<PedidoProveedor.ItemPedido> items = new ArrayList<>(Math.min(cantidad, 1024));
+                for (int i = 0; i < cantidad; i++) {
+                    items.add(PedidoProveedor.ItemPedido.enCentavos(leerTexto(datos), datos.readInt(),
+                            datos.readLong()));
+                }
+                if (pedido.getTotalPedidoCentavos() > totalAnterior) {
+                    return false;
+                }
+                if (pedido.getTotalPedidoCentavos() < totalAnterior) {
+                    throw new IllegalStateException("Faltan items del pedido " + pedido.getId());
+                }
+                if (combinar && pedido.cantidadItems() == 0) {
+                    pedido.setCombinarItems(true);
+                }
+                pedido.agregarItems(items);
+                return true;
+            }
+            case ESTADO_CAMBIADO: {
+                PedidoProveedor pedido = pedido(gestorPedidos, datos.readInt());
+                PedidoProveedor.EstadoPedido estado = leerEnum(PedidoProveedor.EstadoPedido.values(),
+                        datos.readByte());
+                Date fechaEntregaReal = leerFecha(datos);
+                String observaciones = leerTexto(datos);
+                // Los estados solo avanzan: si ya llegó ahí (o más allá), estaba aplicado
+                if (!pedido.getEstado().puedeCambiarA(estado)) {
+                    return false;
+                }
+                if (estado == PedidoProveedor.EstadoPedido.ENTREGADO) {
+                    pedido.marcarComoEntregado(fechaEntregaReal);
+                } else if (estado == PedidoProveedor.EstadoPedido.CANCELADO) {
+                    pedido.cancelar(observaciones);
+                } else {
+                    pedido.setEstado(estado);
+                }
+                return true;
+            }
+            case PEDIDO_MODIFICADO: {
+                PedidoProveedor pedido = pedido(gestorPedidos, datos.readInt());
+                Date fechaEntregaEstimada = leerFecha(datos);
+                String observaciones = leerTexto(datos);
+                if (Objects.equals(pedido.getFechaEntregaEstimada(), fechaEntregaEstimada)
+                        && Objects.equals(pedido.getObservaciones(), observaciones)) {
+                    return false;
+                }
+                pedido.setFechaEntregaEstimada(fechaEntregaEstimada);
+                pedido.setObservaciones(observaciones);
+                return true;
+            }
+            case DATOS_LIMPIADOS:
+                gestorPedidos.limpiarDatos();
+                return true;
+            default:
+                throw new IOException("Tipo de registro desconocido en el diario: " + tipo);
+        }
+    }
+
+    private static Proveedor proveedor(GestorPedidos gestorPedidos, int id) {
+        Proveedor proveedor = gestorPedidos.buscarProveedorPorId(id);
+        if (proveedor == null) {
+            throw new IllegalStateException("No existe el proveedor " + id);
+        }
+        return proveedor;
+    }
+
+    private static PedidoProveedor pedido(GestorPedidos gestorPedidos, int id) {
+        PedidoProveedor pedido = gestorPedidos.buscarPedidoPorId(id);
+        if (pedido == null) {
+            throw new IllegalStateException("No existe el pedido " + id);
+        }
+        return pedido;
+    }
+
+    /**
+     * Lee los registros válidos desde el principio
+     *
+     * @return Posición donde termina el último registro válido
+     */
+    private static long recorrer(FileChannel canal, Visitante visitante) throws IOException {
+        canal.position(0);
+        DataInputStream entrada = new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal),
+                64 * 1024));
+        long fin = 0;
+        long lsnAnterior = 0;
+        while (true) {
+            byte[] contenido;
+            int crcGuardado;
+            try {
+                int largo = entrada.readInt();
+                crcGuardado = entrada.readInt();
+                if (largo < PREFIJO || largo > LARGO_MAXIMO) {
+                    return fin;
+                }
+                contenido = new byte[largo];
+                entrada.readFully(contenido);
+            } catch (EOFException e) {
+                return fin;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(contenido);
+            long lsn = ByteBuffer.wrap(contenido).getLong();
+            if ((int) crc.getValue() != crcGuardado || lsn <= lsnAnterior) {
+                return fin;
+            }
+            DataInputStream datos = new DataInputStream(
+                    new ByteArrayInputStream(contenido, PREFIJO, contenido.length - PREFIJO));
+            try {
+                visitante.visitar(lsn, contenido[PREFIJO - 1], datos);
+            } catch (EOFException e) {
+                throw new IOException("El registro " + lsn + " del diario está incompleto", e);
+            }
+            lsnAnterior = lsn;
+            fin += ENCABEZADO + contenido.length;
+        }
+    }
+
+    private static String leerTexto(DataInputStream datos) throws IOException {
+        int largo = datos.readInt();
+        if (largo < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[largo];
+        datos.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Date leerFecha(DataInputStream datos) throws IOException {
+        long fecha = datos.readLong();
+        return fecha == FECHA_NULA ? null : new Date(fecha);
+    }
+
+    private static <E> E leerEnum(E[] valores, int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= valores.length) {
+            throw new IOException("Valor fuera de rango en el diario: " + ordinal);
+        }
+        return valores[ordinal];
+    }
+
+    private interface Visitante {
+        void visitar(long lsn, byte tipo, DataInputStream datos) throws IOException;
+    }
+
+    /**
+     * Datos de un registro, en el mismo formato que SnapshotBinario:
+     * textos en UTF-8 con su largo (-1 si son null) y fechas en
+     * milisegundos (Long.MIN_VALUE si son null)
+     */
+    private static final class Datos {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+
+        void octeto(int valor) {
+            bytes.write(valor);
+        }
+
+        void entero(int valor) {
+            bytes.write(valor >>> 24);
+            bytes.write(valor >>> 16);
+            bytes.write(valor >>> 8);
+            bytes.write(valor);
+        }
+
+        void largo(long valor) {
+            entero((int) (valor >>> 32));
+            entero((int) valor);
+        }
+
+        void texto(String valor) {
+            if (valor == null) {
+                entero(-1);
+                return;
+            }
+            byte[] utf8 = valor.getBytes(StandardCharsets.UTF_8);
+            entero(utf8.length);
+            bytes.write(utf8, 0, utf8.length);
+        }
+
+        void fecha(Date valor) {
+            largo(valor == null ? FECHA_NULA : valor.getTime());
+        }
+
+        byte[] bytes() {
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Resultado de repetir el diario
+     */
+    public static class Reproduccion {
+        private final int aplicados;
+        private final int omitidos;
+        private final long ultimoLsn;
+
+        Reproduccion(int aplicados, int omitidos, long ultimoLsn) {
+            this.aplicados = aplicados;
+            this.omitidos = omitidos;
+            this.ultimoLsn = ultimoLsn;
+        }
+
+        /**
+         * Registros posteriores al snapshot que cambiaron algo
+         */
+        public int getAplicados() {
+            return aplicados;
+        }
+
+        /**
+         * Registros posteriores al snapshot que ya estaban en él
+         */
+        public int getOmitidos() {
+            return omitidos;
+        }
+
+        public long getUltimoLsn() {
+            return ultimoLsn;
+        }
+
+        @Override
+        public String toString() {
+            return "Reproduccion{" +
+                    "aplicados=" + aplicados +
+                    ", omitidos=" + omitidos +
+                    ", ultimoLsn=" + ultimoLsn +
+                    '}';
+        }
+    }
+}
\ No newline at end of file
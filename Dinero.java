@@ -0,0 +1,55 @@
+/**
+ * Montos de dinero en centavos, guardados en un long
+ *
+ * Sumar y comparar centavos es exacto: no hay deriva de redondeo como con
+ * double ni asignaciones como con BigDecimal. Los double solo aparecen en
+ * los bordes (lo que escribe el cajero y lo que se muestra).
+ */
+public final class Dinero {
+    public static final long CENTAVOS_POR_PESO = 100;
+
+    private Dinero() {
+    }
+
+    /**
+     * Convierte un monto en pesos a centavos, redondeando al centavo más cercano
+     *
+     * @throws IllegalArgumentException si el monto no es un número o no
+     *         cabe en un long de centavos
+     */
+    public static long aCentavos(double monto) {
+        if (Double.isNaN(monto) || Double.isInfinite(monto)) {
+            throw new IllegalArgumentException("El monto no es un número válido");
+        }
+        double centavos = monto * CENTAVOS_POR_PESO;
+        // Math.round se queda en Long.MAX_VALUE o MIN_VALUE sin avisar
+        if (centavos >= 0x1p63 || centavos < -0x1p63) {
+            throw new IllegalArgumentException("El monto excede el máximo representable");
+        }
+        return Math.round(centavos);
+    }
+
+    /**
+     * Convierte centavos a pesos para mostrar o para las APIs con double
+     */
+    public static double aPesos(long centavos) {
+        return centavos / (double) CENTAVOS_POR_PESO;
+    }
+
+    /**
+     * Precio unitario por cantidad, fallando si el resultado no cabe en un long
+     */
+    public static long multiplicar(long centavos, int cantidad) {
+        return Math.multiplyExact(centavos, (long) cantidad);
+    }
+
+    /**
+     * Formato "$1234.50"
+     */
+    public static String formatear(long centavos) {
+        long absoluto = Math.abs(centavos);
+        String signo = centavos < 0 ? "-" : "";
+        long centavosRestantes = absoluto % CENTAVOS_POR_PESO;
+        return signo + "$" + (absoluto / CENTAVOS_POR_PESO) + "." + (centavosRestantes < 10 ? "0" : "") + centavosRestantes;
+    }
+}
\ No newline at end of file
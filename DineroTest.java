@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para la clase Dinero (montos en centavos)
+ */
+public class DineroTest {
+
+    @Test
+    @DisplayName("Debe convertir pesos a centavos redondeando al centavo")
+    public void testAConvertirCentavos() {
+        assertEquals(1050, Dinero.aCentavos(10.5));
+        assertEquals(30, Dinero.aCentavos(0.1 + 0.2));
+        assertEquals(1, Dinero.aCentavos(0.005));
+        assertEquals(0, Dinero.aCentavos(0.004));
+    }
+
+    @Test
+    @DisplayName("Debe convertir centavos a pesos")
+    public void testAPesos() {
+        assertEquals(10.5, Dinero.aPesos(1050), 0.0);
+        assertEquals(-0.07, Dinero.aPesos(-7), 0.0);
+    }
+
+    @Test
+    @DisplayName("Sumar centavos no debe acumular deriva")
+    public void testSumaSinDeriva() {
+        double sumaDouble = 0.0;
+        long sumaCentavos = 0;
+        for (int i = 0; i < 1000; i++) {
+            sumaDouble += 0.1;
+            sumaCentavos += Dinero.aCentavos(0.1);
+        }
+        assertNotEquals(100.0, sumaDouble);
+        assertEquals(10000, sumaCentavos);
+    }
+
+    @Test
+    @DisplayName("Debe rechazar montos no numéricos")
+    public void testMontoInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> Dinero.aCentavos(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> Dinero.aCentavos(Double.POSITIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> Dinero.aCentavos(Double.NEGATIVE_INFINITY));
+    }
+
+    @Test
+    @DisplayName("Debe rechazar montos que no caben en centavos")
+    public void testMontoFueraDeRango() {
+        assertThrows(IllegalArgumentException.class, () -> Dinero.aCentavos(1e17));
+        assertThrows(IllegalArgumentException.class, () -> Dinero.aCentavos(-1e17));
+        assertEquals(9_000_000_000_000_000_000L, Dinero.aCentavos(9e16));
+    }
+
+    @Test
+    @DisplayName("Debe detectar desbordamiento al multiplicar")
+    public void testMultiplicarDesbordamiento() {
+        assertEquals(15000, Dinero.multiplicar(300, 50));
+        assertThrows(ArithmeticException.class, () -> Dinero.multiplicar(Long.MAX_VALUE / 2, 3));
+    }
+
+    @Test
+    @DisplayName("Debe formatear montos con dos decimales")
+    public void testFormatear() {
+        assertEquals("$1234.50", Dinero.formatear(123450));
+        assertEquals("$0.07", Dinero.formatear(7));
+        assertEquals("-$3.00", Dinero.formatear(-300));
+    }
+}
\ No newline at end of file
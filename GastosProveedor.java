@@ -0,0 +1,91 @@
+package ERICK-S-CONVENIENCE-STORE;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Acumulador de lo gastado con un proveedor: total histórico y cubetas por
+ * día y por mes, todo en centavos. GestorPedidos lo actualiza cuando un
+ * pedido entra o sale de ENTREGADO, así las consultas por proveedor y por
+ * período no recorren los pedidos.
+ */
+public class GastosProveedor {
+    private final int idProveedor;
+    private long totalCentavos;
+    private final TreeMap<LocalDate, Long> porDia;
+    private final TreeMap<YearMonth, Long> porMes;
+
+    public GastosProveedor(int idProveedor) {
+        this.idProveedor = idProveedor;
+        this.totalCentavos = 0;
+        this.porDia = new TreeMap<>();
+        this.porMes = new TreeMap<>();
+    }
+
+    /**
+     * Suma (o resta, si es negativo) un monto en el día indicado
+     */
+    void registrar(LocalDate dia, long montoCentavos) {
+        totalCentavos += montoCentavos;
+        acumular(porDia, dia, montoCentavos);
+        acumular(porMes, YearMonth.from(dia), montoCentavos);
+    }
+
+    private static <K> void acumular(TreeMap<K, Long> cubetas, K clave, long montoCentavos) {
+        // Las cubetas que vuelven a cero se quitan para no listar meses vacíos
+        Long nuevo = cubetas.merge(clave, montoCentavos, Long::sum);
+        if (nuevo == 0) {
+            cubetas.remove(clave);
+        }
+    }
+
+    public int getIdProveedor() {
+        return idProveedor;
+    }
+
+    public long getTotalCentavos() {
+        return totalCentavos;
+    }
+
+    public long totalDiaCentavos(LocalDate dia) {
+        return porDia.getOrDefault(dia, 0L);
+    }
+
+    public long totalMesCentavos(YearMonth mes) {
+        return porMes.getOrDefault(mes, 0L);
+    }
+
+    /**
+     * Total entre dos días (ambos inclusive); recorre solo las cubetas
+     * diarias del rango
+     */
+    public long totalEntreCentavos(LocalDate desde, LocalDate hasta) {
+        if (desde.isAfter(hasta)) {
+            return 0;
+        }
+        long total = 0;
+        for (long monto : porDia.subMap(desde, true, hasta, true).values()) {
+            total += monto;
+        }
+        return total;
+    }
+
+    /**
+     * Totales por mes en orden cronológico (vista de solo lectura)
+     */
+    public SortedMap<YearMonth, Long> gastosMensualesCentavos() {
+        return Collections.unmodifiableSortedMap(porMes);
+    }
+
+    @Override
+    public String toString() {
+        return "GastosProveedor{" +
+                "idProveedor=" + idProveedor +
+                ", total=" + Dinero.aPesos(totalCentavos) +
+                ", meses=" + porMes.size() +
+                '}';
+    }
+}
\ No newline at end of file
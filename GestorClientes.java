@@ -1,20 +1,59 @@
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Clase que gestiona las operaciones con clientes
  * Issue #5: Buscar un cliente
  * Issue #7: Marcar deuda como saldada
+ *
+ * Es segura para varias cajas a la vez: los saldos se protegen con el
+ * candado de cada cliente, los mapas son concurrentes y los recorridos no
+ * lanzan ConcurrentModificationException ni toman un candado global.
  */
-public class GestorClientes {
-    private List<Cliente> clientes;
-    private int siguienteId;
+public class GestorClientes implements Cliente.ObservadorSaldo {
+    // Clientes por ID, en orden de registro (recorridos sin candado)
+    private Map<Integer, Cliente> clientes;
+    // Índices para búsquedas puntuales en tiempo constante
+    private Map<String, Cliente> indicePorCedula;
+    private Map<String, List<Cliente>> indicePorNombre;
+    // Índice de trigramas para la búsqueda parcial por nombre
+    private IndiceTrigramas indiceTrigramas;
+    // Trie sin tildes para autocompletar en la caja
+    private TrieAutocompletado trieAutocompletado;
+    // Agregados de deuda mantenidos con cada cambio de saldo
+    private Map<Integer, Cliente> deudores;
+    private LongAdder totalDeudasCentavos;
+    // Deudores ordenados por monto para el tablero de mayores deudas
+    private IndiceDeudas indiceDeudas;
+    // Clientes cuyo saldo cambió y falta reubicar en el tablero y el trie
+    private Map<Integer, Cliente> saldosPorIndexar;
+    // Una sola consulta a la vez reubica a los pendientes (ver aplicarSaldosPendientes)
+    private final Object candadoPendientes = new Object();
+    private AtomicInteger siguienteId;
+    // Quienes registran las altas, bajas y movimientos (copia al escribir)
+    private volatile ObservadorClientes[] observadoresClientes = new ObservadorClientes[0];
 
     public GestorClientes() {
-        this.clientes = new ArrayList<>();
-        this.siguienteId = 1;
+        this.clientes = new ConcurrentSkipListMap<>();
+        this.indicePorCedula = new ConcurrentHashMap<>();
+        this.indicePorNombre = new ConcurrentHashMap<>();
+        this.indiceTrigramas = new IndiceTrigramas();
+        this.trieAutocompletado = new TrieAutocompletado();
+        this.deudores = new ConcurrentSkipListMap<>();
+        this.totalDeudasCentavos = new LongAdder();
+        this.indiceDeudas = new IndiceDeudas();
+        this.saldosPorIndexar = new ConcurrentHashMap<>();
+        this.siguienteId = new AtomicInteger(1);
     }
 
     /**
@@ -33,19 +72,102 @@ public class GestorClientes {
             throw new IllegalArgumentException("Ya existe un cliente con esa cédula");
         }
 
-        Cliente nuevoCliente = new Cliente(siguienteId++, nombre, cedula, telefono);
-        clientes.add(nuevoCliente);
+        Cliente nuevoCliente = new Cliente(siguienteId.getAndIncrement(), nombre, cedula, telefono);
+        // Dos cajas pueden registrar la misma cédula a la vez: solo una gana
+        if (indicePorCedula.putIfAbsent(normalizarCedula(cedula), nuevoCliente) != null) {
+            throw new IllegalArgumentException("Ya existe un cliente con esa cédula");
+        }
+        // Con su candado, ninguna compra del cliente nuevo se notifica antes que el alta
+        try {
+            synchronized (nuevoCliente) {
+                indexarCliente(nuevoCliente);
+                for (ObservadorClientes observador : observadoresClientes) {
+                    observador.clienteAgregado(nuevoCliente);
+                }
+            }
+        } finally {
+            cambioTerminado();
+        }
         return nuevoCliente;
     }
 
+    /**
+     * Registra un cliente reconstruido desde un snapshot, con su id
+     * original. Los ids nuevos siguen después del mayor restaurado.
+     *
+     * @throws IllegalArgumentException si ya hay un cliente con ese id o
+     *         con esa cédula
+     */
+    public void restaurarCliente(Cliente cliente) {
+        validarRestaurado(cliente);
+        if (clientes.containsKey(cliente.getId())) {
+            throw new IllegalArgumentException("Ya existe un cliente con ese ID");
+        }
+        if (indicePorCedula.putIfAbsent(normalizarCedula(cliente.getCedula()), cliente) != null) {
+            throw new IllegalArgumentException("Ya existe un cliente con esa cédula");
+        }
+        indexarCliente(cliente);
+        siguienteId.accumulateAndGet(cliente.getId() + 1, Math::max);
+    }
+
+    /**
+     * Registra de una vez muchos clientes reconstruidos desde un snapshot.
+     * Valida todo el lote antes de registrar nada y arma el autocompletado
+     * en una sola pasada, que es lo que más cuesta al restaurar.
+     *
+     * @throws IllegalArgumentException si algún id o cédula se repite, en
+     *         el lote o con los clientes ya registrados
+     */
+    public void restaurarClientes(List<Cliente> lote) {
+        if (lote == null) {
+            throw new IllegalArgumentException("La lista de clientes no puede ser nula");
+        }
+        Map<Integer, Cliente> idsDelLote = new HashMap<>();
+        Map<String, Cliente> cedulasDelLote = new HashMap<>();
+        for (Cliente cliente : lote) {
+            validarRestaurado(cliente);
+            if (clientes.containsKey(cliente.getId()) || idsDelLote.put(cliente.getId(), cliente) != null) {
+                throw new IllegalArgumentException("Ya existe un cliente con ese ID");
+            }
+            String cedula = normalizarCedula(cliente.getCedula());
+            if (indicePorCedula.containsKey(cedula) || cedulasDelLote.put(cedula, cliente) != null) {
+                throw new IllegalArgumentException("Ya existe un cliente con esa cédula");
+            }
+        }
+
+        int mayorId = 0;
+        for (Cliente cliente : lote) {
+            if (indicePorCedula.putIfAbsent(normalizarCedula(cliente.getCedula()), cliente) != null) {
+                throw new IllegalArgumentException("Ya existe un cliente con esa cédula");
+            }
+            indexarCliente(cliente, false);
+            mayorId = Math.max(mayorId, cliente.getId());
+        }
+        indiceTrigramas.agregarTodos(lote);
+        trieAutocompletado.agregarTodos(lote);
+        siguienteId.accumulateAndGet(mayorId + 1, Math::max);
+    }
+
+    /**
+     * Las mismas reglas que agregarCliente, antes de tocar los índices
+     */
+    private static void validarRestaurado(Cliente cliente) {
+        if (cliente == null) {
+            throw new IllegalArgumentException("El cliente no puede ser nulo");
+        }
+        if (cliente.getNombre() == null || cliente.getNombre().trim().isEmpty()) {
+            throw new IllegalArgumentException("El nombre no puede estar vacío");
+        }
+        if (cliente.getCedula() == null || cliente.getCedula().trim().isEmpty()) {
+            throw new IllegalArgumentException("La cédula no puede estar vacía");
+        }
+    }
+
     /**
      * Issue #5: Busca un cliente por su ID
      */
     public Cliente buscarClientePorId(int id) {
-        return clientes.stream()
-                .filter(c -> c.getId() == id)
-                .findFirst()
-                .orElse(null);
+        return clientes.get(id);
     }
 
     /**
@@ -56,10 +178,9 @@ public class GestorClientes {
             return null;
         }
 
-        return clientes.stream()
-                .filter(c -> c.getNombre().equalsIgnoreCase(nombre.trim()))
-                .findFirst()
-                .orElse(null);
+        // Si hay homónimos se retorna el primero registrado
+        List<Cliente> homonimos = indicePorNombre.get(normalizarNombre(nombre));
+        return homonimos == null ? null : homonimos.get(0);
     }
 
     /**
@@ -70,10 +191,7 @@ public class GestorClientes {
             return null;
         }
 
-        return clientes.stream()
-                .filter(c -> c.getCedula().equals(cedula.trim()))
-                .findFirst()
-                .orElse(null);
+        return indicePorCedula.get(normalizarCedula(cedula));
     }
 
     /**
@@ -84,10 +202,31 @@ public class GestorClientes {
             return new ArrayList<>();
         }
 
-        return clientes.stream()
-                .filter(c -> c.getNombre().toLowerCase()
-                        .contains(nombreParcial.toLowerCase().trim()))
-                .collect(Collectors.toList());
+        List<Cliente> encontrados = new ArrayList<>();
+        for (Integer id : indiceTrigramas.buscar(nombreParcial)) {
+            Cliente cliente = clientes.get(id);
+            // Puede haberse eliminado mientras se buscaba
+            if (cliente != null) {
+                encontrados.add(cliente);
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Issue #5: Autocompletado para la caja. Acepta nombres sin tildes y
+     * prefijos de varias palabras ("carlos lop"), y retorna primero a los
+     * clientes con mayor saldo de deuda.
+     */
+    public List<Cliente> autocompletarClientes(String texto, int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite debe ser mayor a cero");
+        }
+        if (texto == null || texto.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        aplicarSaldosPendientes();
+        return trieAutocompletado.autocompletar(texto, limite);
     }
 
     /**
@@ -132,29 +271,84 @@ public class GestorClientes {
      * Obtiene todos los clientes con deuda
      */
     public List<Cliente> obtenerClientesConDeuda() {
-        return clientes.stream()
-                .filter(Cliente::tieneDeuda)
-                .collect(Collectors.toList());
+        // Los IDs crecen con el registro, así que el orden es el de registro
+        return new ArrayList<>(deudores.values());
+    }
+
+    /**
+     * Obtiene la cantidad de clientes con deuda
+     */
+    public int cantidadClientesConDeuda() {
+        aplicarSaldosPendientes();
+        return indiceDeudas.cantidad();
+    }
+
+    /**
+     * Obtiene los n clientes con mayor deuda, de mayor a menor
+     */
+    public List<Cliente> topDeudores(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor a cero");
+        }
+        aplicarSaldosPendientes();
+        return indiceDeudas.top(n);
+    }
+
+    /**
+     * Posición del cliente en el tablero de deudas (1 = mayor deuda),
+     * o 0 si no tiene deuda o no existe
+     */
+    public int posicionEnDeudas(int idCliente) {
+        aplicarSaldosPendientes();
+        return indiceDeudas.posicion(idCliente);
+    }
+
+    /**
+     * Obtiene los clientes cuya deuda está entre dos montos (inclusive),
+     * de mayor a menor
+     */
+    public List<Cliente> obtenerDeudoresEntre(double montoMinimo, double montoMaximo) {
+        if (montoMinimo > montoMaximo) {
+            throw new IllegalArgumentException("El monto mínimo no puede ser mayor al máximo");
+        }
+        aplicarSaldosPendientes();
+        return indiceDeudas.entre(Dinero.aCentavos(montoMinimo), Dinero.aCentavos(montoMaximo));
     }
 
     /**
      * Calcula el total de deudas de todos los clientes
      */
     public double calcularTotalDeudas() {
-        return clientes.stream()
-                .mapToDouble(Cliente::getSaldoDeuda)
-                .sum();
+        return Dinero.aPesos(totalDeudasCentavos.sum());
+    }
+
+    /**
+     * Total de deudas en centavos (exacto)
+     */
+    public long calcularTotalDeudasCentavos() {
+        return totalDeudasCentavos.sum();
     }
 
     /**
      * Obtiene la lista completa de clientes
      */
     public List<Cliente> obtenerTodosLosClientes() {
-        return new ArrayList<>(clientes);
+        return new ArrayList<>(clientes.values());
+    }
+
+    /**
+     * Vista de solo lectura de todos los clientes, en orden de id, sin
+     * copiarlos. Se puede recorrer mientras otros hilos registran o
+     * eliminan clientes: el recorrido no falla y refleja los cambios que
+     * alcance a ver.
+     */
+    public Collection<Cliente> vistaClientes() {
+        return Collections.unmodifiableCollection(clientes.values());
     }
 
     /**
-     * Obtiene la cantidad total de clientes registrados
+     * Obtiene la cantidad total de clientes registrados. Cuenta recorriendo
+     * el mapa, así que no conviene llamarlo por cada cliente.
      */
     public int cantidadClientes() {
         return clientes.size();
@@ -164,14 +358,282 @@ public class GestorClientes {
      * Elimina un cliente del sistema
      */
     public boolean eliminarCliente(int idCliente) {
-        return clientes.removeIf(c -> c.getId() == idCliente);
+        Cliente eliminado = clientes.remove(idCliente);
+        if (eliminado == null) {
+            return false;
+        }
+        try {
+            desindexarCliente(eliminado);
+            for (ObservadorClientes observador : observadoresClientes) {
+                observador.clienteEliminado(eliminado);
+            }
+        } finally {
+            cambioTerminado();
+        }
+        return true;
     }
 
     /**
      * Limpia todos los clientes (útil para testing)
      */
     public void limpiarClientes() {
-        clientes.clear();
-        siguienteId = 1;
+        for (Cliente cliente : clientes.values()) {
+            if (clientes.remove(cliente.getId(), cliente)) {
+                desindexarCliente(cliente);
+            }
+        }
+        siguienteId.set(1);
+        try {
+            for (ObservadorClientes observador : observadoresClientes) {
+                observador.clientesLimpiados();
+            }
+        } finally {
+            cambioTerminado();
+        }
+    }
+
+    /**
+     * Suscribe a quien debe enterarse de las altas, las bajas y los
+     * movimientos de saldo de los clientes del gestor (por ejemplo, el
+     * DiarioTransacciones). Los movimientos llegan con el candado del
+     * cliente, en el orden en que entraron a su libro. Los clientes
+     * restaurados no se notifican.
+     */
+    public synchronized void agregarObservadorClientes(ObservadorClientes observador) {
+        if (observador == null) {
+            throw new IllegalArgumentException("El observador no puede ser nulo");
+        }
+        ObservadorClientes[] actuales = observadoresClientes;
+        ObservadorClientes[] nuevos = Arrays.copyOf(actuales, actuales.length + 1);
+        nuevos[actuales.length] = observador;
+        observadoresClientes = nuevos;
+    }
+
+    /**
+     * Quita un observador suscrito con agregarObservadorClientes
+     *
+     * @return true si estaba suscrito
+     */
+    public synchronized boolean quitarObservadorClientes(ObservadorClientes observador) {
+        List<ObservadorClientes> restantes = new ArrayList<>(Arrays.asList(observadoresClientes));
+        boolean quitado = restantes.remove(observador);
+        observadoresClientes = restantes.toArray(new ObservadorClientes[0]);
+        return quitado;
+    }
+
+    /**
+     * Mantiene los agregados de deuda cuando cambia el saldo de un cliente.
+     * Se ejecuta con el candado del cliente.
+     *
+     * El tablero de deudas y el trie tienen un candado cada uno, así que no
+     * se tocan aquí: el cliente queda anotado y se reubica en ambos en la
+     * próxima consulta (ver aplicarSaldosPendientes). Varias compras del
+     * mismo cliente entre dos consultas se reubican una sola vez.
+     */
+    @Override
+    public void saldoCambiado(Cliente cliente, long saldoAnteriorCentavos, long saldoNuevoCentavos) {
+        totalDeudasCentavos.add(saldoNuevoCentavos - saldoAnteriorCentavos);
+        actualizarDeudor(cliente);
+        saldosPorIndexar.put(cliente.getId(), cliente);
+    }
+
+    /**
+     * Reubica en el tablero de deudas y en el trie a los clientes cuyo
+     * saldo cambió desde la última consulta.
+     *
+     * Cada consulta toma el candado aunque no haya pendientes: si otra
+     * consulta ya los sacó del mapa pero todavía los está reubicando, esta
+     * espera a que termine en lugar de leer el tablero viejo. Las compras
+     * no lo toman.
+     */
+    private void aplicarSaldosPendientes() {
+        synchronized (candadoPendientes) {
+            for (Cliente cliente : saldosPorIndexar.values()) {
+                if (!saldosPorIndexar.remove(cliente.getId(), cliente)) {
+                    continue;
+                }
+                // Con el candado del cliente no se cruza con su baja: uno que
+                // ya se eliminó no vuelve a los índices
+                synchronized (cliente) {
+                    if (clientes.get(cliente.getId()) == cliente) {
+                        indiceDeudas.actualizar(cliente);
+                        trieAutocompletado.actualizar(cliente);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void movimientoRegistrado(Cliente cliente, int posicion, Cliente.TipoMovimiento tipo, long fechaMillis,
+                                     long montoCentavos) {
+        for (ObservadorClientes observador : observadoresClientes) {
+            observador.movimientoRegistrado(cliente, posicion, tipo, fechaMillis, montoCentavos);
+        }
+    }
+
+    /**
+     * Fin de un cambio hecho por el gestor o por uno de sus clientes, sin
+     * candados tomados: los observadores esperan aquí lo que registraron
+     */
+    @Override
+    public void cambioTerminado() {
+        for (ObservadorClientes observador : observadoresClientes) {
+            observador.cambioTerminado();
+        }
+    }
+
+    private void actualizarDeudor(Cliente cliente) {
+        if (cliente.tieneDeuda()) {
+            deudores.put(cliente.getId(), cliente);
+        } else {
+            deudores.remove(cliente.getId());
+        }
+    }
+
+    // ============ ÍNDICES DE BÚSQUEDA ============
+
+    /**
+     * Registra al cliente en los índices de búsqueda, de autocompletado
+     * y en los agregados de deuda
+     */
+    private void indexarCliente(Cliente cliente) {
+        indexarCliente(cliente, true);
+    }
+
+    /**
+     * @param individual false si el llamador indexa después el lote completo
+     *                   en los trigramas y el autocompletado
+     */
+    private void indexarCliente(Cliente cliente, boolean individual) {
+        // Con el candado del cliente ningún cambio de saldo ni de nombre
+        // queda a medias: mientras el gestor sea su observador, el nombre y
+        // la cédula del cliente son las claves con que está indexado
+        synchronized (cliente) {
+            agregarAIndicePorNombre(cliente, cliente.getNombre());
+            if (individual) {
+                indiceTrigramas.agregar(cliente.getId(), cliente.getNombre());
+                trieAutocompletado.agregar(cliente);
+            }
+            totalDeudasCentavos.add(cliente.getSaldoDeudaCentavos());
+            actualizarDeudor(cliente);
+            indiceDeudas.actualizar(cliente);
+            cliente.setObservadorSaldo(this);
+        }
+        clientes.put(cliente.getId(), cliente);
+    }
+
+    /**
+     * Retira al cliente de los índices de búsqueda, de autocompletado
+     * y de los agregados de deuda
+     */
+    private void desindexarCliente(Cliente cliente) {
+        synchronized (cliente) {
+            indicePorCedula.remove(normalizarCedula(cliente.getCedula()), cliente);
+            quitarDeIndicePorNombre(cliente, cliente.getNombre());
+            indiceTrigramas.eliminar(cliente.getId());
+            trieAutocompletado.eliminar(cliente);
+            cliente.setObservadorSaldo(null);
+            saldosPorIndexar.remove(cliente.getId(), cliente);
+            totalDeudasCentavos.add(-cliente.getSaldoDeudaCentavos());
+            deudores.remove(cliente.getId());
+            indiceDeudas.eliminar(cliente);
+        }
+    }
+
+    private void agregarAIndicePorNombre(Cliente cliente, String nombre) {
+        indicePorNombre.compute(normalizarNombre(nombre), (clave, homonimos) -> {
+            List<Cliente> nuevos = homonimos == null ? new ArrayList<>(1) : new ArrayList<>(homonimos);
+            nuevos.add(cliente);
+            return nuevos;
+        });
+    }
+
+    private void quitarDeIndicePorNombre(Cliente cliente, String nombre) {
+        indicePorNombre.computeIfPresent(normalizarNombre(nombre), (clave, homonimos) -> {
+            List<Cliente> restantes = new ArrayList<>(homonimos);
+            restantes.remove(cliente);
+            return restantes.isEmpty() ? null : restantes;
+        });
+    }
+
+    /**
+     * Un cliente registrado va a cambiar de nombre o de cédula: se valida
+     * como en agregarCliente y se reserva la cédula nueva antes del cambio.
+     * Se ejecuta con el candado del cliente.
+     */
+    @Override
+    public void validarDatos(Cliente cliente, String nombreNuevo, String cedulaNueva) {
+        if (nombreNuevo == null || nombreNuevo.trim().isEmpty()) {
+            throw new IllegalArgumentException("El nombre no puede estar vacío");
+        }
+        if (cedulaNueva == null || cedulaNueva.trim().isEmpty()) {
+            throw new IllegalArgumentException("La cédula no puede estar vacía");
+        }
+        Cliente duenio = indicePorCedula.putIfAbsent(normalizarCedula(cedulaNueva), cliente);
+        if (duenio != null && duenio != cliente) {
+            throw new IllegalArgumentException("Ya existe un cliente con esa cédula");
+        }
+    }
+
+    /**
+     * Pasa los índices de las claves anteriores a las nuevas y libera la
+     * cédula anterior. Se ejecuta con el candado del cliente.
+     */
+    @Override
+    public void datosCambiados(Cliente cliente, String nombreAnterior, String cedulaAnterior) {
+        String cedulaAnteriorNormalizada = normalizarCedula(cedulaAnterior);
+        if (!cedulaAnteriorNormalizada.equals(normalizarCedula(cliente.getCedula()))) {
+            indicePorCedula.remove(cedulaAnteriorNormalizada, cliente);
+        }
+        if (!nombreAnterior.equals(cliente.getNombre())) {
+            quitarDeIndicePorNombre(cliente, nombreAnterior);
+            agregarAIndicePorNombre(cliente, cliente.getNombre());
+            indiceTrigramas.eliminar(cliente.getId());
+            indiceTrigramas.agregar(cliente.getId(), cliente.getNombre());
+            trieAutocompletado.eliminar(cliente);
+            trieAutocompletado.agregar(cliente);
+        }
+        for (ObservadorClientes observador : observadoresClientes) {
+            observador.datosCambiados(cliente);
+        }
+    }
+
+    private static String normalizarCedula(String cedula) {
+        return cedula.trim();
+    }
+
+    private static String normalizarNombre(String nombre) {
+        return nombre.trim().toLowerCase();
+    }
+
+    /**
+     * Recibe los cambios de los clientes que hay que poder repetir
+     */
+    public interface ObservadorClientes {
+        void clienteAgregado(Cliente cliente);
+
+        void clienteEliminado(Cliente cliente);
+
+        void clientesLimpiados();
+
+        /**
+         * @param posicion Lugar del movimiento en el libro del cliente
+         */
+        void movimientoRegistrado(Cliente cliente, int posicion, Cliente.TipoMovimiento tipo, long fechaMillis,
+                                  long montoCentavos);
+
+        /**
+         * El cliente cambió de nombre o de cédula
+         */
+        default void datosCambiados(Cliente cliente) {
+        }
+
+        /**
+         * Al final del método que hizo el cambio, ya sin los candados del
+         * cliente y en el mismo hilo (ver DiarioTransacciones)
+         */
+        default void cambioTerminado() {
+        }
     }
 }
\ No newline at end of file
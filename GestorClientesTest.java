@@ -5,7 +5,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests para la clase GestorClientes
@@ -60,6 +67,22 @@ public class GestorClientesTest {
         assertEquals("Ya existe un cliente con esa cédula", exception.getMessage());
     }
 
+    @Test
+    @DisplayName("No debe restaurar un cliente sin nombre o sin cédula")
+    public void testRestaurarClienteSinDatos() {
+        Cliente sinNombre = Cliente.restaurar(7, null, "7777777777", "300", new Date(),
+                new long[0], new long[0], new byte[0], 0);
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> gestor.restaurarCliente(sinNombre));
+        assertEquals("El nombre no puede estar vacío", exception.getMessage());
+
+        Cliente sinCedula = Cliente.restaurar(8, "Ana Gómez", " ", "300", new Date(),
+                new long[0], new long[0], new byte[0], 0);
+        exception = assertThrows(IllegalArgumentException.class,
+                () -> gestor.restaurarClientes(List.of(sinCedula)));
+        assertEquals("La cédula no puede estar vacía", exception.getMessage());
+        assertEquals(0, gestor.cantidadClientes());
+    }
+
     // ============ TESTS ISSUE #5: BUSCAR CLIENTE ============
 
     @Test
@@ -282,4 +305,382 @@ public class GestorClientesTest {
 
         assertEquals(0, gestor.cantidadClientes());
     }
+
+    // ============ TESTS DE ÍNDICES DE BÚSQUEDA ============
+
+    @Test
+    @DisplayName("La búsqueda por cédula debe ignorar espacios alrededor")
+    public void testBuscarClientePorCedulaConEspacios() {
+        Cliente cliente = gestor.agregarCliente("Gloria Medina", "1212121212", "3001212121");
+
+        assertSame(cliente, gestor.buscarClientePorCedula("  1212121212 "));
+    }
+
+    @Test
+    @DisplayName("Los índices deben actualizarse al eliminar un cliente")
+    public void testIndicesTrasEliminarCliente() {
+        Cliente cliente = gestor.agregarCliente("Hernán Suárez", "1313131313", "3001313131");
+
+        gestor.eliminarCliente(cliente.getId());
+
+        assertNull(gestor.buscarClientePorId(cliente.getId()));
+        assertNull(gestor.buscarClientePorCedula("1313131313"));
+        assertNull(gestor.buscarClientePorNombre("Hernán Suárez"));
+
+        // La cédula queda libre para un nuevo registro
+        Cliente nuevo = gestor.agregarCliente("Hernán Suárez", "1313131313", "3001313131");
+        assertSame(nuevo, gestor.buscarClientePorCedula("1313131313"));
+    }
+
+    @Test
+    @DisplayName("Los índices deben seguir al cliente cuando cambia de nombre o de cédula")
+    public void testIndicesTrasCambiarDatos() {
+        Cliente cliente = gestor.agregarCliente("Nora Pineda", "1616161616", "3001616161");
+        gestor.agregarCliente("Otro Cliente", "1717171717", "3001717171");
+
+        cliente.setNombre("Nora Castaño");
+        cliente.setCedula("1818181818");
+
+        assertNull(gestor.buscarClientePorNombre("nora pineda"));
+        assertSame(cliente, gestor.buscarClientePorNombre("nora castaño"));
+        assertEquals(List.of(cliente), gestor.buscarClientesPorNombreParcial("castañ"));
+        assertEquals(List.of(cliente), gestor.autocompletarClientes("cast", 5));
+        assertTrue(gestor.autocompletarClientes("pine", 5).isEmpty());
+        assertNull(gestor.buscarClientePorCedula("1616161616"));
+        assertSame(cliente, gestor.buscarClientePorCedula("1818181818"));
+
+        // Una cédula de otro cliente se rechaza y nada cambia
+        assertThrows(IllegalArgumentException.class, () -> cliente.setCedula("1717171717"));
+        assertThrows(IllegalArgumentException.class, () -> cliente.setNombre("  "));
+        assertEquals("1818181818", cliente.getCedula());
+        assertEquals("Nora Castaño", cliente.getNombre());
+
+        // La cédula anterior queda libre, y al eliminar no quedan claves viejas
+        Cliente nuevo = gestor.agregarCliente("Nora Pineda", "1616161616", "3001616161");
+        gestor.eliminarCliente(cliente.getId());
+        assertNull(gestor.buscarClientePorNombre("nora castaño"));
+        assertNull(gestor.buscarClientePorCedula("1818181818"));
+        assertSame(nuevo, gestor.buscarClientePorNombre("nora pineda"));
+        assertEquals(List.of(nuevo), gestor.autocompletarClientes("nora", 5));
+    }
+
+    @Test
+    @DisplayName("Con homónimos la búsqueda por nombre debe retornar el primero registrado")
+    public void testBuscarClientePorNombreHomonimos() {
+        Cliente primero = gestor.agregarCliente("José Ruiz", "1414141414", "3001414141");
+        Cliente segundo = gestor.agregarCliente("José Ruiz", "1515151515", "3001515151");
+
+        assertSame(primero, gestor.buscarClientePorNombre("josé ruiz"));
+
+        gestor.eliminarCliente(primero.getId());
+        assertSame(segundo, gestor.buscarClientePorNombre("josé ruiz"));
+    }
+
+    @Test
+    @DisplayName("Los índices deben vaciarse al limpiar los clientes")
+    public void testIndicesTrasLimpiarClientes() {
+        gestor.agregarCliente("Marta Peña", "1616161616", "3001616161");
+
+        gestor.limpiarClientes();
+
+        assertNull(gestor.buscarClientePorCedula("1616161616"));
+        assertNull(gestor.buscarClientePorNombre("Marta Peña"));
+        assertNull(gestor.buscarClientePorId(1));
+    }
+
+    @Test
+    @DisplayName("La búsqueda parcial debe funcionar con consultas de menos de tres letras")
+    public void testBuscarClientesPorNombreParcialConsultaCorta() {
+        gestor.agregarCliente("Iván Ortega", "1717171717", "3001717171");
+        gestor.agregarCliente("Luisa Vidal", "1818181818", "3001818181");
+
+        List<Cliente> encontrados = gestor.buscarClientesPorNombreParcial("Iv");
+
+        assertEquals(1, encontrados.size());
+        assertEquals("Iván Ortega", encontrados.get(0).getNombre());
+        assertEquals(2, gestor.buscarClientesPorNombreParcial("a").size());
+    }
+
+    @Test
+    @DisplayName("La búsqueda parcial debe respetar el orden de registro y las eliminaciones")
+    public void testBuscarClientesPorNombreParcialTrasEliminar() {
+        Cliente primero = gestor.agregarCliente("Daniel Mejía", "1919191919", "3001919191");
+        Cliente segundo = gestor.agregarCliente("Daniela Pardo", "2121212121", "3002121212");
+        Cliente tercero = gestor.agregarCliente("Danilo Rojas", "2323232323", "3002323232");
+
+        List<Cliente> encontrados = gestor.buscarClientesPorNombreParcial(" DANI ");
+        assertEquals(List.of(primero, segundo, tercero), encontrados);
+
+        gestor.eliminarCliente(segundo.getId());
+        assertEquals(List.of(primero, tercero), gestor.buscarClientesPorNombreParcial("dani"));
+        assertTrue(gestor.buscarClientesPorNombreParcial("pardo").isEmpty());
+    }
+
+    // ============ TESTS DE AUTOCOMPLETADO ============
+
+    @Test
+    @DisplayName("El autocompletado debe ignorar tildes y mayúsculas")
+    public void testAutocompletarSinTildes() {
+        Cliente carlos = gestor.agregarCliente("Carlos López", "2424242424", "3002424242");
+        gestor.agregarCliente("Ana Martínez", "2525252525", "3002525252");
+
+        assertEquals(List.of(carlos), gestor.autocompletarClientes("LOP", 5));
+        assertEquals(1, gestor.autocompletarClientes("marti", 5).size());
+        assertEquals(List.of(carlos), gestor.autocompletarClientes("carlos lo", 5));
+        assertTrue(gestor.autocompletarClientes("carlos ma", 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("El autocompletado debe ordenar por saldo de deuda y seguir los cambios de saldo")
+    public void testAutocompletarOrdenPorDeuda() {
+        Cliente ana = gestor.agregarCliente("Ana Gil", "2626262626", "3002626262");
+        Cliente andrea = gestor.agregarCliente("Andrea Soto", "2727272727", "3002727272");
+        Cliente andres = gestor.agregarCliente("Andrés Paz", "2828282828", "3002828282");
+
+        andrea.agregarCompra(30000.0);
+        andres.agregarCompra(10000.0);
+        assertEquals(List.of(andrea, andres, ana), gestor.autocompletarClientes("an", 5));
+        assertEquals(List.of(andrea, andres), gestor.autocompletarClientes("an", 2));
+
+        gestor.registrarPago(andrea.getId(), 25000.0);
+        assertEquals(List.of(andres, andrea, ana), gestor.autocompletarClientes("an", 5));
+
+        gestor.eliminarCliente(andres.getId());
+        assertEquals(List.of(andrea, ana), gestor.autocompletarClientes("an", 5));
+    }
+
+    @Test
+    @DisplayName("El autocompletado debe respetar el límite con muchos clientes")
+    public void testAutocompletarConMuchosClientes() {
+        for (int i = 0; i < 50; i++) {
+            Cliente cliente = gestor.agregarCliente("Pedro Número " + i, "90000" + i, "300");
+            cliente.agregarCompra(1000.0 * (i + 1));
+        }
+
+        List<Cliente> top = gestor.autocompletarClientes("pedro", 3);
+        assertEquals(3, top.size());
+        assertEquals("Pedro Número 49", top.get(0).getNombre());
+        assertEquals("Pedro Número 47", top.get(2).getNombre());
+        assertEquals(20, gestor.autocompletarClientes("pedro num", 20).size());
+    }
+
+    @Test
+    @DisplayName("El autocompletado debe rechazar un límite no positivo")
+    public void testAutocompletarLimiteInvalido() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            gestor.autocompletarClientes("ana", 0);
+        });
+        assertEquals("El límite debe ser mayor a cero", exception.getMessage());
+    }
+
+    // ============ TESTS DE AGREGADOS DE DEUDA ============
+
+    @Test
+    @DisplayName("Los agregados de deuda deben seguir compras, pagos y deudas saldadas")
+    public void testAgregadosDeudaIncrementales() {
+        Cliente cliente1 = gestor.agregarCliente("Elena Ríos", "2929292929", "3002929292");
+        Cliente cliente2 = gestor.agregarCliente("Óscar Neira", "3131313131", "3003131313");
+
+        cliente1.agregarCompra(40000.0);
+        cliente2.agregarCompra(10000.0);
+        assertEquals(50000.0, gestor.calcularTotalDeudas(), 0.001);
+        assertEquals(2, gestor.cantidadClientesConDeuda());
+
+        gestor.registrarPago(cliente1.getId(), 15000.0);
+        assertEquals(35000.0, gestor.calcularTotalDeudas(), 0.001);
+
+        cliente2.saldarDeuda();
+        assertEquals(25000.0, gestor.calcularTotalDeudas(), 0.001);
+        assertEquals(List.of(cliente1), gestor.obtenerClientesConDeuda());
+
+        gestor.marcarDeudaComoPagada(cliente1.getId());
+        assertEquals(0.0, gestor.calcularTotalDeudas(), 0.0);
+        assertTrue(gestor.obtenerClientesConDeuda().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Eliminar un deudor debe descontar su saldo del total")
+    public void testAgregadosDeudaAlEliminarCliente() {
+        Cliente cliente1 = gestor.agregarCliente("Raúl Acosta", "3232323232", "3003232323");
+        Cliente cliente2 = gestor.agregarCliente("Nora Quintero", "3434343434", "3003434343");
+        cliente1.agregarCompra(20000.0);
+        cliente2.agregarCompra(5000.0);
+
+        gestor.eliminarCliente(cliente1.getId());
+
+        assertEquals(5000.0, gestor.calcularTotalDeudas(), 0.001);
+        assertEquals(List.of(cliente2), gestor.obtenerClientesConDeuda());
+
+        // Un cliente eliminado ya no afecta los agregados
+        cliente1.agregarCompra(1000.0);
+        assertEquals(5000.0, gestor.calcularTotalDeudas(), 0.001);
+    }
+
+    // ============ TESTS DEL TABLERO DE MAYORES DEUDAS ============
+
+    @Test
+    @DisplayName("Debe obtener los mayores deudores en orden y seguir los cambios de saldo")
+    public void testTopDeudores() {
+        Cliente cliente1 = gestor.agregarCliente("Inés Cortés", "3535353535", "3003535353");
+        Cliente cliente2 = gestor.agregarCliente("Tomás Rey", "3636363636", "3003636363");
+        Cliente cliente3 = gestor.agregarCliente("Lucía Mesa", "3737373737", "3003737373");
+        gestor.agregarCliente("Sin Deuda", "3838383838", "3003838383");
+
+        cliente1.agregarCompra(20000.0);
+        cliente2.agregarCompra(50000.0);
+        cliente3.agregarCompra(20000.0);
+
+        assertEquals(List.of(cliente2, cliente1, cliente3), gestor.topDeudores(10));
+        assertEquals(List.of(cliente2), gestor.topDeudores(1));
+        assertEquals(1, gestor.posicionEnDeudas(cliente2.getId()));
+        assertEquals(3, gestor.posicionEnDeudas(cliente3.getId()));
+        assertEquals(0, gestor.posicionEnDeudas(4));
+
+        gestor.registrarPago(cliente2.getId(), 45000.0);
+        cliente3.agregarCompra(1000.0);
+        assertEquals(List.of(cliente3, cliente1, cliente2), gestor.topDeudores(3));
+
+        cliente1.saldarDeuda();
+        assertEquals(List.of(cliente3, cliente2), gestor.topDeudores(3));
+        assertEquals(0, gestor.posicionEnDeudas(cliente1.getId()));
+    }
+
+    @Test
+    @DisplayName("Debe obtener deudores por rango de monto")
+    public void testDeudoresEntreMontos() {
+        for (int i = 1; i <= 100; i++) {
+            Cliente cliente = gestor.agregarCliente("Cliente " + i, "50000" + i, "300");
+            cliente.agregarCompra(1000.0 * i);
+        }
+
+        List<Cliente> rango = gestor.obtenerDeudoresEntre(10000.0, 15000.0);
+
+        assertEquals(6, rango.size());
+        assertEquals(15000.0, rango.get(0).getSaldoDeuda(), 0.001);
+        assertEquals(10000.0, rango.get(5).getSaldoDeuda(), 0.001);
+        assertEquals(100, gestor.topDeudores(500).size());
+        assertEquals(91, gestor.posicionEnDeudas(10));
+        assertTrue(gestor.obtenerDeudoresEntre(200000.0, 300000.0).isEmpty());
+    }
+
+    // ============ TESTS DE CONCURRENCIA (VARIAS CAJAS) ============
+
+    @Test
+    @DisplayName("Varias cajas deben registrar compras y pagos sin perder saldo")
+    public void testComprasConcurrentes() throws Exception {
+        int cajas = 8;
+        int operacionesPorCaja = 20000;
+        List<Cliente> lista = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            lista.add(gestor.agregarCliente("Residente " + i, "70000" + i, "300"));
+        }
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(cajas + 1);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int c = 0; c < cajas; c++) {
+            final int caja = c;
+            tareas.add(ejecutor.submit(() -> {
+                inicio.await();
+                for (int i = 0; i < operacionesPorCaja; i++) {
+                    Cliente cliente = lista.get((caja * 7 + i) % lista.size());
+                    cliente.agregarCompra(2000.0);
+                    gestor.registrarPago(cliente.getId(), 1000.0);
+                }
+                return null;
+            }));
+        }
+        // Un lector que recorre los clientes mientras las cajas escriben
+        Future<?> lector = ejecutor.submit(() -> {
+            inicio.await();
+            for (int i = 0; i < 200; i++) {
+                gestor.obtenerTodosLosClientes().forEach(Cliente::getSaldoDeuda);
+                gestor.obtenerClientesConDeuda();
+                gestor.topDeudores(5);
+                gestor.autocompletarClientes("resi", 5);
+            }
+            return null;
+        });
+
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(60, TimeUnit.SECONDS);
+        }
+        lector.get(60, TimeUnit.SECONDS);
+        ejecutor.shutdown();
+
+        double esperado = 1000.0 * cajas * operacionesPorCaja;
+        double suma = lista.stream().mapToDouble(Cliente::getSaldoDeuda).sum();
+        assertEquals(esperado, suma, 0.001);
+        assertEquals(esperado, gestor.calcularTotalDeudas(), 0.001);
+        assertEquals(lista.size(), gestor.cantidadClientesConDeuda());
+        assertEquals(lista.size(), gestor.topDeudores(1000).size());
+    }
+
+    @Test
+    @DisplayName("Registros concurrentes deben asignar IDs únicos y rechazar cédulas repetidas")
+    public void testRegistroConcurrenteDeClientes() throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> tareas = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            tareas.add(ejecutor.submit(() -> {
+                int rechazados = 0;
+                for (int i = 0; i < 500; i++) {
+                    try {
+                        // Los cuatro hilos intentan las mismas 500 cédulas
+                        gestor.agregarCliente("Vecino " + i, "80000" + i, "300");
+                    } catch (IllegalArgumentException e) {
+                        rechazados++;
+                    }
+                }
+                return rechazados;
+            }));
+        }
+        int rechazados = 0;
+        for (Future<Integer> tarea : tareas) {
+            rechazados += tarea.get(60, TimeUnit.SECONDS);
+        }
+        ejecutor.shutdown();
+
+        assertEquals(500, gestor.cantidadClientes());
+        assertEquals(1500, rechazados);
+        assertEquals(500, gestor.obtenerTodosLosClientes().stream().mapToInt(Cliente::getId).distinct().count());
+    }
+
+    @Test
+    @DisplayName("El total de deudas debe ser exacto en centavos")
+    public void testTotalDeudasExacto() {
+        Cliente cliente = gestor.agregarCliente("Pablo Lara", "3939393939", "3003939393");
+        for (int i = 0; i < 1000; i++) {
+            cliente.agregarCompra(0.1);
+        }
+
+        assertEquals(10000, gestor.calcularTotalDeudasCentavos());
+        assertEquals(100.0, gestor.calcularTotalDeudas(), 0.0);
+        assertTrue(gestor.registrarPago(cliente.getId(), 100.0));
+        assertEquals(0, gestor.calcularTotalDeudasCentavos());
+    }
+
+    @Test
+    @DisplayName("La vista de clientes no debe copiar ni permitir modificaciones")
+    public void testVistaClientes() {
+        gestor.agregarCliente("Rosa Díaz", "4141414141", "3004141414");
+        gestor.agregarCliente("Tomás Gil", "4242424242", "3004242424");
+
+        java.util.Collection<Cliente> vista = gestor.vistaClientes();
+        assertEquals(2, vista.size());
+
+        // Registrar clientes mientras se recorre no debe fallar, y la vista
+        // alcanza a ver los nuevos (van al final por id)
+        int recorridos = 0;
+        for (Cliente cliente : vista) {
+            if (recorridos == 0) {
+                gestor.agregarCliente("Uva Pardo", "4343434343", "3004343434");
+            }
+            recorridos++;
+        }
+        assertEquals(3, recorridos);
+        assertEquals(3, vista.size());
+        assertThrows(UnsupportedOperationException.class, () -> vista.clear());
+    }
 }
\ No newline at end of file
@@ -1,26 +1,88 @@
 package ERICK-S-CONVENIENCE-STORE;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * Clase que gestiona los pedidos a proveedores
  * Issue #28: Gestión de Pedidos a Proveedores
  * Issue #18: Historial de pedidos pasados
+ *
+ * Además de las listas en orden de creación, mantiene índices por id, por
+ * proveedor y por estado. El índice por estado se actualiza solo: el
+ * gestor observa cada pedido que crea y mueve el pedido de conjunto cuando
+ * cambia de estado, sin importar si el cambio se hizo desde el gestor o
+ * directamente sobre el pedido.
+ *
+ * Se puede leer desde otro hilo mientras las cajas registran (por ejemplo,
+ * el autoguardado): los cambios y las consultas que recorren índices toman
+ * el candado del gestor, y las búsquedas por id y las vistas no lo esperan.
+ * Los observadores se notifican con el candado tomado. Los cambios a un
+ * pedido toman primero el candado del pedido y después el del gestor (al
+ * recibir el aviso), así que el gestor nunca espera el de un pedido con el
+ * suyo tomado.
  */
-public class GestorPedidos {
-    private List<PedidoProveedor> pedidos;
-    private List<Proveedor> proveedores;
+public class GestorPedidos implements PedidoProveedor.ObservadorEstado, Proveedor.ObservadorProveedor {
+    private ListaSoloAgregar<PedidoProveedor> pedidos;
+    private ListaSoloAgregar<Proveedor> proveedores;
     private int siguienteIdPedido;
     private int siguienteIdProveedor;
 
+    // Índices secundarios (por id se busca sin candado)
+    private final Map<Integer, PedidoProveedor> pedidosPorId;
+    private final Map<Integer, Proveedor> proveedoresPorId;
+    private final Map<Integer, List<PedidoProveedor>> pedidosPorProveedor;
+    // Producto normalizado -> proveedores activos que lo suministran, por id
+    private final Map<String, Set<Proveedor>> proveedoresPorProducto;
+    // Se arma al pedir un plan y se descarta cuando cambia algún catálogo
+    private CoberturaProveedores cobertura;
+    // Ordenados por id, que es el orden de creación
+    private final EnumMap<PedidoProveedor.EstadoPedido, TreeMap<Integer, PedidoProveedor>> pedidosPorEstado;
+    private final IndiceTemporal<PedidoProveedor> pedidosPorFecha;
+    // Suma de los pedidos entregados; ENTREGADO es final, así que solo crece
+    private long totalGastadoCentavos;
+    // Gastos y desempeño por proveedor, de sus pedidos entregados
+    private final Map<Integer, GastosProveedor> gastosPorProveedor;
+    private final Map<Integer, TarjetaProveedor> tarjetasPorProveedor;
+    // Suscriptores a los cambios de estado de todos los pedidos (copia al escribir)
+    private volatile PedidoProveedor.ObservadorEstado[] observadoresEstado = new PedidoProveedor.ObservadorEstado[0];
+    // Quienes registran cada cambio para poder repetirlo (copia al escribir)
+    private volatile ObservadorPedidos[] observadoresPedidos = new ObservadorPedidos[0];
+
     public GestorPedidos() {
-        this.pedidos = new ArrayList<>();
-        this.proveedores = new ArrayList<>();
+        this.pedidos = new ListaSoloAgregar<>();
+        this.proveedores = new ListaSoloAgregar<>();
         this.siguienteIdPedido = 1;
         this.siguienteIdProveedor = 1;
+        this.pedidosPorId = new ConcurrentHashMap<>();
+        this.proveedoresPorId = new ConcurrentHashMap<>();
+        this.pedidosPorProveedor = new HashMap<>();
+        this.proveedoresPorProducto = new HashMap<>();
+        this.pedidosPorEstado = new EnumMap<>(PedidoProveedor.EstadoPedido.class);
+        for (PedidoProveedor.EstadoPedido estado : PedidoProveedor.EstadoPedido.values()) {
+            pedidosPorEstado.put(estado, new TreeMap<>());
+        }
+        this.pedidosPorFecha = new IndiceTemporal<>();
+        this.gastosPorProveedor = new HashMap<>();
+        this.tarjetasPorProveedor = new HashMap<>();
     }
 
     // ============ GESTIÓN DE PROVEEDORES ============
@@ -29,26 +91,155 @@ public class GestorPedidos {
      * Agrega un nuevo proveedor al sistema
      */
     public Proveedor agregarProveedor(String nombre, String empresa, String telefono, String email) {
-        if (nombre == null || nombre.trim().isEmpty()) {
-            throw new IllegalArgumentException("El nombre no puede estar vacío");
+        try {
+            synchronized (this) {
+                if (nombre == null || nombre.trim().isEmpty()) {
+                    throw new IllegalArgumentException("El nombre no puede estar vacío");
+                }
+                if (empresa == null || empresa.trim().isEmpty()) {
+                    throw new IllegalArgumentException("La empresa no puede estar vacía");
+                }
+
+                Proveedor nuevoProveedor = new Proveedor(siguienteIdProveedor++, nombre, empresa, telefono, email);
+                proveedores.add(nuevoProveedor);
+                proveedoresPorId.put(nuevoProveedor.getId(), nuevoProveedor);
+                nuevoProveedor.setObservador(this);
+                cobertura = null;
+                for (ObservadorPedidos observador : observadoresPedidos) {
+                    observador.proveedorAgregado(nuevoProveedor);
+                }
+                return nuevoProveedor;
+            }
+        } finally {
+            cambioTerminado();
+        }
+    }
+
+    /**
+     * Registra un proveedor reconstruido desde un snapshot, con su id
+     * original. Los ids nuevos siguen después del mayor restaurado.
+     */
+    public synchronized void restaurarProveedor(Proveedor proveedor) {
+        if (proveedor == null) {
+            throw new IllegalArgumentException("El proveedor no puede ser nulo");
+        }
+        if (proveedoresPorId.containsKey(proveedor.getId())) {
+            throw new IllegalArgumentException("Ya existe un proveedor con ese ID");
+        }
+        proveedores.add(proveedor);
+        proveedoresPorId.put(proveedor.getId(), proveedor);
+        proveedor.setObservador(this);
+        if (proveedor.isActivo()) {
+            for (String producto : proveedor.getProductosQueSupministra()) {
+                indexarProducto(proveedor, producto);
+            }
+        }
+        cobertura = null;
+        siguienteIdProveedor = Math.max(siguienteIdProveedor, proveedor.getId() + 1);
+    }
+
+    /**
+     * Registra un pedido reconstruido desde un snapshot. Su proveedor debe
+     * haberse restaurado antes; si ya estaba entregado se contabiliza en
+     * los gastos y en la tarjeta del proveedor.
+     */
+    public synchronized void restaurarPedido(PedidoProveedor pedido) {
+        if (pedido == null) {
+            throw new IllegalArgumentException("El pedido no puede ser nulo");
+        }
+        if (pedidosPorId.containsKey(pedido.getId())) {
+            throw new IllegalArgumentException("Ya existe un pedido con ese ID");
+        }
+        if (proveedoresPorId.get(pedido.getProveedor().getId()) != pedido.getProveedor()) {
+            throw new IllegalArgumentException("El proveedor del pedido no está registrado");
+        }
+        pedidos.add(pedido);
+        indexarPedido(pedido);
+        if (pedido.getEstado() == PedidoProveedor.EstadoPedido.ENTREGADO) {
+            contabilizarEntrega(pedido);
+        }
+        siguienteIdPedido = Math.max(siguienteIdPedido, pedido.getId() + 1);
+    }
+
+    /**
+     * Todos los proveedores en orden de alta (vista de solo lectura, fija
+     * en los que había al pedirla)
+     */
+    public List<Proveedor> vistaProveedores() {
+        return proveedores.vista();
+    }
+
+    /**
+     * Busca los proveedores activos que suministran un producto, en orden
+     * de id. No distingue mayúsculas ni espacios al inicio o al final.
+     */
+    public synchronized List<Proveedor> buscarProveedoresDeProducto(String producto) {
+        if (producto == null || producto.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Proveedor> proveedores = proveedoresPorProducto.get(normalizarProducto(producto));
+        return proveedores == null ? new ArrayList<>() : new ArrayList<>(proveedores);
+    }
+
+    @Override
+    public synchronized void productoAgregado(Proveedor proveedor, String producto) {
+        if (proveedoresPorId.get(proveedor.getId()) != proveedor) {
+            return;
+        }
+        if (proveedor.isActivo()) {
+            indexarProducto(proveedor, producto);
+            cobertura = null;
+        }
+        for (ObservadorPedidos observador : observadoresPedidos) {
+            observador.productoAgregado(proveedor, producto);
         }
-        if (empresa == null || empresa.trim().isEmpty()) {
-            throw new IllegalArgumentException("La empresa no puede estar vacía");
+    }
+
+    @Override
+    public synchronized void actividadCambiada(Proveedor proveedor, boolean activo) {
+        if (proveedoresPorId.get(proveedor.getId()) != proveedor) {
+            return;
+        }
+        cobertura = null;
+        for (String producto : proveedor.getProductosQueSupministra()) {
+            if (activo) {
+                indexarProducto(proveedor, producto);
+            } else {
+                desindexarProducto(proveedor, producto);
+            }
+        }
+        for (ObservadorPedidos observador : observadoresPedidos) {
+            observador.actividadCambiada(proveedor, activo);
+        }
+    }
+
+    private void indexarProducto(Proveedor proveedor, String producto) {
+        proveedoresPorProducto
+                .computeIfAbsent(normalizarProducto(producto),
+                        clave -> new TreeSet<>(Comparator.comparingInt(Proveedor::getId)))
+                .add(proveedor);
+    }
+
+    private void desindexarProducto(Proveedor proveedor, String producto) {
+        String clave = normalizarProducto(producto);
+        Set<Proveedor> proveedores = proveedoresPorProducto.get(clave);
+        if (proveedores != null) {
+            proveedores.remove(proveedor);
+            if (proveedores.isEmpty()) {
+                proveedoresPorProducto.remove(clave);
+            }
         }
+    }
 
-        Proveedor nuevoProveedor = new Proveedor(siguienteIdProveedor++, nombre, empresa, telefono, email);
-        proveedores.add(nuevoProveedor);
-        return nuevoProveedor;
+    private static String normalizarProducto(String producto) {
+        return producto.trim().toLowerCase(Locale.ROOT);
     }
 
     /**
      * Busca un proveedor por ID
      */
     public Proveedor buscarProveedorPorId(int id) {
-        return proveedores.stream()
-                .filter(p -> p.getId() == id)
-                .findFirst()
-                .orElse(null);
+        return proveedoresPorId.get(id);
     }
 
     /**
@@ -58,7 +249,7 @@ public class GestorPedidos {
         if (nombre == null || nombre.trim().isEmpty()) {
             return null;
         }
-        return proveedores.stream()
+        return proveedores.vista().stream()
                 .filter(p -> p.getNombre().equalsIgnoreCase(nombre.trim()))
                 .findFirst()
                 .orElse(null);
@@ -68,28 +259,88 @@ public class GestorPedidos {
      * Obtiene todos los proveedores activos
      */
     public List<Proveedor> obtenerProveedoresActivos() {
-        return proveedores.stream()
+        return proveedores.vista().stream()
                 .filter(Proveedor::isActivo)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Propone con qué proveedores activos reabastecer una lista de
+     * productos usando la menor cantidad de proveedores: un borrador de
+     * pedido por proveedor, más los productos que nadie suministra.
+     *
+     * @param productos Producto a cantidad a pedir
+     * @param exacto    true para buscar la cobertura mínima exacta; false
+     *                  para la voraz, que es más rápida pero puede usar
+     *                  algún proveedor de más
+     */
+    public synchronized CoberturaProveedores.PlanReabastecimiento planificarReabastecimiento(
+            Map<String, Integer> productos, boolean exacto) {
+        if (cobertura == null) {
+            cobertura = new CoberturaProveedores(obtenerProveedoresActivos());
+        }
+        return exacto ? cobertura.resolverExacto(productos) : cobertura.resolverVoraz(productos);
+    }
+
+    /**
+     * Crea un pedido pendiente con los productos de un borrador
+     *
+     * @param preciosUnitarios Precio unitario de cada producto del borrador
+     * @throws IllegalArgumentException si falta el precio de algún producto;
+     *         en ese caso no se crea el pedido
+     */
+    public PedidoProveedor crearPedidoDesdeBorrador(CoberturaProveedores.BorradorPedido borrador,
+                                                   Date fechaEntregaEstimada, Map<String, Double> preciosUnitarios) {
+        if (borrador == null) {
+            throw new IllegalArgumentException("El borrador no puede ser nulo");
+        }
+        if (preciosUnitarios == null) {
+            throw new IllegalArgumentException("Los precios unitarios no pueden ser nulos");
+        }
+        List<PedidoProveedor.ItemPedido> items = new ArrayList<>(borrador.getProductos().size());
+        for (Map.Entry<String, Integer> producto : borrador.getProductos().entrySet()) {
+            Double precio = preciosUnitarios.get(producto.getKey());
+            if (precio == null) {
+                throw new IllegalArgumentException("Falta el precio unitario de " + producto.getKey());
+            }
+            if (precio <= 0) {
+                throw new IllegalArgumentException("El precio unitario debe ser mayor a cero");
+            }
+            items.add(new PedidoProveedor.ItemPedido(producto.getKey(), producto.getValue(), precio));
+        }
+        // Sin el candado del gestor: los items toman el del pedido, que va antes
+        PedidoProveedor pedido = crearPedido(borrador.getProveedor().getId(), fechaEntregaEstimada);
+        pedido.agregarItems(items);
+        return pedido;
+    }
+
     // ============ ISSUE #28: GESTIÓN DE PEDIDOS A PROVEEDORES ============
 
     /**
      * Crea un nuevo pedido a un proveedor
      */
     public PedidoProveedor crearPedido(int idProveedor, Date fechaEntregaEstimada) {
-        Proveedor proveedor = buscarProveedorPorId(idProveedor);
-        if (proveedor == null) {
-            throw new IllegalArgumentException("No existe un proveedor con ese ID");
-        }
-        if (!proveedor.isActivo()) {
-            throw new IllegalStateException("El proveedor no está activo");
+        try {
+            synchronized (this) {
+                Proveedor proveedor = buscarProveedorPorId(idProveedor);
+                if (proveedor == null) {
+                    throw new IllegalArgumentException("No existe un proveedor con ese ID");
+                }
+                if (!proveedor.isActivo()) {
+                    throw new IllegalStateException("El proveedor no está activo");
+                }
+
+                PedidoProveedor nuevoPedido = new PedidoProveedor(siguienteIdPedido++, proveedor, fechaEntregaEstimada);
+                pedidos.add(nuevoPedido);
+                indexarPedido(nuevoPedido);
+                for (ObservadorPedidos observador : observadoresPedidos) {
+                    observador.pedidoCreado(nuevoPedido);
+                }
+                return nuevoPedido;
+            }
+        } finally {
+            cambioTerminado();
         }
-
-        PedidoProveedor nuevoPedido = new PedidoProveedor(siguienteIdPedido++, proveedor, fechaEntregaEstimada);
-        pedidos.add(nuevoPedido);
-        return nuevoPedido;
     }
 
     /**
@@ -100,32 +351,69 @@ public class GestorPedidos {
         if (pedido == null) {
             return false;
         }
-        if (!pedido.estaPendiente()) {
-            throw new IllegalStateException("Solo se pueden agregar items a pedidos pendientes");
+        try {
+            synchronized (pedido) {
+                if (!pedido.estaPendiente()) {
+                    throw new IllegalStateException("Solo se pueden agregar items a pedidos pendientes");
+                }
+
+                pedido.agregarItem(producto, cantidad, precioUnitario);
+                return true;
+            }
+        } finally {
+            cambioTerminado();
         }
+    }
 
-        pedido.agregarItem(producto, cantidad, precioUnitario);
-        return true;
+    /**
+     * Agrega un lote de items a un pedido existente; si alguno no es válido
+     * no se agrega ninguno
+     */
+    public boolean agregarItemsAPedido(int idPedido, List<PedidoProveedor.ItemPedido> items) {
+        PedidoProveedor pedido = buscarPedidoPorId(idPedido);
+        if (pedido == null) {
+            return false;
+        }
+        try {
+            synchronized (pedido) {
+                if (!pedido.estaPendiente()) {
+                    throw new IllegalStateException("Solo se pueden agregar items a pedidos pendientes");
+                }
+
+                pedido.agregarItems(items);
+                return true;
+            }
+        } finally {
+            cambioTerminado();
+        }
     }
 
     /**
      * Confirma un pedido
+     *
+     * @return false si no existe o si su estado ya no permite confirmarlo
      */
     public boolean confirmarPedido(int idPedido) {
         PedidoProveedor pedido = buscarPedidoPorId(idPedido);
         if (pedido == null) {
             return false;
         }
-        if (pedido.getItems().isEmpty()) {
+        if (pedido.cantidadItems() == 0) {
             throw new IllegalStateException("No se puede confirmar un pedido sin items");
         }
 
-        pedido.setEstado(PedidoProveedor.EstadoPedido.CONFIRMADO);
-        return true;
+        try {
+            pedido.setEstado(PedidoProveedor.EstadoPedido.CONFIRMADO);
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
     }
 
     /**
      * Marca un pedido como entregado
+     *
+     * @return false si no existe o si fue cancelado
      */
     public boolean marcarPedidoComoEntregado(int idPedido) {
         PedidoProveedor pedido = buscarPedidoPorId(idPedido);
@@ -133,8 +421,12 @@ public class GestorPedidos {
             return false;
         }
 
-        pedido.marcarComoEntregado();
-        return true;
+        try {
+            pedido.marcarComoEntregado();
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
     }
 
     /**
@@ -158,10 +450,118 @@ public class GestorPedidos {
      * Busca un pedido por ID
      */
     public PedidoProveedor buscarPedidoPorId(int id) {
-        return pedidos.stream()
-                .filter(p -> p.getId() == id)
-                .findFirst()
-                .orElse(null);
+        return pedidosPorId.get(id);
+    }
+
+    /**
+     * Mantiene el índice por estado cuando un pedido cambia de estado
+     */
+    @Override
+    public synchronized void estadoCambiado(PedidoProveedor pedido, PedidoProveedor.EstadoPedido estadoAnterior,
+                                            PedidoProveedor.EstadoPedido estadoNuevo) {
+        if (pedidosPorId.get(pedido.getId()) != pedido) {
+            return;
+        }
+        pedidosPorEstado.get(estadoAnterior).remove(pedido.getId());
+        pedidosPorEstado.get(estadoNuevo).put(pedido.getId(), pedido);
+        if (estadoNuevo == PedidoProveedor.EstadoPedido.ENTREGADO) {
+            contabilizarEntrega(pedido);
+        }
+        for (ObservadorPedidos observador : observadoresPedidos) {
+            observador.estadoCambiado(pedido, estadoAnterior, estadoNuevo);
+        }
+        for (PedidoProveedor.ObservadorEstado observador : observadoresEstado) {
+            observador.estadoCambiado(pedido, estadoAnterior, estadoNuevo);
+        }
+    }
+
+    /**
+     * Avisa los items agregados a un pedido del gestor, desde el gestor o
+     * directamente sobre el pedido
+     */
+    @Override
+    public synchronized void itemsAgregados(PedidoProveedor pedido, List<PedidoProveedor.ItemPedido> items) {
+        if (pedidosPorId.get(pedido.getId()) != pedido) {
+            return;
+        }
+        for (ObservadorPedidos observador : observadoresPedidos) {
+            observador.itemsAgregados(pedido, items);
+        }
+    }
+
+    @Override
+    public synchronized void datosCambiados(PedidoProveedor pedido) {
+        if (pedidosPorId.get(pedido.getId()) != pedido) {
+            return;
+        }
+        for (ObservadorPedidos observador : observadoresPedidos) {
+            observador.datosCambiados(pedido);
+        }
+    }
+
+    /**
+     * Fin de un cambio hecho desde un pedido o un proveedor del gestor, ya
+     * sin candados: los observadores esperan aquí lo que registraron
+     */
+    @Override
+    public void cambioTerminado() {
+        for (ObservadorPedidos observador : observadoresPedidos) {
+            observador.cambioTerminado();
+        }
+    }
+
+    /**
+     * Suscribe un observador a los cambios de estado de todos los pedidos
+     * del gestor. Se le notifica después de actualizar los índices y las
+     * estadísticas.
+     */
+    public synchronized void agregarObservadorEstado(PedidoProveedor.ObservadorEstado observador) {
+        if (observador == null) {
+            throw new IllegalArgumentException("El observador no puede ser nulo");
+        }
+        PedidoProveedor.ObservadorEstado[] actuales = observadoresEstado;
+        PedidoProveedor.ObservadorEstado[] nuevos = Arrays.copyOf(actuales, actuales.length + 1);
+        nuevos[actuales.length] = observador;
+        observadoresEstado = nuevos;
+    }
+
+    /**
+     * Quita un observador suscrito con agregarObservadorEstado
+     *
+     * @return true si estaba suscrito
+     */
+    public synchronized boolean quitarObservadorEstado(PedidoProveedor.ObservadorEstado observador) {
+        List<PedidoProveedor.ObservadorEstado> restantes = new ArrayList<>(Arrays.asList(observadoresEstado));
+        boolean quitado = restantes.remove(observador);
+        observadoresEstado = restantes.toArray(new PedidoProveedor.ObservadorEstado[0]);
+        return quitado;
+    }
+
+    /**
+     * Suma el pedido entregado al total y a las cubetas de su proveedor, en
+     * el día de la entrega real (o hoy, si no se registró)
+     */
+    private void contabilizarEntrega(PedidoProveedor pedido) {
+        Date fechaEntrega = pedido.getFechaEntregaReal() != null ? pedido.getFechaEntregaReal() : new Date();
+        LocalDate dia = fechaEntrega.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        long monto = pedido.getTotalPedidoCentavos();
+        totalGastadoCentavos += monto;
+        gastosDe(pedido.getProveedor().getId()).registrar(dia, monto);
+        // ENTREGADO es final: la tarjeta solo recibe altas
+        tarjetasPorProveedor.computeIfAbsent(pedido.getProveedor().getId(), TarjetaProveedor::new)
+                .registrarEntrega(pedido);
+    }
+
+    private GastosProveedor gastosDe(int idProveedor) {
+        return gastosPorProveedor.computeIfAbsent(idProveedor, GastosProveedor::new);
+    }
+
+    private void indexarPedido(PedidoProveedor pedido) {
+        pedidosPorId.put(pedido.getId(), pedido);
+        pedidosPorProveedor.computeIfAbsent(pedido.getProveedor().getId(), id -> new ArrayList<>()).add(pedido);
+        pedidosPorEstado.get(pedido.getEstado()).put(pedido.getId(), pedido);
+        pedidosPorFecha.agregar(pedido.getFechaPedido().getTime(), pedido);
+        pedido.agregarObservadorEstado(this);
     }
 
     // ============ ISSUE #18: HISTORIAL DE PEDIDOS PASADOS ============
@@ -173,78 +573,230 @@ public class GestorPedidos {
         return new ArrayList<>(pedidos);
     }
 
+    /**
+     * Vista de solo lectura del historial de pedidos, sin copiarlo. Queda
+     * fija en los pedidos que había al pedirla.
+     */
+    public List<PedidoProveedor> vistaHistorialPedidos() {
+        return pedidos.vista();
+    }
+
     /**
      * Obtiene el historial de pedidos de un proveedor específico
      */
-    public List<PedidoProveedor> obtenerHistorialPorProveedor(int idProveedor) {
-        return pedidos.stream()
-                .filter(p -> p.getProveedor().getId() == idProveedor)
-                .collect(Collectors.toList());
+    public synchronized List<PedidoProveedor> obtenerHistorialPorProveedor(int idProveedor) {
+        List<PedidoProveedor> delProveedor = pedidosPorProveedor.get(idProveedor);
+        return delProveedor == null ? new ArrayList<>() : new ArrayList<>(delProveedor);
     }
 
     /**
      * Obtiene pedidos completados (entregados)
      */
     public List<PedidoProveedor> obtenerPedidosCompletados() {
-        return pedidos.stream()
-                .filter(PedidoProveedor::estaCompletado)
-                .collect(Collectors.toList());
+        return obtenerPedidosPorEstado(PedidoProveedor.EstadoPedido.ENTREGADO);
     }
 
     /**
-     * Obtiene pedidos pendientes
+     * Obtiene pedidos pendientes (pendientes o confirmados, en orden de
+     * creación)
      */
-    public List<PedidoProveedor> obtenerPedidosPendientes() {
-        return pedidos.stream()
-                .filter(PedidoProveedor::estaPendiente)
-                .collect(Collectors.toList());
+    public synchronized List<PedidoProveedor> obtenerPedidosPendientes() {
+        return unirPorId(pedidosPorEstado.get(PedidoProveedor.EstadoPedido.PENDIENTE),
+                pedidosPorEstado.get(PedidoProveedor.EstadoPedido.CONFIRMADO));
     }
 
     /**
      * Obtiene pedidos por estado
      */
-    public List<PedidoProveedor> obtenerPedidosPorEstado(PedidoProveedor.EstadoPedido estado) {
-        return pedidos.stream()
-                .filter(p -> p.getEstado() == estado)
-                .collect(Collectors.toList());
+    public synchronized List<PedidoProveedor> obtenerPedidosPorEstado(PedidoProveedor.EstadoPedido estado) {
+        if (estado == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(pedidosPorEstado.get(estado).values());
+    }
+
+    /**
+     * Une dos índices de estado manteniendo el orden por id
+     */
+    private static List<PedidoProveedor> unirPorId(TreeMap<Integer, PedidoProveedor> a,
+                                                   TreeMap<Integer, PedidoProveedor> b) {
+        List<PedidoProveedor> resultado = new ArrayList<>(a.size() + b.size());
+        Iterator<PedidoProveedor> itA = a.values().iterator();
+        Iterator<PedidoProveedor> itB = b.values().iterator();
+        PedidoProveedor siguienteA = itA.hasNext() ? itA.next() : null;
+        PedidoProveedor siguienteB = itB.hasNext() ? itB.next() : null;
+        while (siguienteA != null || siguienteB != null) {
+            if (siguienteB == null || (siguienteA != null && siguienteA.getId() < siguienteB.getId())) {
+                resultado.add(siguienteA);
+                siguienteA = itA.hasNext() ? itA.next() : null;
+            } else {
+                resultado.add(siguienteB);
+                siguienteB = itB.hasNext() ? itB.next() : null;
+            }
+        }
+        return resultado;
     }
 
     /**
      * Obtiene pedidos realizados en un rango de fechas
      */
-    public List<PedidoProveedor> obtenerPedidosPorRangoFechas(Date fechaInicio, Date fechaFin) {
-        return pedidos.stream()
-                .filter(p -> !p.getFechaPedido().before(fechaInicio) && !p.getFechaPedido().after(fechaFin))
-                .collect(Collectors.toList());
+    public synchronized List<PedidoProveedor> obtenerPedidosPorRangoFechas(Date fechaInicio, Date fechaFin) {
+        validarRangoFechas(fechaInicio, fechaFin);
+        List<PedidoProveedor> resultado = new ArrayList<>(
+                pedidosPorFecha.contarEntre(fechaInicio.getTime(), fechaFin.getTime()));
+        pedidosPorFecha.recorrerEntre(fechaInicio.getTime(), fechaFin.getTime(), resultado::add);
+        return resultado;
+    }
+
+    /**
+     * Recorre los pedidos realizados en un rango de fechas (ambas inclusive),
+     * en orden de fecha, sin copiarlos a una lista. No se deben crear
+     * pedidos mientras se recorre, así que no sirve desde otro hilo.
+     */
+    public Iterable<PedidoProveedor> recorrerPedidosPorRangoFechas(Date fechaInicio, Date fechaFin) {
+        validarRangoFechas(fechaInicio, fechaFin);
+        return pedidosPorFecha.entre(fechaInicio.getTime(), fechaFin.getTime());
+    }
+
+    /**
+     * Cuenta los pedidos realizados en un rango de fechas sin recorrerlos
+     */
+    public synchronized int contarPedidosPorRangoFechas(Date fechaInicio, Date fechaFin) {
+        validarRangoFechas(fechaInicio, fechaFin);
+        return pedidosPorFecha.contarEntre(fechaInicio.getTime(), fechaFin.getTime());
+    }
+
+    private static void validarRangoFechas(Date fechaInicio, Date fechaFin) {
+        if (fechaInicio == null || fechaFin == null) {
+            throw new IllegalArgumentException("Las fechas del rango no pueden ser nulas");
+        }
     }
 
     /**
      * Calcula el total gastado con un proveedor
      */
-    public double calcularTotalGastadoProveedor(int idProveedor) {
-        return pedidos.stream()
-                .filter(p -> p.getProveedor().getId() == idProveedor)
-                .filter(PedidoProveedor::estaCompletado)
-                .mapToDouble(PedidoProveedor::getTotalPedido)
-                .sum();
+    public synchronized double calcularTotalGastadoProveedor(int idProveedor) {
+        GastosProveedor gastos = gastosPorProveedor.get(idProveedor);
+        return gastos == null ? 0.0 : Dinero.aPesos(gastos.getTotalCentavos());
+    }
+
+    /**
+     * Calcula lo gastado con un proveedor en un mes, según la fecha de
+     * entrega de los pedidos
+     */
+    public synchronized double calcularGastoProveedorEnMes(int idProveedor, YearMonth mes) {
+        if (mes == null) {
+            throw new IllegalArgumentException("El mes no puede ser nulo");
+        }
+        GastosProveedor gastos = gastosPorProveedor.get(idProveedor);
+        return gastos == null ? 0.0 : Dinero.aPesos(gastos.totalMesCentavos(mes));
+    }
+
+    /**
+     * Calcula lo gastado con un proveedor entre dos días (ambos inclusive),
+     * según la fecha de entrega de los pedidos
+     */
+    public synchronized double calcularGastoProveedorEntre(int idProveedor, LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null) {
+            throw new IllegalArgumentException("Las fechas del rango no pueden ser nulas");
+        }
+        GastosProveedor gastos = gastosPorProveedor.get(idProveedor);
+        return gastos == null ? 0.0 : Dinero.aPesos(gastos.totalEntreCentavos(desde, hasta));
+    }
+
+    /**
+     * Gastos mensuales (en centavos) de cada proveedor con entregas, por id
+     * de proveedor y en orden cronológico. Es lo que muestra el panel de
+     * deudas con proveedores.
+     */
+    public synchronized Map<Integer, SortedMap<YearMonth, Long>> obtenerGastosMensualesPorProveedor() {
+        Map<Integer, SortedMap<YearMonth, Long>> resultado = new TreeMap<>();
+        for (GastosProveedor gastos : gastosPorProveedor.values()) {
+            if (!gastos.gastosMensualesCentavos().isEmpty()) {
+                resultado.put(gastos.getIdProveedor(), new TreeMap<>(gastos.gastosMensualesCentavos()));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Tarjeta de desempeño de un proveedor (demoras, puntualidad y precios
+     * de lo que entregó). Se mantiene en cada entrega, así que consultarla
+     * no recorre los pedidos.
+     *
+     * @return La tarjeta, vacía si todavía no entregó nada, o null si el
+     *         proveedor no existe
+     */
+    public synchronized TarjetaProveedor obtenerTarjetaProveedor(int idProveedor) {
+        if (!proveedoresPorId.containsKey(idProveedor)) {
+            return null;
+        }
+        return tarjetasPorProveedor.computeIfAbsent(idProveedor, TarjetaProveedor::new);
+    }
+
+    /**
+     * Proveedores que entregaron el producto, del precio unitario promedio
+     * más bajo al más alto
+     */
+    public synchronized List<TarjetaProveedor> compararPreciosProducto(String producto) {
+        return tarjetasPorProveedor.values().stream()
+                .filter(tarjeta -> tarjeta.unidadesEntregadas(producto) > 0)
+                .sorted(Comparator.comparingLong((TarjetaProveedor tarjeta) -> tarjeta.precioPromedioCentavos(producto))
+                        .thenComparingInt(TarjetaProveedor::getIdProveedor))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Obtiene estadísticas de pedidos. Lee los contadores que se mantienen
+     * al crear pedidos y en cada cambio de estado, sin recorrer los pedidos.
+     */
+    public synchronized EstadisticasPedidos obtenerEstadisticas() {
+        int pendientes = pedidosPorEstado.get(PedidoProveedor.EstadoPedido.PENDIENTE).size()
+                + pedidosPorEstado.get(PedidoProveedor.EstadoPedido.CONFIRMADO).size();
+        int completados = pedidosPorEstado.get(PedidoProveedor.EstadoPedido.ENTREGADO).size();
+        int cancelados = pedidosPorEstado.get(PedidoProveedor.EstadoPedido.CANCELADO).size();
+
+        return EstadisticasPedidos.enCentavos(pedidos.size(), pendientes, completados, cancelados,
+                totalGastadoCentavos);
     }
 
     /**
-     * Obtiene estadísticas de pedidos
+     * Calcula las estadísticas desde cero, en una sola pasada por los
+     * pedidos. Sirve para auditar los contadores que usa obtenerEstadisticas.
      */
-    public EstadisticasPedidos obtenerEstadisticas() {
-        int totalPedidos = pedidos.size();
-        int pendientes = (int) pedidos.stream().filter(PedidoProveedor::estaPendiente).count();
-        int completados = (int) pedidos.stream().filter(PedidoProveedor::estaCompletado).count();
-        int cancelados = (int) pedidos.stream()
-                .filter(p -> p.getEstado() == PedidoProveedor.EstadoPedido.CANCELADO)
-                .count();
-        double totalGastado = pedidos.stream()
-                .filter(PedidoProveedor::estaCompletado)
-                .mapToDouble(PedidoProveedor::getTotalPedido)
-                .sum();
+    public EstadisticasPedidos recalcularEstadisticas() {
+        int pendientes = 0;
+        int completados = 0;
+        int cancelados = 0;
+        long totalGastado = 0;
+        for (PedidoProveedor pedido : pedidos.vista()) {
+            switch (pedido.getEstado()) {
+                case PENDIENTE:
+                case CONFIRMADO:
+                    pendientes++;
+                    break;
+                case ENTREGADO:
+                    completados++;
+                    totalGastado += pedido.getTotalPedidoCentavos();
+                    break;
+                case CANCELADO:
+                    cancelados++;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return EstadisticasPedidos.enCentavos(pedidos.size(), pendientes, completados, cancelados, totalGastado);
+    }
 
-        return new EstadisticasPedidos(totalPedidos, pendientes, completados, cancelados, totalGastado);
+    /**
+     * Verifica que los contadores mantenidos coincidan con un recálculo
+     * completo
+     *
+     * @return true si coinciden
+     */
+    public boolean verificarEstadisticas() {
+        return obtenerEstadisticas().equals(recalcularEstadisticas());
     }
 
     // ============ MÉTODOS AUXILIARES ============
@@ -267,10 +819,94 @@ public class GestorPedidos {
      * Limpia todos los datos (útil para testing)
      */
     public void limpiarDatos() {
-        pedidos.clear();
-        proveedores.clear();
-        siguienteIdPedido = 1;
-        siguienteIdProveedor = 1;
+        try {
+            synchronized (this) {
+                for (PedidoProveedor pedido : pedidos) {
+                    pedido.quitarObservadorEstado(this);
+                }
+                for (Proveedor proveedor : proveedores) {
+                    proveedor.setObservador(null);
+                }
+                pedidos.clear();
+                proveedores.clear();
+                proveedoresPorProducto.clear();
+                cobertura = null;
+                pedidosPorId.clear();
+                proveedoresPorId.clear();
+                pedidosPorProveedor.clear();
+                pedidosPorFecha.limpiar();
+                totalGastadoCentavos = 0;
+                gastosPorProveedor.clear();
+                tarjetasPorProveedor.clear();
+                for (TreeMap<Integer, PedidoProveedor> conjunto : pedidosPorEstado.values()) {
+                    conjunto.clear();
+                }
+                siguienteIdPedido = 1;
+                siguienteIdProveedor = 1;
+                for (ObservadorPedidos observador : observadoresPedidos) {
+                    observador.datosLimpiados();
+                }
+            }
+        } finally {
+            cambioTerminado();
+        }
+    }
+
+    /**
+     * Suscribe a quien debe enterarse de cada cambio hecho a través del
+     * gestor (por ejemplo, el DiarioTransacciones): altas de proveedores
+     * y de sus productos, pedidos nuevos, items, fechas, observaciones y
+     * cambios de estado, aunque se hagan directamente sobre el proveedor o
+     * el pedido. Lo restaurado desde un snapshot no se notifica.
+     */
+    public synchronized void agregarObservadorPedidos(ObservadorPedidos observador) {
+        if (observador == null) {
+            throw new IllegalArgumentException("El observador no puede ser nulo");
+        }
+        ObservadorPedidos[] actuales = observadoresPedidos;
+        ObservadorPedidos[] nuevos = Arrays.copyOf(actuales, actuales.length + 1);
+        nuevos[actuales.length] = observador;
+        observadoresPedidos = nuevos;
+    }
+
+    /**
+     * Quita un observador suscrito con agregarObservadorPedidos
+     *
+     * @return true si estaba suscrito
+     */
+    public synchronized boolean quitarObservadorPedidos(ObservadorPedidos observador) {
+        List<ObservadorPedidos> restantes = new ArrayList<>(Arrays.asList(observadoresPedidos));
+        boolean quitado = restantes.remove(observador);
+        observadoresPedidos = restantes.toArray(new ObservadorPedidos[0]);
+        return quitado;
+    }
+
+    /**
+     * Recibe los cambios del gestor que hay que poder repetir. Los cambios
+     * de productos, de actividad, de items, de datos y de estado llegan por
+     * los métodos de Proveedor.ObservadorProveedor y
+     * PedidoProveedor.ObservadorEstado, después de actualizar los índices.
+     */
+    public interface ObservadorPedidos extends Proveedor.ObservadorProveedor, PedidoProveedor.ObservadorEstado {
+        void proveedorAgregado(Proveedor proveedor);
+
+        void pedidoCreado(PedidoProveedor pedido);
+
+        @Override
+        void itemsAgregados(PedidoProveedor pedido, List<PedidoProveedor.ItemPedido> items);
+
+        @Override
+        void datosCambiados(PedidoProveedor pedido);
+
+        void datosLimpiados();
+
+        /**
+         * Al final del método que hizo el cambio, ya sin los candados del
+         * gestor ni del pedido y en el mismo hilo (ver DiarioTransacciones)
+         */
+        @Override
+        default void cambioTerminado() {
+        }
     }
 
     /**
@@ -281,15 +917,34 @@ public class GestorPedidos {
         private int pedidosPendientes;
         private int pedidosCompletados;
         private int pedidosCancelados;
-        private double totalGastado;
+        private long totalGastadoCentavos;
 
         public EstadisticasPedidos(int totalPedidos, int pedidosPendientes, int pedidosCompletados,
                                    int pedidosCancelados, double totalGastado) {
+            this(totalPedidos, pedidosPendientes, pedidosCompletados, pedidosCancelados);
+            this.totalGastadoCentavos = Dinero.aCentavos(totalGastado);
+        }
+
+        // Sin el total: un constructor con long al lado del de double
+        // tomaría en centavos cualquier literal entero
+        private EstadisticasPedidos(int totalPedidos, int pedidosPendientes, int pedidosCompletados,
+                                    int pedidosCancelados) {
             this.totalPedidos = totalPedidos;
             this.pedidosPendientes = pedidosPendientes;
             this.pedidosCompletados = pedidosCompletados;
             this.pedidosCancelados = pedidosCancelados;
-            this.totalGastado = totalGastado;
+        }
+
+        /**
+         * Crea las estadísticas con el total gastado ya expresado en centavos
+         */
+        public static EstadisticasPedidos enCentavos(int totalPedidos, int pedidosPendientes,
+                                                     int pedidosCompletados, int pedidosCancelados,
+                                                     long totalGastadoCentavos) {
+            EstadisticasPedidos estadisticas = new EstadisticasPedidos(totalPedidos, pedidosPendientes,
+                    pedidosCompletados, pedidosCancelados);
+            estadisticas.totalGastadoCentavos = totalGastadoCentavos;
+            return estadisticas;
         }
 
         public int getTotalPedidos() {
@@ -309,7 +964,33 @@ public class GestorPedidos {
         }
 
         public double getTotalGastado() {
-            return totalGastado;
+            return Dinero.aPesos(totalGastadoCentavos);
+        }
+
+        public long getTotalGastadoCentavos() {
+            return totalGastadoCentavos;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EstadisticasPedidos)) {
+                return false;
+            }
+            EstadisticasPedidos otras = (EstadisticasPedidos) o;
+            return totalPedidos == otras.totalPedidos
+                    && pedidosPendientes == otras.pedidosPendientes
+                    && pedidosCompletados == otras.pedidosCompletados
+                    && pedidosCancelados == otras.pedidosCancelados
+                    && totalGastadoCentavos == otras.totalGastadoCentavos;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(totalPedidos, pedidosPendientes, pedidosCompletados,
+                    pedidosCancelados, totalGastadoCentavos);
         }
 
         @Override
@@ -319,7 +1000,7 @@ public class GestorPedidos {
                     ", pendientes=" + pedidosPendientes +
                     ", completados=" + pedidosCompletados +
                     ", cancelados=" + pedidosCancelados +
-                    ", totalGastado=" + totalGastado +
+                    ", totalGastado=" + getTotalGastado() +
                     '}';
         }
     }
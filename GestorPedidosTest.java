@@ -4,9 +4,23 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tests para GestorPedidos
@@ -183,6 +197,50 @@ public class GestorPedidosTest {
         assertEquals(PedidoProveedor.EstadoPedido.ENTREGADO, pedido.getEstado());
     }
 
+    @Test
+    @DisplayName("Entregar y cancelar a la vez: una sola transición por pedido")
+    public void testTransicionesConcurrentes() throws Exception {
+        List<PedidoProveedor> lista = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            PedidoProveedor pedido = gestor.crearPedido(proveedor1.getId(), obtenerFechaFutura(7));
+            gestor.agregarItemAPedido(pedido.getId(), "Producto", 10, 5000.0);
+            lista.add(pedido);
+        }
+        AtomicInteger avisos = new AtomicInteger();
+        gestor.agregarObservadorEstado((pedido, anterior, nuevo) -> avisos.incrementAndGet());
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(4);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < 4; h++) {
+            final boolean entrega = h % 2 == 0;
+            tareas.add(ejecutor.submit(() -> {
+                inicio.await();
+                for (PedidoProveedor pedido : lista) {
+                    if (entrega) {
+                        gestor.marcarPedidoComoEntregado(pedido.getId());
+                    } else {
+                        gestor.cancelarPedido(pedido.getId(), "Sin stock");
+                    }
+                }
+                return null;
+            }));
+        }
+        inicio.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(60, TimeUnit.SECONDS);
+        }
+        ejecutor.shutdown();
+
+        assertEquals(lista.size(), avisos.get());
+        long entregados = lista.stream().filter(PedidoProveedor::estaCompletado).count();
+        GestorPedidos.EstadisticasPedidos estadisticas = gestor.obtenerEstadisticas();
+        assertEquals(entregados, estadisticas.getPedidosCompletados());
+        assertEquals(lista.size() - entregados, estadisticas.getPedidosCancelados());
+        assertEquals(entregados * 5_000_000L, estadisticas.getTotalGastadoCentavos());
+        assertTrue(gestor.verificarEstadisticas());
+    }
+
     // ============ TESTS ISSUE #18: HISTORIAL DE PEDIDOS ============
 
     @Test
@@ -315,8 +373,398 @@ public class GestorPedidosTest {
         assertEquals(50000.0, stats.getTotalGastado(), 0.001);
     }
 
+    @Test
+    @DisplayName("Los índices por estado deben seguir cambios hechos directamente sobre el pedido")
+    public void testIndicePorEstadoSigueCambiosDirectos() {
+        Date fechaEntrega = obtenerFechaFutura(7);
+        PedidoProveedor pedido1 = gestor.crearPedido(proveedor1.getId(), fechaEntrega);
+        PedidoProveedor pedido2 = gestor.crearPedido(proveedor2.getId(), fechaEntrega);
+        PedidoProveedor pedido3 = gestor.crearPedido(proveedor1.getId(), fechaEntrega);
+
+        pedido2.setEstado(PedidoProveedor.EstadoPedido.CONFIRMADO);
+        pedido3.setEstado(PedidoProveedor.EstadoPedido.EN_CAMINO);
+
+        // Pendientes y confirmados juntos, en orden de creación
+        List<PedidoProveedor> pendientes = gestor.obtenerPedidosPendientes();
+        assertEquals(2, pendientes.size());
+        assertSame(pedido1, pendientes.get(0));
+        assertSame(pedido2, pendientes.get(1));
+        assertEquals(1, gestor.obtenerPedidosPorEstado(PedidoProveedor.EstadoPedido.EN_CAMINO).size());
+
+        pedido3.marcarComoEntregado();
+        pedido1.cancelar("Sin stock");
+
+        assertEquals(0, gestor.obtenerPedidosPorEstado(PedidoProveedor.EstadoPedido.EN_CAMINO).size());
+        assertSame(pedido3, gestor.obtenerPedidosCompletados().get(0));
+        assertSame(pedido1, gestor.obtenerPedidosPorEstado(PedidoProveedor.EstadoPedido.CANCELADO).get(0));
+        assertSame(pedido2, gestor.obtenerPedidosPendientes().get(0));
+    }
+
+    @Test
+    @DisplayName("Los índices deben vaciarse al limpiar los datos")
+    public void testIndicesTrasLimpiarDatos() {
+        Date fechaEntrega = obtenerFechaFutura(7);
+        PedidoProveedor pedido = gestor.crearPedido(proveedor1.getId(), fechaEntrega);
+
+        gestor.limpiarDatos();
+        pedido.setEstado(PedidoProveedor.EstadoPedido.CONFIRMADO);
+
+        assertNull(gestor.buscarPedidoPorId(pedido.getId()));
+        assertNull(gestor.buscarProveedorPorId(proveedor1.getId()));
+        assertEquals(0, gestor.obtenerHistorialPorProveedor(proveedor1.getId()).size());
+        assertEquals(0, gestor.obtenerPedidosPendientes().size());
+        assertEquals(0, gestor.obtenerEstadisticas().getTotalPedidos());
+    }
+
+    @Test
+    @DisplayName("El índice temporal debe responder rangos igual que un recorrido completo")
+    public void testIndiceTemporalRangos() {
+        IndiceTemporal<Integer> indice = new IndiceTemporal<>();
+        // Casi ordenados, con algunos que llegan tarde
+        long[] fechas = {100, 200, 200, 300, 150, 400, 500, 50, 500, 600};
+        for (int i = 0; i < fechas.length; i++) {
+            indice.agregar(fechas[i], i);
+        }
+
+        for (long desde = 0; desde <= 700; desde += 50) {
+            for (long hasta = desde; hasta <= 700; hasta += 50) {
+                int esperados = 0;
+                for (long fecha : fechas) {
+                    if (fecha >= desde && fecha <= hasta) {
+                        esperados++;
+                    }
+                }
+                int vistos = 0;
+                long anterior = Long.MIN_VALUE;
+                for (Integer i : indice.entre(desde, hasta)) {
+                    assertTrue(fechas[i] >= desde && fechas[i] <= hasta);
+                    assertTrue(fechas[i] >= anterior);
+                    anterior = fechas[i];
+                    vistos++;
+                }
+                assertEquals(esperados, vistos);
+                assertEquals(esperados, indice.contarEntre(desde, hasta));
+            }
+        }
+
+        // Misma fecha: se conserva el orden de llegada
+        java.util.Iterator<Integer> it = indice.entre(500, 500).iterator();
+        assertEquals(6, it.next().intValue());
+        assertEquals(8, it.next().intValue());
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    @DisplayName("Debe recorrer pedidos por rango de fechas sin copiarlos")
+    public void testRecorrerPedidosPorRangoFechas() {
+        Date fechaEntrega = obtenerFechaFutura(7);
+        Date inicio = new Date(System.currentTimeMillis() - 1000);
+        PedidoProveedor pedido1 = gestor.crearPedido(proveedor1.getId(), fechaEntrega);
+        PedidoProveedor pedido2 = gestor.crearPedido(proveedor2.getId(), fechaEntrega);
+        Date fin = new Date(System.currentTimeMillis() + 1000);
+
+        int vistos = 0;
+        for (PedidoProveedor pedido : gestor.recorrerPedidosPorRangoFechas(inicio, fin)) {
+            assertTrue(pedido == pedido1 || pedido == pedido2);
+            vistos++;
+        }
+        assertEquals(2, vistos);
+        assertEquals(2, gestor.contarPedidosPorRangoFechas(inicio, fin));
+        assertEquals(0, gestor.contarPedidosPorRangoFechas(fin, obtenerFechaFutura(30)));
+
+        Iterator<PedidoProveedor> recorrido = gestor.recorrerPedidosPorRangoFechas(inicio, fin).iterator();
+        recorrido.next();
+        gestor.crearPedido(proveedor1.getId(), fechaEntrega);
+        assertThrows(java.util.ConcurrentModificationException.class, recorrido::next);
+    }
+
+    @Test
+    @DisplayName("Las estadísticas mantenidas deben coincidir con un recálculo completo")
+    public void testEstadisticasIncrementales() {
+        Date fechaEntrega = obtenerFechaFutura(7);
+        for (int i = 0; i < 20; i++) {
+            Proveedor proveedor = i % 2 == 0 ? proveedor1 : proveedor2;
+            PedidoProveedor pedido = gestor.crearPedido(proveedor.getId(), fechaEntrega);
+            gestor.agregarItemAPedido(pedido.getId(), "Producto", i + 1, 1000.0);
+            switch (i % 5) {
+                case 0:
+                    gestor.marcarPedidoComoEntregado(pedido.getId());
+                    break;
+                case 1:
+                    gestor.confirmarPedido(pedido.getId());
+                    break;
+                case 2:
+                    gestor.cancelarPedido(pedido.getId(), "Motivo");
+                    break;
+                case 3:
+                    pedido.setEstado(PedidoProveedor.EstadoPedido.EN_CAMINO);
+                    pedido.setEstado(PedidoProveedor.EstadoPedido.ENTREGADO);
+                    break;
+                default:
+                    break;
+            }
+            assertTrue(gestor.verificarEstadisticas());
+        }
+
+        GestorPedidos.EstadisticasPedidos stats = gestor.obtenerEstadisticas();
+        assertEquals(gestor.recalcularEstadisticas(), stats);
+        assertEquals(20, stats.getTotalPedidos());
+        assertEquals(8, stats.getPedidosPendientes());
+        assertEquals(8, stats.getPedidosCompletados());
+        assertEquals(4, stats.getPedidosCancelados());
+        // Entregados: i = 0, 3, 5, 8, 10, 13, 15, 18 -> cantidades i + 1
+        assertEquals(8000000, stats.getTotalGastadoCentavos());
+    }
+
+    @Test
+    @DisplayName("El constructor en pesos y la fábrica en centavos deben dar lo mismo")
+    public void testEstadisticasEnPesosYCentavos() {
+        GestorPedidos.EstadisticasPedidos enPesos = new GestorPedidos.EstadisticasPedidos(3, 1, 1, 1, 1500);
+        assertEquals(150000, enPesos.getTotalGastadoCentavos());
+        assertEquals(1500.0, enPesos.getTotalGastado(), 0.001);
+        assertEquals(GestorPedidos.EstadisticasPedidos.enCentavos(3, 1, 1, 1, 150000), enPesos);
+    }
+
+    @Test
+    @DisplayName("Debe acumular lo gastado por proveedor en cubetas por día y por mes")
+    public void testGastosPorProveedorPorPeriodo() {
+        Date fechaEntrega = obtenerFechaFutura(7);
+        PedidoProveedor pedido1 = gestor.crearPedido(proveedor1.getId(), fechaEntrega);
+        PedidoProveedor pedido2 = gestor.crearPedido(proveedor1.getId(), fechaEntrega);
+        PedidoProveedor pedido3 = gestor.crearPedido(proveedor2.getId(), fechaEntrega);
+        gestor.agregarItemAPedido(pedido1.getId(), "Arroz", 10, 3000.0);
+        gestor.agregarItemAPedido(pedido2.getId(), "Frijol", 5, 4000.0);
+        gestor.agregarItemAPedido(pedido3.getId(), "Leche", 20, 2500.0);
+
+        gestor.marcarPedidoComoEntregado(pedido1.getId());
+        gestor.marcarPedidoComoEntregado(pedido3.getId());
+
+        LocalDate hoy = LocalDate.now();
+        YearMonth mes = YearMonth.from(hoy);
+        assertEquals(30000.0, gestor.calcularTotalGastadoProveedor(proveedor1.getId()), 0.0);
+        assertEquals(30000.0, gestor.calcularGastoProveedorEnMes(proveedor1.getId(), mes), 0.0);
+        assertEquals(0.0, gestor.calcularGastoProveedorEnMes(proveedor1.getId(), mes.minusMonths(1)), 0.0);
+        assertEquals(50000.0, gestor.calcularGastoProveedorEntre(proveedor2.getId(), hoy.minusDays(1), hoy), 0.0);
+        assertEquals(0.0, gestor.calcularGastoProveedorEntre(proveedor2.getId(), hoy.plusDays(1), hoy.plusDays(9)), 0.0);
+
+        gestor.marcarPedidoComoEntregado(pedido2.getId());
+        Map<Integer, SortedMap<YearMonth, Long>> mensuales = gestor.obtenerGastosMensualesPorProveedor();
+        assertEquals(2, mensuales.size());
+        assertEquals(5000000L, mensuales.get(proveedor1.getId()).get(mes).longValue());
+        assertEquals(5000000L, mensuales.get(proveedor2.getId()).get(mes).longValue());
+    }
+
+    @Test
+    @DisplayName("Las transiciones inválidas desde el gestor deben devolver false")
+    public void testTransicionesInvalidasDesdeGestor() {
+        Date fechaEntrega = obtenerFechaFutura(7);
+        PedidoProveedor pedido = gestor.crearPedido(proveedor1.getId(), fechaEntrega);
+        gestor.agregarItemAPedido(pedido.getId(), "Arroz", 10, 3000.0);
+        List<PedidoProveedor.EstadoPedido> nuevos = new ArrayList<>();
+        gestor.agregarObservadorEstado((p, anterior, nuevo) -> nuevos.add(nuevo));
+
+        assertTrue(gestor.cancelarPedido(pedido.getId(), "Sin stock"));
+        assertFalse(gestor.marcarPedidoComoEntregado(pedido.getId()));
+        assertFalse(gestor.confirmarPedido(pedido.getId()));
+
+        assertEquals(PedidoProveedor.EstadoPedido.CANCELADO, pedido.getEstado());
+        assertEquals(1, nuevos.size());
+        assertEquals(PedidoProveedor.EstadoPedido.CANCELADO, nuevos.get(0));
+        assertTrue(gestor.verificarEstadisticas());
+    }
+
+    @Test
+    @DisplayName("Se debe poder recorrer la vista del historial mientras se crean pedidos")
+    public void testVistaHistorialPedidos() {
+        Date fechaEntrega = obtenerFechaFutura(7);
+        gestor.crearPedido(proveedor1.getId(), fechaEntrega);
+        gestor.crearPedido(proveedor2.getId(), fechaEntrega);
+
+        int recorridos = 0;
+        for (PedidoProveedor pedido : gestor.vistaHistorialPedidos()) {
+            gestor.crearPedido(pedido.getProveedor().getId(), fechaEntrega);
+            recorridos++;
+        }
+
+        assertEquals(2, recorridos);
+        assertEquals(4, gestor.vistaHistorialPedidos().size());
+        List<PedidoProveedor> vista = gestor.vistaHistorialPedidos();
+        gestor.limpiarDatos();
+        assertEquals(4, vista.size());
+        assertEquals(0, gestor.vistaHistorialPedidos().size());
+    }
+
+    @Test
+    @DisplayName("Debe encontrar los proveedores activos de un producto con una sola búsqueda")
+    public void testBuscarProveedoresDeProducto() {
+        Proveedor proveedor3 = gestor.agregarProveedor("Marta Ríos", "Granos del Sur", "3005556677", "marta@test.com");
+        proveedor1.agregarProducto("Arroz");
+        proveedor2.agregarProducto("Leche");
+        proveedor3.agregarProducto(" ARROZ ");
+        proveedor3.agregarProducto("Leche");
+
+        List<Proveedor> deArroz = gestor.buscarProveedoresDeProducto("arroz");
+        assertEquals(2, deArroz.size());
+        assertSame(proveedor1, deArroz.get(0));
+        assertSame(proveedor3, deArroz.get(1));
+
+        proveedor1.setActivo(false);
+        assertEquals(1, gestor.buscarProveedoresDeProducto("Arroz").size());
+        proveedor1.agregarProducto("Azúcar");
+        assertEquals(0, gestor.buscarProveedoresDeProducto("Azúcar").size());
+
+        proveedor1.setActivo(true);
+        assertSame(proveedor1, gestor.buscarProveedoresDeProducto("Arroz").get(0));
+        assertEquals(1, gestor.buscarProveedoresDeProducto("azúcar").size());
+        assertEquals(0, gestor.buscarProveedoresDeProducto("Sal").size());
+        assertEquals(0, gestor.buscarProveedoresDeProducto(null).size());
+    }
+
+    @Test
+    @DisplayName("El plan de reabastecimiento debe cubrir la lista con pocos proveedores")
+    public void testPlanificarReabastecimiento() {
+        proveedor1.agregarProducto("Arroz");
+        proveedor1.agregarProducto("Leche");
+        proveedor2.agregarProducto("Leche");
+        proveedor2.agregarProducto("Huevos");
+        Proveedor proveedor3 = gestor.agregarProveedor("Marta Ríos", "Granos del Sur", "3005556677", "marta@test.com");
+        proveedor3.agregarProducto("arroz");
+
+        Map<String, Integer> lista = listaDeCompra("Arroz", "Leche", "Huevos", "Caviar");
+        lista.put(" LECHE ", 2);
+        CoberturaProveedores.PlanReabastecimiento plan = gestor.planificarReabastecimiento(lista, true);
+
+        assertTrue(plan.isOptimo());
+        assertFalse(plan.estaCompleto());
+        assertEquals(List.of("Caviar"), plan.getProductosSinCobertura());
+        assertEquals(2, plan.getCantidadProveedores());
+        CoberturaProveedores.BorradorPedido primero = plan.getBorradores().get(0);
+        assertSame(proveedor1, primero.getProveedor());
+        assertEquals(3, primero.getProductos().get("Leche").intValue());
+        assertSame(proveedor2, plan.getBorradores().get(1).getProveedor());
+        assertEquals(List.of("Huevos"), new ArrayList<>(plan.getBorradores().get(1).getProductos().keySet()));
+
+        // Un proveedor inactivo deja de contar y el plan se rearma
+        proveedor1.setActivo(false);
+        plan = gestor.planificarReabastecimiento(listaDeCompra("Arroz", "Leche"), false);
+        assertEquals(2, plan.getCantidadProveedores());
+        assertSame(proveedor2, plan.getBorradores().get(0).getProveedor());
+        assertSame(proveedor3, plan.getBorradores().get(1).getProveedor());
+    }
+
+    @Test
+    @DisplayName("La cobertura exacta debe usar menos proveedores que la voraz cuando esta se equivoca")
+    public void testCoberturaExactaMejoraVoraz() {
+        for (String producto : new String[]{"A", "B", "C"}) {
+            proveedor1.agregarProducto(producto);
+        }
+        for (String producto : new String[]{"D", "E", "F"}) {
+            proveedor2.agregarProducto(producto);
+        }
+        Proveedor amplio = gestor.agregarProveedor("Amplio", "Todo Un Poco", "3000000000", "amplio@test.com");
+        for (String producto : new String[]{"A", "B", "D", "E"}) {
+            amplio.agregarProducto(producto);
+        }
+        Map<String, Integer> lista = listaDeCompra("A", "B", "C", "D", "E", "F");
+
+        CoberturaProveedores.PlanReabastecimiento voraz = gestor.planificarReabastecimiento(lista, false);
+        assertEquals(3, voraz.getCantidadProveedores());
+        assertSame(amplio, voraz.getBorradores().get(0).getProveedor());
+        assertFalse(voraz.isOptimo());
+
+        CoberturaProveedores.PlanReabastecimiento exacto = gestor.planificarReabastecimiento(lista, true);
+        assertTrue(exacto.isOptimo());
+        assertEquals(2, exacto.getCantidadProveedores());
+        assertSame(proveedor1, exacto.getBorradores().get(0).getProveedor());
+        assertSame(proveedor2, exacto.getBorradores().get(1).getProveedor());
+    }
+
+    @Test
+    @DisplayName("Debe crear un pedido pendiente a partir de un borrador")
+    public void testCrearPedidoDesdeBorrador() {
+        proveedor1.agregarProducto("Arroz");
+        proveedor1.agregarProducto("Leche");
+        CoberturaProveedores.BorradorPedido borrador =
+                gestor.planificarReabastecimiento(listaDeCompra("Arroz", "Leche"), true).getBorradores().get(0);
+
+        Map<String, Double> precios = new HashMap<>();
+        precios.put("Arroz", 2500.0);
+        assertThrows(IllegalArgumentException.class,
+                () -> gestor.crearPedidoDesdeBorrador(borrador, obtenerFechaFutura(3), precios));
+        assertEquals(0, gestor.cantidadPedidos());
+
+        precios.put("Leche", 3000.0);
+        PedidoProveedor pedido = gestor.crearPedidoDesdeBorrador(borrador, obtenerFechaFutura(3), precios);
+        assertTrue(pedido.estaPendiente());
+        assertEquals(2, pedido.cantidadItems());
+        assertEquals(5500.0, pedido.getTotalPedido(), 0.01);
+    }
+
+    @Test
+    @DisplayName("La tarjeta del proveedor debe acumular puntualidad y precios al entregar")
+    public void testTarjetaProveedor() {
+        PedidoProveedor aTiempo = gestor.crearPedido(proveedor1.getId(), obtenerFechaFutura(3));
+        aTiempo.agregarItem("Arroz", 10, 2000.0);
+        PedidoProveedor atrasado = gestor.crearPedido(proveedor1.getId(), obtenerFechaFutura(-2));
+        atrasado.agregarItem("Arroz", 30, 2400.0);
+        PedidoProveedor deOtro = gestor.crearPedido(proveedor2.getId(), obtenerFechaFutura(3));
+        deOtro.agregarItem("Arroz", 5, 2100.0);
+        gestor.crearPedido(proveedor2.getId(), obtenerFechaFutura(3)).agregarItem("Arroz", 5, 1000.0);
+
+        assertEquals(0, gestor.obtenerTarjetaProveedor(proveedor1.getId()).getEntregasRegistradas());
+        gestor.marcarPedidoComoEntregado(aTiempo.getId());
+        gestor.marcarPedidoComoEntregado(atrasado.getId());
+        gestor.marcarPedidoComoEntregado(deOtro.getId());
+
+        TarjetaProveedor tarjeta = gestor.obtenerTarjetaProveedor(proveedor1.getId());
+        assertEquals(2, tarjeta.getEntregasRegistradas());
+        assertEquals(2, tarjeta.getEntregasConFechaEstimada());
+        assertEquals(1, tarjeta.getEntregasATiempo());
+        assertEquals(0.5, tarjeta.getProporcionATiempo(), 0.0001);
+        assertEquals(40, tarjeta.unidadesEntregadas("Arroz"));
+        assertEquals(2300.0, tarjeta.precioPromedio("Arroz"), 0.01);
+        assertEquals(0, tarjeta.precioPromedioCentavos("Caviar"));
+        assertEquals(0, tarjeta.getDemoraMaximaMinutos());
+
+        // El pedido a 1000 no se entregó, así que no cuenta
+        List<TarjetaProveedor> porPrecio = gestor.compararPreciosProducto("Arroz");
+        assertEquals(2, porPrecio.size());
+        assertEquals(proveedor2.getId(), porPrecio.get(0).getIdProveedor());
+        assertEquals(proveedor1.getId(), porPrecio.get(1).getIdProveedor());
+        assertNull(gestor.obtenerTarjetaProveedor(999));
+    }
+
+    @Test
+    @DisplayName("Los percentiles de demora deben ser aproximados con error acotado")
+    public void testPercentilesDemora() {
+        TarjetaProveedor tarjeta = new TarjetaProveedor(1);
+        assertEquals(0, tarjeta.getMedianaDemoraMinutos());
+        long base = new Date().getTime();
+        // Demoras de 1 a 1000 horas, registradas en desorden
+        for (int i = 0; i < 1000; i++) {
+            long horas = (i * 7L) % 1000 + 1;
+            tarjeta.registrarEntrega(new Date(base), null, new Date(base + horas * 3_600_000L), new ArrayList<>());
+        }
+
+        assertEquals(1000, tarjeta.getEntregasRegistradas());
+        assertEquals(0, tarjeta.getEntregasConFechaEstimada());
+        assertEquals(500 * 60, tarjeta.getMedianaDemoraMinutos(), 500 * 60 / 16.0);
+        assertEquals(900 * 60, tarjeta.percentilDemoraMinutos(90), 900 * 60 / 16.0);
+        assertEquals(1000 * 60, tarjeta.percentilDemoraMinutos(100));
+        assertEquals(500.5 * 60, tarjeta.getDemoraPromedioMinutos(), 0.001);
+        assertThrows(IllegalArgumentException.class, () -> tarjeta.percentilDemoraMinutos(0));
+    }
+
     // ============ MÉTODOS AUXILIARES ============
 
+    private static Map<String, Integer> listaDeCompra(String... productos) {
+        Map<String, Integer> lista = new LinkedHashMap<>();
+        for (String producto : productos) {
+            lista.put(producto, 1);
+        }
+        return lista;
+    }
+
     private Date obtenerFechaFutura(int dias) {
         Calendar cal = Calendar.getInstance();
         cal.add(Calendar.DAY_OF_MONTH, dias);
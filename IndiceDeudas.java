@@ -0,0 +1,249 @@
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Índice de deudores ordenado por saldo de deuda (mayor primero)
+ * Tablero de "mayores deudas" para el dueño de la tienda
+ *
+ * Es un treap con tamaño de subárbol en cada nodo (árbol de estadísticos de
+ * orden): insertar, retirar, posición de un cliente y consultas por rango de
+ * monto cuestan O(log n), más k por cada resultado retornado.
+ *
+ * Todas las operaciones toman el candado del índice (no el del gestor).
+ */
+public class IndiceDeudas {
+    private Nodo raiz;
+    // Saldo en centavos con el que está indexado cada cliente
+    private Map<Integer, Long> saldoIndexado;
+    private Random prioridades;
+
+    public IndiceDeudas() {
+        this.saldoIndexado = new HashMap<>();
+        this.prioridades = new Random(31);
+    }
+
+    /**
+     * Reubica al cliente según su saldo actual; sin deuda sale del índice
+     */
+    public synchronized void actualizar(Cliente cliente) {
+        eliminar(cliente);
+        long saldo = cliente.getSaldoDeudaCentavos();
+        if (saldo > 0) {
+            raiz = insertar(raiz, new Nodo(cliente, saldo, prioridades.nextInt()));
+            saldoIndexado.put(cliente.getId(), saldo);
+        }
+    }
+
+    /**
+     * Retira al cliente del índice
+     */
+    public synchronized void eliminar(Cliente cliente) {
+        Long saldo = saldoIndexado.remove(cliente.getId());
+        if (saldo != null) {
+            raiz = eliminar(raiz, saldo, cliente.getId());
+        }
+    }
+
+    /**
+     * Vacía el índice
+     */
+    public synchronized void limpiar() {
+        raiz = null;
+        saldoIndexado.clear();
+    }
+
+    /**
+     * Cantidad de deudores indexados
+     */
+    public synchronized int cantidad() {
+        return tamano(raiz);
+    }
+
+    /**
+     * Los n clientes con mayor deuda, de mayor a menor
+     */
+    public synchronized List<Cliente> top(int n) {
+        List<Cliente> resultado = new ArrayList<>(Math.min(n, cantidad()));
+        Deque<Nodo> pila = new ArrayDeque<>();
+        Nodo actual = raiz;
+        while ((actual != null || !pila.isEmpty()) && resultado.size() < n) {
+            while (actual != null) {
+                pila.push(actual);
+                actual = actual.izquierdo;
+            }
+            actual = pila.pop();
+            resultado.add(actual.cliente);
+            actual = actual.derecho;
+        }
+        return resultado;
+    }
+
+    /**
+     * Posición del cliente en el tablero (1 = mayor deuda), o 0 si no tiene deuda
+     */
+    public synchronized int posicion(int idCliente) {
+        Long saldo = saldoIndexado.get(idCliente);
+        if (saldo == null) {
+            return 0;
+        }
+        int anteriores = 0;
+        Nodo actual = raiz;
+        while (actual != null) {
+            int cmp = comparar(saldo, idCliente, actual.saldo, actual.cliente.getId());
+            if (cmp == 0) {
+                return anteriores + tamano(actual.izquierdo) + 1;
+            }
+            if (cmp < 0) {
+                actual = actual.izquierdo;
+            } else {
+                anteriores += tamano(actual.izquierdo) + 1;
+                actual = actual.derecho;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Clientes con saldo entre minimo y maximo centavos (inclusive),
+     * de mayor a menor
+     */
+    public synchronized List<Cliente> entre(long minimo, long maximo) {
+        List<Cliente> resultado = new ArrayList<>();
+        // Se desciende hasta el primer nodo con saldo <= maximo, apilando
+        // los ancestros que quedan después en el recorrido en orden
+        Deque<Nodo> pila = new ArrayDeque<>();
+        Nodo actual = raiz;
+        while (actual != null) {
+            if (actual.saldo <= maximo) {
+                pila.push(actual);
+                actual = actual.izquierdo;
+            } else {
+                actual = actual.derecho;
+            }
+        }
+        while (!pila.isEmpty()) {
+            Nodo nodo = pila.pop();
+            if (nodo.saldo < minimo) {
+                break;
+            }
+            resultado.add(nodo.cliente);
+            actual = nodo.derecho;
+            while (actual != null) {
+                pila.push(actual);
+                actual = actual.izquierdo;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Orden del índice: mayor saldo primero; a igual saldo, el más antiguo
+     */
+    private static int comparar(long saldoA, int idA, long saldoB, int idB) {
+        int porSaldo = Long.compare(saldoB, saldoA);
+        return porSaldo != 0 ? porSaldo : Integer.compare(idA, idB);
+    }
+
+    private static int tamano(Nodo nodo) {
+        return nodo == null ? 0 : nodo.tamano;
+    }
+
+    private static Nodo insertar(Nodo nodo, Nodo nuevo) {
+        if (nodo == null) {
+            return nuevo;
+        }
+        if (nuevo.prioridad > nodo.prioridad) {
+            Nodo[] partes = dividir(nodo, nuevo.saldo, nuevo.cliente.getId());
+            nuevo.izquierdo = partes[0];
+            nuevo.derecho = partes[1];
+            nuevo.recalcular();
+            return nuevo;
+        }
+        if (comparar(nuevo.saldo, nuevo.cliente.getId(), nodo.saldo, nodo.cliente.getId()) < 0) {
+            nodo.izquierdo = insertar(nodo.izquierdo, nuevo);
+        } else {
+            nodo.derecho = insertar(nodo.derecho, nuevo);
+        }
+        nodo.recalcular();
+        return nodo;
+    }
+
+    private static Nodo eliminar(Nodo nodo, long saldo, int idCliente) {
+        if (nodo == null) {
+            return null;
+        }
+        int cmp = comparar(saldo, idCliente, nodo.saldo, nodo.cliente.getId());
+        if (cmp == 0) {
+            return unir(nodo.izquierdo, nodo.derecho);
+        }
+        if (cmp < 0) {
+            nodo.izquierdo = eliminar(nodo.izquierdo, saldo, idCliente);
+        } else {
+            nodo.derecho = eliminar(nodo.derecho, saldo, idCliente);
+        }
+        nodo.recalcular();
+        return nodo;
+    }
+
+    /**
+     * Divide en [claves menores, claves mayores o iguales]
+     */
+    private static Nodo[] dividir(Nodo nodo, long saldo, int idCliente) {
+        if (nodo == null) {
+            return new Nodo[] {null, null};
+        }
+        if (comparar(nodo.saldo, nodo.cliente.getId(), saldo, idCliente) < 0) {
+            Nodo[] partes = dividir(nodo.derecho, saldo, idCliente);
+            nodo.derecho = partes[0];
+            nodo.recalcular();
+            return new Nodo[] {nodo, partes[1]};
+        }
+        Nodo[] partes = dividir(nodo.izquierdo, saldo, idCliente);
+        nodo.izquierdo = partes[1];
+        nodo.recalcular();
+        return new Nodo[] {partes[0], nodo};
+    }
+
+    private static Nodo unir(Nodo izquierdo, Nodo derecho) {
+        if (izquierdo == null) {
+            return derecho;
+        }
+        if (derecho == null) {
+            return izquierdo;
+        }
+        if (izquierdo.prioridad > derecho.prioridad) {
+            izquierdo.derecho = unir(izquierdo.derecho, derecho);
+            izquierdo.recalcular();
+            return izquierdo;
+        }
+        derecho.izquierdo = unir(izquierdo, derecho.izquierdo);
+        derecho.recalcular();
+        return derecho;
+    }
+
+    private static class Nodo {
+        private final Cliente cliente;
+        private final long saldo;
+        private final int prioridad;
+        private Nodo izquierdo;
+        private Nodo derecho;
+        private int tamano;
+
+        Nodo(Cliente cliente, long saldo, int prioridad) {
+            this.cliente = cliente;
+            this.saldo = saldo;
+            this.prioridad = prioridad;
+            this.tamano = 1;
+        }
+
+        void recalcular() {
+            tamano = 1 + IndiceDeudas.tamano(izquierdo) + IndiceDeudas.tamano(derecho);
+        }
+    }
+}
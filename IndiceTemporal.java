@@ -0,0 +1,156 @@
+package ERICK-S-CONVENIENCE-STORE;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Índice de elementos ordenados por fecha (epoch millis) para consultas por
+ * rango. Guarda las fechas en un arreglo primitivo ordenado y los elementos
+ * en un arreglo paralelo.
+ *
+ * Los pedidos llegan casi siempre en orden de fecha, así que agregar es un
+ * simple append; si alguno llega con una fecha anterior a la última se
+ * inserta en su lugar desplazando la cola. Una consulta por rango hace dos
+ * búsquedas binarias y recorre solo el tramo encontrado: O(log n + k).
+ *
+ * @param <T> Tipo de los elementos indexados
+ */
+public class IndiceTemporal<T> {
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private long[] fechas;
+    private Object[] elementos;
+    private int cantidad;
+    // Cambia con cada modificación; los recorridos la usan para detectar cambios
+    private int modificaciones;
+
+    public IndiceTemporal() {
+        this.fechas = new long[CAPACIDAD_INICIAL];
+        this.elementos = new Object[CAPACIDAD_INICIAL];
+        this.cantidad = 0;
+    }
+
+    /**
+     * Agrega un elemento con su fecha. Entre elementos con la misma fecha se
+     * conserva el orden de llegada.
+     */
+    public void agregar(long fechaMillis, T elemento) {
+        if (cantidad == fechas.length) {
+            int nuevaCapacidad = cantidad + (cantidad >> 1);
+            fechas = Arrays.copyOf(fechas, nuevaCapacidad);
+            elementos = Arrays.copyOf(elementos, nuevaCapacidad);
+        }
+        int posicion = cantidad;
+        if (cantidad > 0 && fechaMillis < fechas[cantidad - 1]) {
+            posicion = primeraPosicionMayorA(fechaMillis);
+            System.arraycopy(fechas, posicion, fechas, posicion + 1, cantidad - posicion);
+            System.arraycopy(elementos, posicion, elementos, posicion + 1, cantidad - posicion);
+        }
+        fechas[posicion] = fechaMillis;
+        elementos[posicion] = elemento;
+        cantidad++;
+        modificaciones++;
+    }
+
+    /**
+     * Recorre los elementos con fecha entre desde y hasta (ambos inclusive),
+     * en orden de fecha, sin armar una lista intermedia
+     */
+    public Iterable<T> entre(long desdeMillis, long hastaMillis) {
+        return () -> new Recorrido(primeraPosicionMayorOIgualA(desdeMillis), primeraPosicionMayorA(hastaMillis));
+    }
+
+    /**
+     * Aplica la acción a cada elemento con fecha entre desde y hasta (ambos
+     * inclusive), en orden de fecha
+     */
+    @SuppressWarnings("unchecked")
+    public void recorrerEntre(long desdeMillis, long hastaMillis, Consumer<? super T> accion) {
+        int fin = primeraPosicionMayorA(hastaMillis);
+        for (int i = primeraPosicionMayorOIgualA(desdeMillis); i < fin; i++) {
+            accion.accept((T) elementos[i]);
+        }
+    }
+
+    /**
+     * Cuenta los elementos con fecha entre desde y hasta (ambos inclusive)
+     * sin recorrerlos
+     */
+    public int contarEntre(long desdeMillis, long hastaMillis) {
+        return Math.max(0, primeraPosicionMayorA(hastaMillis) - primeraPosicionMayorOIgualA(desdeMillis));
+    }
+
+    public int cantidad() {
+        return cantidad;
+    }
+
+    public void limpiar() {
+        Arrays.fill(elementos, 0, cantidad, null);
+        cantidad = 0;
+        modificaciones++;
+    }
+
+    private int primeraPosicionMayorOIgualA(long fechaMillis) {
+        int desde = 0;
+        int hasta = cantidad;
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (fechas[medio] < fechaMillis) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde;
+    }
+
+    private int primeraPosicionMayorA(long fechaMillis) {
+        int desde = 0;
+        int hasta = cantidad;
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (fechas[medio] <= fechaMillis) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde;
+    }
+
+    /**
+     * Iterador sobre un tramo del índice. Falla si el índice cambia mientras
+     * se recorre, como las colecciones de java.util.
+     */
+    private class Recorrido implements Iterator<T> {
+        private final int fin;
+        private final int modificacionesEsperadas;
+        private int posicion;
+
+        Recorrido(int inicio, int fin) {
+            this.posicion = inicio;
+            this.fin = fin;
+            this.modificacionesEsperadas = modificaciones;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return posicion < fin;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (modificaciones != modificacionesEsperadas) {
+                throw new ConcurrentModificationException();
+            }
+            if (posicion >= fin) {
+                throw new NoSuchElementException();
+            }
+            return (T) elementos[posicion++];
+        }
+    }
+}
\ No newline at end of file
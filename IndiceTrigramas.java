@@ -0,0 +1,160 @@
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice invertido de trigramas sobre los nombres de los clientes
+ * Issue #5: Búsqueda parcial por nombre (contiene)
+ *
+ * Cada nombre se normaliza una sola vez al indexarlo. Una búsqueda parcial
+ * intersecta las listas de los trigramas de la consulta y solo verifica
+ * el "contains" sobre esos candidatos.
+ *
+ * Las estructuras son concurrentes: se puede buscar mientras otra caja
+ * agrega o elimina clientes.
+ */
+public class IndiceTrigramas {
+    private static final int N = 3;
+
+    // ID de cliente -> nombre normalizado, en orden de registro
+    private Map<Integer, String> nombresNormalizados;
+    // Trigrama -> IDs de clientes cuyo nombre lo contiene
+    private Map<String, Set<Integer>> postings;
+
+    public IndiceTrigramas() {
+        this.nombresNormalizados = new ConcurrentSkipListMap<>();
+        this.postings = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Indexa el nombre de un cliente
+     */
+    public void agregar(int idCliente, String nombre) {
+        String normalizado = normalizar(nombre);
+        nombresNormalizados.put(idCliente, normalizado);
+        for (int i = 0; i + N <= normalizado.length(); i++) {
+            // compute es atómico por trigrama: no se pierde el alta si otra
+            // caja está vaciando la misma lista
+            postings.compute(normalizado.substring(i, i + N), (trigrama, ids) -> {
+                Set<Integer> destino = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                destino.add(idCliente);
+                return destino;
+            });
+        }
+    }
+
+    /**
+     * Indexa un lote de clientes. Agrupa los IDs por trigrama antes de
+     * publicarlos, así cada lista se crea con su tamaño y se toca una vez
+     * en lugar de una vez por cliente (al restaurar un snapshot)
+     */
+    public void agregarTodos(Collection<Cliente> lote) {
+        Map<String, List<Integer>> porTrigrama = new HashMap<>();
+        for (Cliente cliente : lote) {
+            String normalizado = normalizar(cliente.getNombre());
+            nombresNormalizados.put(cliente.getId(), normalizado);
+            for (int i = 0; i + N <= normalizado.length(); i++) {
+                porTrigrama.computeIfAbsent(normalizado.substring(i, i + N), t -> new ArrayList<>())
+                        .add(cliente.getId());
+            }
+        }
+        porTrigrama.forEach((trigrama, nuevos) -> postings.compute(trigrama, (clave, ids) -> {
+            Set<Integer> destino = ids;
+            if (destino == null) {
+                destino = ConcurrentHashMap.newKeySet(nuevos.size());
+            }
+            destino.addAll(nuevos);
+            return destino;
+        }));
+    }
+
+    /**
+     * Retira el nombre de un cliente del índice
+     */
+    public void eliminar(int idCliente) {
+        String normalizado = nombresNormalizados.remove(idCliente);
+        if (normalizado == null) {
+            return;
+        }
+        for (int i = 0; i + N <= normalizado.length(); i++) {
+            postings.computeIfPresent(normalizado.substring(i, i + N), (trigrama, ids) -> {
+                ids.remove(idCliente);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Vacía el índice
+     */
+    public void limpiar() {
+        nombresNormalizados.clear();
+        postings.clear();
+    }
+
+    /**
+     * Busca los IDs de clientes cuyo nombre contiene el texto dado,
+     * en orden de registro
+     */
+    public List<Integer> buscar(String nombreParcial) {
+        String consulta = nombreParcial.toLowerCase().trim();
+        List<Integer> resultado = new ArrayList<>();
+
+        // Consultas de menos de tres letras no tienen trigramas: se revisan
+        // los nombres ya normalizados sin crear cadenas nuevas
+        if (consulta.length() < N) {
+            for (Map.Entry<Integer, String> entrada : nombresNormalizados.entrySet()) {
+                if (entrada.getValue().contains(consulta)) {
+                    resultado.add(entrada.getKey());
+                }
+            }
+            return resultado;
+        }
+
+        // Se parte de la lista más corta y se descartan candidatos con las demás
+        List<Set<Integer>> listas = new ArrayList<>();
+        for (int i = 0; i + N <= consulta.length(); i++) {
+            Set<Integer> ids = postings.get(consulta.substring(i, i + N));
+            if (ids == null) {
+                return resultado;
+            }
+            listas.add(ids);
+        }
+        Set<Integer> menor = Collections.min(listas, (a, b) -> Integer.compare(a.size(), b.size()));
+
+        candidatos:
+        for (Integer id : menor) {
+            for (Set<Integer> ids : listas) {
+                if (ids != menor && !ids.contains(id)) {
+                    continue candidatos;
+                }
+            }
+            String nombre = nombresNormalizados.get(id);
+            if (nombre != null && nombre.contains(consulta)) {
+                resultado.add(id);
+            }
+        }
+        // Los IDs se asignan en orden creciente, así que ordenar por ID
+        // conserva el orden de registro
+        Collections.sort(resultado);
+        return resultado;
+    }
+
+    /**
+     * Cantidad de trigramas distintos indexados
+     */
+    public int cantidadTrigramas() {
+        return postings.size();
+    }
+
+    private static String normalizar(String nombre) {
+        return nombre.toLowerCase();
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Lista a la que solo se agregan elementos (o se reemplazan), pensada para
+ * historiales que se leen mucho más de lo que se escriben.
+ *
+ * vista() devuelve una lista de solo lectura sobre el arreglo interno, sin
+ * copiarlo: queda fija en los elementos que había al pedirla. Agregar no la
+ * afecta, porque escribe más allá de su tamaño; reemplazar o limpiar copian
+ * el arreglo primero si hay vistas que lo comparten (copia al escribir).
+ * Así una vista se puede recorrer mientras la lista sigue cambiando, incluso
+ * desde otro hilo.
+ *
+ * @param <T> Tipo de los elementos
+ */
+public class ListaSoloAgregar<T> extends AbstractList<T> implements RandomAccess {
+    private static final int CAPACIDAD_INICIAL = 8;
+
+    private Object[] elementos;
+    private int cantidad;
+    // true si alguna vista apunta al arreglo actual
+    private boolean compartido;
+
+    public ListaSoloAgregar() {
+        this.elementos = new Object[CAPACIDAD_INICIAL];
+        this.cantidad = 0;
+        this.compartido = false;
+    }
+
+    @Override
+    public synchronized boolean add(T elemento) {
+        if (cantidad == elementos.length) {
+            // El arreglo nuevo ya no lo comparte ninguna vista
+            elementos = Arrays.copyOf(elementos, cantidad + (cantidad >> 1));
+            compartido = false;
+        }
+        elementos[cantidad++] = elemento;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public synchronized T set(int indice, T elemento) {
+        T anterior = get(indice);
+        if (compartido) {
+            elementos = Arrays.copyOf(elementos, elementos.length);
+            compartido = false;
+        }
+        elementos[indice] = elemento;
+        return anterior;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized T get(int indice) {
+        if (indice < 0 || indice >= cantidad) {
+            throw new IndexOutOfBoundsException("Índice: " + indice + ", tamaño: " + cantidad);
+        }
+        return (T) elementos[indice];
+    }
+
+    @Override
+    public synchronized int size() {
+        return cantidad;
+    }
+
+    @Override
+    public synchronized void clear() {
+        if (compartido) {
+            elementos = new Object[CAPACIDAD_INICIAL];
+            compartido = false;
+        } else {
+            Arrays.fill(elementos, 0, cantidad, null);
+        }
+        cantidad = 0;
+        modCount++;
+    }
+
+    /**
+     * Vista de solo lectura de los elementos actuales, sin copiarlos
+     */
+    public synchronized Vista<T> vista() {
+        compartido = true;
+        return new Vista<>(elementos, cantidad);
+    }
+
+    /**
+     * Lista inmutable sobre un tramo fijo del arreglo de una ListaSoloAgregar
+     */
+    public static final class Vista<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[] elementos;
+        private final int cantidad;
+
+        private Vista(Object[] elementos, int cantidad) {
+            this.elementos = elementos;
+            this.cantidad = cantidad;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int indice) {
+            if (indice < 0 || indice >= cantidad) {
+                throw new IndexOutOfBoundsException("Índice: " + indice + ", tamaño: " + cantidad);
+            }
+            return (T) elementos[indice];
+        }
+
+        @Override
+        public int size() {
+            return cantidad;
+        }
+    }
+}
\ No newline at end of file
@@ -1,13 +1,23 @@
 package ERICK-S-CONVENIENCE-STORE;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Clase que representa un pedido a un proveedor
  * Issue #28: Gestión de Pedidos a Proveedores
  * Issue #18: Historial de pedidos pasados
+ *
+ * Los cambios (items, datos y estado) toman el candado del pedido y avisan
+ * a los observadores con él tomado, así que cada transición es atómica y
+ * se notifica una sola vez. Quien observe el pedido no debe tomar el
+ * candado de un pedido mientras tiene el suyo.
  */
 public class PedidoProveedor {
     private int id;
@@ -15,17 +25,57 @@ public class PedidoProveedor {
     private Date fechaPedido;
     private Date fechaEntregaEstimada;
     private Date fechaEntregaReal;
-    private List<ItemPedido> items;
-    private double totalPedido;
-    private EstadoPedido estado;
+    private ListaSoloAgregar<ItemPedido> items;
+    // En centavos; se actualiza al agregar cada item
+    private long totalPedidoCentavos;
+    // Modo combinación: un solo renglón por producto
+    private boolean combinarItems;
+    private final Map<String, Integer> posicionPorProducto;
+    // Los cambios se hacen con el candado del pedido; se lee sin esperarlo
+    private volatile EstadoPedido estado;
     private String observaciones;
+    // Copia al escribir: notificar solo recorre el arreglo, sin crear objetos
+    private volatile ObservadorEstado[] observadoresEstado = SIN_OBSERVADORES;
+    // Aparte del candado del pedido, que se toma antes que el del gestor:
+    // el gestor puede suscribirse o desuscribirse con el suyo tomado
+    private final Object candadoObservadores = new Object();
 
+    private static final ObservadorEstado[] SIN_OBSERVADORES = new ObservadorEstado[0];
+
+    /**
+     * Estados de un pedido y las transiciones permitidas entre ellos.
+     * ENTREGADO y CANCELADO son finales.
+     */
     public enum EstadoPedido {
         PENDIENTE,
         CONFIRMADO,
         EN_CAMINO,
         ENTREGADO,
-        CANCELADO
+        CANCELADO;
+
+        private EnumSet<EstadoPedido> siguientes;
+
+        static {
+            PENDIENTE.siguientes = EnumSet.of(CONFIRMADO, EN_CAMINO, ENTREGADO, CANCELADO);
+            CONFIRMADO.siguientes = EnumSet.of(EN_CAMINO, ENTREGADO, CANCELADO);
+            EN_CAMINO.siguientes = EnumSet.of(ENTREGADO, CANCELADO);
+            ENTREGADO.siguientes = EnumSet.noneOf(EstadoPedido.class);
+            CANCELADO.siguientes = EnumSet.noneOf(EstadoPedido.class);
+        }
+
+        /**
+         * Indica si un pedido en este estado puede pasar al estado indicado
+         */
+        public boolean puedeCambiarA(EstadoPedido nuevoEstado) {
+            return siguientes.contains(nuevoEstado);
+        }
+
+        /**
+         * Indica si el estado es final (no admite más transiciones)
+         */
+        public boolean esFinal() {
+            return siguientes.isEmpty();
+        }
     }
 
     public PedidoProveedor(int id, Proveedor proveedor, Date fechaEntregaEstimada) {
@@ -36,57 +86,312 @@ public class PedidoProveedor {
         this.proveedor = proveedor;
         this.fechaPedido = new Date();
         this.fechaEntregaEstimada = fechaEntregaEstimada;
-        this.items = new ArrayList<>();
-        this.totalPedido = 0.0;
+        this.items = new ListaSoloAgregar<>();
+        this.totalPedidoCentavos = 0;
+        this.combinarItems = false;
+        this.posicionPorProducto = new HashMap<>();
         this.estado = EstadoPedido.PENDIENTE;
         this.observaciones = "";
     }
 
     /**
-     * Agrega un item al pedido
+     * Reconstruye un pedido guardado en un snapshot, con sus fechas, su
+     * estado y sus items tal como estaban. No valida la transición ni avisa
+     * a nadie: el pedido todavía no está en ningún gestor (ver
+     * GestorPedidos.restaurarPedido).
+     */
+    public static PedidoProveedor restaurar(int id, Proveedor proveedor, Date fechaPedido, Date fechaEntregaEstimada,
+                                            Date fechaEntregaReal, EstadoPedido estado, String observaciones,
+                                            boolean combinarItems, List<ItemPedido> items) {
+        if (fechaPedido == null || estado == null) {
+            throw new IllegalArgumentException("El pedido restaurado necesita fecha y estado");
+        }
+        PedidoProveedor pedido = new PedidoProveedor(id, proveedor, fechaEntregaEstimada);
+        pedido.fechaPedido = fechaPedido;
+        pedido.fechaEntregaReal = fechaEntregaReal;
+        pedido.combinarItems = combinarItems;
+        for (ItemPedido item : items) {
+            pedido.agregarItemValidado(item);
+        }
+        pedido.estado = estado;
+        pedido.observaciones = observaciones;
+        return pedido;
+    }
+
+    /**
+     * Agrega un item al pedido. En modo combinación, si el producto ya está
+     * en el pedido se suma la cantidad a ese renglón.
+     *
+     * @throws IllegalArgumentException si los datos no son válidos, o si en
+     *         modo combinación el producto ya está con otro precio unitario
+     * @throws IllegalStateException si el pedido ya fue entregado o cancelado
      */
     public void agregarItem(String producto, int cantidad, double precioUnitario) {
-        if (producto == null || producto.trim().isEmpty()) {
+        try {
+            synchronized (this) {
+                validarAbierto();
+                // Antes de crear el item, para no registrar en el catálogo nombres inválidos
+                if (producto == null || producto.trim().isEmpty()) {
+                    throw new IllegalArgumentException("El producto no puede estar vacío");
+                }
+                ItemPedido item = new ItemPedido(producto, cantidad, precioUnitario);
+                validarItem(item);
+                if (combinarItems) {
+                    validarPrecioCombinable(item, precioExistente(claveProducto(item.getProducto())));
+                }
+                agregarItemValidado(item);
+                if (observadoresEstado.length > 0) {
+                    notificarItems(List.of(item));
+                }
+            }
+        } finally {
+            terminarCambio();
+        }
+    }
+
+    /**
+     * Agrega varios items en una sola pasada. Valida el lote completo antes
+     * de agregar nada: si un item no es válido, el pedido queda como estaba.
+     *
+     * @throws IllegalStateException si el pedido ya fue entregado o cancelado
+     */
+    public void agregarItems(List<ItemPedido> nuevosItems) {
+        try {
+            synchronized (this) {
+                validarAbierto();
+                if (nuevosItems == null) {
+                    throw new IllegalArgumentException("La lista de items no puede ser nula");
+                }
+                Map<String, Long> preciosDelLote = combinarItems ? new HashMap<>() : null;
+                long totalDelLote = 0;
+                for (ItemPedido item : nuevosItems) {
+                    if (item == null) {
+                        throw new IllegalArgumentException("El item no puede ser nulo");
+                    }
+                    validarItem(item);
+                    if (combinarItems) {
+                        String clave = claveProducto(item.getProducto());
+                        Long precio = preciosDelLote.get(clave);
+                        validarPrecioCombinable(item, precio != null ? precio : precioExistente(clave));
+                        preciosDelLote.put(clave, item.getPrecioUnitarioCentavos());
+                    }
+                    totalDelLote = Math.addExact(totalDelLote, item.getSubtotalCentavos());
+                }
+                // Antes de agregar nada: la suma real la hace agregarItemValidado
+                if (totalDelLote > Long.MAX_VALUE - totalPedidoCentavos) {
+                    throw new ArithmeticException("El total del pedido excede el máximo representable");
+                }
+
+                for (ItemPedido item : nuevosItems) {
+                    agregarItemValidado(item);
+                }
+                if (!nuevosItems.isEmpty()) {
+                    notificarItems(nuevosItems);
+                }
+            }
+        } finally {
+            terminarCambio();
+        }
+    }
+
+    /**
+     * El gasto de un pedido se contabiliza al entregarlo: un item agregado
+     * después cambiaría el total sin pasar por esa cuenta
+     */
+    private void validarAbierto() {
+        if (estado.esFinal()) {
+            throw new IllegalStateException("No se pueden agregar items a un pedido entregado o cancelado");
+        }
+    }
+
+    private static void validarItem(ItemPedido item) {
+        if (item.getProducto() == null || item.getProducto().trim().isEmpty()) {
             throw new IllegalArgumentException("El producto no puede estar vacío");
         }
-        if (cantidad <= 0) {
+        if (item.getCantidad() <= 0) {
             throw new IllegalArgumentException("La cantidad debe ser mayor a cero");
         }
-        if (precioUnitario <= 0) {
+        if (item.getPrecioUnitarioCentavos() <= 0) {
             throw new IllegalArgumentException("El precio unitario debe ser mayor a cero");
         }
+    }
+
+    private static void validarPrecioCombinable(ItemPedido item, Long precioExistenteCentavos) {
+        if (precioExistenteCentavos != null && precioExistenteCentavos != item.getPrecioUnitarioCentavos()) {
+            throw new IllegalArgumentException("El producto ya está en el pedido con otro precio unitario");
+        }
+    }
 
-        ItemPedido item = new ItemPedido(producto, cantidad, precioUnitario);
+    private Long precioExistente(String clave) {
+        Integer posicion = posicionPorProducto.get(clave);
+        return posicion == null ? null : items.get(posicion).getPrecioUnitarioCentavos();
+    }
+
+    /**
+     * Agrega un item ya validado y suma su subtotal al total, sin recorrer
+     * los demás items
+     */
+    private void agregarItemValidado(ItemPedido item) {
+        long nuevoTotal = Math.addExact(totalPedidoCentavos, item.getSubtotalCentavos());
+        if (combinarItems) {
+            String clave = claveProducto(item.getProducto());
+            Integer posicion = posicionPorProducto.get(clave);
+            if (posicion != null) {
+                items.set(posicion, items.get(posicion).combinarCon(item));
+                totalPedidoCentavos = nuevoTotal;
+                return;
+            }
+            posicionPorProducto.put(clave, items.size());
+        }
         items.add(item);
-        calcularTotal();
+        totalPedidoCentavos = nuevoTotal;
+    }
+
+    private static String claveProducto(String producto) {
+        return producto.trim().toLowerCase(Locale.ROOT);
     }
 
     /**
-     * Calcula el total del pedido
+     * Activa o desactiva el modo combinación, en el que agregar un producto
+     * que ya está en el pedido suma la cantidad a su renglón en lugar de
+     * crear uno nuevo. Solo se puede cambiar mientras el pedido no tiene
+     * items.
      */
-    private void calcularTotal() {
-        totalPedido = items.stream()
-                .mapToDouble(ItemPedido::getSubtotal)
-                .sum();
+    public synchronized void setCombinarItems(boolean combinarItems) {
+        if (!items.isEmpty()) {
+            throw new IllegalStateException("Solo se puede cambiar el modo de combinación en un pedido sin items");
+        }
+        this.combinarItems = combinarItems;
+    }
+
+    public boolean isCombinarItems() {
+        return combinarItems;
     }
 
     /**
      * Marca el pedido como entregado
+     *
+     * @throws IllegalStateException si el pedido fue cancelado
      */
     public void marcarComoEntregado() {
-        this.estado = EstadoPedido.ENTREGADO;
-        this.fechaEntregaReal = new Date();
+        marcarComoEntregado(new Date());
+    }
+
+    /**
+     * Marca el pedido como entregado en la fecha indicada (por ejemplo, al
+     * repetir una entrega registrada en el diario de transacciones)
+     *
+     * @throws IllegalStateException si el pedido fue cancelado
+     */
+    public void marcarComoEntregado(Date fechaEntregaReal) {
+        if (fechaEntregaReal == null) {
+            throw new IllegalArgumentException("La fecha de entrega no puede ser nula");
+        }
+        try {
+            synchronized (this) {
+                if (this.estado == EstadoPedido.ENTREGADO) {
+                    return;
+                }
+                validarTransicion(EstadoPedido.ENTREGADO);
+                this.fechaEntregaReal = fechaEntregaReal;
+                cambiarEstado(EstadoPedido.ENTREGADO);
+            }
+        } finally {
+            terminarCambio();
+        }
     }
 
     /**
      * Cancela el pedido
+     *
+     * @throws IllegalStateException si el pedido ya fue entregado
      */
     public void cancelar(String motivo) {
-        if (this.estado == EstadoPedido.ENTREGADO) {
-            throw new IllegalStateException("No se puede cancelar un pedido ya entregado");
+        try {
+            synchronized (this) {
+                if (this.estado == EstadoPedido.CANCELADO) {
+                    return;
+                }
+                if (this.estado == EstadoPedido.ENTREGADO) {
+                    throw new IllegalStateException("No se puede cancelar un pedido ya entregado");
+                }
+                validarTransicion(EstadoPedido.CANCELADO);
+                this.observaciones = motivo;
+                cambiarEstado(EstadoPedido.CANCELADO);
+            }
+        } finally {
+            terminarCambio();
+        }
+    }
+
+    /**
+     * Registra un observador de los cambios de estado (por ejemplo, el
+     * GestorPedidos que indexa los pedidos por estado). Se notifican en el
+     * orden en que se registraron.
+     */
+    public void agregarObservadorEstado(ObservadorEstado observador) {
+        if (observador == null) {
+            throw new IllegalArgumentException("El observador no puede ser nulo");
+        }
+        synchronized (candadoObservadores) {
+            ObservadorEstado[] actuales = observadoresEstado;
+            ObservadorEstado[] nuevos = Arrays.copyOf(actuales, actuales.length + 1);
+            nuevos[actuales.length] = observador;
+            observadoresEstado = nuevos;
+        }
+    }
+
+    /**
+     * Quita un observador registrado
+     *
+     * @return true si estaba registrado
+     */
+    public boolean quitarObservadorEstado(ObservadorEstado observador) {
+        synchronized (candadoObservadores) {
+            ObservadorEstado[] actuales = observadoresEstado;
+            for (int i = 0; i < actuales.length; i++) {
+                if (actuales[i] == observador) {
+                    ObservadorEstado[] nuevos = new ObservadorEstado[actuales.length - 1];
+                    System.arraycopy(actuales, 0, nuevos, 0, i);
+                    System.arraycopy(actuales, i + 1, nuevos, i, actuales.length - i - 1);
+                    observadoresEstado = nuevos.length == 0 ? SIN_OBSERVADORES : nuevos;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private void validarTransicion(EstadoPedido nuevoEstado) {
+        if (!this.estado.puedeCambiarA(nuevoEstado)) {
+            throw new IllegalStateException("No se puede pasar un pedido de " + this.estado + " a " + nuevoEstado);
+        }
+    }
+
+    private void cambiarEstado(EstadoPedido nuevoEstado) {
+        EstadoPedido estadoAnterior = this.estado;
+        this.estado = nuevoEstado;
+        for (ObservadorEstado observador : observadoresEstado) {
+            observador.estadoCambiado(this, estadoAnterior, nuevoEstado);
+        }
+    }
+
+    private void notificarItems(List<ItemPedido> nuevosItems) {
+        for (ObservadorEstado observador : observadoresEstado) {
+            observador.itemsAgregados(this, nuevosItems);
+        }
+    }
+
+    private void notificarDatos() {
+        for (ObservadorEstado observador : observadoresEstado) {
+            observador.datosCambiados(this);
+        }
+    }
+
+    private void terminarCambio() {
+        for (ObservadorEstado observador : observadoresEstado) {
+            observador.cambioTerminado();
         }
-        this.estado = EstadoPedido.CANCELADO;
-        this.observaciones = motivo;
     }
 
     /**
@@ -121,7 +426,14 @@ public class PedidoProveedor {
     }
 
     public void setFechaEntregaEstimada(Date fechaEntregaEstimada) {
-        this.fechaEntregaEstimada = fechaEntregaEstimada;
+        try {
+            synchronized (this) {
+                this.fechaEntregaEstimada = fechaEntregaEstimada;
+                notificarDatos();
+            }
+        } finally {
+            terminarCambio();
+        }
     }
 
     public Date getFechaEntregaReal() {
@@ -132,16 +444,52 @@ public class PedidoProveedor {
         return new ArrayList<>(items);
     }
 
+    /**
+     * Vista de solo lectura de los items, sin copiarlos. Queda fija en los
+     * items que había al pedirla, aunque después se agreguen o combinen
+     * renglones.
+     */
+    public List<ItemPedido> vistaItems() {
+        return items.vista();
+    }
+
+    public int cantidadItems() {
+        return items.size();
+    }
+
     public double getTotalPedido() {
-        return totalPedido;
+        return Dinero.aPesos(totalPedidoCentavos);
+    }
+
+    public long getTotalPedidoCentavos() {
+        return totalPedidoCentavos;
     }
 
     public EstadoPedido getEstado() {
         return estado;
     }
 
+    /**
+     * Cambia el estado del pedido siguiendo la tabla de transiciones de
+     * EstadoPedido. Pasar al mismo estado no hace nada.
+     *
+     * @throws IllegalStateException si la transición no está permitida
+     */
     public void setEstado(EstadoPedido estado) {
-        this.estado = estado;
+        if (estado == null) {
+            throw new IllegalArgumentException("El estado no puede ser nulo");
+        }
+        try {
+            synchronized (this) {
+                if (estado == this.estado) {
+                    return;
+                }
+                validarTransicion(estado);
+                cambiarEstado(estado);
+            }
+        } finally {
+            terminarCambio();
+        }
     }
 
     public String getObservaciones() {
@@ -149,7 +497,14 @@ public class PedidoProveedor {
     }
 
     public void setObservaciones(String observaciones) {
-        this.observaciones = observaciones;
+        try {
+            synchronized (this) {
+                this.observaciones = observaciones;
+                notificarDatos();
+            }
+        } finally {
+            terminarCambio();
+        }
     }
 
     @Override
@@ -158,30 +513,102 @@ public class PedidoProveedor {
                 "id=" + id +
                 ", proveedor=" + proveedor.getNombre() +
                 ", fechaPedido=" + fechaPedido +
-                ", total=" + totalPedido +
+                ", total=" + getTotalPedido() +
                 ", estado=" + estado +
                 ", items=" + items.size() +
                 '}';
     }
 
+    /**
+     * Recibe los cambios de estado de un pedido y, si le interesan, los
+     * items agregados y los cambios de fecha estimada u observaciones
+     */
+    public interface ObservadorEstado {
+        void estadoCambiado(PedidoProveedor pedido, EstadoPedido estadoAnterior, EstadoPedido estadoNuevo);
+
+        /**
+         * Después de agregar el lote; el total del pedido ya lo incluye
+         */
+        default void itemsAgregados(PedidoProveedor pedido, List<ItemPedido> items) {
+        }
+
+        default void datosCambiados(PedidoProveedor pedido) {
+        }
+
+        /**
+         * Al final del método que cambió el pedido, cuando ya se avisó a
+         * todos y se soltaron los candados (ver DiarioTransacciones)
+         */
+        default void cambioTerminado() {
+        }
+    }
+
     /**
      * Clase interna para representar un item del pedido
      */
     public static class ItemPedido {
-        private String producto;
+        // Id en CatalogoProductos; el nombre se resuelve al mostrarlo
+        private int productoId;
+        // Nombre de un item inválido, que no se registra en el catálogo
+        private String productoSinCatalogo;
         private int cantidad;
-        private double precioUnitario;
-        private double subtotal;
+        private long precioUnitarioCentavos;
+        private long subtotalCentavos;
 
         public ItemPedido(String producto, int cantidad, double precioUnitario) {
-            this.producto = producto;
+            asignar(producto, cantidad, Dinero.aCentavos(precioUnitario));
+        }
+
+        // Para enCentavos: un constructor con long al lado del de double
+        // tomaría en centavos cualquier literal entero
+        private ItemPedido() {
+        }
+
+        private void asignar(String producto, int cantidad, long precioUnitarioCentavos) {
+            this.cantidad = cantidad;
+            this.precioUnitarioCentavos = precioUnitarioCentavos;
+            this.subtotalCentavos = Dinero.multiplicar(precioUnitarioCentavos, cantidad);
+            // El catálogo nunca olvida un nombre: un item que validarItem va
+            // a rechazar guarda su texto aparte
+            if (producto != null && !producto.trim().isEmpty() && cantidad > 0 && precioUnitarioCentavos > 0) {
+                this.productoId = CatalogoProductos.idDe(producto);
+            } else {
+                this.productoId = -1;
+                this.productoSinCatalogo = producto;
+            }
+        }
+
+        private ItemPedido(int productoId, int cantidad, long precioUnitarioCentavos, long subtotalCentavos) {
+            this.productoId = productoId;
             this.cantidad = cantidad;
-            this.precioUnitario = precioUnitario;
-            this.subtotal = cantidad * precioUnitario;
+            this.precioUnitarioCentavos = precioUnitarioCentavos;
+            this.subtotalCentavos = subtotalCentavos;
+        }
+
+        /**
+         * Crea un item con el precio unitario ya expresado en centavos
+         */
+        public static ItemPedido enCentavos(String producto, int cantidad, long precioUnitarioCentavos) {
+            ItemPedido item = new ItemPedido();
+            item.asignar(producto, cantidad, precioUnitarioCentavos);
+            return item;
+        }
+
+        /**
+         * Renglón con la cantidad de este item más la de otro del mismo
+         * producto y precio
+         */
+        ItemPedido combinarCon(ItemPedido otro) {
+            return new ItemPedido(productoId, Math.addExact(cantidad, otro.cantidad), precioUnitarioCentavos,
+                    Math.addExact(subtotalCentavos, otro.subtotalCentavos));
         }
 
         public String getProducto() {
-            return producto;
+            return productoId < 0 ? productoSinCatalogo : CatalogoProductos.nombre(productoId);
+        }
+
+        public int getProductoId() {
+            return productoId;
         }
 
         public int getCantidad() {
@@ -189,20 +616,28 @@ public class PedidoProveedor {
         }
 
         public double getPrecioUnitario() {
-            return precioUnitario;
+            return Dinero.aPesos(precioUnitarioCentavos);
+        }
+
+        public long getPrecioUnitarioCentavos() {
+            return precioUnitarioCentavos;
         }
 
         public double getSubtotal() {
-            return subtotal;
+            return Dinero.aPesos(subtotalCentavos);
+        }
+
+        public long getSubtotalCentavos() {
+            return subtotalCentavos;
         }
 
         @Override
         public String toString() {
             return "ItemPedido{" +
-                    "producto='" + producto + '\'' +
+                    "producto='" + getProducto() + '\'' +
                     ", cantidad=" + cantidad +
-                    ", precioUnitario=" + precioUnitario +
-                    ", subtotal=" + subtotal +
+                    ", precioUnitario=" + getPrecioUnitario() +
+                    ", subtotal=" + getSubtotal() +
                     '}';
         }
     }
@@ -6,6 +6,8 @@ import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Tests para la clase PedidoProveedor
@@ -136,6 +138,25 @@ public class PedidoProveedorTest {
         assertEquals("El precio unitario debe ser mayor a cero", exception.getMessage());
     }
 
+    @Test
+    @DisplayName("No debe agregar items a un pedido entregado o cancelado")
+    public void testNoAgregarItemPedidoFinalizado() {
+        pedido.agregarItem("Arroz", 10, 2500.0);
+        pedido.marcarComoEntregado();
+        Exception exception = assertThrows(IllegalStateException.class, () -> {
+            pedido.agregarItem("Azúcar", 5, 3000.0);
+        });
+        assertEquals("No se pueden agregar items a un pedido entregado o cancelado", exception.getMessage());
+        assertEquals(25000.0, pedido.getTotalPedido(), 0.001);
+
+        PedidoProveedor cancelado = new PedidoProveedor(2, proveedor, pedido.getFechaEntregaEstimada());
+        cancelado.cancelar("Sin stock");
+        assertThrows(IllegalStateException.class, () -> {
+            cancelado.agregarItems(List.of(new PedidoProveedor.ItemPedido("Arroz", 1, 2500.0)));
+        });
+        assertEquals(0, cancelado.cantidadItems());
+    }
+
     // ============ TESTS DE CÁLCULO DE TOTALES ============
 
     @Test
@@ -345,4 +366,156 @@ public class PedidoProveedorTest {
         cal.add(Calendar.DAY_OF_MONTH, dias);
         return cal.getTime();
     }
+
+    // ============ TESTS DE TRANSICIONES DE ESTADO ============
+
+    @Test
+    @DisplayName("No debe permitir volver de un estado final")
+    public void testTransicionesInvalidas() {
+        pedido.marcarComoEntregado();
+
+        Exception exception = assertThrows(IllegalStateException.class, () -> {
+            pedido.setEstado(PedidoProveedor.EstadoPedido.PENDIENTE);
+        });
+        assertEquals("No se puede pasar un pedido de ENTREGADO a PENDIENTE", exception.getMessage());
+        assertEquals(PedidoProveedor.EstadoPedido.ENTREGADO, pedido.getEstado());
+
+        PedidoProveedor cancelado = new PedidoProveedor(2, proveedor, fechaEntrega);
+        cancelado.cancelar("Sin stock");
+        assertThrows(IllegalStateException.class, cancelado::marcarComoEntregado);
+        assertNull(cancelado.getFechaEntregaReal());
+
+        PedidoProveedor enCamino = new PedidoProveedor(3, proveedor, fechaEntrega);
+        enCamino.setEstado(PedidoProveedor.EstadoPedido.EN_CAMINO);
+        assertThrows(IllegalStateException.class, () -> enCamino.setEstado(PedidoProveedor.EstadoPedido.CONFIRMADO));
+        assertThrows(IllegalArgumentException.class, () -> enCamino.setEstado(null));
+    }
+
+    @Test
+    @DisplayName("La tabla de transiciones debe marcar los estados finales")
+    public void testTablaDeTransiciones() {
+        for (PedidoProveedor.EstadoPedido estado : PedidoProveedor.EstadoPedido.values()) {
+            assertFalse(estado.puedeCambiarA(estado));
+            assertFalse(estado.puedeCambiarA(PedidoProveedor.EstadoPedido.PENDIENTE));
+        }
+        assertTrue(PedidoProveedor.EstadoPedido.ENTREGADO.esFinal());
+        assertTrue(PedidoProveedor.EstadoPedido.CANCELADO.esFinal());
+        assertFalse(PedidoProveedor.EstadoPedido.EN_CAMINO.esFinal());
+        assertTrue(PedidoProveedor.EstadoPedido.CONFIRMADO.puedeCambiarA(PedidoProveedor.EstadoPedido.ENTREGADO));
+    }
+
+    @Test
+    @DisplayName("Los observadores deben recibir cada transición con el estado anterior y el nuevo")
+    public void testObservadoresDeEstado() {
+        List<String> eventos = new ArrayList<>();
+        PedidoProveedor.ObservadorEstado primero = (p, anterior, nuevo) -> eventos.add("1:" + anterior + "->" + nuevo);
+        PedidoProveedor.ObservadorEstado segundo = (p, anterior, nuevo) -> eventos.add("2:" + anterior + "->" + nuevo);
+        pedido.agregarObservadorEstado(primero);
+        pedido.agregarObservadorEstado(segundo);
+
+        pedido.setEstado(PedidoProveedor.EstadoPedido.CONFIRMADO);
+        // Pasar al mismo estado no notifica
+        pedido.setEstado(PedidoProveedor.EstadoPedido.CONFIRMADO);
+        assertTrue(pedido.quitarObservadorEstado(primero));
+        assertFalse(pedido.quitarObservadorEstado(primero));
+        pedido.marcarComoEntregado();
+
+        assertEquals(3, eventos.size());
+        assertEquals("1:PENDIENTE->CONFIRMADO", eventos.get(0));
+        assertEquals("2:PENDIENTE->CONFIRMADO", eventos.get(1));
+        assertEquals("2:CONFIRMADO->ENTREGADO", eventos.get(2));
+    }
+
+    // ============ TESTS DE COMBINACIÓN Y LOTES ============
+
+    @Test
+    @DisplayName("En modo combinación el mismo producto debe quedar en un solo renglón")
+    public void testCombinarItemsDelMismoProducto() {
+        pedido.setCombinarItems(true);
+        pedido.agregarItem("Arroz", 10, 3000.0);
+        pedido.agregarItem("Frijol", 5, 4000.0);
+        pedido.agregarItem(" arroz ", 15, 3000.0);
+
+        assertEquals(2, pedido.getItems().size());
+        assertEquals(25, pedido.getItems().get(0).getCantidad());
+        assertEquals(7500000, pedido.getItems().get(0).getSubtotalCentavos());
+        assertEquals(9500000, pedido.getTotalPedidoCentavos());
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            pedido.agregarItem("Arroz", 1, 3100.0);
+        });
+        assertEquals("El producto ya está en el pedido con otro precio unitario", exception.getMessage());
+        assertEquals(9500000, pedido.getTotalPedidoCentavos());
+        assertThrows(IllegalStateException.class, () -> pedido.setCombinarItems(false));
+    }
+
+    @Test
+    @DisplayName("Sin modo combinación se deben conservar renglones repetidos")
+    public void testSinCombinarConservaRenglones() {
+        pedido.agregarItem("Arroz", 10, 3000.0);
+        pedido.agregarItem("Arroz", 5, 3100.0);
+
+        assertFalse(pedido.isCombinarItems());
+        assertEquals(2, pedido.getItems().size());
+        assertEquals(45500.0, pedido.getTotalPedido(), 0.0);
+    }
+
+    @Test
+    @DisplayName("Debe agregar un lote de items en una sola operación")
+    public void testAgregarItemsEnLote() {
+        List<PedidoProveedor.ItemPedido> lote = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            lote.add(new PedidoProveedor.ItemPedido("Producto " + (i % 10), 2, 1000.0));
+        }
+        pedido.setCombinarItems(true);
+        pedido.agregarItems(lote);
+
+        assertEquals(10, pedido.getItems().size());
+        assertEquals(20, pedido.getItems().get(3).getCantidad());
+        assertEquals(200000.0, pedido.getTotalPedido(), 0.0);
+    }
+
+    @Test
+    @DisplayName("Un lote con un item inválido no debe agregar nada")
+    public void testAgregarItemsLoteInvalido() {
+        pedido.agregarItem("Arroz", 1, 1000.0);
+        List<PedidoProveedor.ItemPedido> lote = new ArrayList<>();
+        lote.add(new PedidoProveedor.ItemPedido("Frijol", 2, 500.0));
+        lote.add(new PedidoProveedor.ItemPedido("Azúcar", 0, 500.0));
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            pedido.agregarItems(lote);
+        });
+        assertEquals("La cantidad debe ser mayor a cero", exception.getMessage());
+        assertEquals(1, pedido.getItems().size());
+        assertEquals(1000.0, pedido.getTotalPedido(), 0.0);
+
+        PedidoProveedor combinado = new PedidoProveedor(2, proveedor, fechaEntrega);
+        combinado.setCombinarItems(true);
+        List<PedidoProveedor.ItemPedido> conflicto = new ArrayList<>();
+        conflicto.add(new PedidoProveedor.ItemPedido("Sal", 1, 800.0));
+        conflicto.add(new PedidoProveedor.ItemPedido("sal", 1, 900.0));
+        assertThrows(IllegalArgumentException.class, () -> combinado.agregarItems(conflicto));
+        assertEquals(0, combinado.getItems().size());
+    }
+
+    @Test
+    @DisplayName("La vista de items debe quedar fija aunque el pedido cambie")
+    public void testVistaItemsEsInstantanea() {
+        pedido.setCombinarItems(true);
+        pedido.agregarItem("Arroz", 10, 3000.0);
+        List<PedidoProveedor.ItemPedido> vista = pedido.vistaItems();
+
+        pedido.agregarItem("Arroz", 5, 3000.0);
+        for (int i = 0; i < 20; i++) {
+            pedido.agregarItem("Producto " + i, 1, 100.0);
+        }
+
+        assertEquals(1, vista.size());
+        assertEquals(10, vista.get(0).getCantidad());
+        assertEquals(15, pedido.vistaItems().get(0).getCantidad());
+        assertEquals(21, pedido.cantidadItems());
+        assertThrows(UnsupportedOperationException.class, () -> vista.add(vista.get(0)));
+        assertThrows(UnsupportedOperationException.class, () -> vista.clear());
+    }
 }
\ No newline at end of file
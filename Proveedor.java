@@ -1,6 +1,8 @@
 package ERICK-S-CONVENIENCE-STORE;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -13,8 +15,13 @@ public class Proveedor {
     private String empresa;
     private String telefono;
     private String email;
-    private List<String> productosQueSupministra;
+    // Ids en CatalogoProductos, en orden de alta; el BitSet responde la
+    // pertenencia en O(1) sin guardar un String por producto
+    private int[] productosQueSupministra;
+    private int cantidadProductos;
+    private BitSet productosPorId;
     private boolean activo;
+    private ObservadorProveedor observador;
 
     public Proveedor(int id, String nombre, String empresa, String telefono, String email) {
         this.id = id;
@@ -22,7 +29,9 @@ public class Proveedor {
         this.empresa = empresa;
         this.telefono = telefono;
         this.email = email;
-        this.productosQueSupministra = new ArrayList<>();
+        this.productosQueSupministra = new int[4];
+        this.cantidadProductos = 0;
+        this.productosPorId = new BitSet();
         this.activo = true;
     }
 
@@ -33,16 +42,48 @@ public class Proveedor {
         if (producto == null || producto.trim().isEmpty()) {
             throw new IllegalArgumentException("El producto no puede estar vacío");
         }
-        if (!productosQueSupministra.contains(producto)) {
-            productosQueSupministra.add(producto);
+        int idProducto = CatalogoProductos.idDe(producto);
+        if (productosPorId.get(idProducto)) {
+            return;
         }
+        if (cantidadProductos == productosQueSupministra.length) {
+            productosQueSupministra = Arrays.copyOf(productosQueSupministra, cantidadProductos * 2);
+        }
+        productosQueSupministra[cantidadProductos++] = idProducto;
+        productosPorId.set(idProducto);
+        ObservadorProveedor observador = this.observador;
+        if (observador != null) {
+            try {
+                observador.productoAgregado(this, producto);
+            } finally {
+                observador.cambioTerminado();
+            }
+        }
+    }
+
+    /**
+     * Registra quién debe enterarse de los productos nuevos y de los
+     * cambios de actividad (por ejemplo, el GestorPedidos que indexa los
+     * proveedores por producto)
+     */
+    public void setObservador(ObservadorProveedor observador) {
+        this.observador = observador;
     }
 
     /**
      * Verifica si el proveedor suministra un producto específico
      */
     public boolean suministraProducto(String producto) {
-        return productosQueSupministra.contains(producto);
+        int idProducto = CatalogoProductos.buscarId(producto);
+        return idProducto >= 0 && productosPorId.get(idProducto);
+    }
+
+    /**
+     * Igual que suministraProducto, con el id del producto en
+     * CatalogoProductos
+     */
+    public boolean suministraProductoId(int idProducto) {
+        return idProducto >= 0 && productosPorId.get(idProducto);
     }
 
     // Getters y Setters
@@ -87,7 +128,19 @@ public class Proveedor {
     }
 
     public List<String> getProductosQueSupministra() {
-        return new ArrayList<>(productosQueSupministra);
+        List<String> productos = new ArrayList<>(cantidadProductos);
+        for (int i = 0; i < cantidadProductos; i++) {
+            productos.add(CatalogoProductos.nombre(productosQueSupministra[i]));
+        }
+        return productos;
+    }
+
+    /**
+     * Ids (en CatalogoProductos) de los productos que suministra, en orden
+     * de alta
+     */
+    public int[] getIdsProductos() {
+        return Arrays.copyOf(productosQueSupministra, cantidadProductos);
     }
 
     public boolean isActivo() {
@@ -95,7 +148,16 @@ public class Proveedor {
     }
 
     public void setActivo(boolean activo) {
+        boolean anterior = this.activo;
         this.activo = activo;
+        ObservadorProveedor observador = this.observador;
+        if (observador != null && anterior != activo) {
+            try {
+                observador.actividadCambiada(this, activo);
+            } finally {
+                observador.cambioTerminado();
+            }
+        }
     }
 
     @Override
@@ -106,7 +168,23 @@ public class Proveedor {
                 ", empresa='" + empresa + '\'' +
                 ", telefono='" + telefono + '\'' +
                 ", activo=" + activo +
-                ", productos=" + productosQueSupministra.size() +
+                ", productos=" + cantidadProductos +
                 '}';
     }
+
+    /**
+     * Recibe los cambios de un proveedor que afectan a los índices
+     */
+    public interface ObservadorProveedor {
+        void productoAgregado(Proveedor proveedor, String producto);
+
+        void actividadCambiada(Proveedor proveedor, boolean activo);
+
+        /**
+         * Después de cada aviso, cuando quien lo recibió ya soltó sus
+         * candados (ver DiarioTransacciones)
+         */
+        default void cambioTerminado() {
+        }
+    }
 }
\ No newline at end of file
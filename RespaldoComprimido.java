@@ -0,0 +1,277 @@
+package ERICK-S-CONVENIENCE-STORE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Escribe los listados de clientes y pedidos de un respaldo completo en
+ * gzip, repartiendo el trabajo entre varios hilos.
+ *
+ * Cada listado se corta en bloques de renglones. Cada bloque se arma y se
+ * comprime por su cuenta como un miembro gzip completo (cabecera, datos y
+ * CRC), y los miembros se escriben en orden. gzip, zcat y GZIPInputStream
+ * leen un archivo de varios miembros como si fuera uno solo, así que el
+ * resultado descomprime al mismo texto que guardarClientes() y
+ * guardarPedidos(). Los bloques de las dos secciones se comprimen a la par,
+ * de modo que el tiempo baja con la cantidad de núcleos.
+ *
+ * Cada hilo comprime con Deflater desde y hacia buffers directos de 1 MB,
+ * que reutiliza de un bloque al otro.
+ */
+public class RespaldoComprimido implements AutoCloseable {
+    public static final String EXTENSION = ".txt.gz";
+
+    static final int CLIENTES_POR_BLOQUE = 4096;
+    static final int PEDIDOS_POR_BLOQUE = 1024;
+    private static final int TAMANO_BUFFER = 1 << 20;
+    // Cabecera gzip fija: deflate, sin nombre ni fecha, sistema desconocido
+    private static final byte[] CABECERA_GZIP = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final ExecutorService hilos;
+    // Un compresor por hilo; se toma al empezar un bloque y se devuelve al terminar
+    private final BlockingQueue<Compresor> compresores;
+
+    public RespaldoComprimido() {
+        this(Runtime.getRuntime().availableProcessors(), Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param cantidadHilos Hilos que arman y comprimen bloques
+     * @param nivel         Nivel de Deflater (1 = más rápido, 9 = más chico)
+     */
+    public RespaldoComprimido(int cantidadHilos, int nivel) {
+        if (cantidadHilos < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un hilo");
+        }
+        this.hilos = Executors.newFixedThreadPool(cantidadHilos, tarea -> {
+            Thread hilo = new Thread(tarea, "RespaldoComprimido");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.compresores = new ArrayBlockingQueue<>(cantidadHilos);
+        for (int i = 0; i < cantidadHilos; i++) {
+            compresores.add(new Compresor(nivel));
+        }
+    }
+
+    /**
+     * Escribe los listados de clientes y de pedidos en los archivos
+     * indicados (se sobrescriben)
+     *
+     * @return Bytes de texto y bytes comprimidos de ambos archivos
+     */
+    public Resultado guardar(Path archivoClientes, Path archivoPedidos, GestorClientes gestorClientes,
+                             GestorPedidos gestorPedidos) throws IOException {
+        List<Cliente> clientes = new ArrayList<>(gestorClientes.vistaClientes());
+        List<PedidoProveedor> pedidos = gestorPedidos.vistaHistorialPedidos();
+        // Todo se encola antes de escribir: los pedidos se comprimen
+        // mientras se escribe el archivo de clientes
+        List<Future<Bloque>> bloquesClientes = enviar(clientes, CLIENTES_POR_BLOQUE,
+                texto -> SistemaRespaldo.encabezadoClientes(texto, clientes.size()), SistemaRespaldo::textoCliente);
+        List<Future<Bloque>> bloquesPedidos = enviar(pedidos, PEDIDOS_POR_BLOQUE,
+                texto -> SistemaRespaldo.encabezadoPedidos(texto, pedidos.size()), SistemaRespaldo::textoPedido);
+        Resultado resultado = new Resultado();
+        try {
+            escribir(archivoClientes, bloquesClientes, resultado);
+            escribir(archivoPedidos, bloquesPedidos, resultado);
+        } finally {
+            for (Future<Bloque> bloque : bloquesClientes) {
+                bloque.cancel(false);
+            }
+            for (Future<Bloque> bloque : bloquesPedidos) {
+                bloque.cancel(false);
+            }
+        }
+        return resultado;
+    }
+
+    private <T> List<Future<Bloque>> enviar(List<T> elementos, int porBloque,
+                                            Consumer<StringBuilder> encabezado,
+                                            BiConsumer<StringBuilder, T> formato) {
+        List<Future<Bloque>> bloques = new ArrayList<>();
+        int desde = 0;
+        do {
+            int inicio = desde;
+            int fin = Math.min(elementos.size(), desde + porBloque);
+            bloques.add(hilos.submit(() -> {
+                StringBuilder texto = new StringBuilder((fin - inicio) * 160 + 256);
+                if (inicio == 0) {
+                    encabezado.accept(texto);
+                }
+                for (int i = inicio; i < fin; i++) {
+                    formato.accept(texto, elementos.get(i));
+                }
+                Compresor compresor = compresores.take();
+                try {
+                    return compresor.comprimir(texto);
+                } finally {
+                    compresores.add(compresor);
+                }
+            }));
+            desde = fin;
+        } while (desde < elementos.size());
+        return bloques;
+    }
+
+    private static void escribir(Path archivo, List<Future<Bloque>> bloques, Resultado resultado)
+            throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Future<Bloque> pendiente : bloques) {
+                Bloque bloque = esperar(pendiente);
+                ByteBuffer datos = ByteBuffer.wrap(bloque.comprimido);
+                while (datos.hasRemaining()) {
+                    canal.write(datos);
+                }
+                resultado.bytesTexto += bloque.bytesTexto;
+                resultado.bytesComprimidos += bloque.comprimido.length;
+            }
+        }
+    }
+
+    private static Bloque esperar(Future<Bloque> bloque) throws IOException {
+        try {
+            return bloque.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Se interrumpió el respaldo comprimido");
+        } catch (ExecutionException e) {
+            throw new IOException("Error al comprimir el respaldo: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        hilos.shutdownNow();
+        try {
+            // Un Deflater no se puede liberar mientras un bloque lo usa
+            if (!hilos.awaitTermination(1, TimeUnit.MINUTES)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (Compresor compresor : compresores) {
+            compresor.deflater.end();
+        }
+    }
+
+    /**
+     * Un bloque ya comprimido como miembro gzip
+     */
+    private static final class Bloque {
+        final byte[] comprimido;
+        final long bytesTexto;
+
+        Bloque(byte[] comprimido, long bytesTexto) {
+            this.comprimido = comprimido;
+            this.bytesTexto = bytesTexto;
+        }
+    }
+
+    /**
+     * Deflater y buffers directos de un hilo
+     */
+    private static final class Compresor {
+        final ByteBuffer entrada = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        final ByteBuffer salida = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        final Deflater deflater;
+        final CRC32 crc = new CRC32();
+        final byte[] copia = new byte[TAMANO_BUFFER];
+
+        Compresor(int nivel) {
+            // Sin envoltorio zlib: la cabecera y el CRC los pone gzip
+            deflater = new Deflater(nivel, true);
+        }
+
+        Bloque comprimir(CharSequence texto) {
+            deflater.reset();
+            crc.reset();
+            ByteArrayOutputStream comprimido = new ByteArrayOutputStream(texto.length() / 4 + 64);
+            comprimido.write(CABECERA_GZIP, 0, CABECERA_GZIP.length);
+
+            // getBytes es intrínseco y mucho más rápido que un CharsetEncoder
+            // hacia un buffer directo; de ahí se copia por tramos
+            byte[] utf8 = texto.toString().getBytes(StandardCharsets.UTF_8);
+            crc.update(utf8, 0, utf8.length);
+            for (int desde = 0; desde < utf8.length; desde += TAMANO_BUFFER) {
+                entrada.clear();
+                entrada.put(utf8, desde, Math.min(TAMANO_BUFFER, utf8.length - desde));
+                entrada.flip();
+                deflater.setInput(entrada);
+                while (!deflater.needsInput()) {
+                    vaciar(comprimido);
+                }
+            }
+            long bytesTexto = utf8.length;
+            deflater.finish();
+            while (!deflater.finished()) {
+                vaciar(comprimido);
+            }
+
+            enteroLittleEndian(comprimido, (int) crc.getValue());
+            enteroLittleEndian(comprimido, (int) bytesTexto);
+            return new Bloque(comprimido.toByteArray(), bytesTexto);
+        }
+
+        private void vaciar(ByteArrayOutputStream destino) {
+            salida.clear();
+            deflater.deflate(salida);
+            salida.flip();
+            int cantidad = salida.remaining();
+            salida.get(copia, 0, cantidad);
+            destino.write(copia, 0, cantidad);
+        }
+
+        private static void enteroLittleEndian(ByteArrayOutputStream destino, int valor) {
+            destino.write(valor);
+            destino.write(valor >>> 8);
+            destino.write(valor >>> 16);
+            destino.write(valor >>> 24);
+        }
+    }
+
+    /**
+     * Cuánto texto se generó y cuánto ocupó comprimido
+     */
+    public static class Resultado {
+        private long bytesTexto;
+        private long bytesComprimidos;
+
+        public long getBytesTexto() {
+            return bytesTexto;
+        }
+
+        public long getBytesComprimidos() {
+            return bytesComprimidos;
+        }
+
+        @Override
+        public String toString() {
+            return "Resultado{" +
+                    "bytesTexto=" + bytesTexto +
+                    ", bytesComprimidos=" + bytesComprimidos +
+                    '}';
+        }
+    }
+}
\ No newline at end of file
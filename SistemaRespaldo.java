@@ -1,10 +1,29 @@
 package ERICK-S-CONVENIENCE-STORE;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 
 /**
  * Sistema de respaldo y guardado automático
@@ -16,12 +35,51 @@ public class SistemaRespaldo {
     private Timer temporizadorAutoguardado;
     private boolean autoguardadoActivo;
     private long intervaloAutoguardado; // en milisegundos
+    // Diario de transacciones activo y los gestores que lo alimentan
+    private DiarioTransacciones diario;
+    private GestorClientes clientesConDiario;
+    private GestorPedidos pedidosConDiario;
+    // Último LSN cargado por recuperar(); el diario sigue desde ahí
+    private long lsnRecuperado;
+    // Respaldo incremental: qué cambió desde el último snapshot o delta
+    private CambiosPendientes cambios;
+    private GestorClientes clientesIncrementales;
+    private GestorPedidos pedidosIncrementales;
+    private boolean incrementalPorAutoguardado;
+    private int deltasSinCompactar;
+    // Fecha del último snapshot o delta escrito; nunca se repite
+    private long ultimoSello;
+    // Se toma mientras se escriben o borran snapshots y deltas, para que
+    // salgan en el orden de sus sellos; las capturas no lo esperan
+    private final Object candadoArchivos = new Object();
+    // Se toma para sacar un sello y encolar su escritura, así el hilo de
+    // respaldos recibe las capturas en el orden de sus sellos
+    private final Object candadoCapturas = new Object();
+    // Si ya hay un snapshot en el directorio (el más reciente nunca se
+    // borra), para no listarlo en cada captura
+    private volatile boolean haySnapshot;
+    // Escribe los respaldos asíncronos de a uno (se crea al primer uso)
+    private ExecutorService ejecutorRespaldos;
+    private final AtomicInteger respaldosAsyncPendientes = new AtomicInteger();
+    private final AtomicLong respaldosAsyncCompletados = new AtomicLong();
+    private final AtomicLong respaldosAsyncFallidos = new AtomicLong();
+    private final AtomicLong bytesRespaldosAsync = new AtomicLong();
+    private volatile long milisegundosUltimoRespaldoAsync;
+    private volatile String ultimoErrorRespaldoAsync;
+    // Se crea con el primer respaldo comprimido y vive hasta cerrar()
+    private RespaldoComprimido respaldoComprimido;
+
+    public static final String ARCHIVO_GASTOS_PROVEEDORES = "gastos_proveedores.csv";
+    public static final String ARCHIVO_DIARIO = "diario" + DiarioTransacciones.EXTENSION;
+    public static final long VENTANA_DIARIO_POR_DEFECTO_MS = 2;
+    public static final int DELTAS_POR_COMPACTACION = 20;
 
     public SistemaRespaldo() {
         this.directorioRespaldos = "respaldos/";
         this.autoguardadoActivo = false;
         this.intervaloAutoguardado = 300000; // 5 minutos por defecto
         crearDirectorioRespaldos();
+        this.haySnapshot = listarSnapshots().length > 0;
     }
 
     public SistemaRespaldo(String directorioRespaldos) {
@@ -32,6 +90,7 @@ public class SistemaRespaldo {
         this.autoguardadoActivo = false;
         this.intervaloAutoguardado = 300000;
         crearDirectorioRespaldos();
+        this.haySnapshot = listarSnapshots().length > 0;
     }
 
     /**
@@ -55,23 +114,16 @@ public class SistemaRespaldo {
         }
 
         String nombreArchivo = generarNombreArchivo("clientes");
-        try (PrintWriter writer = new PrintWriter(new FileWriter(directorioRespaldos + nombreArchivo))) {
-            writer.println("=== RESPALDO DE CLIENTES ===");
-            writer.println("Fecha: " + new Date());
-            writer.println("Total clientes: " + gestorClientes.cantidadClientes());
-            writer.println("================================");
-            writer.println();
-
-            for (Cliente cliente : gestorClientes.obtenerTodosLosClientes()) {
-                writer.println("ID: " + cliente.getId());
-                writer.println("Nombre: " + cliente.getNombre());
-                writer.println("Cedula: " + cliente.getCedula());
-                writer.println("Telefono: " + cliente.getTelefono());
-                writer.println("Saldo Deuda: " + cliente.getSaldoDeuda());
-                writer.println("Tiene Deuda: " + cliente.tieneDeuda());
-                writer.println("Fecha Registro: " + cliente.getFechaRegistro());
-                writer.println("---");
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(directorioRespaldos + nombreArchivo), "UTF-8"))) {
+            StringBuilder texto = new StringBuilder();
+            encabezadoClientes(texto, gestorClientes.cantidadClientes());
+            for (Cliente cliente : gestorClientes.vistaClientes()) {
+                textoCliente(texto, cliente);
+                writer.print(texto);
+                texto.setLength(0);
             }
+            writer.print(texto);
 
             return true;
         } catch (IOException e) {
@@ -89,32 +141,66 @@ public class SistemaRespaldo {
         }
 
         String nombreArchivo = generarNombreArchivo("pedidos");
-        try (PrintWriter writer = new PrintWriter(new FileWriter(directorioRespaldos + nombreArchivo))) {
-            writer.println("=== RESPALDO DE PEDIDOS ===");
-            writer.println("Fecha: " + new Date());
-            writer.println("Total pedidos: " + gestorPedidos.cantidadPedidos());
-            writer.println("================================");
-            writer.println();
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(directorioRespaldos + nombreArchivo), "UTF-8"))) {
+            StringBuilder texto = new StringBuilder();
+            List<PedidoProveedor> pedidos = gestorPedidos.vistaHistorialPedidos();
+            encabezadoPedidos(texto, pedidos.size());
+            for (PedidoProveedor pedido : pedidos) {
+                textoPedido(texto, pedido);
+                writer.print(texto);
+                texto.setLength(0);
+            }
+            writer.print(texto);
 
-            for (PedidoProveedor pedido : gestorPedidos.obtenerHistorialPedidos()) {
-                writer.println("ID Pedido: " + pedido.getId());
-                writer.println("Proveedor: " + pedido.getProveedor().getNombre());
-                writer.println("Empresa: " + pedido.getProveedor().getEmpresa());
-                writer.println("Fecha Pedido: " + pedido.getFechaPedido());
-                writer.println("Fecha Entrega Estimada: " + pedido.getFechaEntregaEstimada());
-                writer.println("Estado: " + pedido.getEstado());
-                writer.println("Total: $" + pedido.getTotalPedido());
-                writer.println("Cantidad Items: " + pedido.getItems().size());
-                
-                writer.println("Items:");
-                for (PedidoProveedor.ItemPedido item : pedido.getItems()) {
-                    writer.println("  - " + item.getProducto() + 
-                                 " | Cant: " + item.getCantidad() + 
-                                 " | Precio: $" + item.getPrecioUnitario() + 
-                                 " | Subtotal: $" + item.getSubtotal());
-                }
-                writer.println("---");
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error al guardar pedidos: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Como guardarClientes, desde una captura
+     */
+    private boolean guardarClientes(SnapshotBinario.Captura captura) {
+        String nombreArchivo = generarNombreArchivo("clientes");
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(directorioRespaldos + nombreArchivo), "UTF-8"))) {
+            StringBuilder texto = new StringBuilder();
+            encabezadoClientes(texto, captura.cantidadClientes());
+            for (SnapshotBinario.ClienteCapturado cliente : captura.getClientes()) {
+                textoCliente(texto, cliente.id, cliente.nombre, cliente.cedula, cliente.telefono,
+                        cliente.saldoCentavos, SnapshotBinario.fechaDe(cliente.fechaRegistro));
+                writer.print(texto);
+                texto.setLength(0);
+            }
+            writer.print(texto);
+
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error al guardar clientes: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Como guardarPedidos, desde una captura
+     */
+    private boolean guardarPedidos(SnapshotBinario.Captura captura) {
+        String nombreArchivo = generarNombreArchivo("pedidos");
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(directorioRespaldos + nombreArchivo), "UTF-8"))) {
+            StringBuilder texto = new StringBuilder();
+            encabezadoPedidos(texto, captura.cantidadPedidos());
+            for (SnapshotBinario.PedidoCapturado pedido : captura.getPedidos()) {
+                textoPedido(texto, pedido.id, pedido.proveedorNombre, pedido.proveedorEmpresa,
+                        SnapshotBinario.fechaDe(pedido.fechaPedido), SnapshotBinario.fechaDe(pedido.fechaEntregaEstimada),
+                        pedido.estado, pedido.totalCentavos, pedido.items);
+                writer.print(texto);
+                texto.setLength(0);
             }
+            writer.print(texto);
 
             return true;
         } catch (IOException e) {
@@ -123,39 +209,232 @@ public class SistemaRespaldo {
         }
     }
 
+    // Formato de los listados de texto, compartido con RespaldoComprimido
+
+    static void encabezadoClientes(StringBuilder texto, int cantidad) {
+        renglon(texto, "=== RESPALDO DE CLIENTES ===");
+        renglon(texto, "Fecha: " + new Date());
+        renglon(texto, "Total clientes: " + cantidad);
+        renglon(texto, "================================");
+        renglon(texto, "");
+    }
+
+    static void textoCliente(StringBuilder texto, Cliente cliente) {
+        textoCliente(texto, cliente.getId(), cliente.getNombre(), cliente.getCedula(), cliente.getTelefono(),
+                cliente.getSaldoDeudaCentavos(), cliente.getFechaRegistro());
+    }
+
+    private static void textoCliente(StringBuilder texto, int id, String nombre, String cedula, String telefono,
+                                     long saldoCentavos, Date fechaRegistro) {
+        renglon(texto.append("ID: ").append(id));
+        renglon(texto.append("Nombre: ").append(nombre));
+        renglon(texto.append("Cedula: ").append(cedula));
+        renglon(texto.append("Telefono: ").append(telefono));
+        renglon(texto.append("Saldo Deuda: ").append(Dinero.aPesos(saldoCentavos)));
+        renglon(texto.append("Tiene Deuda: ").append(saldoCentavos > 0));
+        renglon(texto.append("Fecha Registro: ").append(fechaRegistro));
+        renglon(texto, "---");
+    }
+
+    static void encabezadoPedidos(StringBuilder texto, int cantidad) {
+        renglon(texto, "=== RESPALDO DE PEDIDOS ===");
+        renglon(texto, "Fecha: " + new Date());
+        renglon(texto, "Total pedidos: " + cantidad);
+        renglon(texto, "================================");
+        renglon(texto, "");
+    }
+
+    static void textoPedido(StringBuilder texto, PedidoProveedor pedido) {
+        List<PedidoProveedor.ItemPedido> items = pedido.vistaItems();
+        textoPedido(texto, pedido.getId(), pedido.getProveedor().getNombre(), pedido.getProveedor().getEmpresa(),
+                pedido.getFechaPedido(), pedido.getFechaEntregaEstimada(), pedido.getEstado(),
+                pedido.getTotalPedidoCentavos(), items);
+    }
+
+    private static void textoPedido(StringBuilder texto, int id, String proveedor, String empresa, Date fechaPedido,
+                                    Date fechaEntregaEstimada, PedidoProveedor.EstadoPedido estado,
+                                    long totalCentavos, List<PedidoProveedor.ItemPedido> items) {
+        renglon(texto.append("ID Pedido: ").append(id));
+        renglon(texto.append("Proveedor: ").append(proveedor));
+        renglon(texto.append("Empresa: ").append(empresa));
+        renglon(texto.append("Fecha Pedido: ").append(fechaPedido));
+        renglon(texto.append("Fecha Entrega Estimada: ").append(fechaEntregaEstimada));
+        renglon(texto.append("Estado: ").append(estado));
+        renglon(texto.append("Total: $").append(Dinero.aPesos(totalCentavos)));
+        renglon(texto.append("Cantidad Items: ").append(items.size()));
+        renglon(texto, "Items:");
+        for (PedidoProveedor.ItemPedido item : items) {
+            renglon(texto.append("  - ").append(item.getProducto())
+                    .append(" | Cant: ").append(item.getCantidad())
+                    .append(" | Precio: $").append(item.getPrecioUnitario())
+                    .append(" | Subtotal: $").append(item.getSubtotal()));
+        }
+        renglon(texto, "---");
+    }
+
+    private static void renglon(StringBuilder texto, String linea) {
+        renglon(texto.append(linea));
+    }
+
+    // Como println: el mismo fin de línea que los .txt de siempre
+    private static void renglon(StringBuilder texto) {
+        texto.append(System.lineSeparator());
+    }
+
     /**
      * Guarda todos los datos del sistema (respaldo completo)
      */
     public boolean guardarRespaldoCompleto(GestorClientes gestorClientes, GestorPedidos gestorPedidos) {
         boolean clientesOk = guardarClientes(gestorClientes);
         boolean pedidosOk = guardarPedidos(gestorPedidos);
-        
-        if (clientesOk && pedidosOk) {
+        boolean snapshotOk = clientesOk && pedidosOk && guardarSnapshot(gestorClientes, gestorPedidos);
+
+        if (snapshotOk) {
             guardarResumenRespaldo(gestorClientes, gestorPedidos);
+            exportarGastosMensualesProveedores(gestorPedidos);
             return true;
         }
         return false;
     }
 
+    /**
+     * Como guardarRespaldoCompleto, pero los listados de clientes y pedidos
+     * salen en gzip (.txt.gz), armados y comprimidos en paralelo por
+     * RespaldoComprimido.
+     *
+     * Los hilos y buffers del compresor se crean la primera vez y se
+     * reutilizan hasta cerrar(). Con un solo núcleo tarda más que el
+     * listado plano (ver BenchmarkRespaldo), por eso el autoguardado no lo
+     * usa.
+     */
+    public boolean guardarRespaldoCompletoComprimido(GestorClientes gestorClientes, GestorPedidos gestorPedidos) {
+        if (gestorClientes == null || gestorPedidos == null) {
+            return false;
+        }
+
+        try {
+            RespaldoComprimido respaldo = respaldoComprimido();
+            Path clientes = Paths.get(directorioRespaldos
+                    + generarNombreArchivo("clientes", RespaldoComprimido.EXTENSION));
+            Path pedidos = Paths.get(directorioRespaldos
+                    + generarNombreArchivo("pedidos", RespaldoComprimido.EXTENSION));
+            respaldo.guardar(clientes, pedidos, gestorClientes, gestorPedidos);
+        } catch (IOException e) {
+            System.err.println("Error al guardar respaldo comprimido: " + e.getMessage());
+            return false;
+        }
+        if (!guardarSnapshot(gestorClientes, gestorPedidos)) {
+            return false;
+        }
+        guardarResumenRespaldo(gestorClientes, gestorPedidos);
+        exportarGastosMensualesProveedores(gestorPedidos);
+        return true;
+    }
+
+    private synchronized RespaldoComprimido respaldoComprimido() {
+        if (respaldoComprimido == null) {
+            respaldoComprimido = new RespaldoComprimido();
+        }
+        return respaldoComprimido;
+    }
+
+    /**
+     * Detiene el autoguardado, espera los respaldos asíncronos que falten
+     * escribir y libera sus hilos y los del respaldo comprimido. El sistema
+     * se puede seguir usando: el próximo respaldo los vuelve a crear.
+     */
+    public void cerrar() {
+        detenerAutoguardado();
+        ExecutorService ejecutor;
+        RespaldoComprimido comprimido;
+        // Se suelta el candado antes de esperar: las escrituras pendientes
+        // también piden sellos
+        synchronized (this) {
+            ejecutor = ejecutorRespaldos;
+            ejecutorRespaldos = null;
+            comprimido = respaldoComprimido;
+            respaldoComprimido = null;
+        }
+        if (ejecutor != null) {
+            ejecutor.shutdown();
+            try {
+                if (!ejecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    System.err.println("Quedaron respaldos asíncronos sin escribir");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (comprimido != null) {
+            comprimido.close();
+        }
+    }
+
     /**
      * Guarda un resumen del respaldo
      */
     private void guardarResumenRespaldo(GestorClientes gestorClientes, GestorPedidos gestorPedidos) {
+        guardarResumenRespaldo(gestorClientes.cantidadClientes(), gestorClientes.cantidadClientesConDeuda(),
+                gestorClientes.calcularTotalDeudasCentavos(), gestorPedidos.obtenerEstadisticas(),
+                gestorPedidos.cantidadProveedores());
+    }
+
+    /**
+     * Como guardarResumenRespaldo, con los totales de una captura
+     */
+    private void guardarResumenRespaldo(SnapshotBinario.Captura captura) {
+        int conDeuda = 0;
+        long deudas = 0;
+        for (SnapshotBinario.ClienteCapturado cliente : captura.getClientes()) {
+            deudas += cliente.saldoCentavos;
+            if (cliente.saldoCentavos > 0) {
+                conDeuda++;
+            }
+        }
+        int pendientes = 0;
+        int completados = 0;
+        int cancelados = 0;
+        long totalGastado = 0;
+        for (SnapshotBinario.PedidoCapturado pedido : captura.getPedidos()) {
+            switch (pedido.estado) {
+                case PENDIENTE:
+                case CONFIRMADO:
+                    pendientes++;
+                    break;
+                case ENTREGADO:
+                    completados++;
+                    totalGastado += pedido.totalCentavos;
+                    break;
+                case CANCELADO:
+                    cancelados++;
+                    break;
+                default:
+                    break;
+            }
+        }
+        guardarResumenRespaldo(captura.cantidadClientes(), conDeuda, deudas,
+                GestorPedidos.EstadisticasPedidos.enCentavos(captura.cantidadPedidos(), pendientes, completados,
+                        cancelados, totalGastado),
+                captura.getProveedores().size());
+    }
+
+    private void guardarResumenRespaldo(int clientes, int clientesConDeuda, long totalDeudasCentavos,
+                                        GestorPedidos.EstadisticasPedidos stats, int proveedores) {
         String nombreArchivo = generarNombreArchivo("resumen");
-        try (PrintWriter writer = new PrintWriter(new FileWriter(directorioRespaldos + nombreArchivo))) {
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(directorioRespaldos + nombreArchivo), "UTF-8"))) {
             writer.println("=== RESUMEN DE RESPALDO ===");
             writer.println("Fecha y hora: " + new Date());
             writer.println("================================");
             writer.println();
             
             writer.println("CLIENTES:");
-            writer.println("Total clientes: " + gestorClientes.cantidadClientes());
-            writer.println("Clientes con deuda: " + gestorClientes.obtenerClientesConDeuda().size());
-            writer.println("Total deudas: $" + gestorClientes.calcularTotalDeudas());
+            writer.println("Total clientes: " + clientes);
+            writer.println("Clientes con deuda: " + clientesConDeuda);
+            writer.println("Total deudas: $" + Dinero.aPesos(totalDeudasCentavos));
             writer.println();
             
             writer.println("PEDIDOS:");
-            GestorPedidos.EstadisticasPedidos stats = gestorPedidos.obtenerEstadisticas();
             writer.println("Total pedidos: " + stats.getTotalPedidos());
             writer.println("Pedidos pendientes: " + stats.getPedidosPendientes());
             writer.println("Pedidos completados: " + stats.getPedidosCompletados());
@@ -163,42 +442,704 @@ public class SistemaRespaldo {
             writer.println("Total gastado: $" + stats.getTotalGastado());
             writer.println();
             
-            writer.println("Total proveedores: " + gestorPedidos.cantidadProveedores());
+            writer.println("Total proveedores: " + proveedores);
             
         } catch (IOException e) {
             System.err.println("Error al guardar resumen: " + e.getMessage());
         }
     }
 
+    /**
+     * Exporta lo gastado con cada proveedor por mes a un CSV de nombre fijo
+     * (id_proveedor,proveedor,mes,monto), que el panel financiero en Python
+     * lee en lugar de sus datos de ejemplo. El id separa a dos proveedores
+     * de la misma empresa. Se sobrescribe en cada respaldo.
+     */
+    public boolean exportarGastosMensualesProveedores(GestorPedidos gestorPedidos) {
+        if (gestorPedidos == null) {
+            return false;
+        }
+        return escribirGastos(csvGastos(gestorPedidos));
+    }
+
+    private static String csvGastos(GestorPedidos gestorPedidos) {
+        return csvGastos(gestorPedidos.obtenerGastosMensualesPorProveedor(), id -> {
+            Proveedor proveedor = gestorPedidos.buscarProveedorPorId(id);
+            return proveedor != null ? proveedor.getEmpresa() : null;
+        });
+    }
+
+    /**
+     * Los mismos gastos, sumados desde los pedidos entregados de una captura
+     */
+    private static String csvGastos(SnapshotBinario.Captura captura) {
+        Map<Integer, SortedMap<YearMonth, Long>> gastos = new TreeMap<>();
+        for (SnapshotBinario.PedidoCapturado pedido : captura.getPedidos()) {
+            if (pedido.estado != PedidoProveedor.EstadoPedido.ENTREGADO) {
+                continue;
+            }
+            Date entrega = SnapshotBinario.fechaDe(pedido.fechaEntregaReal);
+            YearMonth mes = YearMonth.from((entrega != null ? entrega : new Date(captura.getFechaCreacion()))
+                    .toInstant().atZone(ZoneId.systemDefault()));
+            gastos.computeIfAbsent(pedido.proveedorId, id -> new TreeMap<>()).merge(mes, pedido.totalCentavos, Long::sum);
+        }
+        Map<Integer, String> empresas = new TreeMap<>();
+        for (SnapshotBinario.ProveedorCapturado proveedor : captura.getProveedores()) {
+            empresas.put(proveedor.id, proveedor.empresa);
+        }
+        return csvGastos(gastos, empresas::get);
+    }
+
+    private static String csvGastos(Map<Integer, SortedMap<YearMonth, Long>> gastos, IntFunction<String> empresas) {
+        StringBuilder csv = new StringBuilder();
+        renglon(csv, "id_proveedor,proveedor,mes,monto");
+        for (Map.Entry<Integer, SortedMap<YearMonth, Long>> entrada : gastos.entrySet()) {
+            String empresa = empresas.apply(entrada.getKey());
+            String nombre = campoCsv(empresa != null ? empresa : "Proveedor " + entrada.getKey());
+            for (Map.Entry<YearMonth, Long> mes : entrada.getValue().entrySet()) {
+                renglon(csv.append(entrada.getKey()).append(',').append(nombre).append(',')
+                        .append(mes.getKey()).append(',').append(montoCsv(mes.getValue())));
+            }
+        }
+        return csv.toString();
+    }
+
+    private boolean escribirGastos(String csv) {
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(directorioRespaldos + ARCHIVO_GASTOS_PROVEEDORES), "UTF-8")) {
+            writer.write(csv);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error al exportar gastos de proveedores: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static String campoCsv(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    private static String montoCsv(long centavos) {
+        long absoluto = Math.abs(centavos);
+        return (centavos < 0 ? "-" : "") + absoluto / 100 + "." + String.format("%02d", absoluto % 100);
+    }
+
+    // ============ SNAPSHOTS RESTAURABLES ============
+
+    /**
+     * Guarda un snapshot binario de clientes y pedidos que se puede volver
+     * a cargar con restaurarSnapshot (los .txt son solo para leer)
+     */
+    public boolean guardarSnapshot(GestorClientes gestorClientes, GestorPedidos gestorPedidos) {
+        if (gestorClientes == null || gestorPedidos == null) {
+            return false;
+        }
+
+        try {
+            escribirSnapshot(capturar(gestorClientes, gestorPedidos));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error al guardar snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Toma una imagen de los gestores en este instante y la escribe como
+     * snapshot en un hilo aparte. La imagen no copia libros ni items, así
+     * que las cajas siguen registrando mientras se escribe y no esperan al
+     * disco; lo que registren después no entra en este respaldo.
+     *
+     * @return Se completa con lo escrito, o con el error si falló
+     */
+    public CompletableFuture<SnapshotBinario.Resumen> guardarRespaldoAsync(GestorClientes gestorClientes,
+                                                                          GestorPedidos gestorPedidos) {
+        if (gestorClientes == null || gestorPedidos == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Faltan los gestores a respaldar"));
+        }
+        return guardarRespaldoAsync(gestorClientes, gestorPedidos, false);
+    }
+
+    /**
+     * Como guardarRespaldoAsync; con listados, después del snapshot escribe
+     * también los listados de texto, el resumen y el CSV de gastos, armados
+     * desde la misma captura para que coincidan con él
+     */
+    private CompletableFuture<SnapshotBinario.Resumen> guardarRespaldoAsync(GestorClientes gestorClientes,
+                                                                           GestorPedidos gestorPedidos,
+                                                                           boolean conListados) {
+        long inicio = System.nanoTime();
+        respaldosAsyncPendientes.incrementAndGet();
+        CompletableFuture<SnapshotBinario.Resumen> escritura;
+        synchronized (candadoCapturas) {
+            SnapshotPendiente pendiente = capturar(gestorClientes, gestorPedidos);
+            escritura = CompletableFuture.supplyAsync(() -> {
+                try {
+                    SnapshotBinario.Resumen resumen = escribirSnapshot(pendiente);
+                    if (conListados && !guardarListados(pendiente.captura)) {
+                        throw new IOException("No se pudieron guardar los listados de texto");
+                    }
+                    return resumen;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, ejecutorRespaldos());
+        }
+        return escritura.whenComplete((resumen, error) -> {
+            respaldosAsyncPendientes.decrementAndGet();
+            milisegundosUltimoRespaldoAsync = (System.nanoTime() - inicio) / 1_000_000;
+            if (error == null) {
+                respaldosAsyncCompletados.incrementAndGet();
+                bytesRespaldosAsync.addAndGet(resumen.getBytes());
+            } else {
+                respaldosAsyncFallidos.incrementAndGet();
+                Throwable causa = error.getCause() != null ? error.getCause() : error;
+                ultimoErrorRespaldoAsync = causa.getMessage();
+                System.err.println("Error al guardar respaldo: " + causa.getMessage());
+            }
+        });
+    }
+
+    private boolean guardarListados(SnapshotBinario.Captura captura) {
+        if (!guardarClientes(captura) || !guardarPedidos(captura)) {
+            return false;
+        }
+        guardarResumenRespaldo(captura);
+        escribirGastos(csvGastos(captura));
+        return true;
+    }
+
+    /**
+     * Cómo van los respaldos pedidos con guardarRespaldoAsync
+     */
+    public MetricasRespaldoAsync obtenerMetricasRespaldoAsync() {
+        return new MetricasRespaldoAsync(respaldosAsyncCompletados.get(), respaldosAsyncFallidos.get(),
+                respaldosAsyncPendientes.get(), bytesRespaldosAsync.get(), milisegundosUltimoRespaldoAsync,
+                ultimoErrorRespaldoAsync);
+    }
+
+    private synchronized ExecutorService ejecutorRespaldos() {
+        if (ejecutorRespaldos == null) {
+            ejecutorRespaldos = Executors.newSingleThreadExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "RespaldoAsync");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+        return ejecutorRespaldos;
+    }
+
+    /**
+     * Sello, LSN e imagen de los gestores, en ese orden. No toma el candado
+     * de archivos: una escritura en curso no demora la captura. Se llama
+     * con el candado de capturas, hasta encolar la escritura.
+     */
+    private SnapshotPendiente capturar(GestorClientes gestorClientes, GestorPedidos gestorPedidos) {
+        long sello = siguienteSello();
+        // Antes de capturar: lo registrado después se repite al recuperar
+        long lsn = lsnActual();
+        return new SnapshotPendiente(sello, SnapshotBinario.capturar(gestorClientes, gestorPedidos, lsn, sello));
+    }
+
+    /**
+     * Escribe una captura y borra los deltas que ya estaban en ella. No
+     * toca lo marcado en CambiosPendientes: el próximo delta puede repetir
+     * algo del snapshot, y al restaurar se omite.
+     */
+    private SnapshotBinario.Resumen escribirSnapshot(SnapshotPendiente pendiente) throws IOException {
+        String nombreArchivo = nombreSnapshot(pendiente.sello);
+        synchronized (candadoArchivos) {
+            verificarMasReciente(nombreArchivo);
+            SnapshotBinario.Resumen resumen = SnapshotBinario.escribir(
+                    Paths.get(directorioRespaldos + nombreArchivo), pendiente.captura);
+            haySnapshot = true;
+            for (String delta : listarDeltas()) {
+                if (delta.compareTo(nombreDelta(pendiente.sello)) < 0) {
+                    new File(directorioRespaldos + delta).delete();
+                }
+            }
+            deltasSinCompactar = listarDeltas().length;
+            puntoDeControl(resumen.getLsn());
+            return resumen;
+        }
+    }
+
+    /**
+     * Recorta del diario lo que ya está en el snapshot recién escrito (el
+     * más reciente: ver verificarMasReciente). Se llama con el candado de
+     * archivos. Si no se puede, el diario queda entero y se intenta de
+     * nuevo con el próximo snapshot.
+     */
+    private void puntoDeControl(long lsn) {
+        DiarioTransacciones activo = diario;
+        if (activo == null) {
+            return;
+        }
+        try {
+            activo.recortarHasta(lsn);
+        } catch (IOException e) {
+            System.err.println("Error al recortar el diario: " + e.getMessage());
+        }
+    }
+
+    private static final class SnapshotPendiente {
+        final long sello;
+        final SnapshotBinario.Captura captura;
+
+        SnapshotPendiente(long sello, SnapshotBinario.Captura captura) {
+            this.sello = sello;
+            this.captura = captura;
+        }
+    }
+
+    /**
+     * Carga un snapshot del directorio de respaldos en gestores vacíos
+     *
+     * @return Qué se restauró, o null si el archivo no se pudo leer o está
+     *         dañado (en ese caso los gestores quedan vacíos)
+     * @throws IllegalStateException si alguno de los gestores ya tiene datos
+     */
+    public SnapshotBinario.Resumen restaurarSnapshot(String nombreArchivo, GestorClientes gestorClientes,
+                                                     GestorPedidos gestorPedidos) {
+        try {
+            return SnapshotBinario.restaurar(Paths.get(directorioRespaldos + nombreArchivo),
+                    gestorClientes, gestorPedidos);
+        } catch (IOException e) {
+            System.err.println("Error al restaurar snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Carga el snapshot más reciente con los deltas guardados después
+     *
+     * @return Qué se restauró, o null si no hay snapshots o no se pudo leer
+     */
+    public SnapshotBinario.Resumen restaurarUltimoSnapshot(GestorClientes gestorClientes,
+                                                           GestorPedidos gestorPedidos) {
+        String[] snapshots = listarSnapshots();
+        if (snapshots.length == 0) {
+            return null;
+        }
+        try {
+            SnapshotBinario.Resumen resumen = SnapshotBinario.restaurar(
+                    Paths.get(directorioRespaldos + snapshots[snapshots.length - 1]), rutasDeltas(),
+                    gestorClientes, gestorPedidos);
+            avanzarSello(resumen.getFechaCreacion().getTime());
+            haySnapshot = true;
+            return resumen;
+        } catch (IOException e) {
+            System.err.println("Error al restaurar snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Lista los snapshots del directorio, del más antiguo al más reciente
+     */
+    public String[] listarSnapshots() {
+        File directorio = new File(directorioRespaldos);
+        String[] snapshots = directorio.list((dir, name) -> name.endsWith(SnapshotBinario.EXTENSION));
+        if (snapshots == null) {
+            return new String[0];
+        }
+        // El timestamp del nombre ordena cronológicamente
+        Arrays.sort(snapshots);
+        return snapshots;
+    }
+
+    /**
+     * Lista los deltas del directorio, del más antiguo al más reciente
+     */
+    public String[] listarDeltas() {
+        File directorio = new File(directorioRespaldos);
+        String[] deltas = directorio.list((dir, name) -> name.endsWith(SnapshotBinario.EXTENSION_DELTA));
+        if (deltas == null) {
+            return new String[0];
+        }
+        // El sello del nombre llega a milisegundos y nunca se repite
+        Arrays.sort(deltas);
+        return deltas;
+    }
+
+    private List<Path> rutasDeltas() {
+        List<Path> rutas = new ArrayList<>();
+        for (String delta : listarDeltas()) {
+            rutas.add(Paths.get(directorioRespaldos + delta));
+        }
+        return rutas;
+    }
+
+    // ============ RESPALDO INCREMENTAL ============
+
+    /**
+     * Empieza a marcar qué clientes, proveedores y pedidos cambian, para que
+     * guardarCambios() escriba solo eso en un delta en lugar de todo
+     */
+    public synchronized void activarRespaldoIncremental(GestorClientes gestorClientes, GestorPedidos gestorPedidos) {
+        if (cambios != null) {
+            throw new IllegalStateException("El respaldo incremental ya está activo");
+        }
+        cambios = new CambiosPendientes();
+        clientesIncrementales = gestorClientes;
+        pedidosIncrementales = gestorPedidos;
+        deltasSinCompactar = listarDeltas().length;
+        // Los cambios se marcan antes de pasar al diario: así todo registro
+        // hasta el LSN de un delta está en él o en un archivo anterior
+        if (diario != null) {
+            gestorClientes.quitarObservadorClientes(diario);
+            gestorPedidos.quitarObservadorPedidos(diario);
+        }
+        gestorClientes.agregarObservadorClientes(cambios);
+        gestorPedidos.agregarObservadorPedidos(cambios);
+        if (diario != null) {
+            gestorClientes.agregarObservadorClientes(diario);
+            gestorPedidos.agregarObservadorPedidos(diario);
+        }
+    }
+
+    /**
+     * Deja de marcar cambios. Lo que no se guardó sigue en el diario (si
+     * está activo) o en los gestores hasta el próximo snapshot.
+     */
+    public synchronized void desactivarRespaldoIncremental() {
+        if (cambios == null) {
+            return;
+        }
+        clientesIncrementales.quitarObservadorClientes(cambios);
+        pedidosIncrementales.quitarObservadorPedidos(cambios);
+        cambios = null;
+        clientesIncrementales = null;
+        pedidosIncrementales = null;
+    }
+
+    public boolean estaRespaldoIncrementalActivo() {
+        return cambios != null;
+    }
+
+    /**
+     * Guarda en un delta lo que cambió desde el último respaldo. Si todavía
+     * no hay un snapshot, escribe uno completo; si no cambió nada, no
+     * escribe nada. Cada DELTAS_POR_COMPACTACION deltas los junta con el
+     * snapshot.
+     *
+     * @return false si no se pudo escribir (lo marcado se conserva)
+     */
+    public boolean guardarCambios() {
+        try {
+            return guardarCambiosAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Como guardarCambios(), pero solo captura en este hilo: el delta se
+     * escribe en el hilo de los respaldos asíncronos. Las capturas se
+     * encolan en el orden de sus sellos, así que los deltas se escriben en
+     * ese orden aunque se pidan desde varios hilos.
+     *
+     * @return Se completa con false si no se pudo escribir (lo marcado se
+     *         conserva)
+     */
+    public CompletableFuture<Boolean> guardarCambiosAsync() {
+        CambiosPendientes cambios;
+        GestorClientes gestorClientes;
+        GestorPedidos gestorPedidos;
+        synchronized (this) {
+            if (this.cambios == null) {
+                throw new IllegalStateException("El respaldo incremental no está activo");
+            }
+            cambios = this.cambios;
+            gestorClientes = clientesIncrementales;
+            gestorPedidos = pedidosIncrementales;
+        }
+        // Los deltas se escriben en el orden de sus sellos: uno que falte
+        // en medio dejaría huecos en los libros de los siguientes. Solo se
+        // captura y encola; el candado de archivos se toma al escribir.
+        synchronized (candadoCapturas) {
+            if (!haySnapshot) {
+                return guardarRespaldoAsync(gestorClientes, gestorPedidos).handle((resumen, error) -> error == null);
+            }
+            // El LSN antes que el lote: lo registrado hasta él ya está marcado
+            long lsn = lsnActual();
+            CambiosPendientes.Lote lote = cambios.tomarLote();
+            if (lote.estaVacio()) {
+                return CompletableFuture.completedFuture(true);
+            }
+            SnapshotBinario.CapturaDelta delta = SnapshotBinario.capturarDelta(lote, gestorClientes,
+                    gestorPedidos, lsn, siguienteSello());
+            return CompletableFuture.supplyAsync(() -> escribirDelta(cambios, delta), ejecutorRespaldos());
+        }
+    }
+
+    private boolean escribirDelta(CambiosPendientes cambios, SnapshotBinario.CapturaDelta delta) {
+        String nombreArchivo = nombreDelta(delta.getSello());
+        synchronized (candadoArchivos) {
+            String[] snapshots = listarSnapshots();
+            // Un snapshot capturado después ya tiene estos cambios
+            if (snapshots.length > 0 && snapshots[snapshots.length - 1]
+                    .compareTo(nombreSnapshot(delta.getSello())) > 0) {
+                return true;
+            }
+            try {
+                SnapshotBinario.escribirDelta(Paths.get(directorioRespaldos + nombreArchivo), delta);
+            } catch (IOException e) {
+                System.err.println("Error al guardar cambios: " + e.getMessage());
+                cambios.devolver(delta.getLote());
+                return false;
+            }
+            if (++deltasSinCompactar >= DELTAS_POR_COMPACTACION) {
+                compactarRespaldos();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Junta el último snapshot y sus deltas en un snapshot nuevo y borra
+     * los deltas. No pasa por los gestores.
+     *
+     * @return false si no se pudo leer o escribir (no se borra nada)
+     */
+    public boolean compactarRespaldos() {
+        synchronized (candadoArchivos) {
+            String[] snapshots = listarSnapshots();
+            String[] deltas = listarDeltas();
+            if (snapshots.length == 0 || deltas.length == 0) {
+                return true;
+            }
+            Path base = Paths.get(directorioRespaldos + snapshots[snapshots.length - 1]);
+            SnapshotBinario.Resumen resumen;
+            try {
+                // Lleva la fecha del último delta, así que ordena después del base
+                long sello = selloDeDelta(deltas[deltas.length - 1]);
+                avanzarSello(sello);
+                String nombreArchivo = nombreSnapshot(sello);
+                verificarMasReciente(nombreArchivo);
+                resumen = SnapshotBinario.compactar(base, rutasDeltas(),
+                        Paths.get(directorioRespaldos + nombreArchivo));
+            } catch (IOException | ParseException e) {
+                System.err.println("Error al compactar respaldos: " + e.getMessage());
+                return false;
+            }
+            for (String delta : deltas) {
+                new File(directorioRespaldos + delta).delete();
+            }
+            deltasSinCompactar = 0;
+            puntoDeControl(resumen.getLsn());
+            return true;
+        }
+    }
+
+    /**
+     * Fecha actual en milisegundos, siempre mayor que la anterior
+     */
+    private synchronized long siguienteSello() {
+        ultimoSello = Math.max(System.currentTimeMillis(), ultimoSello + 1);
+        return ultimoSello;
+    }
+
+    private synchronized void avanzarSello(long sello) {
+        ultimoSello = Math.max(ultimoSello, sello);
+    }
+
+    private long lsnActual() {
+        return diario != null ? diario.ultimoLsn() : lsnRecuperado;
+    }
+
+    /**
+     * Un snapshot solo se escribe si queda como el más reciente. Uno más
+     * viejo que llega tarde (una captura asíncrona, por ejemplo) pisaría o
+     * quedaría detrás de uno más nuevo, cuyos deltas ya se borraron.
+     * Se llama con el candado de archivos.
+     */
+    private void verificarMasReciente(String nombreArchivo) throws IOException {
+        String[] snapshots = listarSnapshots();
+        if (snapshots.length > 0 && snapshots[snapshots.length - 1].compareTo(nombreArchivo) >= 0) {
+            throw new IOException("Ya hay un snapshot igual o más reciente que " + nombreArchivo);
+        }
+    }
+
+    private static String nombreSnapshot(long sello) {
+        // Con milisegundos, como los deltas: dos snapshots del mismo segundo
+        // no comparten nombre
+        return nombreConSello("snapshot", SnapshotBinario.EXTENSION, sello, "yyyyMMdd_HHmmss_SSS");
+    }
+
+    private static String nombreDelta(long sello) {
+        return nombreConSello("delta", SnapshotBinario.EXTENSION_DELTA, sello, "yyyyMMdd_HHmmss_SSS");
+    }
+
+    private static long selloDeDelta(String nombre) throws ParseException {
+        if (!nombre.startsWith("delta_")) {
+            throw new ParseException("Nombre de delta inesperado: " + nombre, 0);
+        }
+        String fecha = nombre.substring("delta_".length(), nombre.length() - SnapshotBinario.EXTENSION_DELTA.length());
+        return new SimpleDateFormat("yyyyMMdd_HHmmss_SSS").parse(fecha).getTime();
+    }
+
+    private static String nombreConSello(String tipo, String extension, long sello, String formato) {
+        return tipo + "_" + new SimpleDateFormat(formato).format(new Date(sello)) + extension;
+    }
+
+    // ============ DIARIO DE TRANSACCIONES ============
+
+    /**
+     * Recupera el estado después de un reinicio o una caída: carga en
+     * gestores vacíos el snapshot más reciente (si hay) con sus deltas y
+     * repite encima los registros del diario posteriores
+     *
+     * @return Registros del diario aplicados, o -1 si el snapshot o el
+     *         diario no se pudieron leer
+     * @throws IllegalStateException si alguno de los gestores ya tiene datos
+     */
+    public int recuperar(GestorClientes gestorClientes, GestorPedidos gestorPedidos) {
+        if (diario != null) {
+            throw new IllegalStateException("No se puede recuperar con el diario activo");
+        }
+        if (gestorClientes.cantidadClientes() > 0 || gestorPedidos.cantidadProveedores() > 0
+                || gestorPedidos.cantidadPedidos() > 0) {
+            throw new IllegalStateException("Solo se puede recuperar sobre gestores vacíos");
+        }
+        long desde = 0;
+        if (listarSnapshots().length > 0) {
+            SnapshotBinario.Resumen resumen = restaurarUltimoSnapshot(gestorClientes, gestorPedidos);
+            if (resumen == null) {
+                return -1;
+            }
+            desde = resumen.getLsn();
+        }
+        try {
+            DiarioTransacciones.Reproduccion reproduccion =
+                    DiarioTransacciones.reproducir(rutaDiario(), desde, gestorClientes, gestorPedidos);
+            lsnRecuperado = reproduccion.getUltimoLsn();
+            return reproduccion.getAplicados();
+        } catch (IOException e) {
+            System.err.println("Error al repetir el diario: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Empieza a registrar en el diario cada cambio de los gestores. Desde
+     * ahí, una compra o un pago no terminan hasta estar en disco; las
+     * escrituras de varias cajas se juntan en un solo force() dentro de la
+     * ventana indicada.
+     *
+     * @return false si el archivo del diario no se pudo abrir
+     */
+    public boolean activarDiario(GestorClientes gestorClientes, GestorPedidos gestorPedidos, long ventanaMillis) {
+        if (diario != null) {
+            throw new IllegalStateException("El diario ya está activo");
+        }
+        try {
+            diario = DiarioTransacciones.abrir(rutaDiario(), ventanaMillis, lsnRecuperado);
+        } catch (IOException e) {
+            System.err.println("Error al abrir el diario: " + e.getMessage());
+            return false;
+        }
+        clientesConDiario = gestorClientes;
+        pedidosConDiario = gestorPedidos;
+        gestorClientes.agregarObservadorClientes(diario);
+        gestorPedidos.agregarObservadorPedidos(diario);
+        return true;
+    }
+
+    public boolean activarDiario(GestorClientes gestorClientes, GestorPedidos gestorPedidos) {
+        return activarDiario(gestorClientes, gestorPedidos, VENTANA_DIARIO_POR_DEFECTO_MS);
+    }
+
+    /**
+     * Deja de registrar cambios y cierra el diario, con lo pendiente ya
+     * escrito
+     */
+    public void desactivarDiario() {
+        if (diario == null) {
+            return;
+        }
+        clientesConDiario.quitarObservadorClientes(diario);
+        pedidosConDiario.quitarObservadorPedidos(diario);
+        lsnRecuperado = diario.ultimoLsn();
+        try {
+            diario.close();
+        } catch (IOException e) {
+            System.err.println("Error al cerrar el diario: " + e.getMessage());
+        }
+        diario = null;
+        clientesConDiario = null;
+        pedidosConDiario = null;
+    }
+
+    public boolean estaDiarioActivo() {
+        return diario != null;
+    }
+
+    /**
+     * El diario activo (para consultar LSN y sincronizaciones), o null
+     */
+    public DiarioTransacciones getDiario() {
+        return diario;
+    }
+
+    private Path rutaDiario() {
+        return Paths.get(directorioRespaldos + ARCHIVO_DIARIO);
+    }
+
     /**
      * Genera un nombre de archivo con timestamp
      */
     private String generarNombreArchivo(String tipo) {
+        return generarNombreArchivo(tipo, ".txt");
+    }
+
+    private String generarNombreArchivo(String tipo, String extension) {
         SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss");
-        return tipo + "_" + sdf.format(new Date()) + ".txt";
+        return tipo + "_" + sdf.format(new Date()) + extension;
     }
 
     // ============ ISSUE #25: GUARDADO AUTOMÁTICO ============
 
     /**
-     * Inicia el guardado automático
+     * Inicia el guardado automático. El primero es un respaldo completo; los
+     * siguientes guardan en deltas solo lo que cambió (ver guardarCambios).
+     * El temporizador solo captura: los archivos se escriben en el hilo de
+     * los respaldos asíncronos, y si el anterior todavía no terminó se
+     * espera al próximo intervalo.
      */
     public void iniciarAutoguardado(GestorClientes gestorClientes, GestorPedidos gestorPedidos) {
         if (autoguardadoActivo) {
             throw new IllegalStateException("El autoguardado ya está activo");
         }
+        if (cambios == null) {
+            activarRespaldoIncremental(gestorClientes, gestorPedidos);
+            incrementalPorAutoguardado = true;
+        }
 
         temporizadorAutoguardado = new Timer("AutoguardadoTimer", true);
         temporizadorAutoguardado.scheduleAtFixedRate(new TimerTask() {
+            private CompletableFuture<Boolean> enCurso = CompletableFuture.completedFuture(true);
+
             @Override
             public void run() {
-                System.out.println("[Autoguardado] Guardando datos... " + new Date());
-                boolean exito = guardarRespaldoCompleto(gestorClientes, gestorPedidos);
-                if (exito) {
-                    System.out.println("[Autoguardado] Datos guardados exitosamente");
-                } else {
-                    System.err.println("[Autoguardado] Error al guardar datos");
+                if (!enCurso.isDone()) {
+                    return;
                 }
+                System.out.println("[Autoguardado] Guardando datos... " + new Date());
+                enCurso = autoguardar(gestorClientes, gestorPedidos);
+                enCurso.thenAccept(exito -> {
+                    if (exito) {
+                        System.out.println("[Autoguardado] Datos guardados exitosamente");
+                    } else {
+                        System.err.println("[Autoguardado] Error al guardar datos");
+                    }
+                });
             }
         }, intervaloAutoguardado, intervaloAutoguardado);
 
@@ -206,6 +1147,20 @@ public class SistemaRespaldo {
         System.out.println("[Autoguardado] Iniciado. Intervalo: " + (intervaloAutoguardado / 1000) + " segundos");
     }
 
+    /**
+     * Un paso del autoguardado. El primero guarda el snapshot y, de la misma
+     * captura, los listados de texto, como guardarRespaldoCompleto; los
+     * siguientes, un delta y el CSV de gastos tomado junto con él.
+     */
+    private CompletableFuture<Boolean> autoguardar(GestorClientes gestorClientes, GestorPedidos gestorPedidos) {
+        if (!haySnapshot) {
+            return guardarRespaldoAsync(gestorClientes, gestorPedidos, true).handle((resumen, error) -> error == null);
+        }
+        CompletableFuture<Boolean> delta = guardarCambiosAsync();
+        String gastos = csvGastos(gestorPedidos);
+        return delta.thenApplyAsync(exito -> exito && escribirGastos(gastos), ejecutorRespaldos());
+    }
+
     /**
      * Detiene el guardado automático
      */
@@ -214,6 +1169,10 @@ public class SistemaRespaldo {
             temporizadorAutoguardado.cancel();
             temporizadorAutoguardado = null;
             autoguardadoActivo = false;
+            if (incrementalPorAutoguardado) {
+                desactivarRespaldoIncremental();
+                incrementalPorAutoguardado = false;
+            }
             System.out.println("[Autoguardado] Detenido");
         }
     }
@@ -249,11 +1208,11 @@ public class SistemaRespaldo {
     // ============ MÉTODOS AUXILIARES ============
 
     /**
-     * Lista todos los archivos de respaldo
+     * Lista todos los archivos de respaldo de texto (comprimidos o no)
      */
     public String[] listarRespaldos() {
         File directorio = new File(directorioRespaldos);
-        return directorio.list((dir, name) -> name.endsWith(".txt"));
+        return directorio.list((dir, name) -> name.endsWith(".txt") || name.endsWith(RespaldoComprimido.EXTENSION));
     }
 
     /**
@@ -264,11 +1223,14 @@ public class SistemaRespaldo {
     }
 
     /**
-     * Elimina respaldos antiguos (mayores a X días)
+     * Elimina respaldos antiguos (mayores a X días). El snapshot más
+     * reciente se conserva siempre, y un snapshot se borra junto con sus
+     * deltas.
      */
     public int limpiarRespaldosAntiguos(int diasAntiguedad) {
         File directorio = new File(directorioRespaldos);
-        File[] archivos = directorio.listFiles((dir, name) -> name.endsWith(".txt"));
+        File[] archivos = directorio.listFiles(
+                (dir, name) -> name.endsWith(".txt") || name.endsWith(RespaldoComprimido.EXTENSION));
         
         if (archivos == null) {
             return 0;
@@ -285,9 +1247,57 @@ public class SistemaRespaldo {
             }
         }
 
+        synchronized (candadoArchivos) {
+            eliminados += limpiarSnapshotsAntiguos(tiempoLimite);
+            deltasSinCompactar = listarDeltas().length;
+        }
+        return eliminados;
+    }
+
+    /**
+     * Borra los snapshots anteriores al límite con los deltas que van entre
+     * cada uno y el siguiente. El más reciente no se borra aunque sea
+     * viejo: es la base de los deltas pendientes y el punto desde el que
+     * recuperar() repite el diario.
+     */
+    private int limpiarSnapshotsAntiguos(long tiempoLimite) {
+        String[] snapshots = listarSnapshots();
+        String[] deltas = listarDeltas();
+        int eliminados = 0;
+        for (int i = 0; i < snapshots.length - 1; i++) {
+            File snapshot = new File(directorioRespaldos + snapshots[i]);
+            if (snapshot.lastModified() >= tiempoLimite) {
+                continue;
+            }
+            String desde = selloDelNombre(snapshots[i]);
+            String hasta = selloDelNombre(snapshots[i + 1]);
+            // Primero los deltas: si alguno no se borra, la base se queda
+            boolean deltasBorrados = true;
+            for (String delta : deltas) {
+                String sello = selloDelNombre(delta);
+                if (sello.compareTo(desde) > 0 && sello.compareTo(hasta) < 0) {
+                    if (new File(directorioRespaldos + delta).delete()) {
+                        eliminados++;
+                    } else {
+                        deltasBorrados = false;
+                    }
+                }
+            }
+            if (deltasBorrados && snapshot.delete()) {
+                eliminados++;
+            }
+        }
         return eliminados;
     }
 
+    /**
+     * Fecha y hora del nombre de un snapshot o delta, tal como está escrita
+     * (ordena igual que los sellos)
+     */
+    private static String selloDelNombre(String nombre) {
+        return nombre.substring(nombre.indexOf('_') + 1, nombre.indexOf('.'));
+    }
+
     /**
      * Verifica si existe el directorio de respaldos
      */
@@ -295,4 +1305,71 @@ public class SistemaRespaldo {
         File directorio = new File(directorioRespaldos);
         return directorio.exists() && directorio.isDirectory();
     }
+
+    /**
+     * Contadores de los respaldos asíncronos
+     */
+    public static class MetricasRespaldoAsync {
+        private final long completados;
+        private final long fallidos;
+        private final int pendientes;
+        private final long bytesEscritos;
+        private final long milisegundosUltimo;
+        private final String ultimoError;
+
+        MetricasRespaldoAsync(long completados, long fallidos, int pendientes, long bytesEscritos,
+                              long milisegundosUltimo, String ultimoError) {
+            this.completados = completados;
+            this.fallidos = fallidos;
+            this.pendientes = pendientes;
+            this.bytesEscritos = bytesEscritos;
+            this.milisegundosUltimo = milisegundosUltimo;
+            this.ultimoError = ultimoError;
+        }
+
+        public long getCompletados() {
+            return completados;
+        }
+
+        public long getFallidos() {
+            return fallidos;
+        }
+
+        /**
+         * Capturados que todavía no terminaron de escribirse
+         */
+        public int getPendientes() {
+            return pendientes;
+        }
+
+        public long getBytesEscritos() {
+            return bytesEscritos;
+        }
+
+        /**
+         * Desde la captura hasta que terminó de escribirse el último
+         */
+        public long getMilisegundosUltimo() {
+            return milisegundosUltimo;
+        }
+
+        /**
+         * Mensaje del último error, o null si nunca falló
+         */
+        public String getUltimoError() {
+            return ultimoError;
+        }
+
+        @Override
+        public String toString() {
+            return "MetricasRespaldoAsync{" +
+                    "completados=" + completados +
+                    ", fallidos=" + fallidos +
+                    ", pendientes=" + pendientes +
+                    ", bytesEscritos=" + bytesEscritos +
+                    ", milisegundosUltimo=" + milisegundosUltimo +
+                    ", ultimoError='" + ultimoError + '\'' +
+                    '}';
+        }
+    }
 }
\ No newline at end of file
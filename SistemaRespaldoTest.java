@@ -6,7 +6,17 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
 import java.io.File;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Tests para SistemaRespaldo
@@ -39,6 +49,9 @@ public class SistemaRespaldoTest {
 
     @AfterEach
     public void tearDown() {
+        // Que no quede nada escribiéndose mientras se borra
+        sistemaRespaldo.cerrar();
+
         // Limpiar directorio de pruebas
         File directorio = new File(directorioTest);
         if (directorio.exists()) {
@@ -51,6 +64,9 @@ public class SistemaRespaldoTest {
             directorio.delete();
         }
         
+        sistemaRespaldo.desactivarDiario();
+        sistemaRespaldo.desactivarRespaldoIncremental();
+
         // Detener autoguardado si está activo
         if (sistemaRespaldo.estaAutoguardadoActivo()) {
             sistemaRespaldo.detenerAutoguardado();
@@ -265,6 +281,32 @@ public class SistemaRespaldoTest {
         assertTrue(archivos.length >= 2);
     }
 
+    @Test
+    @DisplayName("Limpiar debe conservar el último snapshot y los deltas que dependen de él")
+    public void testLimpiarConservaUltimoSnapshot() {
+        sistemaRespaldo.activarRespaldoIncremental(gestorClientes, gestorPedidos);
+        assertTrue(sistemaRespaldo.guardarCambios());
+        assertTrue(sistemaRespaldo.guardarSnapshot(gestorClientes, gestorPedidos));
+        gestorClientes.buscarClientePorCedula("9876543210").registrarPago(10000.0);
+        assertTrue(sistemaRespaldo.guardarCambios());
+        assertEquals(2, sistemaRespaldo.listarSnapshots().length);
+        assertEquals(1, sistemaRespaldo.listarDeltas().length);
+
+        // Todo tiene más de 30 días
+        for (File archivo : new File(directorioTest).listFiles()) {
+            assertTrue(archivo.setLastModified(System.currentTimeMillis() - 40L * 24 * 60 * 60 * 1000));
+        }
+        String ultimo = sistemaRespaldo.listarSnapshots()[1];
+        assertEquals(1, sistemaRespaldo.limpiarRespaldosAntiguos(30));
+        assertArrayEquals(new String[] {ultimo}, sistemaRespaldo.listarSnapshots());
+        assertEquals(1, sistemaRespaldo.listarDeltas().length);
+
+        GestorClientes clientes = new GestorClientes();
+        GestorPedidos pedidos = new GestorPedidos();
+        assertNotNull(sistemaRespaldo.restaurarUltimoSnapshot(clientes, pedidos));
+        assertEquals(gestorClientes.calcularTotalDeudasCentavos(), clientes.calcularTotalDeudasCentavos());
+    }
+
     @Test
     @DisplayName("Debe verificar existencia del directorio de respaldos")
     public void testVerificarExistenciaDirectorio() {
@@ -310,4 +352,546 @@ public class SistemaRespaldoTest {
         String primerArchivo = archivos[0];
         assertTrue(primerArchivo.matches(".\\d+."));
     }
+
+    @Test
+    @DisplayName("Debe exportar los gastos mensuales por proveedor en CSV")
+    public void testExportarGastosMensualesProveedores() throws Exception {
+        Proveedor proveedor = gestorPedidos.agregarProveedor("Luis Ruiz", "Lácteos, del Valle", "3001112233", "luis@test.com");
+        PedidoProveedor pedido = gestorPedidos.crearPedido(proveedor.getId(), new Date());
+        gestorPedidos.agregarItemAPedido(pedido.getId(), "Leche", 10, 2500.5);
+        gestorPedidos.marcarPedidoComoEntregado(pedido.getId());
+
+        assertTrue(sistemaRespaldo.exportarGastosMensualesProveedores(gestorPedidos));
+
+        File csv = new File(directorioTest + SistemaRespaldo.ARCHIVO_GASTOS_PROVEEDORES);
+        java.util.List<String> lineas = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+        assertEquals(2, lineas.size());
+        assertEquals("id_proveedor,proveedor,mes,monto", lineas.get(0));
+        assertEquals(proveedor.getId() + ",\"Lácteos, del Valle\"," + YearMonth.now() + ",25005.00", lineas.get(1));
+    }
+
+    // ============ SNAPSHOTS RESTAURABLES ============
+
+    @Test
+    @DisplayName("Un snapshot restaurado debe dejar clientes, libros y pedidos como estaban")
+    public void testGuardarYRestaurarSnapshot() {
+        Cliente pedro = gestorClientes.buscarClientePorCedula("1234567890");
+        pedro.registrarPago(20000.0);
+        pedro.agregarCompra(1234.56);
+        gestorClientes.buscarClientePorCedula("9876543210").saldarDeuda();
+
+        Proveedor proveedor = gestorPedidos.buscarProveedorPorId(1);
+        proveedor.agregarProducto("Arroz");
+        proveedor.agregarProducto("Azúcar");
+        Proveedor inactivo = gestorPedidos.agregarProveedor("Luis Ruiz", "Lácteos del Valle", "300", "luis@test.com");
+        inactivo.setActivo(false);
+        PedidoProveedor entregado = gestorPedidos.crearPedido(proveedor.getId(), new Date());
+        entregado.setCombinarItems(true);
+        entregado.agregarItem("Azúcar", 10, 2500.5);
+        entregado.agregarItem("azúcar ", 5, 2500.5);
+        gestorPedidos.marcarPedidoComoEntregado(entregado.getId());
+        gestorPedidos.cancelarPedido(gestorPedidos.crearPedido(proveedor.getId(), null).getId(), "Sin stock");
+
+        assertTrue(sistemaRespaldo.guardarSnapshot(gestorClientes, gestorPedidos));
+        assertEquals(1, sistemaRespaldo.listarSnapshots().length);
+
+        GestorClientes clientesRestaurados = new GestorClientes();
+        GestorPedidos pedidosRestaurados = new GestorPedidos();
+        SnapshotBinario.Resumen resumen =
+                sistemaRespaldo.restaurarUltimoSnapshot(clientesRestaurados, pedidosRestaurados);
+        assertNotNull(resumen);
+        assertEquals(2, resumen.getClientes());
+        assertEquals(2, resumen.getProveedores());
+        assertEquals(3, resumen.getPedidos());
+
+        Cliente pedroRestaurado = clientesRestaurados.buscarClientePorCedula("1234567890");
+        assertEquals(pedro.getId(), pedroRestaurado.getId());
+        assertEquals(pedro.getSaldoDeudaCentavos(), pedroRestaurado.getSaldoDeudaCentavos());
+        assertEquals(pedro.getFechaRegistro(), pedroRestaurado.getFechaRegistro());
+        assertEquals(3, pedroRestaurado.getCantidadMovimientos());
+        assertEquals(2, pedroRestaurado.getCantidadCompras());
+        Cliente.CursorMovimientos original = pedro.recorrerMovimientos();
+        Cliente.CursorMovimientos restaurado = pedroRestaurado.recorrerMovimientos();
+        while (original.siguiente()) {
+            assertTrue(restaurado.siguiente());
+            assertEquals(original.getTipo(), restaurado.getTipo());
+            assertEquals(original.getFechaMillis(), restaurado.getFechaMillis());
+            assertEquals(original.getMontoCentavos(), restaurado.getMontoCentavos());
+            assertEquals(original.getDescripcion(), restaurado.getDescripcion());
+        }
+        assertFalse(restaurado.siguiente());
+        assertEquals(gestorClientes.calcularTotalDeudasCentavos(), clientesRestaurados.calcularTotalDeudasCentavos());
+        assertEquals(1, clientesRestaurados.cantidadClientesConDeuda());
+        assertEquals(3, clientesRestaurados.agregarCliente("Nuevo", "555", "300").getId());
+
+        assertEquals(gestorPedidos.obtenerEstadisticas(), pedidosRestaurados.obtenerEstadisticas());
+        assertTrue(pedidosRestaurados.verificarEstadisticas());
+        PedidoProveedor entregadoRestaurado = pedidosRestaurados.buscarPedidoPorId(entregado.getId());
+        assertEquals(PedidoProveedor.EstadoPedido.ENTREGADO, entregadoRestaurado.getEstado());
+        assertEquals(entregado.getFechaEntregaReal(), entregadoRestaurado.getFechaEntregaReal());
+        assertTrue(entregadoRestaurado.isCombinarItems());
+        List<PedidoProveedor.ItemPedido> items = entregadoRestaurado.getItems();
+        assertEquals(1, items.size());
+        assertEquals("Azúcar", items.get(0).getProducto());
+        assertEquals(15, items.get(0).getCantidad());
+        assertEquals(entregado.getTotalPedidoCentavos(), entregadoRestaurado.getTotalPedidoCentavos());
+        assertEquals("Sin stock", pedidosRestaurados.buscarPedidoPorId(3).getObservaciones());
+        assertNull(pedidosRestaurados.buscarPedidoPorId(3).getFechaEntregaEstimada());
+        assertEquals(gestorPedidos.calcularTotalGastadoProveedor(1), pedidosRestaurados.calcularTotalGastadoProveedor(1), 0.001);
+
+        assertFalse(pedidosRestaurados.buscarProveedorPorId(inactivo.getId()).isActivo());
+        assertEquals(List.of("Arroz", "Azúcar"), pedidosRestaurados.buscarProveedorPorId(1).getProductosQueSupministra());
+        assertEquals(1, pedidosRestaurados.buscarProveedoresDeProducto("azúcar").size());
+        assertEquals(4, pedidosRestaurados.crearPedido(1, new Date()).getId());
+    }
+
+    @Test
+    @DisplayName("Un snapshot dañado no debe cargar nada")
+    public void testSnapshotDanado() throws Exception {
+        assertTrue(sistemaRespaldo.guardarSnapshot(gestorClientes, gestorPedidos));
+        String nombre = sistemaRespaldo.listarSnapshots()[0];
+        java.nio.file.Path archivo = new File(directorioTest + nombre).toPath();
+        byte[] contenido = Files.readAllBytes(archivo);
+        contenido[contenido.length / 2] ^= 0x5A;
+        Files.write(archivo, contenido);
+
+        GestorClientes clientesRestaurados = new GestorClientes();
+        GestorPedidos pedidosRestaurados = new GestorPedidos();
+        assertNull(sistemaRespaldo.restaurarSnapshot(nombre, clientesRestaurados, pedidosRestaurados));
+        assertEquals(0, clientesRestaurados.cantidadClientes());
+        assertEquals(0, pedidosRestaurados.cantidadPedidos());
+
+        // Tampoco se carga sobre gestores con datos
+        assertThrows(IllegalStateException.class,
+                () -> sistemaRespaldo.restaurarSnapshot(nombre, gestorClientes, gestorPedidos));
+    }
+
+    // ============ DIARIO DE TRANSACCIONES ============
+
+    @Test
+    @DisplayName("Recuperar debe repetir el diario encima del último snapshot")
+    public void testRecuperarConDiario() throws Exception {
+        assertTrue(sistemaRespaldo.activarDiario(gestorClientes, gestorPedidos, 0));
+        Cliente pedro = gestorClientes.buscarClientePorCedula("1234567890");
+        pedro.agregarCompra(1000.0);
+        assertTrue(sistemaRespaldo.guardarSnapshot(gestorClientes, gestorPedidos));
+
+        // Todo esto queda solo en el diario
+        pedro.registrarPago(20000.0);
+        Cliente nuevo = gestorClientes.agregarCliente("Marta Díaz", "555", "300");
+        nuevo.agregarCompra(4500.25);
+        nuevo.setNombre("Marta Díaz de Ruiz");
+        gestorClientes.buscarClientePorCedula("9876543210").saldarDeuda();
+        Proveedor proveedor = gestorPedidos.buscarProveedorPorId(1);
+        proveedor.agregarProducto("Arroz");
+        Proveedor otro = gestorPedidos.agregarProveedor("Luis Ruiz", "Lácteos del Valle", "300", "luis@test.com");
+        otro.setActivo(false);
+        PedidoProveedor pedido = gestorPedidos.crearPedido(proveedor.getId(), new Date());
+        gestorPedidos.agregarItemAPedido(pedido.getId(), "Azúcar", 10, 2500.5);
+        gestorPedidos.agregarItemAPedido(1, "Frijol", 5, 4000.0);
+        gestorPedidos.marcarPedidoComoEntregado(pedido.getId());
+        gestorPedidos.cancelarPedido(1, "Sin stock");
+        long ultimoLsn = sistemaRespaldo.getDiario().ultimoLsn();
+        assertEquals(ultimoLsn, sistemaRespaldo.getDiario().lsnDurable());
+        sistemaRespaldo.desactivarDiario();
+
+        SistemaRespaldo tras = new SistemaRespaldo(directorioTest);
+        GestorClientes clientes = new GestorClientes();
+        GestorPedidos pedidos = new GestorPedidos();
+        assertEquals(13, tras.recuperar(clientes, pedidos));
+
+        assertEquals(3, clientes.cantidadClientes());
+        assertEquals(gestorClientes.calcularTotalDeudasCentavos(), clientes.calcularTotalDeudasCentavos());
+        Cliente pedroRecuperado = clientes.buscarClientePorId(pedro.getId());
+        assertEquals(pedro.getSaldoDeudaCentavos(), pedroRecuperado.getSaldoDeudaCentavos());
+        assertEquals(pedro.getCantidadMovimientos(), pedroRecuperado.getCantidadMovimientos());
+        Cliente.CursorMovimientos original = pedro.recorrerMovimientos();
+        Cliente.CursorMovimientos recuperado = pedroRecuperado.recorrerMovimientos();
+        while (original.siguiente()) {
+            assertTrue(recuperado.siguiente());
+            assertEquals(original.getTipo(), recuperado.getTipo());
+            assertEquals(original.getFechaMillis(), recuperado.getFechaMillis());
+            assertEquals(original.getMontoCentavos(), recuperado.getMontoCentavos());
+        }
+        assertEquals(nuevo.getFechaRegistro(), clientes.buscarClientePorCedula("555").getFechaRegistro());
+        assertNotNull(clientes.buscarClientePorNombre("marta díaz de ruiz"));
+        assertEquals(2, clientes.cantidadClientesConDeuda());
+
+        assertEquals(gestorPedidos.obtenerEstadisticas(), pedidos.obtenerEstadisticas());
+        assertTrue(pedidos.verificarEstadisticas());
+        PedidoProveedor entregado = pedidos.buscarPedidoPorId(pedido.getId());
+        assertEquals(pedido.getFechaEntregaReal(), entregado.getFechaEntregaReal());
+        assertEquals(pedido.getTotalPedidoCentavos(), entregado.getTotalPedidoCentavos());
+        assertEquals("Sin stock", pedidos.buscarPedidoPorId(1).getObservaciones());
+        assertFalse(pedidos.buscarProveedorPorId(otro.getId()).isActivo());
+        assertEquals(1, pedidos.buscarProveedoresDeProducto("arroz").size());
+
+        // Repetir todo el diario sobre lo recuperado no cambia nada
+        DiarioTransacciones.Reproduccion otraVez = DiarioTransacciones.reproducir(
+                new File(directorioTest + SistemaRespaldo.ARCHIVO_DIARIO).toPath(), 0, clientes, pedidos);
+        assertEquals(0, otraVez.getAplicados());
+        assertEquals(ultimoLsn, otraVez.getUltimoLsn());
+        assertEquals(gestorClientes.calcularTotalDeudasCentavos(), clientes.calcularTotalDeudasCentavos());
+
+        // Los registros nuevos siguen después de los recuperados
+        assertTrue(tras.activarDiario(clientes, pedidos, 0));
+        clientes.buscarClientePorCedula("555").agregarCompra(10.0);
+        assertEquals(ultimoLsn + 1, tras.getDiario().ultimoLsn());
+        tras.desactivarDiario();
+    }
+
+    @Test
+    @DisplayName("Los cambios hechos directamente sobre el pedido también quedan en el diario")
+    public void testDiarioConCambiosDirectosAlPedido() throws Exception {
+        assertTrue(sistemaRespaldo.activarDiario(gestorClientes, gestorPedidos, 0));
+        assertTrue(sistemaRespaldo.guardarSnapshot(gestorClientes, gestorPedidos));
+
+        PedidoProveedor pedido = gestorPedidos.buscarPedidoPorId(1);
+        pedido.agregarItem("Frijol", 5, 4000.0);
+        pedido.agregarItems(List.of(new PedidoProveedor.ItemPedido("Sal", 2, 900.0)));
+        pedido.setObservaciones("Entregar por la tarde");
+        Date nuevaFecha = new Date(System.currentTimeMillis() + 86_400_000L);
+        pedido.setFechaEntregaEstimada(nuevaFecha);
+        gestorPedidos.marcarPedidoComoEntregado(1);
+        sistemaRespaldo.desactivarDiario();
+
+        GestorClientes clientes = new GestorClientes();
+        GestorPedidos pedidos = new GestorPedidos();
+        assertEquals(5, new SistemaRespaldo(directorioTest).recuperar(clientes, pedidos));
+
+        PedidoProveedor recuperado = pedidos.buscarPedidoPorId(1);
+        assertEquals(pedido.cantidadItems(), recuperado.cantidadItems());
+        assertEquals(pedido.getTotalPedidoCentavos(), recuperado.getTotalPedidoCentavos());
+        assertEquals("Entregar por la tarde", recuperado.getObservaciones());
+        assertEquals(nuevaFecha, recuperado.getFechaEntregaEstimada());
+        assertEquals(gestorPedidos.obtenerEstadisticas(), pedidos.obtenerEstadisticas());
+    }
+
+    @Test
+    @DisplayName("Un registro cortado al final del diario se descarta")
+    public void testDiarioConRegistroCortado() throws Exception {
+        assertTrue(sistemaRespaldo.activarDiario(gestorClientes, gestorPedidos, 0));
+        gestorClientes.buscarClientePorCedula("1234567890").agregarCompra(100.0);
+        sistemaRespaldo.desactivarDiario();
+
+        java.nio.file.Path archivo = new File(directorioTest + SistemaRespaldo.ARCHIVO_DIARIO).toPath();
+        long largoValido = Files.size(archivo);
+        // La caída cortó el siguiente registro a la mitad
+        Files.write(archivo, new byte[]{0, 0, 0, 40, 1, 2, 3}, java.nio.file.StandardOpenOption.APPEND);
+
+        // Sin snapshot: el diario solo tiene la compra de un cliente que no existe
+        GestorClientes clientes = new GestorClientes();
+        assertEquals(0, new SistemaRespaldo(directorioTest).recuperar(clientes, new GestorPedidos()));
+
+        assertTrue(sistemaRespaldo.activarDiario(gestorClientes, gestorPedidos, 0));
+        assertEquals(largoValido, Files.size(archivo));
+        gestorClientes.buscarClientePorCedula("1234567890").agregarCompra(100.0);
+        assertEquals(2, sistemaRespaldo.getDiario().ultimoLsn());
+    }
+
+    @Test
+    @DisplayName("Un snapshot debe recortar del diario lo que ya incluye")
+    public void testSnapshotRecortaDiario() throws Exception {
+        assertTrue(sistemaRespaldo.activarDiario(gestorClientes, gestorPedidos, 0));
+        Cliente pedro = gestorClientes.buscarClientePorCedula("1234567890");
+        for (int i = 0; i < 200; i++) {
+            pedro.agregarCompra(100.0);
+        }
+        java.nio.file.Path archivo = new File(directorioTest + SistemaRespaldo.ARCHIVO_DIARIO).toPath();
+        long antes = Files.size(archivo);
+
+        assertTrue(sistemaRespaldo.guardarSnapshot(gestorClientes, gestorPedidos));
+        assertEquals(0, Files.size(archivo));
+
+        // Lo posterior al snapshot sigue en el diario, con LSN a continuación
+        pedro.registrarPago(500.0);
+        gestorClientes.agregarCliente("Marta Díaz", "555", "300");
+        assertEquals(202, sistemaRespaldo.getDiario().ultimoLsn());
+        assertTrue(Files.size(archivo) < antes / 50);
+        sistemaRespaldo.desactivarDiario();
+
+        GestorClientes clientes = new GestorClientes();
+        assertEquals(2, new SistemaRespaldo(directorioTest).recuperar(clientes, new GestorPedidos()));
+        assertEquals(3, clientes.cantidadClientes());
+        assertEquals(gestorClientes.calcularTotalDeudasCentavos(), clientes.calcularTotalDeudasCentavos());
+    }
+
+    @Test
+    @DisplayName("Varias cajas a la vez comparten los force() del diario")
+    public void testDiarioCommitEnGrupo() throws Exception {
+        assertTrue(sistemaRespaldo.activarDiario(gestorClientes, gestorPedidos, 5));
+        int cajas = 8;
+        int ventasPorCaja = 20;
+        Thread[] hilos = new Thread[cajas];
+        for (int i = 0; i < cajas; i++) {
+            Cliente cliente = gestorClientes.agregarCliente("Caja " + i, "C" + i, "300");
+            hilos[i] = new Thread(() -> {
+                for (int v = 0; v < ventasPorCaja; v++) {
+                    cliente.agregarCompra(100.0);
+                }
+            });
+        }
+        for (Thread hilo : hilos) {
+            hilo.start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        DiarioTransacciones diario = sistemaRespaldo.getDiario();
+        assertEquals(cajas + cajas * ventasPorCaja, diario.getRegistros());
+        assertEquals(diario.ultimoLsn(), diario.lsnDurable());
+        assertTrue(diario.getSincronizaciones() < diario.getRegistros() / 2,
+                "sincronizaciones: " + diario.getSincronizaciones());
+    }
+
+    // ============ RESPALDO INCREMENTAL ============
+
+    @Test
+    @DisplayName("Los deltas deben llevar solo lo que cambió y restaurarse encima del snapshot")
+    public void testRespaldoIncrementalConDeltas() throws Exception {
+        for (int i = 0; i < 300; i++) {
+            gestorClientes.agregarCliente("Cliente " + i, "C" + i, "300" + i).agregarCompra(1000.0 + i);
+        }
+        sistemaRespaldo.activarRespaldoIncremental(gestorClientes, gestorPedidos);
+        assertTrue(sistemaRespaldo.guardarCambios());
+        assertEquals(1, sistemaRespaldo.listarSnapshots().length);
+        assertEquals(0, sistemaRespaldo.listarDeltas().length);
+
+        Cliente pedro = gestorClientes.buscarClientePorCedula("1234567890");
+        pedro.agregarCompra(1500.0);
+        Cliente nuevo = gestorClientes.agregarCliente("Marta Díaz", "555", "300");
+        nuevo.agregarCompra(4500.25);
+        gestorPedidos.marcarPedidoComoEntregado(1);
+        assertTrue(sistemaRespaldo.guardarCambios());
+
+        pedro.registrarPago(20000.0);
+        gestorClientes.eliminarCliente(gestorClientes.buscarClientePorCedula("C7").getId());
+        gestorPedidos.buscarProveedorPorId(1).agregarProducto("Frijol");
+        PedidoProveedor pedido = gestorPedidos.crearPedido(1, new Date());
+        gestorPedidos.agregarItemAPedido(pedido.getId(), "Azúcar", 10, 2500.5);
+        assertTrue(sistemaRespaldo.guardarCambios());
+
+        String[] deltas = sistemaRespaldo.listarDeltas();
+        assertEquals(2, deltas.length);
+        long base = new File(directorioTest + sistemaRespaldo.listarSnapshots()[0]).length();
+        for (String delta : deltas) {
+            assertTrue(new File(directorioTest + delta).length() * 10 < base);
+        }
+
+        GestorClientes clientes = new GestorClientes();
+        GestorPedidos pedidos = new GestorPedidos();
+        SnapshotBinario.Resumen resumen =
+                new SistemaRespaldo(directorioTest).restaurarUltimoSnapshot(clientes, pedidos);
+        assertEquals(2, resumen.getDeltas());
+        assertEquals(gestorClientes.cantidadClientes(), clientes.cantidadClientes());
+        assertNull(clientes.buscarClientePorCedula("C7"));
+        assertEquals(gestorClientes.calcularTotalDeudasCentavos(), clientes.calcularTotalDeudasCentavos());
+        Cliente pedroRestaurado = clientes.buscarClientePorId(pedro.getId());
+        assertEquals(pedro.getCantidadMovimientos(), pedroRestaurado.getCantidadMovimientos());
+        assertEquals(pedro.getSaldoDeudaCentavos(), pedroRestaurado.getSaldoDeudaCentavos());
+        assertEquals(nuevo.getFechaRegistro(), clientes.buscarClientePorCedula("555").getFechaRegistro());
+        assertTrue(pedidos.buscarProveedorPorId(1).getProductosQueSupministra().contains("Frijol"));
+        assertEquals(gestorPedidos.obtenerEstadisticas(), pedidos.obtenerEstadisticas());
+        assertEquals(pedido.getTotalPedidoCentavos(),
+                pedidos.buscarPedidoPorId(pedido.getId()).getTotalPedidoCentavos());
+    }
+
+    @Test
+    @DisplayName("Sin cambios no se debe escribir ningún delta")
+    public void testGuardarCambiosSinCambios() {
+        sistemaRespaldo.activarRespaldoIncremental(gestorClientes, gestorPedidos);
+        assertTrue(sistemaRespaldo.guardarCambios());
+        assertTrue(sistemaRespaldo.guardarCambios());
+        assertEquals(0, sistemaRespaldo.listarDeltas().length);
+
+        gestorClientes.buscarClientePorCedula("9876543210").saldarDeuda();
+        assertTrue(sistemaRespaldo.guardarCambios());
+        assertEquals(1, sistemaRespaldo.listarDeltas().length);
+
+        // Un snapshot completo deja atrás los deltas
+        assertTrue(sistemaRespaldo.guardarSnapshot(gestorClientes, gestorPedidos));
+        assertEquals(0, sistemaRespaldo.listarDeltas().length);
+        assertTrue(sistemaRespaldo.guardarCambios());
+        assertEquals(0, sistemaRespaldo.listarDeltas().length);
+    }
+
+    @Test
+    @DisplayName("Compactar debe juntar los deltas en un snapshot equivalente")
+    public void testCompactarRespaldos() {
+        sistemaRespaldo.activarRespaldoIncremental(gestorClientes, gestorPedidos);
+        assertTrue(sistemaRespaldo.guardarCambios());
+        Cliente ana = gestorClientes.buscarClientePorCedula("9876543210");
+        ana.registrarPago(10000.0);
+        assertTrue(sistemaRespaldo.guardarCambios());
+        gestorClientes.agregarCliente("Marta Díaz", "555", "300").agregarCompra(800.0);
+        gestorPedidos.cancelarPedido(1, "Sin stock");
+        assertTrue(sistemaRespaldo.guardarCambios());
+        assertEquals(2, sistemaRespaldo.listarDeltas().length);
+
+        assertTrue(sistemaRespaldo.compactarRespaldos());
+        assertEquals(0, sistemaRespaldo.listarDeltas().length);
+
+        GestorClientes clientes = new GestorClientes();
+        GestorPedidos pedidos = new GestorPedidos();
+        assertEquals(0, new SistemaRespaldo(directorioTest).recuperar(clientes, pedidos));
+        assertEquals(3, clientes.cantidadClientes());
+        assertEquals(gestorClientes.calcularTotalDeudasCentavos(), clientes.calcularTotalDeudasCentavos());
+        assertEquals(ana.getCantidadMovimientos(), clientes.buscarClientePorId(ana.getId()).getCantidadMovimientos());
+        assertEquals("Sin stock", pedidos.buscarPedidoPorId(1).getObservaciones());
+        assertEquals(gestorPedidos.obtenerEstadisticas(), pedidos.obtenerEstadisticas());
+    }
+
+    @Test
+    @DisplayName("Un snapshot no debe pisar ni quedar detrás de uno más reciente")
+    public void testSnapshotNoPisaUnoMasReciente() throws Exception {
+        // Dos snapshots seguidos caen en el mismo segundo pero no comparten nombre
+        assertTrue(sistemaRespaldo.guardarSnapshot(gestorClientes, gestorPedidos));
+        assertTrue(sistemaRespaldo.guardarSnapshot(gestorClientes, gestorPedidos));
+        assertEquals(2, sistemaRespaldo.listarSnapshots().length);
+
+        // Como una captura vieja que termina de escribirse después de otra nueva
+        File futuro = new File(directorioTest + "snapshot_29991231_235959_999" + SnapshotBinario.EXTENSION);
+        Files.copy(new File(directorioTest + sistemaRespaldo.listarSnapshots()[1]).toPath(), futuro.toPath());
+        long tamano = futuro.length();
+        assertFalse(sistemaRespaldo.guardarSnapshot(gestorClientes, gestorPedidos));
+        assertEquals(3, sistemaRespaldo.listarSnapshots().length);
+        assertEquals(futuro.getName(), sistemaRespaldo.listarSnapshots()[2]);
+        assertEquals(tamano, futuro.length());
+    }
+
+    // ============ RESPALDO ASÍNCRONO ============
+
+    @Test
+    @DisplayName("El respaldo asíncrono debe guardar el estado del momento en que se pidió")
+    public void testGuardarRespaldoAsyncEsPuntual() throws Exception {
+        Cliente pedro = gestorClientes.buscarClientePorCedula("1234567890");
+        long deudas = gestorClientes.calcularTotalDeudasCentavos();
+        int movimientos = pedro.getCantidadMovimientos();
+
+        CompletableFuture<SnapshotBinario.Resumen> respaldo =
+                sistemaRespaldo.guardarRespaldoAsync(gestorClientes, gestorPedidos);
+        // Nada de esto entra: la captura ya se tomó
+        for (int i = 0; i < 1000; i++) {
+            pedro.agregarCompra(100.0);
+        }
+        gestorClientes.agregarCliente("Marta Díaz", "555", "300");
+        gestorPedidos.agregarItemAPedido(1, "Frijol", 5, 4000.0);
+        gestorPedidos.crearPedido(1, new Date());
+
+        SnapshotBinario.Resumen resumen = respaldo.get(10, TimeUnit.SECONDS);
+        assertEquals(2, resumen.getClientes());
+        assertEquals(1, resumen.getPedidos());
+
+        GestorClientes clientes = new GestorClientes();
+        GestorPedidos pedidos = new GestorPedidos();
+        assertNotNull(sistemaRespaldo.restaurarUltimoSnapshot(clientes, pedidos));
+        assertEquals(2, clientes.cantidadClientes());
+        assertEquals(deudas, clientes.calcularTotalDeudasCentavos());
+        assertEquals(movimientos, clientes.buscarClientePorId(pedro.getId()).getCantidadMovimientos());
+        assertEquals(1, pedidos.buscarPedidoPorId(1).cantidadItems());
+
+        SistemaRespaldo.MetricasRespaldoAsync metricas = sistemaRespaldo.obtenerMetricasRespaldoAsync();
+        assertEquals(1, metricas.getCompletados());
+        assertEquals(0, metricas.getFallidos());
+        assertEquals(0, metricas.getPendientes());
+        assertEquals(resumen.getBytes(), metricas.getBytesEscritos());
+    }
+
+    @Test
+    @DisplayName("Un respaldo asíncrono que falla debe completar el future con el error")
+    public void testGuardarRespaldoAsyncFallido() throws Exception {
+        File bloqueado = new File(directorioTest + "bloqueado");
+        SistemaRespaldo sinDirectorio = new SistemaRespaldo(bloqueado.getPath());
+        assertTrue(bloqueado.delete());
+        assertTrue(bloqueado.createNewFile());
+
+        CompletableFuture<SnapshotBinario.Resumen> respaldo =
+                sinDirectorio.guardarRespaldoAsync(gestorClientes, gestorPedidos);
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> respaldo.get(10, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof UncheckedIOException);
+
+        SistemaRespaldo.MetricasRespaldoAsync metricas = sinDirectorio.obtenerMetricasRespaldoAsync();
+        assertEquals(0, metricas.getCompletados());
+        assertEquals(1, metricas.getFallidos());
+        assertNotNull(metricas.getUltimoError());
+    }
+
+    @Test
+    @DisplayName("Los deltas asíncronos deben poder capturarse mientras se registran pedidos")
+    public void testGuardarCambiosAsyncMientrasSeRegistra() throws Exception {
+        sistemaRespaldo.activarRespaldoIncremental(gestorClientes, gestorPedidos);
+        assertTrue(sistemaRespaldo.guardarCambios());
+        Thread caja = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                PedidoProveedor pedido = gestorPedidos.crearPedido(1, new Date());
+                gestorPedidos.agregarItemAPedido(pedido.getId(), "Producto " + (i % 50), 1 + i % 7, 100.0 + i);
+                if (i % 2 == 0) {
+                    gestorPedidos.marcarPedidoComoEntregado(pedido.getId());
+                }
+            }
+        });
+        List<CompletableFuture<Boolean>> deltas = new ArrayList<>();
+        caja.start();
+        while (caja.isAlive()) {
+            deltas.add(sistemaRespaldo.guardarCambiosAsync());
+            // Lo que lee el resumen y el CSV de gastos mientras se registra
+            gestorPedidos.obtenerGastosMensualesPorProveedor();
+            gestorPedidos.obtenerEstadisticas();
+            Thread.sleep(1);
+        }
+        caja.join();
+        deltas.add(sistemaRespaldo.guardarCambiosAsync());
+
+        // cerrar() espera lo que quedó encolado
+        sistemaRespaldo.cerrar();
+        for (CompletableFuture<Boolean> delta : deltas) {
+            assertTrue(delta.isDone());
+            assertTrue(delta.get());
+        }
+
+        GestorClientes clientes = new GestorClientes();
+        GestorPedidos pedidos = new GestorPedidos();
+        assertNotNull(new SistemaRespaldo(directorioTest).restaurarUltimoSnapshot(clientes, pedidos));
+        assertEquals(gestorPedidos.cantidadPedidos(), pedidos.cantidadPedidos());
+        assertEquals(gestorPedidos.obtenerEstadisticas(), pedidos.obtenerEstadisticas());
+        assertEquals(gestorPedidos.obtenerGastosMensualesPorProveedor(), pedidos.obtenerGastosMensualesPorProveedor());
+    }
+
+    // ============ RESPALDO COMPRIMIDO ============
+
+    @Test
+    @DisplayName("El respaldo comprimido debe descomprimir al mismo texto que el respaldo plano")
+    public void testRespaldoComprimidoIgualAlTexto() throws Exception {
+        for (int i = 0; i < RespaldoComprimido.CLIENTES_POR_BLOQUE + 100; i++) {
+            gestorClientes.agregarCliente("Cliente " + i, "C" + i, "300" + i).agregarCompra(10.5 + i);
+        }
+        assertTrue(sistemaRespaldo.guardarRespaldoCompletoComprimido(gestorClientes, gestorPedidos));
+        assertTrue(sistemaRespaldo.guardarClientes(gestorClientes));
+        assertTrue(sistemaRespaldo.guardarPedidos(gestorPedidos));
+
+        for (String tipo : new String[]{"clientes", "pedidos"}) {
+            String plano = null;
+            String comprimido = null;
+            for (String archivo : sistemaRespaldo.listarRespaldos()) {
+                if (!archivo.startsWith(tipo)) {
+                    continue;
+                }
+                if (archivo.endsWith(RespaldoComprimido.EXTENSION)) {
+                    try (GZIPInputStream entrada = new GZIPInputStream(
+                            Files.newInputStream(new File(directorioTest + archivo).toPath()))) {
+                        comprimido = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+                    }
+                } else {
+                    plano = new String(Files.readAllBytes(new File(directorioTest + archivo).toPath()),
+                            StandardCharsets.UTF_8);
+                }
+            }
+            assertNotNull(plano);
+            assertNotNull(comprimido);
+            // La fecha del encabezado puede cambiar de segundo entre uno y otro
+            assertEquals(plano.replaceFirst("Fecha: .*", ""), comprimido.replaceFirst("Fecha: .*", ""));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,1168 @@
+package ERICK-S-CONVENIENCE-STORE;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot binario de clientes, proveedores y pedidos, con un cargador que
+ * deja los gestores como estaban.
+ *
+ * Formato (big-endian), versión 2:
+ * <pre>
+ *   "ECSB" | versión (short) | fecha de creación (long) | LSN (long)
+ *   clientes:    cantidad, y por cliente id, nombre, cédula, teléfono,
+ *                fecha de registro y el libro en columnas (fechas, montos,
+ *                tipos, descripciones)
+ *   proveedores: cantidad, y por proveedor id, datos, activo y productos
+ *   pedidos:     cantidad, y por pedido id, id del proveedor, fechas,
+ *                estado, observaciones, modo combinación e items
+ *   CRC32 de todo lo anterior (int)
+ * </pre>
+ * Los textos van en UTF-8 precedidos de su largo (-1 si son null) y las
+ * fechas en milisegundos (Long.MIN_VALUE si son null). Los nombres de
+ * productos y las descripciones se escriben una sola vez: la primera
+ * aparición lleva el texto y las siguientes solo su número en el archivo.
+ *
+ * Escribe y lee con FileChannel a través de un buffer de 64 KB. Guarda
+ * primero en un archivo temporal y lo mueve al nombre final, así que un
+ * corte a mitad de camino no pisa el snapshot anterior.
+ *
+ * El LSN es el último registro del DiarioTransacciones que ya estaba
+ * aplicado al empezar a guardar: al recuperar se repite el diario desde
+ * ahí. La versión 1 no lo tenía y se lee como LSN 0.
+ *
+ * Un delta (".ecsd") lleva solo lo que marcó CambiosPendientes desde el
+ * respaldo anterior y se aplica encima de un snapshot completo:
+ * <pre>
+ *   "ECSD" | versión (short) | sello (long) | LSN (long) | marcas (byte)
+ *   clientes eliminados: cantidad e ids
+ *   clientes:    como en el snapshot, pero con el primer movimiento
+ *                incluido (int) antes del libro, que sigue desde ahí
+ *   proveedores: como en el snapshot, completos
+ *   pedidos:     como en el snapshot, completos
+ *   CRC32 (int)
+ * </pre>
+ * Las marcas indican si se limpiaron los clientes (1) o los proveedores y
+ * pedidos (2) antes de estos cambios. El sello ordena los archivos: los
+ * deltas con sello anterior a la fecha del snapshot ya están en él.
+ */
+public final class SnapshotBinario {
+    public static final String EXTENSION = ".ecsb";
+    public static final String EXTENSION_DELTA = ".ecsd";
+    static final byte[] MAGIA = {'E', 'C', 'S', 'B'};
+    static final byte[] MAGIA_DELTA = {'E', 'C', 'S', 'D'};
+    static final short VERSION = 2;
+    private static final short VERSION_SIN_LSN = 1;
+    static final short VERSION_DELTA = 1;
+
+    private static final byte CLIENTES_LIMPIADOS = 1;
+    private static final byte PEDIDOS_LIMPIADOS = 2;
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    private static final long FECHA_NULA = Long.MIN_VALUE;
+
+    private SnapshotBinario() {
+    }
+
+    /**
+     * Guarda el estado de ambos gestores en el archivo indicado, sin diario
+     *
+     * @return Bytes escritos
+     */
+    public static long guardar(Path archivo, GestorClientes gestorClientes, GestorPedidos gestorPedidos)
+            throws IOException {
+        return guardar(archivo, gestorClientes, gestorPedidos, 0);
+    }
+
+    /**
+     * Guarda el estado de ambos gestores en el archivo indicado
+     *
+     * @param lsn Último registro del diario aplicado antes de empezar
+     * @return Bytes escritos
+     */
+    public static long guardar(Path archivo, GestorClientes gestorClientes, GestorPedidos gestorPedidos, long lsn)
+            throws IOException {
+        return guardar(archivo, gestorClientes, gestorPedidos, lsn, System.currentTimeMillis());
+    }
+
+    /**
+     * Como guardar(), con la fecha de creación que decida quien llama (el
+     * sello de SistemaRespaldo, que ordena snapshots y deltas)
+     */
+    static long guardar(Path archivo, GestorClientes gestorClientes, GestorPedidos gestorPedidos, long lsn,
+                        long fechaCreacion) throws IOException {
+        return escribir(archivo, capturar(gestorClientes, gestorPedidos, lsn, fechaCreacion)).getBytes();
+    }
+
+    /**
+     * Toma una imagen de ambos gestores para escribirla después con
+     * escribir(), en este hilo o en otro. Cuesta un objeto chico por
+     * cliente, proveedor y pedido: no copia libros ni items.
+     */
+    static Captura capturar(GestorClientes gestorClientes, GestorPedidos gestorPedidos, long lsn,
+                            long fechaCreacion) {
+        // La vista es débilmente consistente: se cuenta lo que se captura
+        return new Captura(fechaCreacion, lsn, gestorClientes.vistaClientes(), gestorPedidos.vistaProveedores(),
+                gestorPedidos.vistaHistorialPedidos());
+    }
+
+    /**
+     * Escribe una captura como snapshot completo
+     *
+     * @return Qué se escribió
+     */
+    static Resumen escribir(Path archivo, Captura captura) throws IOException {
+        long bytes = escribirArchivo(archivo, escritor -> {
+            escritor.bytes(MAGIA);
+            escritor.entero16(VERSION);
+            escritor.largo(captura.fechaCreacion);
+            escritor.largo(captura.lsn);
+            escritor.entero(captura.clientes.size());
+            for (ClienteCapturado cliente : captura.clientes) {
+                escribirDatosCliente(escritor, cliente);
+                escribirLibro(escritor, cliente, 0);
+            }
+            escribirProveedores(escritor, captura.proveedores);
+            escribirPedidos(escritor, captura.pedidos);
+        });
+        return new Resumen(new Date(captura.fechaCreacion), captura.lsn, captura.clientes.size(),
+                captura.proveedores.size(), captura.pedidos.size(), bytes, 0);
+    }
+
+    /**
+     * Guarda en un delta los cambios de un lote de CambiosPendientes. Los
+     * clientes, proveedores y pedidos se leen al escribir, así que puede
+     * llevar algo más nuevo que el lote; al aplicarlo se reconoce y se omite.
+     *
+     * @param sello Debe ser mayor que la fecha del snapshot base y que el
+     *              sello de los deltas anteriores
+     * @return Bytes escritos
+     */
+    public static long guardarDelta(Path archivo, CambiosPendientes.Lote lote, GestorClientes gestorClientes,
+                                    GestorPedidos gestorPedidos, long lsn, long sello) throws IOException {
+        return escribirDelta(archivo, capturarDelta(lote, gestorClientes, gestorPedidos, lsn, sello));
+    }
+
+    /**
+     * Como capturar(), pero solo de lo que marca el lote, para escribirlo
+     * después con escribirDelta()
+     */
+    static CapturaDelta capturarDelta(CambiosPendientes.Lote lote, GestorClientes gestorClientes,
+                                      GestorPedidos gestorPedidos, long lsn, long sello) {
+        List<Cliente> clientes = new ArrayList<>(lote.getClientes().size());
+        List<Integer> desde = new ArrayList<>(lote.getClientes().size());
+        for (Map.Entry<Integer, Integer> cambio : lote.getClientes().entrySet()) {
+            Cliente cliente = gestorClientes.buscarClientePorId(cambio.getKey());
+            // Si ya no está, la baja viene en este lote o en el siguiente
+            if (cliente != null) {
+                clientes.add(cliente);
+                desde.add(cambio.getValue());
+            }
+        }
+        List<Proveedor> proveedores = new ArrayList<>();
+        for (int id : lote.getProveedores()) {
+            Proveedor proveedor = gestorPedidos.buscarProveedorPorId(id);
+            if (proveedor != null) {
+                proveedores.add(proveedor);
+            }
+        }
+        List<PedidoProveedor> pedidos = new ArrayList<>();
+        for (int id : lote.getPedidos()) {
+            PedidoProveedor pedido = gestorPedidos.buscarPedidoPorId(id);
+            if (pedido != null) {
+                pedidos.add(pedido);
+            }
+        }
+        return new CapturaDelta(lote, desde, new Captura(sello, lsn, clientes, proveedores, pedidos));
+    }
+
+    /**
+     * Escribe una captura de capturarDelta() como delta
+     *
+     * @return Bytes escritos
+     */
+    static long escribirDelta(Path archivo, CapturaDelta delta) throws IOException {
+        CambiosPendientes.Lote lote = delta.lote;
+        List<Integer> desde = delta.desde;
+        Captura captura = delta.captura;
+        byte marcas = (byte) ((lote.isClientesLimpiados() ? CLIENTES_LIMPIADOS : 0)
+                | (lote.isPedidosLimpiados() ? PEDIDOS_LIMPIADOS : 0));
+
+        return escribirArchivo(archivo, escritor -> {
+            escritor.bytes(MAGIA_DELTA);
+            escritor.entero16(VERSION_DELTA);
+            escritor.largo(captura.fechaCreacion);
+            escritor.largo(captura.lsn);
+            escritor.byteSimple(marcas);
+            escritor.entero(lote.getClientesEliminados().size());
+            for (int id : lote.getClientesEliminados()) {
+                escritor.entero(id);
+            }
+            escritor.entero(captura.clientes.size());
+            for (int i = 0; i < captura.clientes.size(); i++) {
+                escribirDatosCliente(escritor, captura.clientes.get(i));
+                escritor.entero(desde.get(i));
+                escribirLibro(escritor, captura.clientes.get(i), desde.get(i));
+            }
+            escribirProveedores(escritor, captura.proveedores);
+            escribirPedidos(escritor, captura.pedidos);
+        });
+    }
+
+    /**
+     * Escribe en un temporal, agrega el CRC y lo mueve al nombre final
+     */
+    private static long escribirArchivo(Path archivo, Secciones secciones) throws IOException {
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        long bytes;
+        try (Escritor escritor = new Escritor(FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            secciones.escribir(escritor);
+            bytes = escritor.terminar();
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return bytes;
+    }
+
+    private interface Secciones {
+        void escribir(Escritor escritor);
+    }
+
+    private static void escribirDatosCliente(Escritor escritor, ClienteCapturado cliente) {
+        escritor.entero(cliente.id);
+        escritor.texto(cliente.nombre);
+        escritor.texto(cliente.cedula);
+        escritor.texto(cliente.telefono);
+        escritor.largo(cliente.fechaRegistro);
+    }
+
+    /**
+     * Libro del cliente a partir del movimiento indicado
+     */
+    private static void escribirLibro(Escritor escritor, ClienteCapturado cliente, int desde) {
+        Cliente.CursorMovimientos cursor = cliente.movimientos;
+        cursor.reiniciar();
+        int omitir = Math.min(desde, cursor.cantidad());
+        escritor.entero(cursor.cantidad() - omitir);
+        for (int i = 0; cursor.siguiente(); i++) {
+            if (i < omitir) {
+                continue;
+            }
+            escritor.largo(cursor.getFechaMillis());
+            escritor.largo(cursor.getMontoCentavos());
+            escritor.byteSimple((byte) cursor.getTipo().ordinal());
+            escritor.descripcion(cursor.getTipo());
+        }
+    }
+
+    private static void escribirProveedores(Escritor escritor, List<ProveedorCapturado> proveedores) {
+        escritor.entero(proveedores.size());
+        for (ProveedorCapturado proveedor : proveedores) {
+            escritor.entero(proveedor.id);
+            escritor.texto(proveedor.nombre);
+            escritor.texto(proveedor.empresa);
+            escritor.texto(proveedor.telefono);
+            escritor.texto(proveedor.email);
+            escritor.byteSimple((byte) (proveedor.activo ? 1 : 0));
+            escritor.entero(proveedor.productos.length);
+            for (int producto : proveedor.productos) {
+                escritor.referencia(producto);
+            }
+        }
+    }
+
+    private static void escribirPedidos(Escritor escritor, List<PedidoCapturado> pedidos) {
+        escritor.entero(pedidos.size());
+        for (PedidoCapturado pedido : pedidos) {
+            escritor.entero(pedido.id);
+            escritor.entero(pedido.proveedorId);
+            escritor.largo(pedido.fechaPedido);
+            escritor.largo(pedido.fechaEntregaEstimada);
+            escritor.largo(pedido.fechaEntregaReal);
+            escritor.byteSimple((byte) pedido.estado.ordinal());
+            escritor.texto(pedido.observaciones);
+            escritor.byteSimple((byte) (pedido.combinarItems ? 1 : 0));
+
+            escritor.entero(pedido.items.size());
+            for (PedidoProveedor.ItemPedido item : pedido.items) {
+                escritor.referencia(item.getProductoId());
+                escritor.entero(item.getCantidad());
+                escritor.largo(item.getPrecioUnitarioCentavos());
+            }
+        }
+    }
+
+    /**
+     * Carga un snapshot en gestores vacíos. Lee y verifica el archivo
+     * completo antes de tocar los gestores: si está dañado, quedan vacíos.
+     *
+     * @throws IllegalStateException si alguno de los gestores ya tiene datos
+     * @throws IOException           si el archivo no es un snapshot, es de
+     *                               otra versión o está dañado
+     */
+    public static Resumen restaurar(Path archivo, GestorClientes gestorClientes, GestorPedidos gestorPedidos)
+            throws IOException {
+        return restaurar(archivo, Collections.emptyList(), gestorClientes, gestorPedidos);
+    }
+
+    /**
+     * Carga un snapshot y le aplica encima los deltas, en el orden dado.
+     * Todo se lee y se verifica antes de tocar los gestores.
+     *
+     * @throws IllegalStateException si alguno de los gestores ya tiene datos
+     * @throws IOException           si algún archivo falta, está dañado o un
+     *                               delta no encaja con lo anterior
+     */
+    public static Resumen restaurar(Path base, List<Path> deltas, GestorClientes gestorClientes,
+                                    GestorPedidos gestorPedidos) throws IOException {
+        if (gestorClientes.cantidadClientes() > 0 || gestorPedidos.cantidadProveedores() > 0
+                || gestorPedidos.cantidadPedidos() > 0) {
+            throw new IllegalStateException("Solo se puede restaurar sobre gestores vacíos");
+        }
+        Contenido contenido = cargar(base, deltas);
+
+        gestorClientes.restaurarClientes(new ArrayList<>(contenido.clientes.values()));
+        for (Proveedor proveedor : contenido.proveedores.values()) {
+            gestorPedidos.restaurarProveedor(proveedor);
+        }
+        for (PedidoProveedor pedido : contenido.pedidos.values()) {
+            gestorPedidos.restaurarPedido(pedido);
+        }
+        return new Resumen(new Date(contenido.fechaCreacion), contenido.lsn, contenido.clientes.size(),
+                contenido.proveedores.size(), contenido.pedidos.size(), contenido.bytes, contenido.deltas);
+    }
+
+    /**
+     * Junta un snapshot y sus deltas en un snapshot nuevo, con la fecha del
+     * último delta aplicado, sin pasar por los gestores
+     *
+     * @return Qué se escribió (con el LSN del último delta)
+     */
+    public static Resumen compactar(Path base, List<Path> deltas, Path destino) throws IOException {
+        Contenido contenido = cargar(base, deltas);
+        return escribir(destino, new Captura(contenido.fechaCreacion, contenido.lsn, contenido.clientes.values(),
+                contenido.proveedores.values(), contenido.pedidos.values()));
+    }
+
+    private static Contenido cargar(Path base, List<Path> deltas) throws IOException {
+        Contenido contenido = new Contenido();
+        try {
+            leerCompleto(base, contenido);
+            for (Path delta : deltas) {
+                aplicarDelta(delta, contenido);
+            }
+        } catch (IllegalArgumentException | IllegalStateException | IndexOutOfBoundsException e) {
+            throw new IOException("El snapshot está dañado: " + e.getMessage(), e);
+        }
+        return contenido;
+    }
+
+    private static void leerCompleto(Path archivo, Contenido contenido) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            Lector lector = new Lector(canal);
+            byte[] magia = lector.bytes(MAGIA.length);
+            if (!Arrays.equals(magia, MAGIA)) {
+                throw new IOException("El archivo no es un snapshot de la tienda");
+            }
+            short version = lector.entero16();
+            if (version != VERSION && version != VERSION_SIN_LSN) {
+                throw new IOException("Versión de snapshot no soportada: " + version);
+            }
+            contenido.fechaCreacion = lector.largo();
+            contenido.lsn = version == VERSION_SIN_LSN ? 0 : lector.largo();
+
+            int clientes = lector.cantidad();
+            for (int c = 0; c < clientes; c++) {
+                Cliente cliente = leerCliente(lector, false);
+                contenido.clientes.put(cliente.getId(), cliente);
+            }
+            leerProveedores(lector, contenido);
+            leerPedidos(lector, contenido);
+            lector.verificarFin();
+            contenido.bytes += lector.leidos();
+        }
+    }
+
+    /**
+     * Aplica un delta sobre lo cargado. Se omite entero si su sello no es
+     * posterior a lo ya cargado, y cada movimiento que ya esté en el libro.
+     */
+    private static void aplicarDelta(Path archivo, Contenido contenido) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            Lector lector = new Lector(canal);
+            byte[] magia = lector.bytes(MAGIA_DELTA.length);
+            if (!Arrays.equals(magia, MAGIA_DELTA)) {
+                throw new IOException("El archivo no es un delta de la tienda: " + archivo.getFileName());
+            }
+            short version = lector.entero16();
+            if (version != VERSION_DELTA) {
+                throw new IOException("Versión de delta no soportada: " + version);
+            }
+            long sello = lector.largo();
+            if (sello <= contenido.fechaCreacion) {
+                return;
+            }
+            long lsn = lector.largo();
+            byte marcas = lector.byteSimple();
+            if ((marcas & CLIENTES_LIMPIADOS) != 0) {
+                contenido.clientes.clear();
+            }
+            if ((marcas & PEDIDOS_LIMPIADOS) != 0) {
+                contenido.proveedores.clear();
+                contenido.pedidos.clear();
+            }
+
+            int eliminados = lector.cantidad();
+            for (int i = 0; i < eliminados; i++) {
+                contenido.clientes.remove(lector.entero());
+            }
+            int clientes = lector.cantidad();
+            for (int c = 0; c < clientes; c++) {
+                aplicarCliente(lector, contenido);
+            }
+            leerProveedores(lector, contenido);
+            leerPedidos(lector, contenido);
+            lector.verificarFin();
+
+            contenido.fechaCreacion = sello;
+            contenido.lsn = Math.max(contenido.lsn, lsn);
+            contenido.bytes += lector.leidos();
+            contenido.deltas++;
+        }
+    }
+
+    private static void aplicarCliente(Lector lector, Contenido contenido) throws IOException {
+        int id = lector.entero();
+        Cliente existente = contenido.clientes.get(id);
+        if (existente == null) {
+            Cliente nuevo = leerCliente(lector, id, true);
+            contenido.clientes.put(id, nuevo);
+            return;
+        }
+        existente.setNombre(lector.texto());
+        existente.setCedula(lector.texto());
+        existente.setTelefono(lector.texto());
+        lector.fecha();
+        int desde = lector.entero();
+        Libro libro = leerLibro(lector);
+        Cliente.TipoMovimiento[] tipos = Cliente.TipoMovimiento.values();
+        for (int i = 0; i < libro.cantidad; i++) {
+            existente.reaplicarMovimiento(desde + i, tipos[libro.tipos[i]], libro.fechas[i], libro.montos[i]);
+        }
+    }
+
+    private static Cliente leerCliente(Lector lector, boolean conDesde) throws IOException {
+        return leerCliente(lector, lector.entero(), conDesde);
+    }
+
+    private static Cliente leerCliente(Lector lector, int id, boolean conDesde) throws IOException {
+        String nombre = lector.texto();
+        String cedula = lector.texto();
+        String telefono = lector.texto();
+        Date fechaRegistro = lector.fecha();
+        if (conDesde && lector.entero() != 0) {
+            throw new IOException("El delta no encaja: trae parte del libro de un cliente que no existe");
+        }
+        Libro libro = leerLibro(lector);
+        return Cliente.restaurar(id, nombre, cedula, telefono, fechaRegistro,
+                libro.fechas, libro.montos, libro.tipos, libro.cantidad);
+    }
+
+    private static Libro leerLibro(Lector lector) throws IOException {
+        Libro libro = new Libro(lector.cantidad());
+        for (int i = 0; i < libro.cantidad; i++) {
+            libro.fechas[i] = lector.largo();
+            libro.montos[i] = lector.largo();
+            libro.tipos[i] = lector.byteSimple();
+            // La descripción sale del tipo: se lee para avanzar y no se registra
+            lector.omitirReferencia();
+        }
+        return libro;
+    }
+
+    /**
+     * Lee proveedores y los suma a lo cargado; los que ya estaban se
+     * actualizan en el lugar para no soltar sus pedidos
+     */
+    private static void leerProveedores(Lector lector, Contenido contenido) throws IOException {
+        int cantidad = lector.cantidad();
+        for (int p = 0; p < cantidad; p++) {
+            int id = lector.entero();
+            String nombre = lector.texto();
+            String empresa = lector.texto();
+            String telefono = lector.texto();
+            String email = lector.texto();
+            boolean activo = lector.byteSimple() != 0;
+            Proveedor proveedor = contenido.proveedores.get(id);
+            if (proveedor == null) {
+                proveedor = new Proveedor(id, nombre, empresa, telefono, email);
+                contenido.proveedores.put(id, proveedor);
+            } else {
+                proveedor.setNombre(nombre);
+                proveedor.setEmpresa(empresa);
+                proveedor.setTelefono(telefono);
+                proveedor.setEmail(email);
+            }
+            int productos = lector.cantidad();
+            for (int i = 0; i < productos; i++) {
+                proveedor.agregarProducto(CatalogoProductos.nombre(lector.referencia()));
+            }
+            proveedor.setActivo(activo);
+        }
+    }
+
+    private static void leerPedidos(Lector lector, Contenido contenido) throws IOException {
+        PedidoProveedor.EstadoPedido[] estados = PedidoProveedor.EstadoPedido.values();
+        int cantidad = lector.cantidad();
+        for (int p = 0; p < cantidad; p++) {
+            int id = lector.entero();
+            Proveedor proveedor = contenido.proveedores.get(lector.entero());
+            if (proveedor == null) {
+                throw new IOException("El snapshot está dañado: pedido de un proveedor inexistente");
+            }
+            Date fechaPedido = lector.fecha();
+            Date fechaEntregaEstimada = lector.fecha();
+            Date fechaEntregaReal = lector.fecha();
+            PedidoProveedor.EstadoPedido estado = estados[lector.byteSimple()];
+            String observaciones = lector.texto();
+            boolean combinarItems = lector.byteSimple() != 0;
+
+            int cantidadItems = lector.cantidad();
+            List<PedidoProveedor.ItemPedido> items = new ArrayList<>(cantidadItems);
+            for (int i = 0; i < cantidadItems; i++) {
+                int producto = lector.referencia();
+                items.add(PedidoProveedor.ItemPedido.enCentavos(producto < 0 ? null : CatalogoProductos.nombre(producto),
+                        lector.entero(), lector.largo()));
+            }
+            // Un pedido de un delta reemplaza al anterior con su estado final
+            contenido.pedidos.put(id, PedidoProveedor.restaurar(id, proveedor, fechaPedido, fechaEntregaEstimada,
+                    fechaEntregaReal, estado, observaciones, combinarItems, items));
+        }
+    }
+
+    /**
+     * Imagen de clientes, proveedores y pedidos en un instante. De cada
+     * cliente guarda un cursor fijo en los movimientos que tenía (el libro
+     * solo crece hacia adelante) y de cada pedido una vista fija de sus
+     * items, así que se puede escribir desde otro hilo mientras las cajas
+     * siguen registrando.
+     */
+    static final class Captura {
+        private final long fechaCreacion;
+        private final long lsn;
+        private final List<ClienteCapturado> clientes;
+        private final List<ProveedorCapturado> proveedores;
+        private final List<PedidoCapturado> pedidos;
+
+        Captura(long fechaCreacion, long lsn, Collection<Cliente> clientes, Collection<Proveedor> proveedores,
+                Collection<PedidoProveedor> pedidos) {
+            this.fechaCreacion = fechaCreacion;
+            this.lsn = lsn;
+            this.clientes = new ArrayList<>(clientes.size());
+            for (Cliente cliente : clientes) {
+                this.clientes.add(new ClienteCapturado(cliente));
+            }
+            this.proveedores = new ArrayList<>(proveedores.size());
+            for (Proveedor proveedor : proveedores) {
+                this.proveedores.add(new ProveedorCapturado(proveedor));
+            }
+            this.pedidos = new ArrayList<>(pedidos.size());
+            for (PedidoProveedor pedido : pedidos) {
+                this.pedidos.add(new PedidoCapturado(pedido));
+            }
+        }
+
+        int cantidadClientes() {
+            return clientes.size();
+        }
+
+        int cantidadPedidos() {
+            return pedidos.size();
+        }
+
+        long getFechaCreacion() {
+            return fechaCreacion;
+        }
+
+        List<ClienteCapturado> getClientes() {
+            return clientes;
+        }
+
+        List<ProveedorCapturado> getProveedores() {
+            return proveedores;
+        }
+
+        List<PedidoCapturado> getPedidos() {
+            return pedidos;
+        }
+    }
+
+    /**
+     * Lote de cambios con la imagen de lo que marca, y desde qué movimiento
+     * va el libro de cada cliente
+     */
+    static final class CapturaDelta {
+        private final CambiosPendientes.Lote lote;
+        private final List<Integer> desde;
+        private final Captura captura;
+
+        CapturaDelta(CambiosPendientes.Lote lote, List<Integer> desde, Captura captura) {
+            this.lote = lote;
+            this.desde = desde;
+            this.captura = captura;
+        }
+
+        CambiosPendientes.Lote getLote() {
+            return lote;
+        }
+
+        long getSello() {
+            return captura.fechaCreacion;
+        }
+    }
+
+    static final class ClienteCapturado {
+        final int id;
+        final String nombre;
+        final String cedula;
+        final String telefono;
+        final long fechaRegistro;
+        final long saldoCentavos;
+        final Cliente.CursorMovimientos movimientos;
+
+        ClienteCapturado(Cliente cliente) {
+            id = cliente.getId();
+            nombre = cliente.getNombre();
+            cedula = cliente.getCedula();
+            telefono = cliente.getTelefono();
+            fechaRegistro = millis(cliente.getFechaRegistro());
+            // Saldo y cursor juntos: el saldo es el de esos movimientos
+            synchronized (cliente) {
+                saldoCentavos = cliente.getSaldoDeudaCentavos();
+                movimientos = cliente.recorrerMovimientos();
+            }
+        }
+    }
+
+    static final class ProveedorCapturado {
+        final int id;
+        final String nombre;
+        final String empresa;
+        final String telefono;
+        final String email;
+        final boolean activo;
+        final int[] productos;
+
+        ProveedorCapturado(Proveedor proveedor) {
+            id = proveedor.getId();
+            nombre = proveedor.getNombre();
+            empresa = proveedor.getEmpresa();
+            telefono = proveedor.getTelefono();
+            email = proveedor.getEmail();
+            activo = proveedor.isActivo();
+            productos = proveedor.getIdsProductos();
+        }
+    }
+
+    static final class PedidoCapturado {
+        final int id;
+        final int proveedorId;
+        final String proveedorNombre;
+        final String proveedorEmpresa;
+        final long fechaPedido;
+        final long fechaEntregaEstimada;
+        final long fechaEntregaReal;
+        final PedidoProveedor.EstadoPedido estado;
+        final String observaciones;
+        final boolean combinarItems;
+        final long totalCentavos;
+        final List<PedidoProveedor.ItemPedido> items;
+
+        PedidoCapturado(PedidoProveedor pedido) {
+            id = pedido.getId();
+            proveedorId = pedido.getProveedor().getId();
+            proveedorNombre = pedido.getProveedor().getNombre();
+            proveedorEmpresa = pedido.getProveedor().getEmpresa();
+            fechaPedido = millis(pedido.getFechaPedido());
+            // Los cambios al pedido se hacen con su candado: estado, fechas,
+            // items y total salen del mismo instante
+            synchronized (pedido) {
+                fechaEntregaEstimada = millis(pedido.getFechaEntregaEstimada());
+                fechaEntregaReal = millis(pedido.getFechaEntregaReal());
+                estado = pedido.getEstado();
+                observaciones = pedido.getObservaciones();
+                combinarItems = pedido.isCombinarItems();
+                totalCentavos = pedido.getTotalPedidoCentavos();
+                items = pedido.vistaItems();
+            }
+        }
+    }
+
+    private static long millis(Date fecha) {
+        return fecha == null ? FECHA_NULA : fecha.getTime();
+    }
+
+    /**
+     * La fecha que guardó millis(), o null
+     */
+    static Date fechaDe(long millis) {
+        return millis == FECHA_NULA ? null : new Date(millis);
+    }
+
+    /**
+     * Lo leído de un snapshot y sus deltas, antes de pasarlo a los gestores
+     */
+    private static final class Contenido {
+        // En orden de alta, que es el del archivo
+        final Map<Integer, Cliente> clientes = new LinkedHashMap<>();
+        final Map<Integer, Proveedor> proveedores = new LinkedHashMap<>();
+        final Map<Integer, PedidoProveedor> pedidos = new LinkedHashMap<>();
+        long fechaCreacion;
+        long lsn;
+        long bytes;
+        int deltas;
+    }
+
+    /**
+     * Libro de un cliente en columnas, como lo recibe Cliente.restaurar
+     */
+    private static final class Libro {
+        final int cantidad;
+        final long[] fechas;
+        final long[] montos;
+        final byte[] tipos;
+
+        Libro(int cantidad) {
+            this.cantidad = cantidad;
+            fechas = new long[cantidad];
+            montos = new long[cantidad];
+            tipos = new byte[cantidad];
+        }
+    }
+
+    /**
+     * Qué se restauró de un snapshot
+     */
+    public static class Resumen {
+        private final Date fechaCreacion;
+        private final long lsn;
+        private final int clientes;
+        private final int proveedores;
+        private final int pedidos;
+        private final long bytes;
+        private final int deltas;
+
+        Resumen(Date fechaCreacion, long lsn, int clientes, int proveedores, int pedidos, long bytes, int deltas) {
+            this.fechaCreacion = fechaCreacion;
+            this.lsn = lsn;
+            this.clientes = clientes;
+            this.proveedores = proveedores;
+            this.pedidos = pedidos;
+            this.bytes = bytes;
+            this.deltas = deltas;
+        }
+
+        public Date getFechaCreacion() {
+            return fechaCreacion;
+        }
+
+        /**
+         * Último registro del diario que ya estaba en el snapshot
+         */
+        public long getLsn() {
+            return lsn;
+        }
+
+        public int getClientes() {
+            return clientes;
+        }
+
+        public int getProveedores() {
+            return proveedores;
+        }
+
+        public int getPedidos() {
+            return pedidos;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Deltas aplicados sobre el snapshot
+         */
+        public int getDeltas() {
+            return deltas;
+        }
+
+        @Override
+        public String toString() {
+            return "Resumen{" +
+                    "fechaCreacion=" + fechaCreacion +
+                    ", lsn=" + lsn +
+                    ", clientes=" + clientes +
+                    ", proveedores=" + proveedores +
+                    ", pedidos=" + pedidos +
+                    ", bytes=" + bytes +
+                    ", deltas=" + deltas +
+                    '}';
+        }
+    }
+
+    /**
+     * Escritura con buffer sobre un FileChannel. Los errores de E/S se
+     * guardan y se relanzan en terminar() o close(), para que los métodos
+     * de escritura no tengan que declararlos.
+     */
+    private static final class Escritor implements AutoCloseable {
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        private final CRC32 crc = new CRC32();
+        // Número en el archivo de cada texto ya escrito: el id en
+        // CatalogoProductos de un producto, o el tipo de un movimiento
+        private final Map<Object, Integer> referencias = new HashMap<>();
+        private long escritos;
+        private IOException error;
+
+        Escritor(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        private void asegurar(int bytes) {
+            if (buffer.remaining() < bytes) {
+                vaciar();
+            }
+        }
+
+        private void vaciar() {
+            buffer.flip();
+            ByteBuffer paraCrc = buffer.duplicate();
+            crc.update(paraCrc);
+            try {
+                while (buffer.hasRemaining()) {
+                    escritos += canal.write(buffer);
+                }
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+            buffer.clear();
+        }
+
+        void byteSimple(byte valor) {
+            asegurar(1);
+            buffer.put(valor);
+        }
+
+        void entero16(short valor) {
+            asegurar(2);
+            buffer.putShort(valor);
+        }
+
+        void entero(int valor) {
+            asegurar(4);
+            buffer.putInt(valor);
+        }
+
+        void largo(long valor) {
+            asegurar(8);
+            buffer.putLong(valor);
+        }
+
+        void bytes(byte[] valor) {
+            int desde = 0;
+            while (desde < valor.length) {
+                if (!buffer.hasRemaining()) {
+                    vaciar();
+                }
+                int tramo = Math.min(buffer.remaining(), valor.length - desde);
+                buffer.put(valor, desde, tramo);
+                desde += tramo;
+            }
+        }
+
+        void texto(String valor) {
+            if (valor == null) {
+                entero(-1);
+                return;
+            }
+            byte[] utf8 = valor.getBytes(StandardCharsets.UTF_8);
+            entero(utf8.length);
+            bytes(utf8);
+        }
+
+        /**
+         * Texto de CatalogoProductos: la primera vez se escribe el número
+         * siguiente y el texto; después, solo el número
+         */
+        void referencia(int idCatalogo) {
+            if (idCatalogo < 0) {
+                entero(-1);
+                return;
+            }
+            if (numeroNuevo(idCatalogo)) {
+                texto(CatalogoProductos.nombre(idCatalogo));
+            }
+        }
+
+        /**
+         * Descripción fija de un movimiento del libro, numerada igual que
+         * los productos pero sin pasar por CatalogoProductos
+         */
+        void descripcion(Cliente.TipoMovimiento tipo) {
+            if (numeroNuevo(tipo)) {
+                texto(tipo.getDescripcion());
+            }
+        }
+
+        /**
+         * Escribe el número de la clave
+         *
+         * @return true si es la primera vez, y entonces falta el texto
+         */
+        private boolean numeroNuevo(Object clave) {
+            Integer numero = referencias.get(clave);
+            if (numero != null) {
+                entero(numero);
+                return false;
+            }
+            numero = referencias.size();
+            referencias.put(clave, numero);
+            entero(numero);
+            return true;
+        }
+
+        /**
+         * Agrega el CRC, vacía el buffer y fuerza los datos al disco
+         *
+         * @return Bytes escritos en total
+         */
+        long terminar() throws IOException {
+            vaciar();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                escritos += canal.write(buffer);
+            }
+            buffer.clear();
+            if (error != null) {
+                throw error;
+            }
+            canal.force(true);
+            return escritos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * Lectura con buffer sobre un FileChannel
+     */
+    private static final class Lector {
+        private final FileChannel canal;
+        // Se consulta una vez: cantidad() lo usa por cada lista leída
+        private final long tamano;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        private final CRC32 crc = new CRC32();
+        // Texto de cada referencia por su número en el archivo, y su id en
+        // CatalogoProductos una vez que se leyó como producto (-1 antes)
+        private String[] textosReferencias = new String[256];
+        private int[] referencias = new int[256];
+        private int cantidadReferencias;
+        // Dónde empiezan en el buffer los bytes leídos que faltan sumar al CRC
+        private int inicioSinCrc;
+        private long leidos;
+        private boolean finDeArchivo;
+
+        Lector(FileChannel canal) throws IOException {
+            this.canal = canal;
+            this.tamano = canal.size();
+            buffer.limit(0);
+        }
+
+        /**
+         * Deja al menos la cantidad pedida de bytes en el buffer; lo ya
+         * consumido entra en el CRC antes de descartarse
+         */
+        private void asegurar(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            sumarConsumidoAlCrc();
+            buffer.compact();
+            while (buffer.position() < bytes && !finDeArchivo) {
+                int n = canal.read(buffer);
+                if (n < 0) {
+                    finDeArchivo = true;
+                } else {
+                    leidos += n;
+                }
+            }
+            buffer.flip();
+            if (buffer.remaining() < bytes) {
+                throw new EOFException("El snapshot está incompleto");
+            }
+        }
+
+        private void sumarConsumidoAlCrc() {
+            ByteBuffer consumido = buffer.duplicate();
+            consumido.position(inicioSinCrc).limit(buffer.position());
+            crc.update(consumido);
+            inicioSinCrc = 0;
+        }
+
+        byte byteSimple() throws IOException {
+            asegurar(1);
+            return buffer.get();
+        }
+
+        short entero16() throws IOException {
+            asegurar(2);
+            return buffer.getShort();
+        }
+
+        int entero() throws IOException {
+            asegurar(4);
+            return buffer.getInt();
+        }
+
+        /**
+         * Entero que indica cuántos elementos siguen
+         */
+        int cantidad() throws IOException {
+            int cantidad = entero();
+            // Cada elemento ocupa al menos un byte: evita reservar arreglos
+            // enormes por una cantidad dañada antes de llegar al CRC
+            if (cantidad < 0 || cantidad > buffer.remaining() + tamano - leidos) {
+                throw new IOException("El snapshot está dañado: cantidad fuera de rango");
+            }
+            return cantidad;
+        }
+
+        long largo() throws IOException {
+            asegurar(8);
+            return buffer.getLong();
+        }
+
+        byte[] bytes(int cantidad) throws IOException {
+            byte[] destino = new byte[cantidad];
+            int desde = 0;
+            while (desde < cantidad) {
+                asegurar(1);
+                int tramo = Math.min(buffer.remaining(), cantidad - desde);
+                buffer.get(destino, desde, tramo);
+                desde += tramo;
+            }
+            return destino;
+        }
+
+        String texto() throws IOException {
+            int largo = entero();
+            if (largo < 0) {
+                return null;
+            }
+            if (largo <= buffer.capacity()) {
+                asegurar(largo);
+                ByteBuffer tramo = buffer.duplicate();
+                tramo.limit(buffer.position() + largo);
+                String valor = StandardCharsets.UTF_8.decode(tramo).toString();
+                buffer.position(buffer.position() + largo);
+                return valor;
+            }
+            return new String(bytes(largo), StandardCharsets.UTF_8);
+        }
+
+        Date fecha() throws IOException {
+            long valor = largo();
+            return valor == FECHA_NULA ? null : new Date(valor);
+        }
+
+        /**
+         * Lee una referencia escrita por Escritor.referencia y devuelve el
+         * id en CatalogoProductos (o -1)
+         */
+        int referencia() throws IOException {
+            int numero = numeroReferencia();
+            if (numero < 0) {
+                return -1;
+            }
+            if (referencias[numero] < 0) {
+                referencias[numero] = CatalogoProductos.idDe(textosReferencias[numero]);
+            }
+            return referencias[numero];
+        }
+
+        /**
+         * Lee una referencia escrita por Escritor.descripcion sin
+         * registrar su texto en CatalogoProductos
+         */
+        void omitirReferencia() throws IOException {
+            numeroReferencia();
+        }
+
+        private int numeroReferencia() throws IOException {
+            int numero = entero();
+            if (numero < 0 || numero < cantidadReferencias) {
+                return numero;
+            }
+            if (numero != cantidadReferencias) {
+                throw new IOException("El snapshot está dañado: referencia fuera de orden");
+            }
+            String texto = texto();
+            if (texto == null) {
+                throw new IOException("El snapshot está dañado: referencia sin texto");
+            }
+            if (cantidadReferencias == referencias.length) {
+                referencias = Arrays.copyOf(referencias, cantidadReferencias * 2);
+                textosReferencias = Arrays.copyOf(textosReferencias, cantidadReferencias * 2);
+            }
+            textosReferencias[cantidadReferencias] = texto;
+            referencias[cantidadReferencias] = -1;
+            return cantidadReferencias++;
+        }
+
+        /**
+         * Compara el CRC calculado con el guardado y exige que no sobre nada
+         */
+        void verificarFin() throws IOException {
+            sumarConsumidoAlCrc();
+            inicioSinCrc = buffer.position();
+            int esperado = entero();
+            if (esperado != (int) crc.getValue()) {
+                throw new IOException("El snapshot está dañado: no coincide el CRC");
+            }
+            if (buffer.hasRemaining() || leidos < tamano) {
+                throw new IOException("El snapshot está dañado: sobran datos al final");
+            }
+        }
+
+        long leidos() {
+            return leidos;
+        }
+    }
+}
\ No newline at end of file
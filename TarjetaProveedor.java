@@ -0,0 +1,258 @@
+package ERICK-S-CONVENIENCE-STORE;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tarjeta de desempeño de un proveedor: demora de las entregas, cuántas
+ * llegaron a tiempo y precio unitario promedio de cada producto.
+ * GestorPedidos la actualiza cuando un pedido pasa a ENTREGADO, así que
+ * consultarla no recorre el historial.
+ *
+ * Las demoras van a un histograma de tamaño fijo con cubetas logarítmicas
+ * (8 por cada potencia de 2), de modo que los percentiles se obtienen con
+ * un error de a lo sumo 1/16 del valor sin guardar cada entrega. Los
+ * precios se acumulan por producto (suma de subtotales y de unidades).
+ */
+public class TarjetaProveedor {
+    private final int idProveedor;
+    private final HistogramaDemoras demoras;
+    private int entregasConFechaEstimada;
+    private int entregasATiempo;
+    private final Map<Integer, PrecioProducto> preciosPorProducto;
+
+    public TarjetaProveedor(int idProveedor) {
+        this.idProveedor = idProveedor;
+        this.demoras = new HistogramaDemoras();
+        this.preciosPorProducto = new HashMap<>();
+    }
+
+    /**
+     * Registra un pedido entregado. Si no tiene fecha de entrega real se
+     * toma el momento actual.
+     */
+    void registrarEntrega(PedidoProveedor pedido) {
+        Date entregaReal = pedido.getFechaEntregaReal() != null ? pedido.getFechaEntregaReal() : new Date();
+        registrarEntrega(pedido.getFechaPedido(), pedido.getFechaEntregaEstimada(), entregaReal, pedido.vistaItems());
+    }
+
+    void registrarEntrega(Date fechaPedido, Date entregaEstimada, Date entregaReal,
+                          List<PedidoProveedor.ItemPedido> items) {
+        long minutos = Math.max(0, (entregaReal.getTime() - fechaPedido.getTime()) / 60_000L);
+        demoras.registrar(minutos);
+
+        // A tiempo = llegó a más tardar el día estimado
+        if (entregaEstimada != null) {
+            entregasConFechaEstimada++;
+            if (!dia(entregaReal).isAfter(dia(entregaEstimada))) {
+                entregasATiempo++;
+            }
+        }
+
+        for (PedidoProveedor.ItemPedido item : items) {
+            if (item.getProductoId() >= 0) {
+                preciosPorProducto.computeIfAbsent(item.getProductoId(), id -> new PrecioProducto())
+                        .registrar(item.getCantidad(), item.getSubtotalCentavos());
+            }
+        }
+    }
+
+    private static LocalDate dia(Date fecha) {
+        return fecha.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    public int getIdProveedor() {
+        return idProveedor;
+    }
+
+    public long getEntregasRegistradas() {
+        return demoras.getCantidad();
+    }
+
+    // ============ DEMORAS ============
+
+    /**
+     * Demora (de la fecha del pedido a la entrega real) por debajo de la
+     * cual queda el porcentaje indicado de las entregas
+     *
+     * @param porcentaje Entre 0 (exclusivo) y 100
+     * @return Minutos aproximados, o 0 si todavía no hay entregas
+     */
+    public long percentilDemoraMinutos(double porcentaje) {
+        if (!(porcentaje > 0 && porcentaje <= 100)) {
+            throw new IllegalArgumentException("El porcentaje debe estar entre 0 y 100");
+        }
+        return demoras.percentil(porcentaje);
+    }
+
+    public long getMedianaDemoraMinutos() {
+        return percentilDemoraMinutos(50);
+    }
+
+    public double getDemoraPromedioMinutos() {
+        return demoras.getCantidad() == 0 ? 0 : demoras.getSuma() / (double) demoras.getCantidad();
+    }
+
+    public long getDemoraMaximaMinutos() {
+        return demoras.getMaximo();
+    }
+
+    // ============ PUNTUALIDAD ============
+
+    public int getEntregasConFechaEstimada() {
+        return entregasConFechaEstimada;
+    }
+
+    public int getEntregasATiempo() {
+        return entregasATiempo;
+    }
+
+    /**
+     * Fracción de las entregas con fecha estimada que llegaron a tiempo
+     * (0 si no hay ninguna)
+     */
+    public double getProporcionATiempo() {
+        return entregasConFechaEstimada == 0 ? 0 : entregasATiempo / (double) entregasConFechaEstimada;
+    }
+
+    // ============ PRECIOS ============
+
+    /**
+     * Precio unitario promedio pagado por un producto, ponderado por las
+     * unidades de cada entrega
+     *
+     * @return El promedio en centavos, o 0 si nunca se entregó el producto
+     */
+    public long precioPromedioCentavos(String producto) {
+        PrecioProducto precio = precioDe(producto);
+        return precio == null ? 0 : precio.promedioCentavos();
+    }
+
+    public double precioPromedio(String producto) {
+        return Dinero.aPesos(precioPromedioCentavos(producto));
+    }
+
+    /**
+     * Unidades entregadas de un producto (0 si nunca se entregó)
+     */
+    public long unidadesEntregadas(String producto) {
+        PrecioProducto precio = precioDe(producto);
+        return precio == null ? 0 : precio.unidades;
+    }
+
+    private PrecioProducto precioDe(String producto) {
+        int idProducto = CatalogoProductos.buscarId(producto);
+        return idProducto < 0 ? null : preciosPorProducto.get(idProducto);
+    }
+
+    @Override
+    public String toString() {
+        return "TarjetaProveedor{" +
+                "idProveedor=" + idProveedor +
+                ", entregas=" + demoras.getCantidad() +
+                ", medianaDemoraMinutos=" + (demoras.getCantidad() == 0 ? 0 : getMedianaDemoraMinutos()) +
+                ", aTiempo=" + entregasATiempo + "/" + entregasConFechaEstimada +
+                ", productos=" + preciosPorProducto.size() +
+                '}';
+    }
+
+    /**
+     * Unidades y monto entregados de un producto
+     */
+    private static class PrecioProducto {
+        private long unidades;
+        private long montoCentavos;
+
+        void registrar(int cantidad, long subtotalCentavos) {
+            unidades += cantidad;
+            montoCentavos = Math.addExact(montoCentavos, subtotalCentavos);
+        }
+
+        long promedioCentavos() {
+            return unidades == 0 ? 0 : Math.round(montoCentavos / (double) unidades);
+        }
+    }
+
+    /**
+     * Histograma log-lineal de minutos: exacto hasta 15 y, de ahí en
+     * adelante, 8 cubetas por cada potencia de 2. Ocupa lo mismo con una
+     * entrega que con un millón.
+     */
+    private static class HistogramaDemoras {
+        private static final int EXACTAS = 16;
+        private static final int SUBCUBETAS = 8;
+        // Hasta 2^31 minutos; lo que pase de ahí cae en la última cubeta
+        private static final int MAXIMO_EXPONENTE = 30;
+
+        private final long[] cubetas = new long[EXACTAS + (MAXIMO_EXPONENTE - 3) * SUBCUBETAS];
+        private long cantidad;
+        private long suma;
+        private long maximo;
+
+        void registrar(long minutos) {
+            cubetas[indice(minutos)]++;
+            cantidad++;
+            suma += minutos;
+            maximo = Math.max(maximo, minutos);
+        }
+
+        private static int indice(long valor) {
+            if (valor < EXACTAS) {
+                return (int) valor;
+            }
+            int exponente = Math.min(63 - Long.numberOfLeadingZeros(valor), MAXIMO_EXPONENTE);
+            int sub = exponente == MAXIMO_EXPONENTE && valor >= (1L << (MAXIMO_EXPONENTE + 1))
+                    ? SUBCUBETAS - 1
+                    : (int) ((valor >> (exponente - 3)) & (SUBCUBETAS - 1));
+            return EXACTAS + (exponente - 4) * SUBCUBETAS + sub;
+        }
+
+        /**
+         * Valor representativo (punto medio) de una cubeta
+         */
+        private static long valorDe(int indice) {
+            if (indice < EXACTAS) {
+                return indice;
+            }
+            int exponente = 4 + (indice - EXACTAS) / SUBCUBETAS;
+            int sub = (indice - EXACTAS) % SUBCUBETAS;
+            long ancho = 1L << (exponente - 3);
+            return (SUBCUBETAS + sub) * ancho + ancho / 2;
+        }
+
+        long percentil(double porcentaje) {
+            if (cantidad == 0) {
+                return 0;
+            }
+            long objetivo = (long) Math.ceil(cantidad * porcentaje / 100.0);
+            if (objetivo >= cantidad) {
+                return maximo;
+            }
+            long acumulado = 0;
+            for (int i = 0; i < cubetas.length; i++) {
+                acumulado += cubetas[i];
+                if (acumulado >= objetivo) {
+                    // El punto medio nunca pasa del máximo observado
+                    return Math.min(valorDe(i), maximo);
+                }
+            }
+            return maximo;
+        }
+
+        long getCantidad() {
+            return cantidad;
+        }
+
+        long getSuma() {
+            return suma;
+        }
+
+        long getMaximo() {
+            return maximo;
+        }
+    }
+}
\ No newline at end of file
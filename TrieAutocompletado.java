@@ -0,0 +1,470 @@
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Trie de prefijos para autocompletar nombres de clientes en la caja
+ * Issue #5: Buscar un cliente
+ *
+ * Cada palabra del nombre se indexa sin tildes ni mayúsculas, así que
+ * "carlos lop" encuentra a "Carlos López". Cada nodo guarda en caché los
+ * TOP_K mejores clientes de su subárbol (mayor saldo de deuda primero),
+ * por lo que una consulta de una palabra no recorre la lista de clientes.
+ *
+ * Las escrituras se serializan con el candado del trie; las consultas no
+ * toman candado porque cada nodo publica arreglos nuevos en lugar de
+ * modificar los que un lector podría estar recorriendo.
+ */
+public class TrieAutocompletado {
+    public static final int TOP_K = 8;
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Cliente[] SIN_CLIENTES = new Cliente[0];
+
+    /**
+     * Orden de puntaje: mayor saldo de deuda primero, luego el más antiguo
+     */
+    private static final Comparator<Cliente> POR_PUNTAJE = (a, b) -> {
+        int porSaldo = Long.compare(b.getSaldoDeudaCentavos(), a.getSaldoDeudaCentavos());
+        return porSaldo != 0 ? porSaldo : Integer.compare(a.getId(), b.getId());
+    };
+
+    private volatile Nodo raiz;
+    // Palabras indexadas de cada cliente, para poder retirarlo o reordenarlo
+    private Map<Integer, String[]> palabrasPorCliente;
+
+    public TrieAutocompletado() {
+        this.raiz = new Nodo();
+        this.palabrasPorCliente = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Indexa todas las palabras del nombre del cliente
+     */
+    public synchronized void agregar(Cliente cliente) {
+        String[] palabras = tokenizar(cliente.getNombre());
+        palabrasPorCliente.put(cliente.getId(), palabras);
+        for (String palabra : palabras) {
+            Nodo[] camino = recorrer(palabra, true);
+            for (Nodo nodo : camino) {
+                nodo.cantidad++;
+            }
+            camino[camino.length - 1].agregarTerminal(cliente);
+            recalcularCamino(camino);
+        }
+    }
+
+    /**
+     * Indexa muchos clientes de una vez (por ejemplo, al restaurar un
+     * respaldo). Agrega todas las palabras y recalcula cada caché una sola
+     * vez al final, en lugar de recalcular el camino de cada palabra.
+     */
+    public synchronized void agregarTodos(Collection<Cliente> clientes) {
+        Map<Nodo, List<Cliente>> nuevosTerminales = new IdentityHashMap<>();
+        for (Cliente cliente : clientes) {
+            String[] palabras = tokenizar(cliente.getNombre());
+            palabrasPorCliente.put(cliente.getId(), palabras);
+            for (String palabra : palabras) {
+                Nodo[] camino = recorrer(palabra, true);
+                for (Nodo nodo : camino) {
+                    nodo.cantidad++;
+                }
+                nuevosTerminales.computeIfAbsent(camino[camino.length - 1], nodo -> new ArrayList<>()).add(cliente);
+            }
+        }
+        for (Map.Entry<Nodo, List<Cliente>> entrada : nuevosTerminales.entrySet()) {
+            entrada.getKey().agregarTerminales(entrada.getValue());
+        }
+        recalcularSubarbol(raiz);
+    }
+
+    private static void recalcularSubarbol(Nodo nodo) {
+        for (Nodo hijo : nodo.hijos.nodos) {
+            recalcularSubarbol(hijo);
+        }
+        nodo.recalcularTop();
+    }
+
+    /**
+     * Retira al cliente del trie
+     */
+    public synchronized void eliminar(Cliente cliente) {
+        String[] palabras = palabrasPorCliente.remove(cliente.getId());
+        if (palabras == null) {
+            return;
+        }
+        for (String palabra : palabras) {
+            Nodo[] camino = recorrer(palabra, false);
+            if (camino == null) {
+                continue;
+            }
+            if (!camino[camino.length - 1].quitarTerminal(cliente)) {
+                continue;
+            }
+            for (Nodo nodo : camino) {
+                nodo.cantidad--;
+            }
+            // Podar las ramas que quedaron vacías
+            for (int i = camino.length - 1; i > 0; i--) {
+                if (camino[i].cantidad == 0) {
+                    camino[i - 1].quitarHijo(palabra.charAt(i - 1));
+                }
+            }
+            recalcularCamino(camino);
+        }
+    }
+
+    /**
+     * Reordena las cachés después de un cambio en el saldo del cliente
+     */
+    public synchronized void actualizar(Cliente cliente) {
+        String[] palabras = palabrasPorCliente.get(cliente.getId());
+        if (palabras == null) {
+            return;
+        }
+        for (String palabra : palabras) {
+            Nodo[] camino = recorrer(palabra, false);
+            if (camino != null) {
+                recalcularCamino(camino);
+            }
+        }
+    }
+
+    /**
+     * Vacía el trie
+     */
+    public synchronized void limpiar() {
+        raiz = new Nodo();
+        palabrasPorCliente.clear();
+    }
+
+    /**
+     * Retorna hasta "limite" clientes cuyo nombre tiene, por cada palabra de
+     * la consulta, alguna palabra que empieza por ella. Los resultados van
+     * ordenados por mayor saldo de deuda.
+     */
+    public List<Cliente> autocompletar(String consulta, int limite) {
+        String[] prefijos = tokenizar(consulta);
+        List<Cliente> resultado = new ArrayList<>();
+        if (prefijos.length == 0) {
+            return resultado;
+        }
+
+        // Consulta de una palabra: la respuesta ya está en la caché del nodo
+        if (prefijos.length == 1 && limite <= TOP_K) {
+            Nodo nodo = buscarNodo(prefijos[0]);
+            if (nodo != null) {
+                Cliente[] top = nodo.top;
+                for (int i = 0; i < top.length && i < limite; i++) {
+                    resultado.add(top[i]);
+                }
+            }
+            return resultado;
+        }
+
+        // Varias palabras: se parte del prefijo más selectivo y se filtra
+        Nodo masSelectivo = null;
+        for (String prefijo : prefijos) {
+            Nodo nodo = buscarNodo(prefijo);
+            if (nodo == null) {
+                return resultado;
+            }
+            if (masSelectivo == null || nodo.cantidad < masSelectivo.cantidad) {
+                masSelectivo = nodo;
+            }
+        }
+        Set<Cliente> candidatos = new LinkedHashSet<>();
+        masSelectivo.recolectar(candidatos);
+        List<Puntuado> puntuados = new ArrayList<>();
+        for (Cliente candidato : candidatos) {
+            String[] palabras = palabrasPorCliente.get(candidato.getId());
+            // null si el cliente se eliminó durante la consulta
+            if (palabras != null && cubrePrefijos(palabras, prefijos)) {
+                puntuados.add(new Puntuado(candidato));
+            }
+        }
+        // Con el saldo tomado una vez: las cajas lo siguen cambiando, y
+        // ordenar por valores que se mueven rompe el contrato del sort
+        Collections.sort(puntuados);
+        for (int i = 0; i < puntuados.size() && i < limite; i++) {
+            resultado.add(puntuados.get(i).cliente);
+        }
+        return resultado;
+    }
+
+    /**
+     * Quita tildes, pasa a minúsculas y separa en palabras
+     */
+    static String[] tokenizar(String texto) {
+        if (texto == null) {
+            return new String[0];
+        }
+        if (esAscii(texto)) {
+            return tokenizarAscii(texto);
+        }
+        String plegado = MARCAS_DIACRITICAS
+                .matcher(Normalizer.normalize(texto, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(SEPARADORES.split(plegado))
+                .filter(p -> !p.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    private static boolean esAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 128) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mismo resultado que tokenizar() para texto ASCII, que no tiene tildes
+     * que quitar: evita la normalización y las expresiones regulares, que
+     * dominan al indexar muchos clientes de una vez
+     */
+    private static String[] tokenizarAscii(String texto) {
+        List<String> palabras = new ArrayList<>(4);
+        int inicio = -1;
+        for (int i = 0; i <= texto.length(); i++) {
+            boolean alfanumerico = i < texto.length() && Character.isLetterOrDigit(texto.charAt(i));
+            if (alfanumerico && inicio < 0) {
+                inicio = i;
+            } else if (!alfanumerico && inicio >= 0) {
+                String palabra = texto.substring(inicio, i).toLowerCase(Locale.ROOT);
+                if (!palabras.contains(palabra)) {
+                    palabras.add(palabra);
+                }
+                inicio = -1;
+            }
+        }
+        return palabras.toArray(new String[0]);
+    }
+
+    private static boolean cubrePrefijos(String[] palabras, String[] prefijos) {
+        for (String prefijo : prefijos) {
+            boolean cubierto = false;
+            for (String palabra : palabras) {
+                if (palabra.startsWith(prefijo)) {
+                    cubierto = true;
+                    break;
+                }
+            }
+            if (!cubierto) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Nodo buscarNodo(String prefijo) {
+        Nodo nodo = raiz;
+        for (int i = 0; i < prefijo.length() && nodo != null; i++) {
+            nodo = nodo.hijo(prefijo.charAt(i));
+        }
+        return nodo;
+    }
+
+    /**
+     * Retorna los nodos desde la raíz hasta el final de la palabra
+     */
+    private Nodo[] recorrer(String palabra, boolean crear) {
+        Nodo[] camino = new Nodo[palabra.length() + 1];
+        camino[0] = raiz;
+        for (int i = 0; i < palabra.length(); i++) {
+            Nodo siguiente = camino[i].hijo(palabra.charAt(i));
+            if (siguiente == null) {
+                if (!crear) {
+                    return null;
+                }
+                siguiente = camino[i].agregarHijo(palabra.charAt(i));
+            }
+            camino[i + 1] = siguiente;
+        }
+        return camino;
+    }
+
+    /**
+     * Recalcula las cachés de abajo hacia arriba; cada nodo solo combina
+     * sus clientes terminales con las cachés de sus hijos
+     */
+    private void recalcularCamino(Nodo[] camino) {
+        for (int i = camino.length - 1; i >= 0; i--) {
+            camino[i].recalcularTop();
+        }
+    }
+
+    /**
+     * Cliente con el saldo que tenía al consultarlo, en el orden de POR_PUNTAJE
+     */
+    private static final class Puntuado implements Comparable<Puntuado> {
+        private final Cliente cliente;
+        private final long saldoCentavos;
+
+        Puntuado(Cliente cliente) {
+            this.cliente = cliente;
+            this.saldoCentavos = cliente.getSaldoDeudaCentavos();
+        }
+
+        @Override
+        public int compareTo(Puntuado otro) {
+            int porSaldo = Long.compare(otro.saldoCentavos, saldoCentavos);
+            return porSaldo != 0 ? porSaldo : Integer.compare(cliente.getId(), otro.cliente.getId());
+        }
+    }
+
+    /**
+     * Hijos de un nodo: letras ordenadas y sus nodos, publicados juntos
+     */
+    private static final class Hijos {
+        private static final Hijos NINGUNO = new Hijos(new char[0], new Nodo[0]);
+
+        private final char[] letras;
+        private final Nodo[] nodos;
+
+        Hijos(char[] letras, Nodo[] nodos) {
+            this.letras = letras;
+            this.nodos = nodos;
+        }
+    }
+
+    /**
+     * Nodo compacto: los hijos se guardan en arreglos ordenados por letra
+     */
+    private static class Nodo {
+        private volatile Hijos hijos = Hijos.NINGUNO;
+        // Clientes con alguna palabra que termina en este nodo
+        private volatile Cliente[] terminales = SIN_CLIENTES;
+        private volatile Cliente[] top = SIN_CLIENTES;
+        // Cantidad de pares (cliente, palabra) en el subárbol
+        private volatile int cantidad;
+
+        Nodo hijo(char letra) {
+            Hijos actuales = hijos;
+            int pos = Arrays.binarySearch(actuales.letras, letra);
+            return pos >= 0 ? actuales.nodos[pos] : null;
+        }
+
+        Nodo agregarHijo(char letra) {
+            Hijos actuales = hijos;
+            char[] letras = actuales.letras;
+            int pos = -(Arrays.binarySearch(letras, letra) + 1);
+            char[] nuevasLetras = new char[letras.length + 1];
+            Nodo[] nuevosHijos = new Nodo[letras.length + 1];
+            System.arraycopy(letras, 0, nuevasLetras, 0, pos);
+            System.arraycopy(actuales.nodos, 0, nuevosHijos, 0, pos);
+            System.arraycopy(letras, pos, nuevasLetras, pos + 1, letras.length - pos);
+            System.arraycopy(actuales.nodos, pos, nuevosHijos, pos + 1, letras.length - pos);
+            Nodo nuevo = new Nodo();
+            nuevasLetras[pos] = letra;
+            nuevosHijos[pos] = nuevo;
+            hijos = new Hijos(nuevasLetras, nuevosHijos);
+            return nuevo;
+        }
+
+        void quitarHijo(char letra) {
+            Hijos actuales = hijos;
+            char[] letras = actuales.letras;
+            int pos = Arrays.binarySearch(letras, letra);
+            if (pos < 0) {
+                return;
+            }
+            char[] nuevasLetras = new char[letras.length - 1];
+            Nodo[] nuevosHijos = new Nodo[letras.length - 1];
+            System.arraycopy(letras, 0, nuevasLetras, 0, pos);
+            System.arraycopy(actuales.nodos, 0, nuevosHijos, 0, pos);
+            System.arraycopy(letras, pos + 1, nuevasLetras, pos, letras.length - pos - 1);
+            System.arraycopy(actuales.nodos, pos + 1, nuevosHijos, pos, letras.length - pos - 1);
+            hijos = new Hijos(nuevasLetras, nuevosHijos);
+        }
+
+        void agregarTerminal(Cliente cliente) {
+            Cliente[] nuevos = Arrays.copyOf(terminales, terminales.length + 1);
+            nuevos[terminales.length] = cliente;
+            terminales = nuevos;
+        }
+
+        void agregarTerminales(List<Cliente> clientes) {
+            Cliente[] actuales = terminales;
+            Cliente[] nuevos = Arrays.copyOf(actuales, actuales.length + clientes.size());
+            for (int i = 0; i < clientes.size(); i++) {
+                nuevos[actuales.length + i] = clientes.get(i);
+            }
+            terminales = nuevos;
+        }
+
+        boolean quitarTerminal(Cliente cliente) {
+            Cliente[] actuales = terminales;
+            for (int i = 0; i < actuales.length; i++) {
+                if (actuales[i] == cliente) {
+                    Cliente[] nuevos = new Cliente[actuales.length - 1];
+                    System.arraycopy(actuales, 0, nuevos, 0, i);
+                    System.arraycopy(actuales, i + 1, nuevos, i, actuales.length - i - 1);
+                    terminales = nuevos.length == 0 ? SIN_CLIENTES : nuevos;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void recalcularTop() {
+            Cliente[] mejores = new Cliente[TOP_K];
+            int n = 0;
+            for (Cliente cliente : terminales) {
+                n = insertarAcotado(mejores, n, cliente);
+            }
+            for (Nodo hijo : hijos.nodos) {
+                for (Cliente cliente : hijo.top) {
+                    n = insertarAcotado(mejores, n, cliente);
+                }
+            }
+            top = n == 0 ? SIN_CLIENTES : Arrays.copyOf(mejores, n);
+        }
+
+        void recolectar(Set<Cliente> destino) {
+            destino.addAll(Arrays.asList(terminales));
+            for (Nodo hijo : hijos.nodos) {
+                hijo.recolectar(destino);
+            }
+        }
+
+        /**
+         * Inserta en orden dentro de un arreglo de a lo sumo TOP_K clientes,
+         * sin repetir (un cliente puede llegar por varias palabras)
+         */
+        private static int insertarAcotado(Cliente[] mejores, int n, Cliente cliente) {
+            for (int i = 0; i < n; i++) {
+                if (mejores[i] == cliente) {
+                    return n;
+                }
+            }
+            int pos = n;
+            while (pos > 0 && POR_PUNTAJE.compare(cliente, mejores[pos - 1]) < 0) {
+                pos--;
+            }
+            if (pos >= TOP_K) {
+                return n;
+            }
+            int ultimo = Math.min(n, TOP_K - 1);
+            System.arraycopy(mejores, pos, mejores, pos + 1, ultimo - pos);
+            mejores[pos] = cliente;
+            return Math.min(n + 1, TOP_K);
+        }
+    }
+}
@@ -1,4 +1,7 @@
+import csv
+import os
 import tkinter as tk
+from collections import Counter
 from tkinter import ttk
 
 
@@ -31,7 +34,7 @@ INGRESOS_SEMANALES = {
 }
 
 
-DEUDAS_PROVEEDORES = {
+GASTOS_PROVEEDORES = {
     "Distribuidora Andina": {
         "Enero 2025": 3210.75,
         "Febrero 2025": 2985.40,
@@ -60,12 +63,65 @@ DEUDAS_PROVEEDORES = {
 }
 
 
+MESES = (
+    "Enero", "Febrero", "Marzo", "Abril", "Mayo", "Junio",
+    "Julio", "Agosto", "Septiembre", "Octubre", "Noviembre", "Diciembre",
+)
+
+# CSV que exporta SistemaRespaldo en cada respaldo
+# (id_proveedor,proveedor,mes,monto): lo gastado en pedidos entregados
+ARCHIVO_GASTOS = os.path.join(
+    os.path.dirname(os.path.abspath(__file__)), "respaldos", "gastos_proveedores.csv"
+)
+
+
+def _etiqueta_mes(anio_mes: str) -> str:
+    """Convierte "2025-01" en "Enero 2025"."""
+    anio, mes = anio_mes.split("-")
+    return f"{MESES[int(mes) - 1]} {anio}"
+
+
+def _orden_mes(etiqueta: str) -> tuple[int, int]:
+    """Clave para ordenar etiquetas como "Enero 2025" cronológicamente."""
+    nombre, anio = etiqueta.rsplit(" ", 1)
+    return int(anio), MESES.index(nombre)
+
+
+def cargar_gastos_proveedores(ruta: str = ARCHIVO_GASTOS) -> dict[str, dict[str, float]]:
+    """Lee los gastos mensuales por proveedor exportados por el sistema.
+
+    Las filas se agrupan por id de proveedor: dos proveedores de la misma
+    empresa no se mezclan, y se muestran con su id al lado.
+
+    Si el archivo no existe o no se puede leer, devuelve los datos de
+    ejemplo para que el panel siga funcionando sin un respaldo.
+    """
+    try:
+        with open(ruta, encoding="utf-8", newline="") as archivo:
+            por_id: dict[int, tuple[str, dict[str, float]]] = {}
+            for fila in csv.DictReader(archivo):
+                id_proveedor = int(fila["id_proveedor"])
+                mes = _etiqueta_mes(fila["mes"])
+                _, meses = por_id.setdefault(id_proveedor, (fila["proveedor"], {}))
+                meses[mes] = float(fila["monto"])
+    except (OSError, KeyError, ValueError):
+        return GASTOS_PROVEEDORES
+
+    empresas = Counter(empresa for empresa, _ in por_id.values())
+    gastos: dict[str, dict[str, float]] = {}
+    for id_proveedor, (empresa, meses) in por_id.items():
+        etiqueta = empresa if empresas[empresa] == 1 else f"{empresa} (#{id_proveedor})"
+        gastos[etiqueta] = meses
+    return gastos or GASTOS_PROVEEDORES
+
+
 class IngresosApp(tk.Tk):
     def __init__(self) -> None:
         super().__init__()
         self.title("La tienda de Erick - Panel financiero")
         self.geometry("640x460")
         self.resizable(False, False)
+        self.gastos_proveedores = cargar_gastos_proveedores()
 
         self._crear_widgets()
         self._cargar_semanas()
@@ -76,13 +132,13 @@ class IngresosApp(tk.Tk):
         self.notebook.pack(fill=tk.BOTH, expand=True, padx=12, pady=12)
 
         self.tab_ingresos = ttk.Frame(self.notebook, padding=10)
-        self.tab_deudas = ttk.Frame(self.notebook, padding=10)
+        self.tab_gastos = ttk.Frame(self.notebook, padding=10)
 
         self.notebook.add(self.tab_ingresos, text="Ingresos semanales")
-        self.notebook.add(self.tab_deudas, text="Deudas con proveedores")
+        self.notebook.add(self.tab_gastos, text="Gastos con proveedores")
 
         self._crear_tab_ingresos()
-        self._crear_tab_deudas()
+        self._crear_tab_gastos()
 
     def _crear_tab_ingresos(self) -> None:
         ttk.Label(
@@ -120,12 +176,12 @@ class IngresosApp(tk.Tk):
             font=("Segoe UI", 11, "bold"),
         ).pack(pady=(0, 10))
 
-    def _crear_tab_deudas(self) -> None:
+    def _crear_tab_gastos(self) -> None:
         instrucciones = (
-            "Selecciona un proveedor y un mes para consultar la deuda registrada."
+            "Selecciona un proveedor y un mes para consultar lo gastado en pedidos entregados."
         )
         ttk.Label(
-            self.tab_deudas,
+            self.tab_gastos,
             text=instrucciones,
             font=("Segoe UI", 10),
             wraplength=520,
@@ -133,12 +189,12 @@ class IngresosApp(tk.Tk):
         ).grid(row=0, column=0, columnspan=2, sticky="w", pady=(0, 15))
 
         ttk.Label(
-            self.tab_deudas,
+            self.tab_gastos,
             text="Proveedor:",
             font=("Segoe UI", 10, "bold"),
         ).grid(row=1, column=0, sticky="w")
         self.combo_proveedor = ttk.Combobox(
-            self.tab_deudas,
+            self.tab_gastos,
             state="readonly",
             font=("Segoe UI", 10),
             width=30,
@@ -146,12 +202,12 @@ class IngresosApp(tk.Tk):
         self.combo_proveedor.grid(row=1, column=1, sticky="ew", padx=(10, 0))
 
         ttk.Label(
-            self.tab_deudas,
+            self.tab_gastos,
             text="Mes:",
             font=("Segoe UI", 10, "bold"),
         ).grid(row=2, column=0, sticky="w", pady=(10, 0))
         self.combo_mes = ttk.Combobox(
-            self.tab_deudas,
+            self.tab_gastos,
             state="readonly",
             font=("Segoe UI", 10),
             width=20,
@@ -163,15 +219,15 @@ class IngresosApp(tk.Tk):
         )
         self.combo_mes.bind("<<ComboboxSelected>>", self._on_proveedor_mes_cambiado)
 
-        self.deuda_var = tk.StringVar(value="Selecciona un proveedor y un mes.")
+        self.gasto_var = tk.StringVar(value="Selecciona un proveedor y un mes.")
         ttk.Label(
-            self.tab_deudas,
-            textvariable=self.deuda_var,
+            self.tab_gastos,
+            textvariable=self.gasto_var,
             font=("Segoe UI", 11, "bold"),
         ).grid(row=3, column=0, columnspan=2, sticky="w", pady=(20, 0))
 
-        self.tab_deudas.grid_columnconfigure(0, weight=0)
-        self.tab_deudas.grid_columnconfigure(1, weight=1)
+        self.tab_gastos.grid_columnconfigure(0, weight=0)
+        self.tab_gastos.grid_columnconfigure(1, weight=1)
 
     def _cargar_semanas(self) -> None:
         semanas = list(INGRESOS_SEMANALES.keys())
@@ -181,9 +237,10 @@ class IngresosApp(tk.Tk):
             self._actualizar_tabla(semanas[0])
 
     def _cargar_proveedores(self) -> None:
-        proveedores = list(DEUDAS_PROVEEDORES.keys())
+        proveedores = list(self.gastos_proveedores.keys())
         meses = sorted(
-            {mes for datos in DEUDAS_PROVEEDORES.values() for mes in datos.keys()}
+            {mes for datos in self.gastos_proveedores.values() for mes in datos.keys()},
+            key=_orden_mes,
         )
         self.combo_proveedor["values"] = proveedores
         self.combo_mes["values"] = meses
@@ -219,15 +276,15 @@ class IngresosApp(tk.Tk):
         mes = self.combo_mes.get()
 
         if not proveedor or not mes:
-            self.deuda_var.set("Selecciona un proveedor y un mes.")
+            self.gasto_var.set("Selecciona un proveedor y un mes.")
             return
 
-        monto = DEUDAS_PROVEEDORES.get(proveedor, {}).get(mes)
+        monto = self.gastos_proveedores.get(proveedor, {}).get(mes)
 
         if monto is None:
-            self.deuda_var.set("Sin registros de deuda para esta combinación.")
+            self.gasto_var.set("Sin gastos registrados para esta combinación.")
         else:
-            self.deuda_var.set(f"Deuda del mes: ${monto:,.2f}")
+            self.gasto_var.set(f"Gasto del mes: ${monto:,.2f}")
 
 
 if __name__ == "__main__":